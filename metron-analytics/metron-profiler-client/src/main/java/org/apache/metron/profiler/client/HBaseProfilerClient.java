@@ -20,27 +20,76 @@
 
 package org.apache.metron.profiler.client;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.metron.common.utils.SerDeUtils;
 import org.apache.metron.hbase.TableProvider;
 import org.apache.metron.profiler.ProfileMeasurement;
 import org.apache.metron.profiler.ProfilePeriod;
+import org.apache.metron.profiler.ProfileRollup;
 import org.apache.metron.profiler.hbase.ColumnBuilder;
 import org.apache.metron.profiler.hbase.RowKeyBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * The default implementation of a ProfilerClient that fetches profile data persisted in HBase.
+ *
+ * <p>Measurements are read with a single batch of gets.  When many of the measurements share
+ * a row key prefix, which happens with a long lookback when the row key is salted, those
+ * measurements are read with a scan of the prefix instead.  The scan is limited to the
+ * requested row keys on the server.
+ *
+ * <p>If a cache is enabled, the measurements are cached until the end of the current period,
+ * when new measurements may be written.
+ *
+ * <p>If rollups are enabled, a day or hour is answered with a single rollup, rather than all of
+ * its measurements, when every period of that day or hour is requested.  The daily rollups are
+ * read first, then the hourly rollups of what remains, then the measurements of what remains.
  */
 public class HBaseProfilerClient implements ProfilerClient {
 
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * The length of the period at the end of each row key.
+   */
+  private static final int PERIOD_LENGTH = Long.BYTES;
+
+  private static final String VALUE_FIELD = "value";
+
+  /**
+   * The granularities of the rollups, from the coarsest to the finest.
+   */
+  private static final List<ProfileRollup.Granularity> COARSEST_FIRST = Arrays.asList(
+          ProfileRollup.Granularity.DAILY,
+          ProfileRollup.Granularity.HOURLY);
+
   /**
    * Used to access the profile data stored in HBase.
    */
@@ -60,6 +109,22 @@ public class HBaseProfilerClient implements ProfilerClient {
   private String tableName;
   private final Configuration hbaseConfig;
 
+  /**
+   * The minimum number of measurements sharing a row key prefix that are read with a scan,
+   * rather than with gets.  If 0, only gets are used.
+   */
+  private int scanThreshold;
+
+  /**
+   * Caches the measurements, keyed by row key.  If null, nothing is cached.
+   */
+  private Cache<ByteBuffer, StoredValue> cache;
+
+  /**
+   * If true, periods are answered with hourly and daily rollups where possible.
+   */
+  private boolean rollups;
+
   public HBaseProfilerClient(TableProvider tableProvider,
                              RowKeyBuilder rowKeyBuilder,
                              ColumnBuilder columnBuilder,
@@ -112,63 +177,339 @@ public class HBaseProfilerClient implements ProfilerClient {
    */
   @Override
   public <T> List<ProfileMeasurement> fetch(Class<T> clazz, String profile, String entity, List<Object> groups, Iterable<ProfilePeriod> periods, Optional<T> defaultValue) {
-    // create a list of profile measurements that need fetched
+    return fetch(clazz, profile, Collections.singletonList(entity), groups, periods, defaultValue).get(entity);
+  }
+
+  /**
+   * Fetch the values stored in a profile for many entities based on a set of timestamps.
+   *
+   * @param clazz      The type of values stored by the profile.
+   * @param profile    The name of the profile.
+   * @param entities   The names of the entities.
+   * @param groups     The groups used to sort the profile data.
+   * @param periods    The set of profile measurement periods
+   * @param defaultValue The default value to specify.  If empty, the result will be sparse.
+   * @return The values of each entity.
+   */
+  @Override
+  public <T> Map<String, List<ProfileMeasurement>> fetch(Class<T> clazz, String profile, Collection<String> entities, List<Object> groups, Iterable<ProfilePeriod> periods, Optional<T> defaultValue) {
+    List<ProfilePeriod> requested = new ArrayList<>();
+    periods.forEach(requested::add);
+
+    // the measurement that answers each requested period of each entity
+    Map<String, ProfileMeasurement[]> answers = new LinkedHashMap<>();
+    for(String entity: entities) {
+      answers.putIfAbsent(entity, new ProfileMeasurement[requested.size()]);
+    }
+
+    // answer as many periods as possible with rollups, from the coarsest to the finest
+    if(rollups) {
+      for(ProfileRollup.Granularity granularity: COARSEST_FIRST) {
+        fetchRollups(granularity, clazz, profile, groups, requested, answers);
+      }
+    }
+
+    // fetch the measurements of the remaining periods
     List<ProfileMeasurement> toFetch = new ArrayList<>();
-    for(ProfilePeriod period: periods) {
-      toFetch.add(new ProfileMeasurement()
-              .withProfileName(profile)
-              .withEntity(entity)
-              .withPeriod(period)
-              .withGroups(groups));
+    for(Map.Entry<String, ProfileMeasurement[]> entry: answers.entrySet()) {
+      for(int i = 0; i < requested.size(); ++i) {
+        if(entry.getValue()[i] == null) {
+          ProfileMeasurement measurement = new ProfileMeasurement()
+                  .withProfileName(profile)
+                  .withEntity(entry.getKey())
+                  .withPeriod(requested.get(i))
+                  .withGroups(groups);
+          entry.getValue()[i] = measurement;
+          toFetch.add(measurement);
+        }
+      }
+    }
+    StoredValue[] stored = doFetch(toFetch, VALUE_FIELD);
+    Set<ProfileMeasurement> missing = Collections.newSetFromMap(new IdentityHashMap<>());
+    for(int i = 0; i < stored.length; ++i) {
+      ProfileMeasurement measurement = toFetch.get(i);
+      if(stored[i].exists()) {
+        // value found
+        measurement.withProfileValue(stored[i].get(clazz));
+
+      } else if(defaultValue.isPresent()) {
+        // no value found, use default value provided
+        measurement.withProfileValue(defaultValue.get());
+
+      } else {
+        // no value found and no default provided. nothing to do
+        missing.add(measurement);
+      }
+    }
+
+    // a rollup is returned once, in place of the first period it answers
+    Map<String, List<ProfileMeasurement>> values = new LinkedHashMap<>();
+    for(Map.Entry<String, ProfileMeasurement[]> entry: answers.entrySet()) {
+      List<ProfileMeasurement> measurements = new ArrayList<>();
+      Set<ProfileMeasurement> added = Collections.newSetFromMap(new IdentityHashMap<>());
+      for(ProfileMeasurement measurement: entry.getValue()) {
+        if(!missing.contains(measurement) && added.add(measurement)) {
+          measurements.add(measurement);
+        }
+      }
+      values.put(entry.getKey(), measurements);
+    }
+    return values;
+  }
+
+  /**
+   * Answers the periods that have not yet been answered with the rollups of a granularity.
+   *
+   * <p>A rollup is only used if every period that it covers was requested.  If a rollup does
+   * not exist, was invalidated, or is not of the expected type, the periods remain unanswered.
+   */
+  private <T> void fetchRollups(ProfileRollup.Granularity granularity,
+                                Class<T> clazz,
+                                String profile,
+                                List<Object> groups,
+                                List<ProfilePeriod> requested,
+                                Map<String, ProfileMeasurement[]> answers) {
+
+    // the requested periods covered by each rollup
+    Map<ProfilePeriod, List<Integer>> covered = new LinkedHashMap<>();
+    for(int i = 0; i < requested.size(); ++i) {
+      ProfilePeriod period = requested.get(i);
+      if(granularity.isSupported(period.getDurationMillis())) {
+        covered.computeIfAbsent(granularity.getPeriod(period), k -> new ArrayList<>()).add(i);
+      }
+    }
+    covered.values().removeIf(indices -> !isCovered(granularity, requested, indices));
+    if(covered.isEmpty()) {
+      return;
+    }
+
+    List<ProfileMeasurement> toFetch = new ArrayList<>();
+    List<List<Integer>> coverage = new ArrayList<>();
+    for(Map.Entry<String, ProfileMeasurement[]> entry: answers.entrySet()) {
+      for(Map.Entry<ProfilePeriod, List<Integer>> rollup: covered.entrySet()) {
+        boolean answered = rollup.getValue().stream().anyMatch(i -> entry.getValue()[i] != null);
+        if(!answered) {
+          toFetch.add(new ProfileMeasurement()
+                  .withProfileName(profile)
+                  .withEntity(entry.getKey())
+                  .withPeriod(rollup.getKey())
+                  .withGroups(groups));
+          coverage.add(rollup.getValue());
+        }
+      }
+    }
+
+    StoredValue[] stored = doFetch(toFetch, granularity.getFieldName());
+    int found = 0;
+    for(int j = 0; j < stored.length; ++j) {
+      Object value = stored[j].exists() ? stored[j].get(Object.class) : null;
+      if(clazz.isInstance(value)) {
+        ProfileMeasurement measurement = toFetch.get(j).withProfileValue(value);
+        ProfileMeasurement[] entityAnswers = answers.get(measurement.getEntity());
+        for(int i: coverage.get(j)) {
+          entityAnswers[i] = measurement;
+        }
+        found++;
+      }
     }
+    LOG.debug("Read profile rollups; granularity={}, requested={}, found={}", granularity, toFetch.size(), found);
+  }
 
-    // retrieve the measurement values from HBase
-    return doFetch(toFetch, clazz, defaultValue);
+  /**
+   * Were all of the periods covered by a rollup requested?
+   */
+  private static boolean isCovered(ProfileRollup.Granularity granularity, List<ProfilePeriod> requested, List<Integer> indices) {
+    Set<ProfilePeriod> distinct = new HashSet<>();
+    for(int i: indices) {
+      distinct.add(requested.get(i));
+    }
+    long durationMillis = requested.get(indices.get(0)).getDurationMillis();
+    return distinct.size() == granularity.getDurationMillis() / durationMillis
+            && distinct.stream().allMatch(period -> period.getDurationMillis() == durationMillis);
   }
 
-  private <T> List<ProfileMeasurement> doFetch(List<ProfileMeasurement> measurements, Class<T> clazz, Optional<T> defaultValue) {
-    List<ProfileMeasurement> values = new ArrayList<>();
+  /**
+   * Fetches the stored values of a set of measurements.
+   *
+   * @param measurements The measurements to fetch.
+   * @param field The field of each measurement to fetch.
+   * @return The stored value of each measurement.
+   */
+  private StoredValue[] doFetch(List<ProfileMeasurement> measurements, String field) {
+    byte[] columnQualifier = columnBuilder.getColumnQualifier(field);
 
-    // build the gets for HBase
+    // find the measurements that are not cached
+    StoredValue[] stored = new StoredValue[measurements.size()];
+    Map<ByteBuffer, List<Integer>> toRead = new LinkedHashMap<>();
+    for(int i = 0; i < measurements.size(); ++i) {
+      ByteBuffer rowKey = ByteBuffer.wrap(rowKeyBuilder.rowKey(measurements.get(i)));
+      stored[i] = cache != null ? cache.getIfPresent(cacheKey(rowKey, columnQualifier)) : null;
+      if(stored[i] == null) {
+        toRead.computeIfAbsent(rowKey, k -> new ArrayList<>()).add(i);
+      }
+    }
+
+    // query HBase
+    if(!toRead.isEmpty()) {
+      try {
+        Map<ByteBuffer, byte[]> read = read(toRead.keySet(), columnQualifier);
+        for(Map.Entry<ByteBuffer, List<Integer>> entry: toRead.entrySet()) {
+          StoredValue value = new StoredValue(read.get(entry.getKey()));
+          for(int i: entry.getValue()) {
+            stored[i] = value;
+          }
+          if(cache != null && (value.exists() || isComplete(measurements.get(entry.getValue().get(0)).getPeriod()))) {
+            cache.put(cacheKey(entry.getKey(), columnQualifier), value);
+          }
+        }
+      } catch(IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    return stored;
+  }
+
+  /**
+   * A measurement and a rollup can share a row key, so the column is part of the cache key.
+   */
+  private static ByteBuffer cacheKey(ByteBuffer rowKey, byte[] columnQualifier) {
+    byte[] key = rowKey.array();
+    byte[] cacheKey = Arrays.copyOf(key, key.length + columnQualifier.length);
+    System.arraycopy(columnQualifier, 0, cacheKey, key.length, columnQualifier.length);
+    return ByteBuffer.wrap(cacheKey);
+  }
+
+  /**
+   * Reads the values stored at a set of row keys.
+   *
+   * <p>The row keys are grouped by everything but the period at the end of each.  Each group
+   * with enough row keys is read with a scan that only returns those rows.  All other row keys
+   * are read with a single batch of gets.
+   *
+   * @param rowKeys The row keys to read.
+   * @param columnQualifier The column to read.
+   * @return The value stored at each row key that has one.
+   */
+  private Map<ByteBuffer, byte[]> read(Collection<ByteBuffer> rowKeys, byte[] columnQualifier) throws IOException {
     byte[] columnFamily = Bytes.toBytes(columnBuilder.getColumnFamily());
-    byte[] columnQualifier = columnBuilder.getColumnQualifier("value");
+    Table table = tableProvider.getTable(hbaseConfig, tableName);
+    Map<ByteBuffer, byte[]> values = new HashMap<>();
+
+    Map<ByteBuffer, List<byte[]>> byPrefix = new LinkedHashMap<>();
+    for(ByteBuffer rowKey: rowKeys) {
+      byte[] key = rowKey.array();
+      ByteBuffer prefix = ByteBuffer.wrap(key, 0, Math.max(0, key.length - PERIOD_LENGTH));
+      byPrefix.computeIfAbsent(prefix, k -> new ArrayList<>()).add(key);
+    }
+
     List<Get> gets = new ArrayList<>();
-    for(ProfileMeasurement measurement: measurements) {
-      byte[] rowKey = rowKeyBuilder.rowKey(measurement);
-      Get get = new Get(rowKey).addColumn(columnFamily, columnQualifier);
-      gets.add(get);
+    for(List<byte[]> keys: byPrefix.values()) {
+      if(scanThreshold > 0 && keys.size() >= scanThreshold) {
+        scan(table, keys, columnFamily, columnQualifier, values);
+
+      } else {
+        for(byte[] key: keys) {
+          gets.add(new Get(key).addColumn(columnFamily, columnQualifier));
+        }
+      }
     }
 
-    // query HBase
-    try {
-      Result[] results = tableProvider.getTable(hbaseConfig, tableName).get(gets);
-      for(int i = 0; i < results.length; ++i) {
-        Result result = results[i];
-        ProfileMeasurement measurement = measurements.get(i);
-
-        boolean exists = result.containsColumn(columnFamily, columnQualifier);
-        if(exists) {
-          // value found
-          byte[] value = result.getValue(columnFamily, columnQualifier);
-          measurement.withProfileValue(SerDeUtils.fromBytes(value, clazz));
-          values.add(measurement);
-
-        } else if(defaultValue.isPresent()) {
-          // no value found, use default value provided
-          measurement.withProfileValue(defaultValue.get());
-          values.add(measurement);
-
-        } else {
-          // no value found and no default provided. nothing to do
+    if(!gets.isEmpty()) {
+      Result[] results = table.get(gets);
+      for(Result result: results) {
+        if(result.containsColumn(columnFamily, columnQualifier)) {
+          values.put(ByteBuffer.wrap(result.getRow()), result.getValue(columnFamily, columnQualifier));
         }
       }
-    } catch(IOException e) {
-      throw new RuntimeException(e);
     }
 
+    LOG.debug("Read profile measurements; rows={}, gets={}, scans={}", rowKeys.size(), gets.size(), byPrefix.size() - gets.size());
     return values;
   }
 
+  /**
+   * Reads a set of row keys that share a prefix with a single scan.
+   */
+  private void scan(Table table, List<byte[]> keys, byte[] columnFamily, byte[] columnQualifier, Map<ByteBuffer, byte[]> values) throws IOException {
+    keys.sort(Bytes.BYTES_COMPARATOR);
+    List<MultiRowRangeFilter.RowRange> ranges = new ArrayList<>(keys.size());
+    for(byte[] key: keys) {
+      ranges.add(new MultiRowRangeFilter.RowRange(key, true, key, true));
+    }
+
+    // the stop row is exclusive
+    byte[] last = keys.get(keys.size() - 1);
+    Scan scan = new Scan(keys.get(0), Arrays.copyOf(last, last.length + 1))
+            .addColumn(columnFamily, columnQualifier)
+            .setFilter(new MultiRowRangeFilter(ranges))
+            .setCaching(keys.size());
+
+    try(ResultScanner scanner = table.getScanner(scan)) {
+      for(Result result: scanner) {
+        if(result.containsColumn(columnFamily, columnQualifier)) {
+          values.put(ByteBuffer.wrap(result.getRow()), result.getValue(columnFamily, columnQualifier));
+        }
+      }
+    }
+  }
+
+  /**
+   * Has a period ended long enough ago that its measurement should have been written?  The
+   * absence of a measurement is only cached for these periods.
+   */
+  private boolean isComplete(ProfilePeriod period) {
+    return System.currentTimeMillis() >= period.getEndTimeMillis() + period.getDurationMillis();
+  }
+
+  /**
+   * Caches up to a maximum number of measurements.  Each measurement is cached until the end of
+   * the current period.
+   *
+   * @param maxSize The maximum number of measurements to cache.  If 0, nothing is cached.
+   */
+  public void setCacheSize(long maxSize) {
+    if(maxSize <= 0) {
+      this.cache = null;
+      return;
+    }
+
+    this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<ByteBuffer, StoredValue>() {
+              @Override
+              public long expireAfterCreate(ByteBuffer key, StoredValue value, long currentTime) {
+                long now = System.currentTimeMillis();
+                return TimeUnit.MILLISECONDS.toNanos(periodDurationMillis - (now % periodDurationMillis));
+              }
+
+              @Override
+              public long expireAfterUpdate(ByteBuffer key, StoredValue value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+              }
+
+              @Override
+              public long expireAfterRead(ByteBuffer key, StoredValue value, long currentTime, long currentDuration) {
+                return currentDuration;
+              }
+            })
+            .build();
+  }
+
+  /**
+   * @param rollups If true, periods are answered with hourly and daily rollups where possible.
+   */
+  public void setRollups(boolean rollups) {
+    this.rollups = rollups;
+  }
+
+  /**
+   * @param scanThreshold The minimum number of measurements sharing a row key prefix that
+   *                      are read with a scan.  If 0, only gets are used.
+   */
+  public void setScanThreshold(int scanThreshold) {
+    this.scanThreshold = scanThreshold;
+  }
 
   public void setTableProvider(TableProvider tableProvider) {
     this.tableProvider = tableProvider;
@@ -181,4 +522,47 @@ public class HBaseProfilerClient implements ProfilerClient {
   public void setColumnBuilder(ColumnBuilder columnBuilder) {
     this.columnBuilder = columnBuilder;
   }
+
+  /**
+   * The value of a measurement as stored in HBase.
+   *
+   * <p>Values that cannot be modified are only deserialized once.  Any other value is
+   * deserialized each time it is used, so that a caller cannot modify a cached value.
+   */
+  private static class StoredValue {
+
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class,
+            Long.class, Float.class, Double.class));
+
+    /**
+     * The serialized value or null, if there is no value.
+     */
+    private final byte[] bytes;
+
+    /**
+     * The deserialized value, once it is known that it cannot be modified.
+     */
+    private volatile Object value;
+
+    StoredValue(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    boolean exists() {
+      return bytes != null;
+    }
+
+    <T> T get(Class<T> clazz) {
+      if(value != null) {
+        return clazz.cast(value);
+      }
+
+      T deserialized = SerDeUtils.fromBytes(bytes, clazz);
+      if(deserialized != null && IMMUTABLE_TYPES.contains(deserialized.getClass())) {
+        value = deserialized;
+      }
+      return deserialized;
+    }
+  }
 }
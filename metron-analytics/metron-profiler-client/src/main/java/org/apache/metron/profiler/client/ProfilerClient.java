@@ -23,7 +23,9 @@ package org.apache.metron.profiler.client;
 import org.apache.metron.profiler.ProfileMeasurement;
 import org.apache.metron.profiler.ProfilePeriod;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -70,4 +72,23 @@ public interface ProfilerClient {
                                      List<Object> groups,
                                      Iterable<ProfilePeriod> periods,
                                      Optional<T> defaultValue);
+
+  /**
+   * Fetch the values stored in a profile for many entities based on a set of period keys.
+   *
+   * @param clazz    The type of values stored by the profile.
+   * @param profile  The name of the profile.
+   * @param entities The names of the entities.
+   * @param groups   The groups used to sort the profile data.
+   * @param periods  The set of profile period keys
+   * @param defaultValue The default value to specify.  If empty, the result will be sparse.
+   * @param <T>      The type of values stored by the profile.
+   * @return The {@link ProfileMeasurement} values of each entity.
+   */
+  <T> Map<String, List<ProfileMeasurement>> fetch(Class<T> clazz,
+                                                  String profile,
+                                                  Collection<String> entities,
+                                                  List<Object> groups,
+                                                  Iterable<ProfilePeriod> periods,
+                                                  Optional<T> defaultValue);
 }
@@ -20,12 +20,15 @@
 
 package org.apache.metron.profiler.client.stellar;
 
+import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_CACHE_SIZE;
 import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_COLUMN_FAMILY;
 import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_HBASE_TABLE;
 import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_HBASE_TABLE_PROVIDER;
 import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_PERIOD;
 import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_PERIOD_UNITS;
+import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_ROLLUPS_ENABLED;
 import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_SALT_DIVISOR;
+import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_SCAN_THRESHOLD;
 import static org.apache.metron.profiler.client.stellar.Util.getArg;
 import static org.apache.metron.profiler.client.stellar.Util.getEffectiveConfig;
 import static org.apache.metron.profiler.client.stellar.Util.getPeriodDurationInMillis;
@@ -33,6 +36,7 @@ import static org.apache.metron.profiler.client.stellar.Util.getPeriodDurationIn
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -83,6 +87,11 @@ import org.slf4j.LoggerFactory;
  *
  *   <code>PROFILE_GET('profile1', 'entity1', 1, 'MONTHS', ['weekdays'], {'profiler.client.period.duration' : '2', 'profiler.client.period.duration.units' : 'MINUTES'})</code>
  *
+ * Retrieve all values for both 'entity1' and 'entity2' from 'profile1' over the past 4 hours.  The
+ * values of each entity are returned in a map.
+ *
+ *   <code>PROFILE_GET('profile1', ['entity1', 'entity2'], PROFILE_FIXED(4, 'HOURS'))</code>
+ *
  */
 @Stellar(
         namespace="PROFILE",
@@ -90,14 +99,15 @@ import org.slf4j.LoggerFactory;
         description="Retrieves a series of values from a stored profile.",
         params={
           "profile - The name of the profile.",
-          "entity - The name of the entity.",
+          "entity - The name of the entity, or a list of entity names.",
           "periods - The list of profile periods to fetch. Use PROFILE_WINDOW or PROFILE_FIXED.",
           "groups - Optional - The groups to retrieve. Must correspond to the 'groupBy' " +
                     "list used during profile creation. Defaults to an empty list, meaning no groups.",
           "config_overrides - Optional - Map (in curly braces) of name:value pairs, each overriding the global config parameter " +
                   "of the same name. Default is the empty Map, meaning no overrides."
         },
-        returns="The selected profile measurements."
+        returns="The selected profile measurements.  If a list of entities is given, a map " +
+                "containing the selected profile measurements of each entity."
 )
 public class GetProfile implements StellarFunction {
 
@@ -138,7 +148,7 @@ public class GetProfile implements StellarFunction {
   public Object apply(List<Object> args, Context context) throws ParseException {
 
     String profile = getArg(0, String.class, args);
-    String entity = getArg(1, String.class, args);
+    List<String> entities = getEntitiesArg(1, args);
     Optional<List<ProfilePeriod>> periods = Optional.ofNullable(getArg(2, List.class, args));
     //Optional arguments
     @SuppressWarnings("unchecked")
@@ -171,22 +181,57 @@ public class GetProfile implements StellarFunction {
       long periodDuration = getPeriodDurationInMillis(effectiveConfig);
       String tableName = PROFILER_HBASE_TABLE.get(effectiveConfig, String.class);
       Configuration hbaseConfig = HBaseConfiguration.create();
-      client = new HBaseProfilerClient(getTableProvider(effectiveConfig), rowKeyBuilder, columnBuilder, periodDuration, tableName, hbaseConfig);
+      HBaseProfilerClient hbaseClient = new HBaseProfilerClient(getTableProvider(effectiveConfig), rowKeyBuilder, columnBuilder, periodDuration, tableName, hbaseConfig);
+      hbaseClient.setCacheSize(PROFILER_CACHE_SIZE.get(effectiveConfig, Long.class));
+      hbaseClient.setScanThreshold(PROFILER_SCAN_THRESHOLD.get(effectiveConfig, Integer.class));
+      hbaseClient.setRollups(PROFILER_ROLLUPS_ENABLED.get(effectiveConfig, Boolean.class));
+      client = hbaseClient;
       cachedConfigMap = effectiveConfig;
     }
     if(cachedConfigMap != null) {
       defaultValue = ProfilerClientConfig.PROFILER_DEFAULT_VALUE.get(cachedConfigMap);
     }
 
-    List<ProfileMeasurement> measurements = client.fetch(Object.class, profile, entity, groups,
+    // the measurements of all entities are fetched together
+    Map<String, List<ProfileMeasurement>> measurements = client.fetch(Object.class, profile, entities, groups,
             periods.orElse(new ArrayList<>(0)), Optional.ofNullable(defaultValue));
 
     // return only the value of each profile measurement
-    List<Object> values = new ArrayList<>();
-    for(ProfileMeasurement m: measurements) {
-      values.add(m.getProfileValue());
+    Map<String, List<Object>> values = new LinkedHashMap<>();
+    for(Map.Entry<String, List<ProfileMeasurement>> entry: measurements.entrySet()) {
+      List<Object> entityValues = new ArrayList<>();
+      for(ProfileMeasurement m: entry.getValue()) {
+        entityValues.add(m.getProfileValue());
+      }
+      values.put(entry.getKey(), entityValues);
+    }
+    if(args.get(1) instanceof List) {
+      return values;
     }
-    return values;
+    return values.get(entities.get(0));
+  }
+
+  /**
+   * Get the entities defined by the user.
+   *
+   * The user can specify either the name of a single entity or a list of entity names.
+   *
+   * @param index The index of the entities within the function argument list.
+   * @param args The function arguments.
+   * @return The entities.
+   */
+  private List<String> getEntitiesArg(int index, List<Object> args) {
+    List<String> entities = new ArrayList<>();
+    if(args.size() > index && args.get(index) instanceof List) {
+      for(Object entity: (List<?>) args.get(index)) {
+        entities.add(String.valueOf(entity));
+      }
+
+    } else {
+      entities.add(getArg(index, String.class, args));
+    }
+
+    return entities;
   }
 
   /**
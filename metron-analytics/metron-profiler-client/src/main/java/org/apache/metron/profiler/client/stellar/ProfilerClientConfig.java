@@ -58,6 +58,25 @@ public enum ProfilerClientConfig {
    */
   PROFILER_SALT_DIVISOR("profiler.client.salt.divisor", 1000L, Long.class),
 
+  /**
+   * A global property that defines the maximum number of profile measurements cached by the
+   * client.  If 0, no measurements are cached.
+   */
+  PROFILER_CACHE_SIZE("profiler.client.cache.size", 10000L, Long.class),
+
+  /**
+   * A global property that defines the minimum number of profile measurements sharing a salt
+   * that are read with a scan, rather than with gets.  If 0, only gets are used.
+   */
+  PROFILER_SCAN_THRESHOLD("profiler.client.scan.threshold", 16, Integer.class),
+
+  /**
+   * A global property that defines whether hourly and daily rollups are read in place of the
+   * profile measurements that they cover.  This changes the values returned, so it is off
+   * unless enabled.
+   */
+  PROFILER_ROLLUPS_ENABLED("profiler.client.rollups.enabled", false, Boolean.class),
+
   /**
    * The default value to be returned if a profile is not written for a given period for a profile and entity.
    */
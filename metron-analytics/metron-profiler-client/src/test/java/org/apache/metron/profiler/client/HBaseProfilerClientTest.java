@@ -23,6 +23,8 @@ package org.apache.metron.profiler.client;
 import org.apache.metron.hbase.mock.MockHBaseTableProvider;
 import org.apache.metron.hbase.mock.MockHTable;
 import org.apache.metron.profiler.ProfileMeasurement;
+import org.apache.metron.profiler.ProfilePeriod;
+import org.apache.metron.profiler.ProfileRollup;
 import org.apache.metron.profiler.hbase.ColumnBuilder;
 import org.apache.metron.profiler.hbase.RowKeyBuilder;
 import org.apache.metron.profiler.hbase.SaltyRowKeyBuilder;
@@ -33,8 +35,11 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -62,6 +67,8 @@ public class HBaseProfilerClientTest {
   private MockHBaseTableProvider provider;
   private ProfileWriter profileWriter;
 
+  private static final List<Object> noGroups = Collections.emptyList();
+
   @BeforeEach
   public void setup() {
     provider = new MockHBaseTableProvider();
@@ -203,4 +210,160 @@ public class HBaseProfilerClientTest {
     List<ProfileMeasurement> results = client.fetch(Integer.class, profile, entity, group, startFetchAt, endFetchAt, Optional.empty());
     assertEquals(0, results.size());
   }
+
+  @Test
+  public void Should_ReturnMeasurements_When_ReadWithScans() {
+    final String profile = "profile1";
+    final int hours = 6;
+    final int count = hours * periodsPerHour;
+    final long startTime = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(hours);
+
+    // with a small salt divisor, many measurements share a salt and are read with a scan
+    long periodDurationMillis = periodUnits.toMillis(periodDuration);
+    RowKeyBuilder rowKeyBuilder = new SaltyRowKeyBuilder(2, periodDuration, periodUnits);
+    ColumnBuilder columnBuilder = new ValueOnlyColumnBuilder(columnFamily);
+    ProfileWriter writer = new ProfileWriter(rowKeyBuilder, columnBuilder, provider, periodDurationMillis, tableName, null);
+    client = new HBaseProfilerClient(provider, rowKeyBuilder, columnBuilder, periodDurationMillis, tableName, null);
+    client.setScanThreshold(2);
+
+    // write every period for two entities whose names share a prefix
+    ProfileMeasurement prototype = new ProfileMeasurement()
+            .withProfileName(profile)
+            .withEntity("entity1")
+            .withPeriod(startTime, periodDuration, periodUnits);
+    writer.write(prototype, count, noGroups, val -> 22);
+    writer.write(prototype.withEntity("entity10"), count, noGroups, val -> 33);
+
+    // only read every other period
+    List<ProfilePeriod> periods = new ArrayList<>();
+    ProfilePeriod period = ProfilePeriod.fromTimestamp(startTime, periodDuration, periodUnits);
+    for(int i = 0; i < count; i += 2) {
+      periods.add(period);
+      period = period.next().next();
+    }
+
+    List<ProfileMeasurement> results = client.fetch(Integer.class, profile, "entity1", noGroups, periods, Optional.empty());
+    assertEquals(periods.size(), results.size());
+    for(int i = 0; i < results.size(); i++) {
+      assertEquals("entity1", results.get(i).getEntity());
+      assertEquals(periods.get(i), results.get(i).getPeriod());
+      assertEquals(22, results.get(i).getProfileValue());
+    }
+  }
+
+  @Test
+  public void Should_ReturnMeasurementsOfEachEntity_When_FetchingManyEntities() {
+    final String profile = "profile1";
+    final int hours = 2;
+    final int count = hours * periodsPerHour;
+    final long startTime = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(hours);
+
+    ProfileMeasurement prototype = new ProfileMeasurement()
+            .withProfileName(profile)
+            .withEntity("entity1")
+            .withPeriod(startTime, periodDuration, periodUnits);
+    profileWriter.write(prototype, count, noGroups, val -> 22);
+    profileWriter.write(prototype.withEntity("entity2"), count, noGroups, val -> 33);
+
+    List<ProfilePeriod> periods = ProfilePeriod.visitPeriods(startTime, startTime + TimeUnit.HOURS.toMillis(hours) - 1,
+            periodDuration, periodUnits, Optional.empty(), p -> p);
+    Map<String, List<ProfileMeasurement>> results = client.fetch(Integer.class, profile,
+            Arrays.asList("entity1", "entity2", "entity3"), noGroups, periods, Optional.empty());
+
+    assertEquals(Arrays.asList("entity1", "entity2", "entity3"), new ArrayList<>(results.keySet()));
+    assertEquals(count, results.get("entity1").size());
+    results.get("entity1").forEach(m -> assertEquals(22, m.getProfileValue()));
+    assertEquals(count, results.get("entity2").size());
+    results.get("entity2").forEach(m -> assertEquals(33, m.getProfileValue()));
+    assertEquals(0, results.get("entity3").size());
+  }
+
+  @Test
+  public void Should_ReturnCachedMeasurements_When_CacheEnabled() throws Exception {
+    final String profile = "profile1";
+    final String entity = "entity1";
+    final int hours = 2;
+    final int count = hours * periodsPerHour;
+    final long startTime = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(hours);
+    client.setCacheSize(100);
+
+    ProfileMeasurement prototype = new ProfileMeasurement()
+            .withProfileName(profile)
+            .withEntity(entity)
+            .withPeriod(startTime, periodDuration, periodUnits);
+    profileWriter.write(prototype, count, noGroups, val -> 22);
+
+    List<ProfilePeriod> periods = ProfilePeriod.visitPeriods(startTime, startTime + TimeUnit.HOURS.toMillis(hours) - 1,
+            periodDuration, periodUnits, Optional.empty(), p -> p);
+    assertEquals(count, client.fetch(Integer.class, profile, entity, noGroups, periods, Optional.empty()).size());
+
+    // the measurements are read from the cache, rather than from HBase
+    ((MockHTable) provider.getTable(null, tableName)).clear();
+    List<ProfileMeasurement> results = client.fetch(Integer.class, profile, entity, noGroups, periods, Optional.empty());
+    assertEquals(count, results.size());
+    results.forEach(m -> assertEquals(22, m.getProfileValue()));
+  }
+
+  @Test
+  public void Should_NotCacheMissingMeasurements_When_PeriodIsRecent() throws Exception {
+    final String profile = "profile1";
+    final String entity = "entity1";
+    client.setCacheSize(100);
+
+    // nothing has been written for the current period yet
+    ProfilePeriod current = ProfilePeriod.fromTimestamp(System.currentTimeMillis(), periodDuration, periodUnits);
+    List<ProfilePeriod> periods = Collections.singletonList(current);
+    assertEquals(0, client.fetch(Integer.class, profile, entity, noGroups, periods, Optional.empty()).size());
+
+    // once written, the measurement can be read
+    ProfileMeasurement prototype = new ProfileMeasurement()
+            .withProfileName(profile)
+            .withEntity(entity)
+            .withPeriod(current);
+    profileWriter.write(prototype, 1, noGroups, val -> 22);
+    assertEquals(1, client.fetch(Integer.class, profile, entity, noGroups, periods, Optional.empty()).size());
+  }
+
+  @Test
+  public void Should_ReturnRollups_When_AllPeriodsOfAnHourAreRequested() {
+    final String profile = "profile1";
+    final String entity = "entity1";
+    final int hours = 3;
+    final long hour = TimeUnit.HOURS.toMillis(1);
+    final long startTime = (System.currentTimeMillis() / hour - hours - 1) * hour;
+    client.setRollups(true);
+
+    ProfileMeasurement prototype = new ProfileMeasurement()
+            .withProfileName(profile)
+            .withEntity(entity)
+            .withPeriod(startTime, periodDuration, periodUnits);
+    profileWriter.write(prototype, hours * periodsPerHour, noGroups, val -> 22);
+
+    // the first hour has a rollup and the rollup of the second hour was invalidated
+    ProfilePeriod firstHour = ProfilePeriod.fromTimestamp(startTime, 1, TimeUnit.HOURS);
+    profileWriter.write(prototype.withPeriod(firstHour)
+            .withProfileValue(new ProfileRollup(ProfileRollup.Granularity.HOURLY, 88)), 1, noGroups, val -> val);
+    profileWriter.write(prototype.withPeriod(firstHour.next())
+            .withProfileValue(new ProfileRollup(ProfileRollup.Granularity.HOURLY, null)), 1, noGroups, val -> val);
+
+    List<ProfilePeriod> periods = ProfilePeriod.visitPeriods(startTime, startTime + hours * hour - 1,
+            periodDuration, periodUnits, Optional.empty(), p -> p);
+    List<ProfileMeasurement> results = client.fetch(Integer.class, profile, entity, noGroups, periods, Optional.empty());
+
+    // the rollup is returned in place of the measurements of the first hour
+    assertEquals(1 + (hours - 1) * periodsPerHour, results.size());
+    assertEquals(88, results.get(0).getProfileValue());
+    assertEquals(firstHour, results.get(0).getPeriod());
+    results.subList(1, results.size()).forEach(m -> assertEquals(22, m.getProfileValue()));
+
+    // a rollup is not used unless all of the periods of the hour are requested
+    results = client.fetch(Integer.class, profile, entity, noGroups, periods.subList(1, periods.size()), Optional.empty());
+    assertEquals(hours * periodsPerHour - 1, results.size());
+    results.forEach(m -> assertEquals(22, m.getProfileValue()));
+
+    // rollups can be disabled
+    client.setRollups(false);
+    results = client.fetch(Integer.class, profile, entity, noGroups, periods, Optional.empty());
+    assertEquals(hours * periodsPerHour, results.size());
+  }
 }
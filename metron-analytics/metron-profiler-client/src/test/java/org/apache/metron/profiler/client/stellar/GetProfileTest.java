@@ -182,6 +182,40 @@ public class GetProfileTest {
     result.forEach(actual -> assertEquals(expectedValue, actual.intValue()));
   }
 
+  /**
+   * Values should be retrievable for many entities at once.
+   */
+  @Test
+  public void testWithManyEntities() {
+    final int periodsPerHour = 4;
+    final int hours = 2;
+    final long startTime = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(hours);
+    final List<Object> group = Collections.emptyList();
+
+    // setup - write some measurements for two entities
+    final int count = hours * periodsPerHour;
+    ProfileMeasurement m = new ProfileMeasurement()
+            .withProfileName("profile1")
+            .withEntity("entity1")
+            .withPeriod(startTime, periodDuration, periodUnits);
+    profileWriter.write(m, count, group, val -> 22);
+    m.withEntity("entity2");
+    profileWriter.write(m, count, group, val -> 33);
+
+    // execute - read the profile values of both entities, and one with no values
+    String expr = "PROFILE_GET('profile1', ['entity1', 'entity2', 'entity3'], PROFILE_FIXED(4, 'HOURS'))";
+    @SuppressWarnings("unchecked")
+    Map<String, List<Integer>> result = run(expr, Map.class);
+
+    // validate - expect the values of each entity
+    assertEquals(3, result.size());
+    assertEquals(count, result.get("entity1").size());
+    result.get("entity1").forEach(actual -> assertEquals(22, actual.intValue()));
+    assertEquals(count, result.get("entity2").size());
+    result.get("entity2").forEach(actual -> assertEquals(33, actual.intValue()));
+    assertEquals(0, result.get("entity3").size());
+  }
+
   /**
    * Values should be retrievable that have been stored within a 'group'.
    */
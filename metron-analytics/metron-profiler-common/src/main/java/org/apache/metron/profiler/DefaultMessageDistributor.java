@@ -33,14 +33,26 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandles;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static java.lang.String.format;
 
@@ -60,6 +72,10 @@ import static java.lang.String.format;
  * the expired profiles using `flushExpired`, the state of these profiles will be
  * lost.
  *
+ * <p>If there are more routes than the maximum, the least recently used profiles are
+ * evicted from the active cache.  Unless a {@link SpilledProfileStore} is provided, these are
+ * treated as expired.  Otherwise, their state is spilled to the store and read back when they
+ * next receive a message or when the active profiles are flushed, so that no state is lost.
  */
 public class DefaultMessageDistributor implements MessageDistributor, Serializable {
 
@@ -90,6 +106,23 @@ public class DefaultMessageDistributor implements MessageDistributor, Serializab
    */
   private Cache<Integer, ProfileBuilder> expiredCache;
 
+  /**
+   * The keys of the profiles that have been modified since their state was last retrieved
+   * with {@link #drainModified()}.
+   */
+  private Set<Integer> modified;
+
+  /**
+   * Stores the state of profiles evicted from the active cache when there are more routes
+   * than the maximum.  If null, these profiles are expired instead.
+   */
+  private transient SpilledProfileStore spilled;
+
+  /**
+   * The Stellar execution context used to read back the profiles that have been spilled.
+   */
+  private transient Context context;
+
   /**
    * Create a new message distributor.
    *
@@ -151,6 +184,7 @@ public class DefaultMessageDistributor implements MessageDistributor, Serializab
       expiredCacheBuilder.recordStats();
     }
     this.expiredCache = expiredCacheBuilder.build();
+    this.modified = ConcurrentHashMap.newKeySet();
   }
 
   /**
@@ -162,8 +196,11 @@ public class DefaultMessageDistributor implements MessageDistributor, Serializab
   @Override
   public void distribute(MessageRoute route, Context context) {
     try {
-      ProfileBuilder builder = getBuilder(route, context);
+      this.context = context;
+      int key = cacheKey(route.getProfileDefinition(), route.getEntity());
+      ProfileBuilder builder = getBuilder(route, context, key);
       builder.apply(route.getMessage(), route.getTimestamp());
+      modified.add(key);
 
     } catch(ExecutionException e) {
       LOG.error("Unexpected error", e);
@@ -189,6 +226,38 @@ public class DefaultMessageDistributor implements MessageDistributor, Serializab
     cacheMaintenance();
 
     List<ProfileMeasurement> measurements = flushCache(activeCache);
+    measurements.addAll(flushSpilled());
+    return measurements;
+  }
+
+  /**
+   * Flush all profiles that have been spilled from the active cache.
+   *
+   * <p>Each profile is read back and flushed, one at a time.  Once flushed, a profile has no
+   * state, so the spilled profiles are no longer needed.
+   *
+   * @return The measurements captured when flushing the profiles.
+   */
+  private List<ProfileMeasurement> flushSpilled() {
+    List<ProfileMeasurement> measurements = new ArrayList<>();
+    if(spilled == null || spilled.isEmpty()) {
+      return measurements;
+    }
+
+    LOG.debug("About to flush spilled profiles; count={}, bytes={}", spilled.size(), spilled.getLength());
+    try {
+      spilled.removeAll((key, state) -> {
+        ProfileBuilder builder = new DefaultProfileBuilder.Builder()
+                .withState(state)
+                .withPeriodDurationMillis(periodDurationMillis)
+                .withContext(context)
+                .build();
+        builder.flush().ifPresent(m -> measurements.add(m));
+      });
+
+    } catch(IOException e) {
+      LOG.error("Unable to read spilled profiles, some state lost", e);
+    }
     return measurements;
   }
 
@@ -266,16 +335,119 @@ public class DefaultMessageDistributor implements MessageDistributor, Serializab
    * @param context The Stellar execution context.
    */
   public ProfileBuilder getBuilder(MessageRoute route, Context context) throws ExecutionException {
+    return getBuilder(route, context, cacheKey(route.getProfileDefinition(), route.getEntity()));
+  }
+
+  private ProfileBuilder getBuilder(MessageRoute route, Context context, int key) throws ExecutionException {
     ProfileConfig profile = route.getProfileDefinition();
     String entity = route.getEntity();
-    Function<Integer, ProfileBuilder> profileCreator = (k) ->
-            new DefaultProfileBuilder.Builder()
-                    .withDefinition(profile)
-                    .withEntity(entity)
-                    .withPeriodDurationMillis(periodDurationMillis)
-                    .withContext(context)
-                    .build();
-    return activeCache.get(cacheKey(profile, entity), profileCreator);
+    Function<Integer, ProfileBuilder> profileCreator = (k) -> {
+      DefaultProfileBuilder.Builder builder = new DefaultProfileBuilder.Builder()
+              .withDefinition(profile)
+              .withEntity(entity)
+              .withPeriodDurationMillis(periodDurationMillis)
+              .withContext(context);
+
+      // the profile may have been spilled from the active cache
+      unspill(k).ifPresent(builder::withState);
+      return builder.build();
+    };
+    return activeCache.get(key, profileCreator);
+  }
+
+  /**
+   * Removes the state of a profile that was spilled from the active cache, if any.
+   *
+   * @param key The key of the route of the profile.
+   * @return The state of the profile.
+   */
+  private Optional<ProfileBuilderState> unspill(int key) {
+    if(spilled == null) {
+      return Optional.empty();
+    }
+    try {
+      return spilled.remove(key);
+
+    } catch(IOException | RuntimeException e) {
+      LOG.error("Unable to read spilled profile, some state lost", e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Returns the state of all profiles, both active and expired, that have received messages
+   * but have not yet been flushed.
+   *
+   * <p>The state can be used to restore the profiles with {@link #restore(Collection, Context)}
+   * after a restart.
+   *
+   * @return The state of each profile, keyed by the key of its route.
+   */
+  @Override
+  public Map<Integer, ProfileBuilderState> getState() {
+    Map<Integer, ProfileBuilderState> state = new HashMap<>();
+    addState(state, activeCache, false);
+    addState(state, expiredCache, true);
+    if(spilled != null && !spilled.isEmpty()) {
+      return new SpilledStateMap(state, spilled);
+    }
+    return state;
+  }
+
+  private void addState(Map<Integer, ProfileBuilderState> state, Cache<Integer, ProfileBuilder> cache, boolean expired) {
+    for(Map.Entry<Integer, ProfileBuilder> entry: cache.asMap().entrySet()) {
+      ProfileBuilder builder = entry.getValue();
+      if(builder.isInitialized() && builder instanceof DefaultProfileBuilder) {
+        state.put(entry.getKey(), ((DefaultProfileBuilder) builder).getState(expired));
+      }
+    }
+  }
+
+  /**
+   * Returns the keys of the profiles that have been modified since the last call, either because
+   * they received a message or because they expired.
+   *
+   * <p>This allows a client to save the state of only those profiles that have changed.
+   *
+   * @return The keys of the modified profiles, as used by {@link #getState()}.
+   */
+  @Override
+  public Set<Integer> drainModified() {
+    Set<Integer> drained = new HashSet<>();
+    for(Iterator<Integer> it = modified.iterator(); it.hasNext(); ) {
+      drained.add(it.next());
+      it.remove();
+    }
+    return drained;
+  }
+
+  /**
+   * Restores profiles from their state.
+   *
+   * <p>Any profile that is already maintained by this distributor is replaced.
+   *
+   * @param states The state of each profile, as returned by {@link #getState()}.
+   * @param context The Stellar execution context.
+   */
+  @Override
+  public void restore(Collection<ProfileBuilderState> states, Context context) {
+    this.context = context;
+    for(ProfileBuilderState state: states) {
+      ProfileBuilder builder = new DefaultProfileBuilder.Builder()
+              .withState(state)
+              .withPeriodDurationMillis(periodDurationMillis)
+              .withContext(context)
+              .build();
+      int key = cacheKey(state.getDefinition(), state.getEntity());
+      if(state.isExpired()) {
+        expiredCache.put(key, builder);
+      } else {
+        activeCache.put(key, builder);
+      }
+      modified.add(key);
+      LOG.debug("Restored profile; profile={}, entity={}, expired={}",
+              state.getDefinition().getProfile(), state.getEntity(), state.isExpired());
+    }
   }
 
   /**
@@ -296,6 +468,15 @@ public class DefaultMessageDistributor implements MessageDistributor, Serializab
             .hashCode();
   }
 
+  /**
+   * @param spilled Stores the state of profiles evicted from the active cache when there are more
+   *                routes than the maximum.
+   */
+  public DefaultMessageDistributor withSpilledProfileStore(SpilledProfileStore spilled) {
+    this.spilled = spilled;
+    return this;
+  }
+
   public DefaultMessageDistributor withPeriodDurationMillis(long periodDurationMillis) {
     this.periodDurationMillis = periodDurationMillis;
     return this;
@@ -317,9 +498,14 @@ public class DefaultMessageDistributor implements MessageDistributor, Serializab
 
     @Override
     public void delete(@Nonnull Integer key, @Nullable ProfileBuilder value, @Nonnull RemovalCause cause) {
-      if(cause.wasEvicted()) {
+      if(cause == RemovalCause.SIZE && spill(key, value)) {
+        LOG.debug("Profile spilled from active cache; profile={}, entity={}",
+                value.getDefinition().getProfile(), value.getEntity());
+
+      } else if(cause.wasEvicted()) {
         // add the profile to the expired cache
         expiredCache.put(key, value);
+        modified.add(key);
         LOG.debug("Profile expired from active cache due to inactivity; profile={}, entity={}, cause={}",
                 value.getDefinition().getProfile(), value.getEntity(), cause);
 
@@ -330,6 +516,105 @@ public class DefaultMessageDistributor implements MessageDistributor, Serializab
     }
   }
 
+  /**
+   * Spills the state of a profile evicted from the active cache because there are too many routes.
+   *
+   * @param key The key of the route of the profile.
+   * @param builder The profile.
+   * @return True, if the state of the profile has been spilled.  False, if it must be expired instead.
+   */
+  private boolean spill(Integer key, ProfileBuilder builder) {
+    if(spilled == null || !(builder instanceof DefaultProfileBuilder)) {
+      return false;
+    }
+    if(!builder.isInitialized()) {
+      // nothing to lose
+      return true;
+    }
+    try {
+      spilled.put(key, ((DefaultProfileBuilder) builder).getState(false));
+      return true;
+
+    } catch(IOException | RuntimeException e) {
+      LOG.warn(format("Unable to spill profile, expiring it instead; profile=%s, entity=%s",
+              builder.getDefinition().getProfile(), builder.getEntity()), e);
+      return false;
+    }
+  }
+
+  /**
+   * A view of the state of the profiles that reads the spilled profiles only when needed.
+   */
+  private static class SpilledStateMap extends AbstractMap<Integer, ProfileBuilderState> {
+
+    private Map<Integer, ProfileBuilderState> state;
+    private SpilledProfileStore spilled;
+    private Set<Integer> spilledKeys;
+
+    private SpilledStateMap(Map<Integer, ProfileBuilderState> state, SpilledProfileStore spilled) {
+      this.state = state;
+      this.spilled = spilled;
+      this.spilledKeys = spilled.keySet();
+      this.spilledKeys.removeAll(state.keySet());
+    }
+
+    @Override
+    public ProfileBuilderState get(Object key) {
+      ProfileBuilderState value = state.get(key);
+      if(value == null && spilledKeys.contains(key)) {
+        try {
+          value = spilled.get((Integer) key).orElse(null);
+        } catch(IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return state.containsKey(key) || spilledKeys.contains(key);
+    }
+
+    @Override
+    public Set<Entry<Integer, ProfileBuilderState>> entrySet() {
+      return new AbstractSet<Entry<Integer, ProfileBuilderState>>() {
+
+        @Override
+        public Iterator<Entry<Integer, ProfileBuilderState>> iterator() {
+          Iterator<Integer> keys = Stream.concat(state.keySet().stream(), spilledKeys.stream()).iterator();
+          return new Iterator<Entry<Integer, ProfileBuilderState>>() {
+            @Override
+            public boolean hasNext() {
+              return keys.hasNext();
+            }
+
+            @Override
+            public Entry<Integer, ProfileBuilderState> next() {
+              Integer key = keys.next();
+              return new SimpleImmutableEntry<Integer, ProfileBuilderState>(key, null) {
+                @Override
+                public ProfileBuilderState getValue() {
+                  return get(key);
+                }
+              };
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return SpilledStateMap.this.size();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return state.size() + spilledKeys.size();
+    }
+  }
+
   /**
    * Notified synchronously when the expired cache is modified.
    */
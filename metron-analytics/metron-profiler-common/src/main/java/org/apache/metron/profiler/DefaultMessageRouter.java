@@ -38,6 +38,7 @@ import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 import static java.lang.String.format;
@@ -62,6 +63,22 @@ public class DefaultMessageRouter implements MessageRouter, Serializable {
    */
   private ClockFactory clockFactory;
 
+  /**
+   * Finds the profiles that could need a message, so that the 'onlyif' expression of every
+   * profile does not need to be executed for every message.
+   */
+  private transient ProfileRouteIndex index;
+
+  /**
+   * The profiles that the index was built from.
+   */
+  private transient List<ProfileConfig> indexedProfiles;
+
+  /**
+   * The 'onlyif' expression of each profile when the index was built.
+   */
+  private transient List<String> indexedOnlyifs;
+
   public DefaultMessageRouter(Context context) {
     this.executor = new DefaultStellarStatefulExecutor();
     StellarFunctions.initialize(context);
@@ -81,28 +98,70 @@ public class DefaultMessageRouter implements MessageRouter, Serializable {
   public List<MessageRoute> route(JSONObject message, ProfilerConfig config, Context context) {
     List<MessageRoute> routes = new ArrayList<>();
 
-    // attempt to route the message to each of the profiles
-    for (ProfileConfig profile: config.getProfiles()) {
-      Clock clock = clockFactory.createClock(config);
-      Optional<MessageRoute> route = routeToProfile(message, profile, clock);
+    // allow the profiles to access the fields defined within the message
+    @SuppressWarnings("unchecked")
+    final Map<String, Object> state = (Map<String, Object>) message;
+    Clock clock = clockFactory.createClock(config);
+
+    // attempt to route the message to each of the profiles that could need it
+    for (ProfileConfig profile: getIndex(config).getCandidates(state)) {
+      Optional<MessageRoute> route = routeToProfile(message, state, profile, clock);
       route.ifPresent(routes::add);
     }
 
     return routes;
   }
 
+  /**
+   * Returns the index of the profiles, building it again if the profiles have changed.
+   *
+   * @param config The configuration for the Profiler.
+   * @return The index of the profiles.
+   */
+  private ProfileRouteIndex getIndex(ProfilerConfig config) {
+    List<ProfileConfig> profiles = config.getProfiles();
+    if(index == null || isChanged(profiles)) {
+      index = new ProfileRouteIndex(profiles);
+      indexedProfiles = new ArrayList<>(profiles);
+      indexedOnlyifs = new ArrayList<>(profiles.size());
+      for(ProfileConfig profile: profiles) {
+        indexedOnlyifs.add(profile.getOnlyif());
+      }
+      LOG.debug("Indexed profiles for routing; profiles={}, indexed={}", profiles.size(), index.getIndexedCount());
+    }
+    return index;
+  }
+
+  /**
+   * Whether the profiles differ from those the index was built from.  The index depends only upon
+   * the 'onlyif' expressions, and returns the profiles themselves, so the profiles are compared by
+   * identity and by their 'onlyif' expression.
+   *
+   * @param profiles The profiles.
+   * @return True if the index needs to be built again.
+   */
+  private boolean isChanged(List<ProfileConfig> profiles) {
+    if(profiles.size() != indexedProfiles.size()) {
+      return true;
+    }
+    for(int i = 0; i < profiles.size(); i++) {
+      ProfileConfig profile = profiles.get(i);
+      if(profile != indexedProfiles.get(i) || !Objects.equals(profile.getOnlyif(), indexedOnlyifs.get(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Creates a route if a message is needed by a profile.
    * @param message The message that needs routed.
+   * @param state The fields of the message.
    * @param profile The profile that may need the message.
    * @return A MessageRoute if the message is needed by the profile.
    */
-  private Optional<MessageRoute> routeToProfile(JSONObject message, ProfileConfig profile, Clock clock) {
+  private Optional<MessageRoute> routeToProfile(JSONObject message, Map<String, Object> state, ProfileConfig profile, Clock clock) {
     Optional<MessageRoute> route = Optional.empty();
-
-    // allow the profile to access the fields defined within the message
-    @SuppressWarnings("unchecked")
-    final Map<String, Object> state = (Map<String, Object>) message;
     try {
       // is this message needed by this profile?
       if (executor.execute(profile.getOnlyif(), state, Boolean.class)) {
@@ -345,6 +345,32 @@ public class DefaultProfileBuilder implements ProfileBuilder, Serializable {
     return entity;
   }
 
+  /**
+   * Returns the state of the profile, which can be used to restore the profile later.
+   *
+   * @param expired Whether the profile has expired.
+   * @return The state of the profile.
+   */
+  public ProfileBuilderState getState(boolean expired) {
+    return new ProfileBuilderState()
+            .withDefinition(definition)
+            .withEntity(entity)
+            .withMaxTimestamp(maxTimestamp)
+            .withVariables(executor.getState())
+            .withExpired(expired);
+  }
+
+  /**
+   * Restores the state of a profile that was initialized, but not yet flushed.
+   *
+   * @param state The state of the profile.
+   */
+  private void restore(ProfileBuilderState state) {
+    state.getVariables().forEach((var, value) -> executor.assign(var, value));
+    this.maxTimestamp = state.getMaxTimestamp();
+    this.isInitialized = true;
+  }
+
   /**
    * A builder should be used to construct a new {@link ProfileBuilder} object.
    */
@@ -354,6 +380,7 @@ public class DefaultProfileBuilder implements ProfileBuilder, Serializable {
     private String entity;
     private Long periodDurationMillis;
     private Context context;
+    private ProfileBuilderState state;
 
     public Builder withContext(Context context) {
       this.context = context;
@@ -393,6 +420,17 @@ public class DefaultProfileBuilder implements ProfileBuilder, Serializable {
       return this;
     }
 
+    /**
+     * @param state The state of a profile to restore.  The definition and entity of the profile are
+     *              taken from the state.
+     */
+    public Builder withState(ProfileBuilderState state) {
+      this.state = state;
+      this.definition = state.getDefinition();
+      this.entity = state.getEntity();
+      return this;
+    }
+
     /**
      * Construct a ProfileBuilder.
      */
@@ -408,7 +446,11 @@ public class DefaultProfileBuilder implements ProfileBuilder, Serializable {
         throw new IllegalArgumentException("missing period duration");
       }
 
-      return new DefaultProfileBuilder(definition, entity, periodDurationMillis, context);
+      DefaultProfileBuilder builder = new DefaultProfileBuilder(definition, entity, periodDurationMillis, context);
+      if(state != null) {
+        builder.restore(state);
+      }
+      return builder;
     }
   }
 }
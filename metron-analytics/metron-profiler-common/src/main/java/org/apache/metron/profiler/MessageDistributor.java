@@ -23,7 +23,10 @@ package org.apache.metron.profiler;
 import org.apache.metron.stellar.dsl.Context;
 import org.json.simple.JSONObject;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Distributes a telemetry message along a {@link MessageRoute}. A {@link MessageRoute} will lead to a
@@ -75,4 +78,27 @@ public interface MessageDistributor {
    * @return The {@link ProfileMeasurement} values; one for each (profile, entity) pair.
    */
   List<ProfileMeasurement> flushExpired();
+
+  /**
+   * Returns the state of all profiles, both active and expired, that have received messages
+   * but have not yet been flushed.
+   *
+   * @return The state of each profile, keyed by the key of its route.
+   */
+  Map<Integer, ProfileBuilderState> getState();
+
+  /**
+   * Returns the keys of the profiles that have been modified since the last call.
+   *
+   * @return The keys of the modified profiles, as used by {@link #getState()}.
+   */
+  Set<Integer> drainModified();
+
+  /**
+   * Restores profiles from their state.
+   *
+   * @param states The state of each profile, as returned by {@link #getState()}.
+   * @param context The Stellar execution context.
+   */
+  void restore(Collection<ProfileBuilderState> states, Context context);
 }
@@ -0,0 +1,152 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.metron.common.configuration.profiler.ProfileConfig;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The state of a {@link ProfileBuilder} that has received messages, but has not yet been flushed.
+ *
+ * <p>This state can be saved and later used to restore the {@link ProfileBuilder} so that the
+ * partial profile period is not lost if the Profiler is restarted.
+ */
+public class ProfileBuilderState implements Serializable {
+
+  /**
+   * The definition of the profile.
+   */
+  private ProfileConfig definition;
+
+  /**
+   * The name of the entity being profiled.
+   */
+  private String entity;
+
+  /**
+   * The latest timestamp of the messages applied to the profile.
+   */
+  private long maxTimestamp;
+
+  /**
+   * The variables maintained by the profile.
+   */
+  private Map<String, Object> variables;
+
+  /**
+   * Has the profile expired?  An expired profile can no longer receive messages.
+   */
+  private boolean expired;
+
+  public ProfileBuilderState() {
+    this.variables = new HashMap<>();
+  }
+
+  public ProfileConfig getDefinition() {
+    return definition;
+  }
+
+  public ProfileBuilderState withDefinition(ProfileConfig definition) {
+    this.definition = definition;
+    return this;
+  }
+
+  public String getEntity() {
+    return entity;
+  }
+
+  public ProfileBuilderState withEntity(String entity) {
+    this.entity = entity;
+    return this;
+  }
+
+  public long getMaxTimestamp() {
+    return maxTimestamp;
+  }
+
+  public ProfileBuilderState withMaxTimestamp(long maxTimestamp) {
+    this.maxTimestamp = maxTimestamp;
+    return this;
+  }
+
+  public Map<String, Object> getVariables() {
+    return variables;
+  }
+
+  public ProfileBuilderState withVariables(Map<String, Object> variables) {
+    this.variables = new HashMap<>(variables);
+    return this;
+  }
+
+  public boolean isExpired() {
+    return expired;
+  }
+
+  public ProfileBuilderState withExpired(boolean expired) {
+    this.expired = expired;
+    return this;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ProfileBuilderState that = (ProfileBuilderState) o;
+    return new EqualsBuilder()
+            .append(maxTimestamp, that.maxTimestamp)
+            .append(expired, that.expired)
+            .append(definition, that.definition)
+            .append(entity, that.entity)
+            .append(variables, that.variables)
+            .isEquals();
+  }
+
+  @Override
+  public int hashCode() {
+    return new HashCodeBuilder(17, 37)
+            .append(definition)
+            .append(entity)
+            .append(maxTimestamp)
+            .append(variables)
+            .append(expired)
+            .toHashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "ProfileBuilderState{" +
+            "profile=" + (definition == null ? null : definition.getProfile()) +
+            ", entity='" + entity + '\'' +
+            ", maxTimestamp=" + maxTimestamp +
+            ", variables=" + variables +
+            ", expired=" + expired +
+            '}';
+  }
+}
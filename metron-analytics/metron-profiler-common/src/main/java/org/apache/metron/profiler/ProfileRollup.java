@@ -0,0 +1,143 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The merged value of all of the measurements of a profile over an hour or a day.
+ *
+ * <p>A rollup is written alongside the measurements of a profile, as the value of a
+ * {@link ProfileMeasurement} whose period is the hour or day.  It allows a long lookback to
+ * be answered with one value per hour or day, rather than one per profile period.  Only
+ * values that can be merged, like those produced by STATS_INIT and HLLP_INIT, are rolled up.
+ *
+ * <p>A rollup with no value invalidates a rollup that was written earlier, for example when a
+ * measurement arrives after the rollup was written.
+ */
+public class ProfileRollup implements Serializable {
+
+  /**
+   * How much time a rollup covers.
+   */
+  public enum Granularity {
+
+    HOURLY(TimeUnit.HOURS),
+
+    DAILY(TimeUnit.DAYS);
+
+    private TimeUnit units;
+
+    Granularity(TimeUnit units) {
+      this.units = units;
+    }
+
+    public long getDurationMillis() {
+      return units.toMillis(1);
+    }
+
+    /**
+     * Can measurements taken over a period of the given duration be rolled up?
+     *
+     * @param periodDurationMillis The duration of each profile period in milliseconds.
+     * @return True, if the profile periods evenly divide the rollup period.
+     */
+    public boolean isSupported(long periodDurationMillis) {
+      return periodDurationMillis > 0
+              && periodDurationMillis < getDurationMillis()
+              && getDurationMillis() % periodDurationMillis == 0;
+    }
+
+    /**
+     * @param period A profile period.
+     * @return The rollup period that contains the profile period.
+     */
+    public ProfilePeriod getPeriod(ProfilePeriod period) {
+      return ProfilePeriod.fromTimestamp(period.getStartTimeMillis(), 1, units);
+    }
+
+    /**
+     * @return The name of the field used to store a rollup of this granularity.
+     */
+    public String getFieldName() {
+      return name().toLowerCase();
+    }
+  }
+
+  private Granularity granularity;
+
+  /**
+   * The merged value or null, if the rollup is invalid.
+   */
+  private Object value;
+
+  public ProfileRollup() {
+    // necessary for serialization
+  }
+
+  public ProfileRollup(Granularity granularity, Object value) {
+    this.granularity = granularity;
+    this.value = value;
+  }
+
+  public Granularity getGranularity() {
+    return granularity;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ProfileRollup that = (ProfileRollup) o;
+    return new EqualsBuilder()
+            .append(granularity, that.granularity)
+            .append(value, that.value)
+            .isEquals();
+  }
+
+  @Override
+  public int hashCode() {
+    return new HashCodeBuilder(17, 37)
+            .append(granularity)
+            .append(value)
+            .toHashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "ProfileRollup{" +
+            "granularity=" + granularity +
+            ", value=" + value +
+            '}';
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler;
+
+import org.apache.metron.statistics.OnlineStatisticsProvider;
+import org.apache.metron.statistics.approximation.HyperLogLogPlus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the hourly and daily rollups of the measurements produced by the Profiler.
+ *
+ * <p>Each measurement whose value can be merged is merged into the rollups that contain its
+ * period.  The Profiler flushes all profiles at the end of each period, so once a measurement
+ * from a later hour or day arrives, the rollups of the earlier hour or day are complete and
+ * are returned to be written.
+ *
+ * <p>A rollup is only written if this builder saw every measurement of the rollup period.  After
+ * a restart, the rollups that started before the first measurement was seen are not written.
+ * If a measurement arrives after its rollup was written, the rollup is invalidated and readers
+ * fall back to the measurements.
+ *
+ * <p>The number of rollups being built for each granularity is bounded.  Once the maximum is
+ * reached, the rollups of any other profiles and entities are not built until the next hour or
+ * day, and readers fall back to the measurements.
+ */
+public class ProfileRollupBuilder {
+
+  protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * The default maximum number of rollups built for each granularity.
+   */
+  public static final long MAX_ROLLUPS_DEFAULT = 10000;
+
+  /**
+   * The rollups being built, keyed by granularity, then by profile, entity and groups.
+   */
+  private Map<ProfileRollup.Granularity, Map<List<Object>, Rollup>> rollups;
+
+  /**
+   * The rollup period currently being built for each granularity.
+   */
+  private Map<ProfileRollup.Granularity, Long> currentPeriods;
+
+  /**
+   * When the period of the first measurement seen started.  Rollups that started earlier may be
+   * missing measurements.
+   */
+  private Long firstPeriodStartMillis;
+
+  /**
+   * The maximum number of rollups built for each granularity.
+   */
+  private long maxRollups;
+
+  public ProfileRollupBuilder() {
+    this(MAX_ROLLUPS_DEFAULT);
+  }
+
+  /**
+   * @param maxRollups The maximum number of rollups built for each granularity.
+   */
+  public ProfileRollupBuilder(long maxRollups) {
+    this.rollups = new EnumMap<>(ProfileRollup.Granularity.class);
+    this.currentPeriods = new EnumMap<>(ProfileRollup.Granularity.class);
+    this.maxRollups = maxRollups;
+  }
+
+  /**
+   * Adds a measurement to the rollups.
+   *
+   * @param measurement A profile measurement.
+   * @return The rollups that are ready to be written.  The value of each is a {@link ProfileRollup}.
+   */
+  public List<ProfileMeasurement> add(ProfileMeasurement measurement) {
+    if(!isMergeable(measurement.getProfileValue())) {
+      return Collections.emptyList();
+    }
+
+    ProfilePeriod period = measurement.getPeriod();
+    if(firstPeriodStartMillis == null) {
+      firstPeriodStartMillis = period.getStartTimeMillis();
+    }
+
+    List<ProfileMeasurement> results = new ArrayList<>();
+    for(ProfileRollup.Granularity granularity: ProfileRollup.Granularity.values()) {
+      if(!granularity.isSupported(period.getDurationMillis())) {
+        continue;
+      }
+
+      ProfilePeriod rollupPeriod = granularity.getPeriod(period);
+      Long current = currentPeriods.get(granularity);
+      if(current == null || rollupPeriod.getPeriod() > current) {
+        // a new rollup period has started; the earlier rollups are complete
+        results.addAll(complete(granularity));
+        currentPeriods.put(granularity, rollupPeriod.getPeriod());
+
+      } else if(rollupPeriod.getPeriod() < current) {
+        // the rollup may have already been written without this measurement
+        LOG.debug("Invalidating rollup of late measurement; profile={}, entity={}, period={}, granularity={}",
+                measurement.getProfileName(), measurement.getEntity(), period.getPeriod(), granularity);
+        results.add(toMeasurement(measurement, rollupPeriod, new ProfileRollup(granularity, null)));
+        continue;
+      }
+
+      List<Object> key = Arrays.asList(measurement.getProfileName(), measurement.getEntity(), measurement.getGroups());
+      Map<List<Object>, Rollup> byKey = rollups.computeIfAbsent(granularity, g -> new HashMap<>());
+      Rollup rollup = byKey.get(key);
+      if(rollup == null && byKey.size() >= maxRollups) {
+        // the rollups built so far never shrink within a period, so this rollup is never written
+        LOG.debug("Too many rollups, not building rollup; profile={}, entity={}, granularity={}, max={}",
+                measurement.getProfileName(), measurement.getEntity(), granularity, maxRollups);
+
+      } else if(rollup == null) {
+        byKey.put(key, new Rollup(measurement, rollupPeriod));
+
+      } else {
+        rollup.add(measurement.getProfileValue());
+      }
+    }
+
+    return results;
+  }
+
+  /**
+   * @return The number of rollups being built.
+   */
+  public int size() {
+    return rollups.values().stream().mapToInt(Map::size).sum();
+  }
+
+  /**
+   * Removes the rollups of a granularity that are complete.
+   */
+  private List<ProfileMeasurement> complete(ProfileRollup.Granularity granularity) {
+    List<ProfileMeasurement> results = new ArrayList<>();
+    Map<List<Object>, Rollup> byKey = rollups.getOrDefault(granularity, Collections.emptyMap());
+    for(Iterator<Rollup> it = byKey.values().iterator(); it.hasNext(); ) {
+      Rollup rollup = it.next();
+      if(rollup.period.getStartTimeMillis() >= firstPeriodStartMillis) {
+        results.add(toMeasurement(rollup.prototype, rollup.period, new ProfileRollup(granularity, rollup.value)));
+      }
+      it.remove();
+    }
+
+    LOG.debug("Completed rollups; granularity={}, count={}", granularity, results.size());
+    return results;
+  }
+
+  private static ProfileMeasurement toMeasurement(ProfileMeasurement prototype, ProfilePeriod period, ProfileRollup rollup) {
+    return new ProfileMeasurement()
+            .withProfileName(prototype.getProfileName())
+            .withEntity(prototype.getEntity())
+            .withGroups(prototype.getGroups())
+            .withDefinition(prototype.getDefinition())
+            .withPeriod(period)
+            .withProfileValue(rollup);
+  }
+
+  /**
+   * Can a value be rolled up?
+   *
+   * @param value The value of a profile measurement.
+   * @return True, if the value can be merged with others of the same type.
+   */
+  public static boolean isMergeable(Object value) {
+    return value instanceof OnlineStatisticsProvider || value instanceof HyperLogLogPlus;
+  }
+
+  /**
+   * Merges two values.  Neither value is modified.
+   *
+   * @param left A value that can be merged.
+   * @param right A value of the same type.
+   * @return The merged value.
+   */
+  public static Object merge(Object left, Object right) {
+    if(left instanceof OnlineStatisticsProvider && right instanceof OnlineStatisticsProvider) {
+      return ((OnlineStatisticsProvider) left).merge((OnlineStatisticsProvider) right);
+
+    } else if(left instanceof HyperLogLogPlus && right instanceof HyperLogLogPlus) {
+      return ((HyperLogLogPlus) left).merge(Collections.singletonList((HyperLogLogPlus) right));
+    }
+
+    throw new IllegalArgumentException(String.format("Unable to merge values; left=%s, right=%s",
+            left == null ? null : left.getClass().getName(),
+            right == null ? null : right.getClass().getName()));
+  }
+
+  /**
+   * A rollup that is being built.
+   */
+  private static class Rollup {
+
+    /**
+     * The first measurement in the rollup.
+     */
+    private ProfileMeasurement prototype;
+
+    private ProfilePeriod period;
+
+    /**
+     * The merged value or null, if the values could not be merged.
+     */
+    private Object value;
+
+    Rollup(ProfileMeasurement prototype, ProfilePeriod period) {
+      this.prototype = prototype;
+      this.period = period;
+      this.value = prototype.getProfileValue();
+    }
+
+    void add(Object other) {
+      if(value == null) {
+        return;
+      }
+      try {
+        value = merge(value, other);
+
+      } catch(RuntimeException e) {
+        // the rollup must not be used
+        LOG.warn("Unable to merge values for rollup; profile={}, entity={}, error={}",
+                prototype.getProfileName(), prototype.getEntity(), e.getMessage());
+        value = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,333 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.metron.common.configuration.profiler.ProfileConfig;
+import org.apache.metron.stellar.common.generated.StellarLexer;
+import org.apache.metron.stellar.common.generated.StellarParser;
+import org.apache.metron.stellar.dsl.ErrorListener;
+import org.apache.metron.stellar.dsl.ParseException;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An index of profiles by the values of a message field that their 'onlyif' expression requires.
+ *
+ * <p>Many profiles only need messages with a specific value in a field, like
+ * {@code source.type == 'bro'} or {@code source.type in ['bro', 'yaf']}.  Rather than
+ * executing the 'onlyif' expression of every profile for every message, this index finds
+ * the candidate profiles that could need a message by looking up the value of the field.
+ * The 'onlyif' expressions of the candidate profiles still need to be executed.
+ *
+ * <p>A profile is indexed if its 'onlyif' expression is a single equality or 'in' check of a
+ * field against string literals, or a conjunction ('and') in which one of the terms is such a
+ * check.  The expression is parsed with the Stellar grammar to tell.  All other profiles are
+ * candidates for every message.
+ */
+public class ProfileRouteIndex {
+
+  /**
+   * The field and values that an 'onlyif' expression requires.
+   */
+  static class Requirement {
+    private final String field;
+    private final Set<String> values;
+
+    Requirement(String field, Set<String> values) {
+      this.field = field;
+      this.values = values;
+    }
+
+    String getField() {
+      return field;
+    }
+
+    Set<String> getValues() {
+      return values;
+    }
+  }
+
+  /**
+   * The profiles, in order.
+   */
+  private List<ProfileConfig> profiles;
+
+  /**
+   * The profiles that are candidates for every message.
+   */
+  private BitSet unindexed;
+
+  /**
+   * For each indexed field, the profiles that require each value of the field.
+   */
+  private Map<String, Map<String, BitSet>> index;
+
+  /**
+   * For each indexed field, all of the profiles indexed by that field.
+   */
+  private Map<String, BitSet> indexedByField;
+
+  /**
+   * @param profiles The profiles to index.
+   */
+  public ProfileRouteIndex(List<ProfileConfig> profiles) {
+    this.profiles = new ArrayList<>(profiles);
+    this.unindexed = new BitSet(profiles.size());
+    this.index = new HashMap<>();
+    this.indexedByField = new HashMap<>();
+
+    for(int i = 0; i < this.profiles.size(); i++) {
+      Optional<Requirement> requirement = analyze(this.profiles.get(i).getOnlyif());
+      if(requirement.isPresent()) {
+        String field = requirement.get().getField();
+        Map<String, BitSet> byValue = index.computeIfAbsent(field, f -> new HashMap<>());
+        for(String value: requirement.get().getValues()) {
+          byValue.computeIfAbsent(value, v -> new BitSet()).set(i);
+        }
+        indexedByField.computeIfAbsent(field, f -> new BitSet()).set(i);
+
+      } else {
+        unindexed.set(i);
+      }
+    }
+  }
+
+  /**
+   * Finds the profiles that could need a message.
+   *
+   * @param message The message.
+   * @return The candidate profiles, in their original order.
+   */
+  public List<ProfileConfig> getCandidates(Map<String, Object> message) {
+    if(index.isEmpty()) {
+      return profiles;
+    }
+
+    BitSet candidates = (BitSet) unindexed.clone();
+    for(Map.Entry<String, Map<String, BitSet>> entry: index.entrySet()) {
+      Object value = message.get(entry.getKey());
+      if(value instanceof String) {
+        BitSet matches = entry.getValue().get(value);
+        if(matches != null) {
+          candidates.or(matches);
+        }
+
+      } else if(value != null) {
+        // only a string can be compared with the index; let the expressions decide
+        candidates.or(indexedByField.get(entry.getKey()));
+      }
+    }
+
+    List<ProfileConfig> results = new ArrayList<>(candidates.cardinality());
+    for(int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      results.add(profiles.get(i));
+    }
+    return results;
+  }
+
+  /**
+   * @return The number of profiles that have been indexed.
+   */
+  public int getIndexedCount() {
+    return profiles.size() - unindexed.cardinality();
+  }
+
+  /**
+   * Finds the field and values that an 'onlyif' expression requires, if the expression is simple
+   * enough to tell.
+   *
+   * @param onlyif The 'onlyif' expression.
+   * @return The requirement of the expression.
+   */
+  static Optional<Requirement> analyze(String onlyif) {
+    if(onlyif == null || onlyif.trim().isEmpty()) {
+      return Optional.empty();
+    }
+
+    StellarParser.TransformationContext tree;
+    try {
+      StellarLexer lexer = new StellarLexer(new ANTLRInputStream(onlyif));
+      lexer.removeErrorListeners();
+      lexer.addErrorListener(new ErrorListener());
+      StellarParser parser = new StellarParser(new CommonTokenStream(lexer));
+      parser.removeErrorListeners();
+      parser.addErrorListener(new ErrorListener());
+      tree = parser.transformation();
+
+    } catch(ParseException e) {
+      // an invalid expression is left for the router to report
+      return Optional.empty();
+    }
+    return analyze(tree.transformation_expr());
+  }
+
+  private static Optional<Requirement> analyze(StellarParser.Transformation_exprContext expr) {
+    if(expr instanceof StellarParser.TransformationExprContext) {
+      return analyze(((StellarParser.TransformationExprContext) expr).transformation_expr());
+
+    } else if(expr instanceof StellarParser.LogicalExpressionContext) {
+      return analyze(((StellarParser.LogicalExpressionContext) expr).logical_expr());
+
+    } else if(expr instanceof StellarParser.ComparisonExpressionContext) {
+      return analyze(((StellarParser.ComparisonExpressionContext) expr).comparison_expr());
+
+    } else if(expr instanceof StellarParser.InExpressionContext) {
+      return analyze(((StellarParser.InExpressionContext) expr).in_expr());
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Finds a term of a conjunction that requires specific values of a field.
+   */
+  private static Optional<Requirement> analyze(StellarParser.Logical_exprContext expr) {
+    while(expr instanceof StellarParser.LogicalExpressionAndContext) {
+      StellarParser.LogicalExpressionAndContext and = (StellarParser.LogicalExpressionAndContext) expr;
+      Optional<Requirement> requirement = analyze(and.b_expr());
+      if(requirement.isPresent()) {
+        return requirement;
+      }
+      expr = and.logical_expr();
+    }
+    if(expr instanceof StellarParser.BoleanExpressionContext) {
+      return analyze(((StellarParser.BoleanExpressionContext) expr).b_expr());
+    }
+    return Optional.empty();
+  }
+
+  private static Optional<Requirement> analyze(StellarParser.B_exprContext expr) {
+    if(expr == null) {
+      return Optional.empty();
+    } else if(expr.comparison_expr() != null) {
+      return analyze(expr.comparison_expr());
+    }
+    return analyze(expr.in_expr());
+  }
+
+  private static Optional<Requirement> analyze(StellarParser.Comparison_exprContext expr) {
+    if(expr instanceof StellarParser.ComparisonExpressionParensContext) {
+      return analyze(((StellarParser.ComparisonExpressionParensContext) expr).logical_expr());
+
+    } else if(expr instanceof StellarParser.ComparisonExpressionWithOperatorContext) {
+      StellarParser.ComparisonExpressionWithOperatorContext comparison = (StellarParser.ComparisonExpressionWithOperatorContext) expr;
+      StellarParser.Comp_operatorContext operator = comparison.comp_operator();
+      if(!(operator instanceof StellarParser.ComparisonOpContext) || ((StellarParser.ComparisonOpContext) operator).EQ() == null) {
+        return Optional.empty();
+      }
+      StellarParser.Identifier_operandContext left = operand(comparison.comparison_expr(0));
+      StellarParser.Identifier_operandContext right = operand(comparison.comparison_expr(1));
+      String field = variable(left);
+      String value = literal(right);
+      if(field == null || value == null) {
+        field = variable(right);
+        value = literal(left);
+      }
+      if(field != null && value != null) {
+        return Optional.of(new Requirement(field, Collections.singleton(value)));
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static Optional<Requirement> analyze(StellarParser.In_exprContext expr) {
+    if(!(expr instanceof StellarParser.InExpressionStatementContext)) {
+      return Optional.empty();
+    }
+    StellarParser.InExpressionStatementContext in = (StellarParser.InExpressionStatementContext) expr;
+    String field = variable(in.identifier_operand());
+    StellarParser.B_exprContext list = in.b_expr();
+    StellarParser.Identifier_operandContext operand = list == null ? null : operand(list.comparison_expr());
+    if(field == null || !(operand instanceof StellarParser.ListContext)) {
+      return Optional.empty();
+    }
+
+    Set<String> values = new HashSet<>();
+    StellarParser.Op_listContext element = ((StellarParser.ListContext) operand).list_entity().op_list();
+    for(; element != null; element = element.op_list()) {
+      StellarParser.Identifier_operandContext item = element.identifier_operand() != null
+              ? element.identifier_operand()
+              : operand(element.comparison_expr());
+      String value = literal(item);
+      if(value == null) {
+        return Optional.empty();
+      }
+      values.add(value);
+    }
+    if(values.isEmpty()) {
+      return Optional.empty();
+    }
+    return Optional.of(new Requirement(field, Collections.unmodifiableSet(values)));
+  }
+
+  /**
+   * @return The operand, if the comparison is a lone operand.
+   */
+  private static StellarParser.Identifier_operandContext operand(StellarParser.Comparison_exprContext expr) {
+    if(expr instanceof StellarParser.OperandContext) {
+      return ((StellarParser.OperandContext) expr).identifier_operand();
+    }
+    return null;
+  }
+
+  /**
+   * @return The name of the variable, if the operand is a lone variable.
+   */
+  private static String variable(StellarParser.Identifier_operandContext operand) {
+    if(!(operand instanceof StellarParser.ArithmeticOperandsContext)) {
+      return null;
+    }
+    StellarParser.Arithmetic_exprContext arithmetic = ((StellarParser.ArithmeticOperandsContext) operand).arithmetic_expr();
+    if(!(arithmetic instanceof StellarParser.ArithExpr_soloContext)) {
+      return null;
+    }
+    StellarParser.Arithmetic_expr_mulContext mul = ((StellarParser.ArithExpr_soloContext) arithmetic).arithmetic_expr_mul();
+    if(!(mul instanceof StellarParser.ArithExpr_mul_soloContext)) {
+      return null;
+    }
+    StellarParser.Arithmetic_operandsContext value = ((StellarParser.ArithExpr_mul_soloContext) mul).arithmetic_operands();
+    if(!(value instanceof StellarParser.VariableContext)) {
+      return null;
+    }
+    return ((StellarParser.VariableContext) value).IDENTIFIER().getText();
+  }
+
+  /**
+   * @return The value of the string literal, unescaped as the Stellar compiler does, if the operand is one.
+   */
+  private static String literal(StellarParser.Identifier_operandContext operand) {
+    if(!(operand instanceof StellarParser.StringLiteralContext)) {
+      return null;
+    }
+    String literal = StringEscapeUtils.UNESCAPE_JSON.translate(operand.getText());
+    return literal.substring(1, literal.length() - 1);
+  }
+}
@@ -0,0 +1,338 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler;
+
+import org.apache.metron.common.utils.SerDeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import static java.lang.String.format;
+
+/**
+ * Stores the state of profiles on local disk, outside of the heap.
+ *
+ * <p>When there are more routes than can be maintained in memory, the state of the least
+ * recently used profiles is spilled here rather than lost.  Each profile is stored in a
+ * compact, Kryo-serialized form; only the position of each profile in the file is kept on
+ * the heap.  A profile is only read back when it receives another message or is flushed.
+ *
+ * <p>Profiles are appended to the file.  Once the space used by profiles that have been read
+ * back or replaced exceeds the space used by the stored profiles, the file is compacted in place.
+ * All of the space is reclaimed when the store is cleared, which happens each time the profiles
+ * are flushed.
+ *
+ * <p>Each store holds a lock on its file.  The files left behind by a process that was killed
+ * before it could delete them are not locked, and are deleted when the next store is created
+ * in the same directory.
+ */
+public class SpilledProfileStore implements Closeable {
+
+  protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String PREFIX = "profiles-";
+  private static final String SUFFIX = ".spill";
+
+  /**
+   * The file that the state of the profiles is written to.
+   */
+  private File file;
+
+  private FileChannel channel;
+
+  /**
+   * Prevents the file from being deleted by other stores.
+   */
+  private FileLock lock;
+
+  /**
+   * The position and length of each profile in the file, keyed by the key of its route.
+   */
+  private Map<Integer, long[]> index;
+
+  /**
+   * The position at which the next profile is written.
+   */
+  private long end;
+
+  /**
+   * The number of bytes used by the stored profiles.  The rest of the file is unused.
+   */
+  private long live;
+
+  /**
+   * @param directory The local directory in which to create the file.
+   */
+  public SpilledProfileStore(File directory) throws IOException {
+    if(!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException(format("Unable to create directory; path=%s", directory));
+    }
+    deleteStaleFiles(directory);
+    this.file = File.createTempFile(PREFIX, SUFFIX, directory);
+    this.file.deleteOnExit();
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.lock = channel.lock();
+    this.index = new HashMap<>();
+    this.end = 0;
+    this.live = 0;
+  }
+
+  /**
+   * Deletes the files left behind by stores that were not closed.
+   *
+   * <p>A file is only deleted if it is not locked and was last modified before this process
+   * started, so files being created by other stores are left alone.
+   *
+   * @param directory The directory containing the files.
+   */
+  private static void deleteStaleFiles(File directory) {
+    long started = ManagementFactory.getRuntimeMXBean().getStartTime();
+    File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+    if(files == null) {
+      return;
+    }
+    for(File stale: files) {
+      if(stale.lastModified() >= started || isLocked(stale)) {
+        continue;
+      }
+      if(stale.delete()) {
+        LOG.info("Deleted stale file; path={}", stale);
+      } else {
+        LOG.warn("Unable to delete stale file; path={}", stale);
+      }
+    }
+  }
+
+  private static boolean isLocked(File file) {
+    try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      FileLock lock = channel.tryLock();
+      if(lock == null) {
+        // locked by another process
+        return true;
+      }
+      lock.release();
+      return false;
+
+    } catch(OverlappingFileLockException e) {
+      // locked by this process
+      return true;
+
+    } catch(IOException e) {
+      LOG.warn("Unable to lock file; path={}", file, e);
+      return true;
+    }
+  }
+
+  /**
+   * Stores the state of a profile.
+   *
+   * @param key The key of the route of the profile.
+   * @param state The state of the profile.
+   */
+  public synchronized void put(int key, ProfileBuilderState state) throws IOException {
+    byte[] bytes = SerDeUtils.toBytes(state);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    long position = end;
+    while(buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+    long[] replaced = index.put(key, new long[] { end, bytes.length });
+    end = position;
+    live += bytes.length;
+    if(replaced != null) {
+      live -= replaced[1];
+      compactIfNeeded();
+    }
+  }
+
+  /**
+   * Returns the state of a profile without removing it.
+   *
+   * @param key The key of the route of the profile.
+   * @return The state of the profile, if it has been stored.
+   */
+  public synchronized Optional<ProfileBuilderState> get(int key) throws IOException {
+    long[] location = index.get(key);
+    if(location == null) {
+      return Optional.empty();
+    }
+    return Optional.of(read(location));
+  }
+
+  /**
+   * Removes the state of a profile.
+   *
+   * @param key The key of the route of the profile.
+   * @return The state of the profile, if it has been stored.
+   */
+  public synchronized Optional<ProfileBuilderState> remove(int key) throws IOException {
+    long[] location = index.remove(key);
+    if(location == null) {
+      return Optional.empty();
+    }
+    live -= location[1];
+    ProfileBuilderState state = read(location);
+    compactIfNeeded();
+    return Optional.of(state);
+  }
+
+  /**
+   * Removes the state of all profiles.  The space used by the file is reclaimed.
+   *
+   * <p>The profiles are read one at a time, in the order they were written, so that only one
+   * is held in memory at a time.
+   *
+   * @param consumer Accepts the key of the route and the state of each profile.
+   */
+  public synchronized void removeAll(BiConsumer<Integer, ProfileBuilderState> consumer) throws IOException {
+    List<Map.Entry<Integer, long[]>> entries = new ArrayList<>(index.entrySet());
+    entries.sort(Comparator.comparingLong(entry -> entry.getValue()[0]));
+    try {
+      for(Map.Entry<Integer, long[]> entry: entries) {
+        consumer.accept(entry.getKey(), read(entry.getValue()));
+      }
+    } finally {
+      clear();
+    }
+  }
+
+  /**
+   * Removes all profiles.  The space used by the file is reclaimed.
+   */
+  public synchronized void clear() throws IOException {
+    index.clear();
+    channel.truncate(0);
+    end = 0;
+    live = 0;
+  }
+
+  /**
+   * @return The keys of the routes of the stored profiles.
+   */
+  public synchronized Set<Integer> keySet() {
+    return new HashSet<>(index.keySet());
+  }
+
+  public synchronized boolean contains(int key) {
+    return index.containsKey(key);
+  }
+
+  public synchronized int size() {
+    return index.size();
+  }
+
+  public synchronized boolean isEmpty() {
+    return index.isEmpty();
+  }
+
+  /**
+   * @return The number of bytes used by the file.
+   */
+  public synchronized long getLength() {
+    return end;
+  }
+
+  /**
+   * Closes and deletes the file.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    index.clear();
+    lock.release();
+    channel.close();
+    if(!file.delete()) {
+      LOG.warn("Unable to delete file; path={}", file);
+    }
+  }
+
+  /**
+   * Compacts the file once it is mostly unused.  The stored profiles are moved to the start of
+   * the file, in the order they were written, and the file is truncated.
+   *
+   * <p>The file is only compacted after at least as many bytes have been freed as are moved, so
+   * the cost of compaction is proportional to the number of bytes written.
+   */
+  private void compactIfNeeded() throws IOException {
+    if(end - live <= live) {
+      return;
+    }
+    if(index.isEmpty()) {
+      clear();
+      return;
+    }
+
+    List<long[]> locations = new ArrayList<>(index.values());
+    locations.sort(Comparator.comparingLong(location -> location[0]));
+    long position = 0;
+    for(long[] location: locations) {
+      if(location[0] != position) {
+        // the profile is read in full before it is written, so it never overwrites itself
+        ByteBuffer buffer = readBytes(location);
+        buffer.flip();
+        long target = position;
+        while(buffer.hasRemaining()) {
+          target += channel.write(buffer, target);
+        }
+        location[0] = position;
+      }
+      position += location[1];
+    }
+
+    LOG.debug("Compacted file; path={}, before={}, after={}", file, end, position);
+    channel.truncate(position);
+    end = position;
+  }
+
+  private ProfileBuilderState read(long[] location) throws IOException {
+    return SerDeUtils.fromBytes(readBytes(location).array(), ProfileBuilderState.class);
+  }
+
+  private ByteBuffer readBytes(long[] location) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) location[1]);
+    long position = location[0];
+    while(buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if(read < 0) {
+        throw new IOException(format("Unexpected end of file; path=%s, position=%d", file, position));
+      }
+    }
+    return buffer;
+  }
+}
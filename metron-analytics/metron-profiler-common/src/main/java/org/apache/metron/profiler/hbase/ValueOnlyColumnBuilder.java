@@ -23,6 +23,7 @@ package org.apache.metron.profiler.hbase;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.metron.common.utils.SerDeUtils;
 import org.apache.metron.profiler.ProfileMeasurement;
+import org.apache.metron.profiler.ProfileRollup;
 import org.apache.metron.hbase.ColumnList;
 
 /**
@@ -49,7 +50,15 @@ public class ValueOnlyColumnBuilder implements ColumnBuilder {
   public ColumnList columns(ProfileMeasurement measurement) {
 
     ColumnList cols = new ColumnList();
-    cols.addColumn(columnFamilyBytes, getColumnQualifier("value"), SerDeUtils.toBytes(measurement.getProfileValue()));
+    Object value = measurement.getProfileValue();
+    if(value instanceof ProfileRollup) {
+      // rollups are written to their own column so they never replace a measurement
+      ProfileRollup rollup = (ProfileRollup) value;
+      cols.addColumn(columnFamilyBytes, getColumnQualifier(rollup.getGranularity().getFieldName()), SerDeUtils.toBytes(rollup.getValue()));
+
+    } else {
+      cols.addColumn(columnFamilyBytes, getColumnQualifier("value"), SerDeUtils.toBytes(value));
+    }
 
     return cols;
   }
@@ -71,6 +80,12 @@ public class ValueOnlyColumnBuilder implements ColumnBuilder {
       return Bytes.toBytes("value");
     }
 
+    for(ProfileRollup.Granularity granularity: ProfileRollup.Granularity.values()) {
+      if(granularity.getFieldName().equals(fieldName)) {
+        return Bytes.toBytes(fieldName);
+      }
+    }
+
     throw new IllegalArgumentException(("unexpected field name: " + fieldName));
   }
 }
\ No newline at end of file
@@ -29,13 +29,18 @@ import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static java.util.concurrent.TimeUnit.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class DefaultMessageDistributorTest {
 
@@ -83,6 +88,9 @@ public class DefaultMessageDistributorTest {
   @Multiline
   private String profileTwo;
 
+  @TempDir
+  File tempDir;
+
   private DefaultMessageDistributor distributor;
   private Context context;
   private long periodDurationMillis = MINUTES.toMillis(15);
@@ -273,6 +281,173 @@ public class DefaultMessageDistributorTest {
     assertEquals(0, distributor.flushExpired().size());
   }
 
+  /**
+   * The state of a profile should be restored so that it continues from where it left off.
+   */
+  @Test
+  public void testRestoreProfiles() throws Exception {
+
+    // setup
+    long timestamp = 100;
+    ProfileConfig definition = createDefinition(profileOne);
+    String entity = (String) messageOne.get("ip_src_addr");
+    MessageRoute route = new MessageRoute(definition, entity, messageOne, timestamp);
+
+    // distribute two messages
+    distributor.distribute(route, context);
+    distributor.distribute(route, context);
+
+    // the profile has been modified
+    Map<Integer, ProfileBuilderState> state = distributor.getState();
+    assertEquals(1, state.size());
+    assertEquals(state.keySet(), distributor.drainModified());
+    assertTrue(distributor.drainModified().isEmpty());
+
+    // restore the profile to a new distributor
+    DefaultMessageDistributor restored = new DefaultMessageDistributor(
+            periodDurationMillis,
+            profileTimeToLiveMillis,
+            maxNumberOfRoutes,
+            Ticker.systemTicker());
+    restored.restore(state.values(), context);
+    assertEquals(state, restored.getState());
+
+    // the restored profile should continue from where it left off
+    restored.distribute(new MessageRoute(definition, entity, messageOne, timestamp + 1), context);
+    List<ProfileMeasurement> measurements = restored.flush();
+    assertEquals(1, measurements.size());
+    assertEquals(3, measurements.get(0).getProfileValue());
+  }
+
+  /**
+   * An expired profile should be restored as expired.
+   */
+  @Test
+  public void testRestoreExpiredProfiles() throws Exception {
+
+    // the ticker drives time to allow us to test cache expiration
+    FixedTicker ticker = new FixedTicker();
+
+    // setup
+    ProfileConfig definition = createDefinition(profileOne);
+    String entity = (String) messageOne.get("ip_src_addr");
+    MessageRoute route = new MessageRoute(definition, entity, messageOne, ticker.read());
+    distributor = new DefaultMessageDistributor(
+            periodDurationMillis,
+            profileTimeToLiveMillis,
+            maxNumberOfRoutes,
+            ticker);
+
+    // distribute one message and wait for the profile to expire
+    distributor.distribute(route, context);
+    ticker.advanceTime(profileTimeToLiveMillis + 1000, MILLISECONDS);
+    assertEquals(0, distributor.flush().size());
+
+    Map<Integer, ProfileBuilderState> state = distributor.getState();
+    assertEquals(1, state.size());
+    assertTrue(state.values().iterator().next().isExpired());
+
+    // the restored profile should be expired
+    DefaultMessageDistributor restored = new DefaultMessageDistributor(
+            periodDurationMillis,
+            profileTimeToLiveMillis,
+            maxNumberOfRoutes,
+            ticker);
+    restored.restore(state.values(), context);
+    assertEquals(0, restored.flush().size());
+    assertEquals(1, restored.flushExpired().size());
+  }
+
+  /**
+   * Once a profile has been flushed, there is no state to restore.
+   */
+  @Test
+  public void testNoStateAfterFlush() throws Exception {
+
+    // setup
+    long timestamp = 100;
+    ProfileConfig definition = createDefinition(profileOne);
+    String entity = (String) messageOne.get("ip_src_addr");
+    MessageRoute route = new MessageRoute(definition, entity, messageOne, timestamp);
+
+    distributor.distribute(route, context);
+    assertEquals(1, distributor.getState().size());
+
+    distributor.flush();
+    assertTrue(distributor.getState().isEmpty());
+  }
+
+  /**
+   * When there are more routes than the maximum, the lesser used profiles should be spilled
+   * rather than lose their state.
+   */
+  @Test
+  public void testSpillProfiles() throws Exception {
+    SpilledProfileStore spilled = new SpilledProfileStore(tempDir);
+    distributor = new DefaultMessageDistributor(
+            periodDurationMillis,
+            profileTimeToLiveMillis,
+            1,
+            Ticker.systemTicker())
+            .withSpilledProfileStore(spilled);
+
+    // setup
+    long timestamp = 100;
+    ProfileConfig definition = createDefinition(profileOne);
+    String entityOne = (String) messageOne.get("ip_src_addr");
+    String entityTwo = (String) messageTwo.get("ip_src_addr");
+
+    // distribute messages to two entities, but only one route can be maintained in memory
+    distributor.distribute(new MessageRoute(definition, entityOne, messageOne, timestamp), context);
+    distributor.distribute(new MessageRoute(definition, entityOne, messageOne, timestamp), context);
+    distributor.distribute(new MessageRoute(definition, entityTwo, messageTwo, timestamp), context);
+
+    // cache maintenance spills one of the profiles
+    assertEquals(0, distributor.flushExpired().size());
+    assertEquals(1, spilled.size());
+    assertEquals(2, distributor.getState().size());
+
+    // a spilled profile continues from where it left off
+    distributor.distribute(new MessageRoute(definition, entityOne, messageOne, timestamp), context);
+
+    // no state should be lost
+    Map<String, Object> values = distributor.flush()
+            .stream()
+            .collect(Collectors.toMap(ProfileMeasurement::getEntity, ProfileMeasurement::getProfileValue));
+    assertEquals(2, values.size());
+    assertEquals(3, values.get(entityOne));
+    assertEquals(1, values.get(entityTwo));
+    assertTrue(spilled.isEmpty());
+    spilled.close();
+  }
+
+  /**
+   * Without a {@link SpilledProfileStore}, the lesser used profiles are expired when there are
+   * more routes than the maximum.
+   */
+  @Test
+  public void testExpireProfilesWithoutSpilling() throws Exception {
+    distributor = new DefaultMessageDistributor(
+            periodDurationMillis,
+            profileTimeToLiveMillis,
+            1,
+            Ticker.systemTicker());
+
+    // setup
+    long timestamp = 100;
+    ProfileConfig definition = createDefinition(profileOne);
+    String entityOne = (String) messageOne.get("ip_src_addr");
+    String entityTwo = (String) messageTwo.get("ip_src_addr");
+
+    // distribute messages to two entities, but only one route can be maintained in memory
+    distributor.distribute(new MessageRoute(definition, entityOne, messageOne, timestamp), context);
+    distributor.distribute(new MessageRoute(definition, entityTwo, messageTwo, timestamp), context);
+
+    // one of the profiles is expired
+    assertEquals(1, distributor.flush().size());
+    assertEquals(1, distributor.flushExpired().size());
+  }
+
   /**
    * An implementation of Ticker that can be used to drive time
    * when testing the Guava caches.
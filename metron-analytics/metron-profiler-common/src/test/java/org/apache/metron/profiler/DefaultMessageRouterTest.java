@@ -203,6 +203,39 @@ public class DefaultMessageRouterTest {
   @Multiline
   private String profileWithEventTime;
 
+  /**
+   * {
+   *   "profiles": [
+   *      {
+   *        "profile": "profile-one",
+   *        "onlyif": "ip_src_addr == '10.0.0.1'",
+   *        "foreach": "ip_src_addr",
+   *        "init":   { "x": "0" },
+   *        "update": { "x": "x + 1" },
+   *        "result": "x"
+   *      },
+   *      {
+   *        "profile": "profile-two",
+   *        "onlyif": "ip_src_addr in ['10.0.0.1', '10.0.0.2'] and value == '23'",
+   *        "foreach": "ip_src_addr",
+   *        "init":   { "x": "0" },
+   *        "update": { "x": "x + 1" },
+   *        "result": "x"
+   *      },
+   *      {
+   *        "profile": "profile-three",
+   *        "onlyif": "exists(value)",
+   *        "foreach": "ip_src_addr",
+   *        "init":   { "x": "0" },
+   *        "update": { "x": "x + 1" },
+   *        "result": "x"
+   *      }
+   *   ]
+   * }
+   */
+  @Multiline
+  private String indexedProfiles;
+
   private DefaultMessageRouter router;
   private Context context;
 
@@ -323,4 +356,47 @@ public class DefaultMessageRouterTest {
     List<MessageRoute> routes = router.route(messageOne, createConfig(profileWithEventTime), context);
     assertEquals(0, routes.size());
   }
+
+  /**
+   * Profiles with a simple 'onlyif' expression are routed using an index, which must not change
+   * which routes are found.
+   */
+  @Test
+  public void testIndexedProfiles() throws Exception {
+    ProfilerConfig config = createConfig(indexedProfiles);
+    {
+      List<MessageRoute> routes = router.route(messageOne, config, context);
+      assertEquals(2, routes.size());
+      assertEquals("profile-one", routes.get(0).getProfileDefinition().getProfile());
+      assertEquals("profile-three", routes.get(1).getProfileDefinition().getProfile());
+    }
+    {
+      messageTwo.put("value", "23");
+      List<MessageRoute> routes = router.route(messageTwo, config, context);
+      assertEquals(2, routes.size());
+      assertEquals("profile-two", routes.get(0).getProfileDefinition().getProfile());
+      assertEquals("profile-three", routes.get(1).getProfileDefinition().getProfile());
+    }
+  }
+
+  /**
+   * The index must be rebuilt when the profiles change.
+   */
+  @Test
+  public void testProfilesChange() throws Exception {
+    assertEquals(2, router.route(messageOne, createConfig(indexedProfiles), context).size());
+    assertEquals(0, router.route(messageOne, createConfig(exclusiveProfile), context).size());
+
+    // a profile is added to the same configuration
+    ProfilerConfig config = createConfig(exclusiveProfile);
+    assertEquals(0, router.route(messageOne, config, context).size());
+    config.withProfile(createConfig(oneProfile).getProfiles().get(0));
+    assertEquals(1, router.route(messageOne, config, context).size());
+
+    // the 'onlyif' expression of a profile is changed in place
+    config = createConfig(indexedProfiles);
+    assertEquals(1, router.route(messageTwo, config, context).size());
+    config.getProfiles().get(0).setOnlyif("ip_src_addr == '10.0.0.2'");
+    assertEquals(2, router.route(messageTwo, config, context).size());
+  }
 }
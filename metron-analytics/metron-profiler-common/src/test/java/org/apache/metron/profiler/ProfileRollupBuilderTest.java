@@ -0,0 +1,173 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler;
+
+import org.apache.metron.statistics.OnlineStatisticsProvider;
+import org.apache.metron.statistics.approximation.HyperLogLogPlus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.metron.profiler.ProfileRollup.Granularity.DAILY;
+import static org.apache.metron.profiler.ProfileRollup.Granularity.HOURLY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProfileRollupBuilderTest {
+
+  /**
+   * The start of a day.
+   */
+  private static final long DAY = TimeUnit.DAYS.toMillis(17500);
+  private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+  private ProfileRollupBuilder builder;
+
+  @BeforeEach
+  public void setup() {
+    builder = new ProfileRollupBuilder();
+  }
+
+  private ProfileMeasurement measurement(long timestamp, long periodMinutes, Object value) {
+    return new ProfileMeasurement()
+            .withProfileName("profile1")
+            .withEntity("10.0.0.1")
+            .withGroups(Collections.emptyList())
+            .withPeriod(timestamp, periodMinutes, TimeUnit.MINUTES)
+            .withProfileValue(value);
+  }
+
+  private OnlineStatisticsProvider stats(double... values) {
+    OnlineStatisticsProvider stats = new OnlineStatisticsProvider();
+    for(double value: values) {
+      stats.addValue(value);
+    }
+    return stats;
+  }
+
+  @Test
+  public void testHourlyRollup() {
+    for(int i = 0; i < 4; i++) {
+      assertTrue(builder.add(measurement(DAY + i * TimeUnit.MINUTES.toMillis(15), 15, stats(i, i))).isEmpty());
+    }
+
+    // a measurement from the next hour completes the hourly rollup
+    List<ProfileMeasurement> rollups = builder.add(measurement(DAY + HOUR, 15, stats(10)));
+    assertEquals(1, rollups.size());
+
+    ProfileMeasurement rollup = rollups.get(0);
+    assertEquals("profile1", rollup.getProfileName());
+    assertEquals("10.0.0.1", rollup.getEntity());
+    assertEquals(HOURLY.getPeriod(rollup.getPeriod()), rollup.getPeriod());
+    assertEquals(DAY, rollup.getPeriod().getStartTimeMillis());
+
+    ProfileRollup value = (ProfileRollup) rollup.getProfileValue();
+    assertEquals(HOURLY, value.getGranularity());
+    assertEquals(8, ((OnlineStatisticsProvider) value.getValue()).getCount());
+    assertEquals(12.0, ((OnlineStatisticsProvider) value.getValue()).getSum(), 0.0001);
+  }
+
+  @Test
+  public void testDailyRollup() {
+    // a 12 hour period can only be rolled up by day
+    assertTrue(builder.add(measurement(DAY, 720, stats(1))).isEmpty());
+    assertTrue(builder.add(measurement(DAY + 12 * HOUR, 720, stats(2))).isEmpty());
+    assertEquals(1, builder.size());
+
+    List<ProfileMeasurement> rollups = builder.add(measurement(DAY + 24 * HOUR, 720, stats(3)));
+    assertEquals(1, rollups.size());
+    ProfileRollup value = (ProfileRollup) rollups.get(0).getProfileValue();
+    assertEquals(DAILY, value.getGranularity());
+    assertEquals(2, ((OnlineStatisticsProvider) value.getValue()).getCount());
+  }
+
+  @Test
+  public void testValueNotMergeable() {
+    assertTrue(builder.add(measurement(DAY, 15, 22)).isEmpty());
+    assertTrue(builder.add(measurement(DAY + HOUR, 15, 23)).isEmpty());
+    assertEquals(0, builder.size());
+  }
+
+  @Test
+  public void testIncompleteRollupNotWritten() {
+    // the first measurement seen is from the middle of the hour, as happens after a restart
+    builder.add(measurement(DAY + TimeUnit.MINUTES.toMillis(30), 15, stats(1)));
+    builder.add(measurement(DAY + TimeUnit.MINUTES.toMillis(45), 15, stats(2)));
+
+    assertTrue(builder.add(measurement(DAY + HOUR, 15, stats(3))).isEmpty());
+  }
+
+  @Test
+  public void testLateMeasurementInvalidatesRollup() {
+    builder.add(measurement(DAY, 15, stats(1)));
+    builder.add(measurement(DAY + HOUR, 15, stats(2)));
+
+    // the rollup of the first hour has already been written
+    List<ProfileMeasurement> rollups = builder.add(measurement(DAY + TimeUnit.MINUTES.toMillis(15), 15, stats(3)));
+    assertEquals(1, rollups.size());
+    assertEquals(DAY, rollups.get(0).getPeriod().getStartTimeMillis());
+    ProfileRollup value = (ProfileRollup) rollups.get(0).getProfileValue();
+    assertEquals(HOURLY, value.getGranularity());
+    assertNull(value.getValue());
+  }
+
+  @Test
+  public void testMaxRollups() {
+    builder = new ProfileRollupBuilder(1);
+    builder.add(measurement(DAY, 15, stats(1)));
+    builder.add(measurement(DAY, 15, stats(2)).withEntity("10.0.0.2"));
+    builder.add(measurement(DAY + TimeUnit.MINUTES.toMillis(15), 15, stats(3)).withEntity("10.0.0.2"));
+    assertEquals(2, builder.size());
+
+    // only the rollups of the first entity are built
+    List<ProfileMeasurement> rollups = builder.add(measurement(DAY + HOUR, 15, stats(4)));
+    assertEquals(1, rollups.size());
+    assertEquals("10.0.0.1", rollups.get(0).getEntity());
+  }
+
+  @Test
+  public void testMerge() {
+    HyperLogLogPlus left = new HyperLogLogPlus();
+    left.add("a");
+    HyperLogLogPlus right = new HyperLogLogPlus();
+    right.add("b");
+    assertEquals(2, ((HyperLogLogPlus) ProfileRollupBuilder.merge(left, right)).cardinality());
+    assertEquals(1, left.cardinality());
+
+    assertEquals(3, ((OnlineStatisticsProvider) ProfileRollupBuilder.merge(stats(1), stats(2, 3))).getCount());
+    assertThrows(IllegalArgumentException.class, () -> ProfileRollupBuilder.merge(stats(1), 2));
+  }
+
+  @Test
+  public void testGranularitySupported() {
+    assertTrue(HOURLY.isSupported(TimeUnit.MINUTES.toMillis(15)));
+    assertFalse(HOURLY.isSupported(TimeUnit.MINUTES.toMillis(7)));
+    assertFalse(HOURLY.isSupported(HOUR));
+    assertTrue(DAILY.isSupported(HOUR));
+    assertFalse(DAILY.isSupported(0));
+  }
+}
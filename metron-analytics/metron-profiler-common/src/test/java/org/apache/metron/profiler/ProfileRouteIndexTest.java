@@ -0,0 +1,170 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler;
+
+import org.apache.metron.common.configuration.profiler.ProfileConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProfileRouteIndexTest {
+
+  private ProfileConfig createProfile(String name, String onlyif) {
+    return new ProfileConfig()
+            .withProfile(name)
+            .withForeach("ip_src_addr")
+            .withOnlyif(onlyif)
+            .withInit("x", "0")
+            .withUpdate("x", "x + 1")
+            .withResult("x");
+  }
+
+  private List<String> getCandidates(ProfileRouteIndex index, Map<String, Object> message) {
+    return index.getCandidates(message)
+            .stream()
+            .map(ProfileConfig::getProfile)
+            .collect(Collectors.toList());
+  }
+
+  private Map<String, Object> message(String field, Object value) {
+    Map<String, Object> message = new HashMap<>();
+    message.put("ip_src_addr", "10.0.0.1");
+    message.put(field, value);
+    return message;
+  }
+
+  private void assertRequires(String onlyif, String field, String... values) {
+    Optional<ProfileRouteIndex.Requirement> requirement = ProfileRouteIndex.analyze(onlyif);
+    assertEquals(field, requirement.map(ProfileRouteIndex.Requirement::getField).orElse(null), onlyif);
+    assertEquals(new HashSet<>(Arrays.asList(values)), requirement.get().getValues(), onlyif);
+  }
+
+  private void assertNotIndexed(String onlyif) {
+    assertFalse(ProfileRouteIndex.analyze(onlyif).isPresent(), onlyif);
+  }
+
+  @Test
+  public void testAnalyzeEquality() {
+    assertRequires("source.type == 'bro'", "source.type", "bro");
+    assertRequires("source.type == \"bro\"", "source.type", "bro");
+    assertRequires("'bro' == source.type", "source.type", "bro");
+    assertRequires("  source.type=='bro'  ", "source.type", "bro");
+    assertRequires("(source.type == 'bro')", "source.type", "bro");
+  }
+
+  @Test
+  public void testAnalyzeLiteralsAsTheCompilerDoes() {
+    assertRequires("source.type == 'b\\'ro'", "source.type", "b'ro");
+    assertRequires("source.type == 'bro or yaf'", "source.type", "bro or yaf");
+    assertRequires("source.type in ['if', 'then', 'else']", "source.type", "if", "then", "else");
+  }
+
+  @Test
+  public void testAnalyzeIn() {
+    assertRequires("source.type in ['bro', 'yaf']", "source.type", "bro", "yaf");
+    assertRequires("source.type IN [ \"bro\" ]", "source.type", "bro");
+  }
+
+  @Test
+  public void testAnalyzeConjunction() {
+    assertRequires("source.type == 'bro' and protocol == 'HTTP'", "source.type", "bro");
+    assertRequires("exists(ip_src_addr) && source.type == 'bro'", "source.type", "bro");
+    assertRequires("IS_LOCAL(ip_src_addr) AND source.type in ['bro', 'yaf']", "source.type", "bro", "yaf");
+    assertRequires("(a == 'x' or b == 'y') and source.type == 'bro'", "source.type", "bro");
+    assertRequires("(exists(a) and source.type == 'bro') and b == 'y'", "source.type", "bro");
+  }
+
+  @Test
+  public void testNotIndexed() {
+    assertNotIndexed(null);
+    assertNotIndexed("true");
+    assertNotIndexed("exists(ip_src_addr)");
+    assertNotIndexed("source.type == 'bro' or source.type == 'yaf'");
+    assertNotIndexed("source.type == 'bro' || protocol == 'HTTP'");
+    assertNotIndexed("source.type != 'bro'");
+    assertNotIndexed("not(source.type == 'bro')");
+    assertNotIndexed("source.type == 'bro' ? true : false");
+    assertNotIndexed("if source.type == 'bro' then true else false");
+    assertNotIndexed("source.type == 'bro' and");
+    assertNotIndexed("(source.type == 'bro' or a) and b");
+    assertNotIndexed("source.type in []");
+    assertNotIndexed("source.type == other.type");
+    assertNotIndexed("source.type in ['bro', other]");
+    assertNotIndexed("true == 'bro'");
+  }
+
+  @Test
+  public void testCandidates() {
+    ProfileRouteIndex index = new ProfileRouteIndex(Arrays.asList(
+            createProfile("bro", "source.type == 'bro'"),
+            createProfile("all", "true"),
+            createProfile("bro-or-yaf", "source.type in ['bro', 'yaf']"),
+            createProfile("http", "protocol == 'HTTP' and source.type == 'bro'"),
+            createProfile("snort", "'snort' == source.type")));
+    assertEquals(4, index.getIndexedCount());
+
+    // the candidates are in the same order as the profiles
+    assertEquals(Arrays.asList("bro", "all", "bro-or-yaf"), getCandidates(index, message("source.type", "bro")));
+    assertEquals(Arrays.asList("all", "bro-or-yaf"), getCandidates(index, message("source.type", "yaf")));
+    assertEquals(Arrays.asList("all", "snort"), getCandidates(index, message("source.type", "snort")));
+    assertEquals(Arrays.asList("all"), getCandidates(index, message("source.type", "asa")));
+    assertEquals(Arrays.asList("all"), getCandidates(index, message("other", "bro")));
+
+    Map<String, Object> http = message("source.type", "bro");
+    http.put("protocol", "HTTP");
+    assertEquals(Arrays.asList("bro", "all", "bro-or-yaf", "http"), getCandidates(index, http));
+  }
+
+  @Test
+  public void testCandidatesWhenValueIsNotAString() {
+    ProfileRouteIndex index = new ProfileRouteIndex(Arrays.asList(
+            createProfile("bro", "source.type == 'bro'"),
+            createProfile("all", "true")));
+
+    // the index cannot tell; the 'onlyif' expression must decide
+    assertEquals(Arrays.asList("bro", "all"), getCandidates(index, message("source.type", 22)));
+  }
+
+  @Test
+  public void testNoProfiles() {
+    ProfileRouteIndex index = new ProfileRouteIndex(Collections.emptyList());
+    assertTrue(index.getCandidates(message("source.type", "bro")).isEmpty());
+  }
+
+  @Test
+  public void testNoIndexedProfiles() {
+    List<ProfileConfig> profiles = Arrays.asList(createProfile("one", "true"), createProfile("two", "false"));
+    ProfileRouteIndex index = new ProfileRouteIndex(profiles);
+    assertEquals(0, index.getIndexedCount());
+    assertEquals(profiles, index.getCandidates(message("source.type", "bro")));
+  }
+}
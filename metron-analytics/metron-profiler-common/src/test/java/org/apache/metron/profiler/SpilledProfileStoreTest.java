@@ -0,0 +1,176 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler;
+
+import org.apache.metron.common.configuration.profiler.ProfileConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpilledProfileStoreTest {
+
+  @TempDir
+  File tempDir;
+
+  private SpilledProfileStore store;
+  private ProfileConfig profile;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    store = new SpilledProfileStore(tempDir);
+    profile = new ProfileConfig()
+            .withProfile("profile1")
+            .withForeach("ip_src_addr")
+            .withInit("x", "0")
+            .withUpdate("x", "x + 1")
+            .withResult("x");
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    store.close();
+  }
+
+  private ProfileBuilderState createState(String entity, int x) {
+    return new ProfileBuilderState()
+            .withDefinition(profile)
+            .withEntity(entity)
+            .withMaxTimestamp(1000L)
+            .withVariables(Collections.singletonMap("x", x));
+  }
+
+  @Test
+  public void testPutAndRemove() throws Exception {
+    ProfileBuilderState one = createState("10.0.0.1", 1);
+    ProfileBuilderState two = createState("10.0.0.2", 2);
+    store.put(1, one);
+    store.put(2, two);
+    assertEquals(2, store.size());
+
+    assertEquals(Optional.of(two), store.get(2));
+    assertEquals(Optional.of(one), store.remove(1));
+    assertEquals(Optional.empty(), store.remove(1));
+    assertFalse(store.contains(1));
+    assertTrue(store.contains(2));
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  public void testPutReplaces() throws Exception {
+    store.put(1, createState("10.0.0.1", 1));
+    store.put(1, createState("10.0.0.1", 2));
+    assertEquals(1, store.size());
+    assertEquals(Optional.of(createState("10.0.0.1", 2)), store.get(1));
+  }
+
+  @Test
+  public void testRemoveAll() throws Exception {
+    List<ProfileBuilderState> expected = Arrays.asList(
+            createState("10.0.0.1", 1),
+            createState("10.0.0.2", 2),
+            createState("10.0.0.3", 3));
+    for(int i = 0; i < expected.size(); i++) {
+      store.put(expected.size() - i, expected.get(i));
+    }
+    assertTrue(store.getLength() > 0);
+
+    // the profiles are read in the order they were written
+    List<ProfileBuilderState> actual = new ArrayList<>();
+    store.removeAll((key, state) -> actual.add(state));
+    assertEquals(expected, actual);
+
+    // the space used by the file is reclaimed
+    assertTrue(store.isEmpty());
+    assertEquals(0, store.getLength());
+  }
+
+  @Test
+  public void testCompaction() throws Exception {
+    for(int i = 0; i < 10; i++) {
+      store.put(i, createState("10.0.0." + i, i));
+    }
+    long length = store.getLength();
+
+    // once most of the file is unused, it is compacted
+    for(int i = 0; i < 6; i++) {
+      store.remove(i);
+    }
+    assertTrue(store.getLength() < length);
+
+    // the remaining profiles can still be read
+    for(int i = 6; i < 10; i++) {
+      assertEquals(Optional.of(createState("10.0.0." + i, i)), store.get(i));
+    }
+  }
+
+  @Test
+  public void testReplacingDoesNotGrowFile() throws Exception {
+    store.put(1, createState("10.0.0.1", 1));
+    store.put(2, createState("10.0.0.2", 2));
+    long length = store.getLength();
+
+    for(int i = 0; i < 100; i++) {
+      store.put(1, createState("10.0.0.1", 1));
+    }
+    assertTrue(store.getLength() <= 2 * length);
+    assertEquals(Optional.of(createState("10.0.0.1", 1)), store.get(1));
+    assertEquals(Optional.of(createState("10.0.0.2", 2)), store.get(2));
+  }
+
+  @Test
+  public void testDeletesStaleFiles() throws Exception {
+    // a file left behind by a process that was killed
+    File stale = new File(tempDir, "profiles-123.spill");
+    assertTrue(stale.createNewFile());
+    assertTrue(stale.setLastModified(0));
+    store.put(1, createState("10.0.0.1", 1));
+
+    try(SpilledProfileStore another = new SpilledProfileStore(tempDir)) {
+      assertFalse(stale.exists());
+
+      // the file of the open store is left alone
+      assertEquals(2, tempDir.listFiles().length);
+      assertEquals(Optional.of(createState("10.0.0.1", 1)), store.get(1));
+    }
+  }
+
+  @Test
+  public void testCloseDeletesFile() throws Exception {
+    store.put(1, createState("10.0.0.1", 1));
+    store.close();
+    assertEquals(0, tempDir.listFiles().length);
+
+    // replace the closed store for tearDown
+    store = new SpilledProfileStore(tempDir);
+  }
+}
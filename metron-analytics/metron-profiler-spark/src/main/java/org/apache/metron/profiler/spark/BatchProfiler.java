@@ -27,8 +27,11 @@ import org.apache.metron.profiler.spark.function.GroupByPeriodFunction;
 import org.apache.metron.profiler.spark.function.HBaseWriterFunction;
 import org.apache.metron.profiler.spark.function.MessageRouterFunction;
 import org.apache.metron.profiler.spark.function.ProfileBuilderFunction;
+import org.apache.metron.profiler.spark.function.RollupBuilderFunction;
+import org.apache.metron.profiler.spark.function.RollupFunction;
 import org.apache.metron.profiler.spark.reader.TelemetryReader;
 import org.apache.metron.profiler.spark.reader.TelemetryReaders;
+import org.apache.spark.api.java.function.MapFunction;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Encoders;
 import org.apache.spark.sql.SparkSession;
@@ -70,7 +73,7 @@ public class BatchProfiler implements Serializable {
    * @param globalProperties The Stellar global properties.
    * @param readerProps The properties passed to the {@link org.apache.spark.sql.DataFrameReader}.
    * @param profiles The profile definitions.
-   * @return The number of profile measurements produced.
+   * @return The number of profile measurements and rollups produced.
    */
   public long run(SparkSession spark,
                   Properties profilerProps,
@@ -97,13 +100,21 @@ public class BatchProfiler implements Serializable {
             .mapGroups(new ProfileBuilderFunction(profilerProps, globals), Encoders.kryo(ProfileMeasurement.class));
     LOG.debug("Produced {} profile measurement(s)", measurements.cache().count());
 
-    // write the profile measurements to HBase
+    // build the hourly and daily rollups of the measurements
+    Dataset<ProfileMeasurement> rollups = measurements
+            .flatMap(rollupFunction(profilerProps), Encoders.kryo(ProfileMeasurement.class))
+            .groupByKey((MapFunction<ProfileMeasurement, String>) RollupFunction::groupKey, Encoders.STRING())
+            .mapGroups(new RollupBuilderFunction(), Encoders.kryo(ProfileMeasurement.class));
+    LOG.debug("Produced {} profile rollup(s)", rollups.cache().count());
+
+    // write the profile measurements and rollups to HBase
     long count = measurements
+            .union(rollups)
             .mapPartitions(new HBaseWriterFunction(profilerProps), Encoders.INT())
             .agg(sum("value"))
             .head()
             .getLong(0);
-    LOG.debug("{} profile measurement(s) written to HBase", count);
+    LOG.debug("{} profile measurement(s) and rollup(s) written to HBase", count);
 
     return count;
   }
@@ -132,4 +143,22 @@ public class BatchProfiler implements Serializable {
 
     return routerFunction;
   }
+
+  /**
+   * Builds the function that produces the rollups of each measurement.
+   *
+   * <p>Rollups that are only partially within the time constraints would be incomplete, so
+   * they are not produced.
+   *
+   * @param profilerProps The profiler configuration properties.
+   * @return A {@link RollupFunction}.
+   */
+  private RollupFunction rollupFunction(Properties profilerProps) {
+    RollupFunction rollupFunction = new RollupFunction();
+    timestampParser.parse(TELEMETRY_INPUT_BEGIN.get(profilerProps, String.class))
+            .ifPresent(begin -> rollupFunction.withBegin(begin));
+    timestampParser.parse(TELEMETRY_INPUT_END.get(profilerProps, String.class))
+            .ifPresent(end -> rollupFunction.withEnd(end));
+    return rollupFunction;
+  }
 }
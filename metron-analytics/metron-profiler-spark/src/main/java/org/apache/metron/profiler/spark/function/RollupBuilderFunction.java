@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler.spark.function;
+
+import org.apache.metron.profiler.ProfileMeasurement;
+import org.apache.metron.profiler.ProfileRollup;
+import org.apache.metron.profiler.ProfileRollupBuilder;
+import org.apache.spark.api.java.function.MapGroupsFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Iterator;
+
+/**
+ * Merges the rollups that were grouped together by the {@link RollupFunction} into a single
+ * rollup for each profile, entity, and hour or day.
+ */
+public class RollupBuilderFunction implements MapGroupsFunction<String, ProfileMeasurement, ProfileMeasurement> {
+
+  protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * @param groupKey The group key.
+   * @param rollups The rollups to merge.
+   * @return The merged rollup.  If the values could not be merged, the rollup has no value so
+   * that readers fall back to the measurements.
+   */
+  @Override
+  public ProfileMeasurement call(String groupKey, Iterator<ProfileMeasurement> rollups) {
+    ProfileMeasurement result = rollups.next();
+    ProfileRollup rollup = (ProfileRollup) result.getProfileValue();
+    Object value = rollup.getValue();
+    try {
+      while(rollups.hasNext()) {
+        value = ProfileRollupBuilder.merge(value, ((ProfileRollup) rollups.next().getProfileValue()).getValue());
+      }
+
+    } catch(IllegalArgumentException e) {
+      LOG.warn("Unable to merge values for rollup; group={}, error={}", groupKey, e.getMessage());
+      value = null;
+    }
+
+    return result.withProfileValue(new ProfileRollup(rollup.getGranularity(), value));
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler.spark.function;
+
+import org.apache.metron.profiler.ProfileMeasurement;
+import org.apache.metron.profiler.ProfilePeriod;
+import org.apache.metron.profiler.ProfileRollup;
+import org.apache.metron.profiler.ProfileRollupBuilder;
+import org.apache.spark.api.java.function.FlatMapFunction;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Maps each {@link ProfileMeasurement} to the hourly and daily rollups that contain it.
+ *
+ * <p>The rollups are then grouped by {@link #groupKey(ProfileMeasurement)} and merged by the
+ * {@link RollupBuilderFunction}.  Only measurements whose values can be merged are rolled up.
+ */
+public class RollupFunction implements FlatMapFunction<ProfileMeasurement, ProfileMeasurement> {
+
+  private static final String SEPARATOR = "__";
+
+  /**
+   * Only rollups that start at or after this are produced.
+   */
+  private Long begin;
+
+  /**
+   * Only rollups that end at or before this are produced.
+   */
+  private Long end;
+
+  public RollupFunction() {
+    this.begin = Long.MIN_VALUE;
+    this.end = Long.MAX_VALUE;
+  }
+
+  /**
+   * @param measurement A profile measurement.
+   * @return A rollup for each granularity that the measurement can be rolled up to.
+   */
+  @Override
+  public Iterator<ProfileMeasurement> call(ProfileMeasurement measurement) {
+    List<ProfileMeasurement> rollups = new ArrayList<>();
+    if(ProfileRollupBuilder.isMergeable(measurement.getProfileValue())) {
+      for(ProfileRollup.Granularity granularity: ProfileRollup.Granularity.values()) {
+        ProfilePeriod period = measurement.getPeriod();
+        if(!granularity.isSupported(period.getDurationMillis())) {
+          continue;
+        }
+
+        // a rollup that is only partially within the telemetry would be incomplete
+        ProfilePeriod rollupPeriod = granularity.getPeriod(period);
+        if(rollupPeriod.getStartTimeMillis() >= begin && rollupPeriod.getEndTimeMillis() <= end) {
+          rollups.add(new ProfileMeasurement()
+                  .withProfileName(measurement.getProfileName())
+                  .withEntity(measurement.getEntity())
+                  .withGroups(measurement.getGroups())
+                  .withDefinition(measurement.getDefinition())
+                  .withPeriod(rollupPeriod)
+                  .withProfileValue(new ProfileRollup(granularity, measurement.getProfileValue())));
+        }
+      }
+    }
+
+    return rollups.iterator();
+  }
+
+  /**
+   * @param rollup A rollup produced by this function.
+   * @return The key that groups all of the rollups that need to be merged.
+   */
+  public static String groupKey(ProfileMeasurement rollup) {
+    return new StringBuilder()
+            .append(rollup.getProfileName())
+            .append(SEPARATOR)
+            .append(rollup.getEntity())
+            .append(SEPARATOR)
+            .append(rollup.getGroups())
+            .append(SEPARATOR)
+            .append(((ProfileRollup) rollup.getProfileValue()).getGranularity())
+            .append(SEPARATOR)
+            .append(rollup.getPeriod().getPeriod())
+            .toString();
+  }
+
+  /**
+   * Set a time constraint.
+   *
+   * @param begin Only rollups that start at or after this are produced.
+   * @return The rollup function.
+   */
+  public RollupFunction withBegin(Long begin) {
+    this.begin = begin;
+    return this;
+  }
+
+  /**
+   * Set a time constraint.
+   *
+   * @param end Only rollups that end at or before this are produced.
+   * @return The rollup function.
+   */
+  public RollupFunction withEnd(Long end) {
+    this.end = end;
+    return this;
+  }
+}
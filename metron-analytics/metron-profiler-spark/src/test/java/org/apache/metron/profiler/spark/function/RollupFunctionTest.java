@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler.spark.function;
+
+import org.apache.commons.collections4.IteratorUtils;
+import org.apache.metron.profiler.ProfileMeasurement;
+import org.apache.metron.profiler.ProfileRollup;
+import org.apache.metron.statistics.OnlineStatisticsProvider;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RollupFunctionTest {
+
+  private static final long DAY = TimeUnit.DAYS.toMillis(17500);
+
+  private ProfileMeasurement measurement(long timestamp, Object value) {
+    return new ProfileMeasurement()
+            .withProfileName("profile1")
+            .withEntity("10.0.0.1")
+            .withGroups(Collections.emptyList())
+            .withPeriod(timestamp, 15, TimeUnit.MINUTES)
+            .withProfileValue(value);
+  }
+
+  private OnlineStatisticsProvider stats(double value) {
+    OnlineStatisticsProvider stats = new OnlineStatisticsProvider();
+    stats.addValue(value);
+    return stats;
+  }
+
+  @Test
+  public void shouldRollupByHourAndDay() {
+    List<ProfileMeasurement> rollups = IteratorUtils.toList(new RollupFunction().call(measurement(DAY, stats(1))));
+    assertEquals(2, rollups.size());
+
+    ProfileRollup hourly = (ProfileRollup) rollups.get(0).getProfileValue();
+    assertEquals(ProfileRollup.Granularity.HOURLY, hourly.getGranularity());
+    assertEquals(TimeUnit.HOURS.toMillis(1), rollups.get(0).getPeriod().getDurationMillis());
+
+    ProfileRollup daily = (ProfileRollup) rollups.get(1).getProfileValue();
+    assertEquals(ProfileRollup.Granularity.DAILY, daily.getGranularity());
+    assertEquals(TimeUnit.DAYS.toMillis(1), rollups.get(1).getPeriod().getDurationMillis());
+  }
+
+  @Test
+  public void shouldNotRollupValuesThatCannotBeMerged() {
+    assertTrue(IteratorUtils.toList(new RollupFunction().call(measurement(DAY, 22))).isEmpty());
+  }
+
+  @Test
+  public void shouldNotRollupOutsideOfTimeConstraints() {
+    // the day is only partially within the time constraints
+    RollupFunction function = new RollupFunction()
+            .withBegin(DAY)
+            .withEnd(DAY + TimeUnit.HOURS.toMillis(2));
+    List<ProfileMeasurement> rollups = IteratorUtils.toList(function.call(measurement(DAY, stats(1))));
+    assertEquals(1, rollups.size());
+    assertEquals(ProfileRollup.Granularity.HOURLY, ((ProfileRollup) rollups.get(0).getProfileValue()).getGranularity());
+  }
+
+  @Test
+  public void shouldMergeRollups() {
+    RollupFunction function = new RollupFunction();
+    ProfileMeasurement first = function.call(measurement(DAY, stats(1))).next();
+    ProfileMeasurement second = function.call(measurement(DAY + TimeUnit.MINUTES.toMillis(15), stats(2))).next();
+    assertEquals(RollupFunction.groupKey(first), RollupFunction.groupKey(second));
+
+    ProfileMeasurement merged = new RollupBuilderFunction().call(RollupFunction.groupKey(first), Arrays.asList(first, second).iterator());
+    OnlineStatisticsProvider value = (OnlineStatisticsProvider) ((ProfileRollup) merged.getProfileValue()).getValue();
+    assertEquals(2, value.getCount());
+    assertEquals(3.0, value.getSum(), 0.0001);
+  }
+
+  @Test
+  public void shouldInvalidateRollupThatCannotBeMerged() {
+    RollupFunction function = new RollupFunction();
+    ProfileMeasurement first = function.call(measurement(DAY, stats(1))).next();
+    ProfileMeasurement second = measurement(DAY, null)
+            .withPeriod(first.getPeriod())
+            .withProfileValue(new ProfileRollup(ProfileRollup.Granularity.HOURLY, "not mergeable"));
+
+    ProfileMeasurement merged = new RollupBuilderFunction().call(RollupFunction.groupKey(first), Arrays.asList(first, second).iterator());
+    assertNull(((ProfileRollup) merged.getProfileValue()).getValue());
+  }
+}
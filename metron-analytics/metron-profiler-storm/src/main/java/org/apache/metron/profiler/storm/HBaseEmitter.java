@@ -19,6 +19,7 @@
 package org.apache.metron.profiler.storm;
 
 import org.apache.metron.profiler.ProfileMeasurement;
+import org.apache.metron.profiler.ProfileRollupBuilder;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.topology.OutputFieldsDeclarer;
 import org.apache.storm.tuple.Fields;
@@ -32,6 +33,10 @@ import java.lang.invoke.MethodHandles;
 /**
  * Responsible for emitting a {@link ProfileMeasurement} to an output stream that will
  * persist data in HBase.
+ *
+ * <p>The hourly and daily rollups of measurements whose values can be merged are emitted
+ * to the same stream, once each hour or day is complete.  At most {@link #maxRollups} rollups
+ * of each granularity are held in memory.
  */
 public class HBaseEmitter implements ProfileMeasurementEmitter, Serializable {
 
@@ -42,17 +47,41 @@ public class HBaseEmitter implements ProfileMeasurementEmitter, Serializable {
    */
   private String streamId = "hbase";
 
+  /**
+   * The maximum number of hourly and of daily rollups that are built.
+   */
+  private long maxRollups = ProfileRollupBuilder.MAX_ROLLUPS_DEFAULT;
+
+  /**
+   * Builds the rollups of the measurements.
+   */
+  private transient ProfileRollupBuilder rollupBuilder;
+
   @Override
   public void declareOutputFields(OutputFieldsDeclarer declarer) {
     declarer.declareStream(getStreamId(), new Fields("measurement"));
   }
 
   @Override
-  public void emit(ProfileMeasurement measurement, OutputCollector collector) {
+  public synchronized void emit(ProfileMeasurement measurement, OutputCollector collector) {
 
     // measurements are always emitted to hbase
     collector.emit(getStreamId(), new Values(measurement));
 
+    // emit any rollups that are complete
+    if(rollupBuilder == null) {
+      rollupBuilder = new ProfileRollupBuilder(maxRollups);
+    }
+    for(ProfileMeasurement rollup: rollupBuilder.add(measurement)) {
+      collector.emit(getStreamId(), new Values(rollup));
+      LOG.debug("Emitted rollup; stream={}, profile={}, entity={}, start={}, end={}",
+              getStreamId(),
+              rollup.getProfileName(),
+              rollup.getEntity(),
+              rollup.getPeriod().getStartTimeMillis(),
+              rollup.getPeriod().getEndTimeMillis());
+    }
+
     LOG.debug("Emitted measurement; stream={}, profile={}, entity={}, period={}, start={}, end={}",
             getStreamId(),
             measurement.getProfileName(),
@@ -70,4 +99,12 @@ public class HBaseEmitter implements ProfileMeasurementEmitter, Serializable {
   public void setStreamId(String streamId) {
     this.streamId = streamId;
   }
+
+  /**
+   * @param maxRollups The maximum number of hourly and of daily rollups that are built.
+   */
+  public HBaseEmitter withMaxRollups(long maxRollups) {
+    this.maxRollups = maxRollups;
+    return this;
+  }
 }
@@ -21,11 +21,14 @@
 package org.apache.metron.profiler.storm;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.framework.recipes.cache.TreeCacheEvent;
 import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.configuration.ConfigurationType;
 import org.apache.metron.common.configuration.ConfigurationsUtils;
@@ -37,6 +40,8 @@ import org.apache.metron.common.zookeeper.configurations.Reloadable;
 import org.apache.metron.profiler.DefaultMessageDistributor;
 import org.apache.metron.profiler.MessageDistributor;
 import org.apache.metron.profiler.MessageRoute;
+import org.apache.metron.profiler.ProfileBuilderState;
+import org.apache.metron.profiler.SpilledProfileStore;
 import org.apache.metron.profiler.ProfileMeasurement;
 import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.stellar.dsl.Context;
@@ -53,11 +58,14 @@ import org.json.simple.parser.JSONParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.LongSummaryStatistics;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -133,6 +141,18 @@ public class ProfileBuilderBolt extends BaseWindowedBolt implements Reloadable {
    */
   private long maxNumberOfRoutes;
 
+  /**
+   * The local directory where profiles are spilled when there are more than
+   * {@link #maxNumberOfRoutes} routes.  If not defined, the lesser used profiles are
+   * expired instead.
+   */
+  private String spillDir;
+
+  /**
+   * Stores the state of the profiles that have been spilled.
+   */
+  private transient SpilledProfileStore spilledProfileStore;
+
   /**
    * Distributes messages to the profile builders.
    *
@@ -172,6 +192,27 @@ public class ProfileBuilderBolt extends BaseWindowedBolt implements Reloadable {
    */
   private transient ScheduledExecutorService flushExpiredExecutor;
 
+  /**
+   * The directory where the state of the profiles is checkpointed.  If not defined, the
+   * state of the profiles is not checkpointed.
+   */
+  private String checkpointDir;
+
+  /**
+   * The maximum number of milliseconds between checkpoints of the state of the profiles.
+   */
+  private long checkpointIntervalMillis;
+
+  /**
+   * Saves the state of the profiles so that it can be restored after a restart.
+   */
+  private transient ProfileCheckpointer checkpointer;
+
+  /**
+   * The time of the last checkpoint in milliseconds.
+   */
+  private transient volatile long lastCheckpointMillis;
+
   public ProfileBuilderBolt() {
     this.emitters = new ArrayList<>();
   }
@@ -201,19 +242,46 @@ public class ProfileBuilderBolt extends BaseWindowedBolt implements Reloadable {
     if(periodDurationMillis % windowDurationMillis != 0) {
       throw new IllegalArgumentException("expect 'profiler.period.duration' % 'profiler.window.duration' == 0");
     }
+    if(StringUtils.isNotBlank(checkpointDir) && checkpointIntervalMillis <= 0) {
+      throw new IllegalArgumentException("expect 'profiler.checkpoint.interval' > 0");
+    }
 
     this.collector = collector;
     this.parser = new JSONParser();
-    this.messageDistributor = new DefaultMessageDistributor(periodDurationMillis, profileTimeToLiveMillis, maxNumberOfRoutes);
+    this.messageDistributor = createMessageDistributor();
     this.configurations = new ProfilerConfigurations();
     this.activeFlushSignal = new FixedFrequencyFlushSignal(periodDurationMillis);
     setupZookeeper();
+    setupCheckpoints(context);
     startFlushingExpiredProfiles();
   }
 
+  /**
+   * Creates the {@link MessageDistributor} that maintains the profiles.
+   */
+  private MessageDistributor createMessageDistributor() {
+    DefaultMessageDistributor distributor = new DefaultMessageDistributor(periodDurationMillis, profileTimeToLiveMillis, maxNumberOfRoutes);
+    if(StringUtils.isNotBlank(spillDir)) {
+      try {
+        spilledProfileStore = new SpilledProfileStore(new File(spillDir));
+        distributor.withSpilledProfileStore(spilledProfileStore);
+
+      } catch(IOException e) {
+        throw new IllegalStateException(format("Unable to create spill file; dir=%s", spillDir), e);
+      }
+    }
+    return distributor;
+  }
+
   @Override
   public void cleanup() {
     try {
+      if(checkpointer != null) {
+        checkpoint();
+      }
+      if(spilledProfileStore != null) {
+        spilledProfileStore.close();
+      }
       zookeeperCache.close();
       zookeeperClient.close();
       flushExpiredExecutor.shutdown();
@@ -257,6 +325,58 @@ public class ProfileBuilderBolt extends BaseWindowedBolt implements Reloadable {
     }
   }
 
+  /**
+   * Restores the state of the profiles from the last checkpoint, if checkpoints are enabled.
+   *
+   * <p>Each task maintains its own checkpoint.  If the checkpoint cannot be restored, the
+   * bolt starts without any state, as it would if checkpoints were not enabled.
+   */
+  private void setupCheckpoints(TopologyContext context) {
+    if(StringUtils.isBlank(checkpointDir)) {
+      return;
+    }
+
+    String componentId = context.getThisComponentId();
+    Path path = new Path(checkpointDir, format("%s-%d", componentId, context.getThisTaskId()));
+    int numberOfTasks = context.getComponentTasks(componentId).size();
+    checkpointer = new ProfileCheckpointer(path, numberOfTasks, new Configuration());
+    try {
+      List<ProfileBuilderState> states = checkpointer.restore();
+      messageDistributor.restore(states, getStellarContext());
+      LOG.info("Restored {} profile(s) from checkpoint; path={}", states.size(), path);
+
+    } catch(Throwable e) {
+      LOG.error(format("Unable to restore profiles from checkpoint; path=%s", path), e);
+    }
+    lastCheckpointMillis = System.currentTimeMillis();
+  }
+
+  /**
+   * Saves the state of the profiles.
+   *
+   * <p>A failed checkpoint does not interrupt processing; the profiles are checkpointed again
+   * at the next opportunity.
+   *
+   * <p>The profiles are only locked while serialized, not while the checkpoint is written.
+   */
+  protected void checkpoint() {
+    // checkpoints are taken by both the executor and the expired flush threads; each must be written in turn
+    synchronized (checkpointer) {
+      try {
+        Map<Integer, byte[]> serialized;
+        synchronized (messageDistributor) {
+          Set<Integer> modified = messageDistributor.drainModified();
+          serialized = checkpointer.serialize(messageDistributor.getState(), modified);
+        }
+        checkpointer.save(serialized);
+        lastCheckpointMillis = System.currentTimeMillis();
+
+      } catch(Throwable e) {
+        LOG.error(format("Failed to checkpoint profiles; path=%s", checkpointer.getPath()), e);
+      }
+    }
+  }
+
   protected ConfigurationsUpdater<ProfilerConfigurations> createUpdater() {
     return new ProfilerUpdater(this, this::getConfigurations);
   }
@@ -340,6 +460,9 @@ public class ProfileBuilderBolt extends BaseWindowedBolt implements Reloadable {
       // time to flush active profiles?
       if(activeFlushSignal.isTimeToFlush()) {
         flushActive();
+
+      } else if(checkpointer != null && System.currentTimeMillis() - lastCheckpointMillis >= checkpointIntervalMillis) {
+        checkpoint();
       }
 
     } catch (Throwable e) {
@@ -361,6 +484,11 @@ public class ProfileBuilderBolt extends BaseWindowedBolt implements Reloadable {
       emitMeasurements(measurements);
     }
 
+    // the flushed state must not be restored, else it would be emitted again
+    if(checkpointer != null) {
+      checkpoint();
+    }
+
     LOG.debug("Flushed active profiles and found {} measurement(s).", measurements.size());
   }
 
@@ -380,6 +508,11 @@ public class ProfileBuilderBolt extends BaseWindowedBolt implements Reloadable {
         emitMeasurements(measurements);
       }
 
+      // the flushed state must not be restored, else it would be emitted again
+      if(checkpointer != null) {
+        checkpoint();
+      }
+
     } catch(Throwable t) {
       // need to catch the exception, otherwise subsequent executions would be suppressed.
       // see java.util.concurrent.ScheduledExecutorService#scheduleAtFixedRate
@@ -549,4 +682,23 @@ public class ProfileBuilderBolt extends BaseWindowedBolt implements Reloadable {
     this.messageDistributor = messageDistributor;
     return this;
   }
+
+  public ProfileBuilderBolt withSpillDir(String spillDir) {
+    this.spillDir = spillDir;
+    return this;
+  }
+
+  public ProfileBuilderBolt withCheckpointDir(String checkpointDir) {
+    this.checkpointDir = checkpointDir;
+    return this;
+  }
+
+  public ProfileBuilderBolt withCheckpointIntervalMillis(long checkpointIntervalMillis) {
+    this.checkpointIntervalMillis = checkpointIntervalMillis;
+    return this;
+  }
+
+  public ProfileBuilderBolt withCheckpointInterval(int duration, TimeUnit units) {
+    return withCheckpointIntervalMillis(units.toMillis(duration));
+  }
 }
@@ -0,0 +1,220 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler.storm;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.common.utils.SerDeUtils;
+import org.apache.metron.profiler.ProfileBuilderState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * Saves the state of the profiles maintained by a {@link ProfileBuilderBolt} so that it
+ * can be restored when the bolt is restarted.
+ *
+ * <p>The state is written to a file in any file system supported by Hadoop; HDFS or the local
+ * file system, for example.  Each task of the bolt writes its own file.  Since messages are
+ * routed to a task based on the profile and entity, a task restores only the profiles it will
+ * continue to receive messages for, as long as the number of tasks does not change.
+ *
+ * <p>Each profile is serialized with Kryo.  The serialized state is kept between checkpoints
+ * so that only the profiles that changed since the last checkpoint are serialized again.
+ */
+public class ProfileCheckpointer {
+
+  protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * The version of the checkpoint format.
+   */
+  private static final int VERSION = 1;
+
+  private static final String TMP_SUFFIX = ".tmp";
+
+  /**
+   * The file the state is saved to.
+   */
+  private Path path;
+
+  /**
+   * The number of tasks of the bolt.  If this changes, the state cannot be restored.
+   */
+  private int numberOfTasks;
+
+  private Configuration configuration;
+
+  /**
+   * The serialized state of each profile as of the last checkpoint.
+   */
+  private Map<Integer, byte[]> serialized;
+
+  /**
+   * @param path The file the state is saved to.
+   * @param numberOfTasks The number of tasks of the bolt.
+   * @param configuration The Hadoop configuration.
+   */
+  public ProfileCheckpointer(Path path, int numberOfTasks, Configuration configuration) {
+    this.path = path;
+    this.numberOfTasks = numberOfTasks;
+    this.configuration = configuration;
+    this.serialized = new HashMap<>();
+  }
+
+  /**
+   * Saves the state of the profiles, replacing the previous checkpoint.
+   *
+   * @param state The state of each profile, keyed by the key of its route.
+   * @param modified The keys of the profiles modified since the last checkpoint.
+   */
+  public void checkpoint(Map<Integer, ProfileBuilderState> state, Set<Integer> modified) throws IOException {
+    save(serialize(state, modified));
+  }
+
+  /**
+   * Serializes the state of the profiles, so it can be saved without holding on to the profiles.
+   *
+   * <p>Checkpoints must not be taken concurrently; each serialized state must be saved before
+   * the next is serialized.
+   *
+   * @param state The state of each profile, keyed by the key of its route.
+   * @param modified The keys of the profiles modified since the last checkpoint.
+   * @return The serialized state of each profile.
+   */
+  public Map<Integer, byte[]> serialize(Map<Integer, ProfileBuilderState> state, Set<Integer> modified) {
+    try {
+      // only serialize the profiles that have changed
+      Map<Integer, byte[]> current = new HashMap<>(state.size());
+      for(Map.Entry<Integer, ProfileBuilderState> entry: state.entrySet()) {
+        byte[] bytes = serialized.get(entry.getKey());
+        if(bytes == null || modified.contains(entry.getKey())) {
+          bytes = SerDeUtils.toBytes(entry.getValue());
+        }
+        current.put(entry.getKey(), bytes);
+      }
+      return current;
+
+    } catch(Throwable t) {
+      // the modified profiles are only known once; serialize everything on the next checkpoint
+      serialized = new HashMap<>();
+      throw t;
+    }
+  }
+
+  /**
+   * Saves serialized state, replacing the previous checkpoint.
+   *
+   * @param current The serialized state of each profile.
+   */
+  public void save(Map<Integer, byte[]> current) throws IOException {
+    try {
+      write(current);
+      serialized = current;
+
+    } catch(Throwable t) {
+      // the modified profiles are only known once; serialize everything on the next checkpoint
+      serialized = new HashMap<>();
+      throw t;
+    }
+    LOG.debug("Saved checkpoint; path={}, profiles={}", path, current.size());
+  }
+
+  /**
+   * Reads the state of the profiles saved by the last checkpoint.
+   *
+   * @return The state of each profile.  If there is no checkpoint, or the checkpoint was saved
+   * by a bolt with a different number of tasks, no state is returned.
+   */
+  public List<ProfileBuilderState> restore() throws IOException {
+    List<ProfileBuilderState> states = new ArrayList<>();
+    FileSystem fs = path.getFileSystem(configuration);
+    Path checkpoint = path;
+    if(!fs.exists(checkpoint)) {
+      // a failure may have occurred after the previous checkpoint was removed, but before it was replaced
+      checkpoint = path.suffix(TMP_SUFFIX);
+      if(!fs.exists(checkpoint)) {
+        LOG.debug("No checkpoint to restore; path={}", path);
+        return states;
+      }
+    }
+
+    try(FSDataInputStream in = fs.open(checkpoint)) {
+      int version = in.readInt();
+      if(version != VERSION) {
+        throw new IOException(format("Unsupported checkpoint version; path=%s, version=%d", checkpoint, version));
+      }
+      int tasks = in.readInt();
+      if(tasks != numberOfTasks) {
+        LOG.warn("Unable to restore checkpoint saved with a different number of tasks; path={}, expected={}, found={}",
+                checkpoint, numberOfTasks, tasks);
+        return states;
+      }
+      int count = in.readInt();
+      for(int i = 0; i < count; i++) {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        states.add(SerDeUtils.fromBytes(bytes, ProfileBuilderState.class));
+      }
+    }
+    LOG.debug("Restored checkpoint; path={}, profiles={}", checkpoint, states.size());
+    return states;
+  }
+
+  /**
+   * Writes the checkpoint to a temporary file that then replaces the previous checkpoint, so a
+   * failure while writing does not corrupt the previous checkpoint.
+   */
+  private void write(Map<Integer, byte[]> state) throws IOException {
+    FileSystem fs = path.getFileSystem(configuration);
+    Path tmp = path.suffix(TMP_SUFFIX);
+    try(FSDataOutputStream out = fs.create(tmp, true)) {
+      out.writeInt(VERSION);
+      out.writeInt(numberOfTasks);
+      out.writeInt(state.size());
+      for(byte[] bytes: state.values()) {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+
+    fs.delete(path, false);
+    if(!fs.rename(tmp, path)) {
+      throw new IOException(format("Unable to save checkpoint; path=%s", path));
+    }
+  }
+
+  public Path getPath() {
+    return path;
+  }
+}
@@ -21,6 +21,7 @@
 package org.apache.metron.profiler.storm;
 
 import org.apache.metron.common.configuration.profiler.ProfilerConfig;
+import org.apache.metron.common.message.codec.MessageCodecs;
 import org.apache.metron.profiler.DefaultMessageRouter;
 import org.apache.metron.profiler.MessageRoute;
 import org.apache.metron.profiler.MessageRouter;
@@ -33,14 +34,11 @@ import org.apache.storm.tuple.Fields;
 import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.Values;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -85,11 +83,6 @@ public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
 
   private OutputCollector collector;
 
-  /**
-   * JSON parser.
-   */
-  private transient JSONParser parser;
-
   /**
    * The router responsible for routing incoming messages.
    */
@@ -106,7 +99,6 @@ public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
   public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
     super.prepare(stormConf, context, collector);
     this.collector = collector;
-    this.parser = new JSONParser();
     this.router = new DefaultMessageRouter(getStellarContext());
   }
 
@@ -151,7 +143,7 @@ public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
     }
   }
 
-  private void doExecute(Tuple input) throws ParseException, UnsupportedEncodingException {
+  private void doExecute(Tuple input) throws IOException {
 
     // retrieve the input message
     byte[] data = input.getBinaryByField(VALUE.getFieldName());
@@ -167,7 +159,8 @@ public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
       return;
     }
 
-    JSONObject message = (JSONObject) parser.parse(new String(data, StandardCharsets.UTF_8));
+    // the message may have been written with any codec
+    JSONObject message = MessageCodecs.decodeAny(data);
     routeMessage(input, message, config);
   }
 
@@ -24,6 +24,8 @@ import org.adrianwalker.multilinestring.Multiline;
 import org.apache.metron.common.configuration.profiler.ProfileConfig;
 import org.apache.metron.common.utils.JSONUtils;
 import org.apache.metron.profiler.ProfileMeasurement;
+import org.apache.metron.profiler.ProfileRollup;
+import org.apache.metron.statistics.OnlineStatisticsProvider;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.tuple.Values;
 import org.junit.jupiter.api.BeforeEach;
@@ -32,6 +34,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -89,6 +92,42 @@ public class HBaseEmitterTest {
     assertEquals(measurement, actual);
   }
 
+  /**
+   * The rollup of an hour should be emitted once the hour is complete.
+   */
+  @Test
+  public void testEmitRollup() {
+    long hour = TimeUnit.HOURS.toMillis(1);
+    for(int i = 0; i < 4; i++) {
+      OnlineStatisticsProvider stats = new OnlineStatisticsProvider();
+      stats.addValue(i);
+      emitter.emit(measurement(hour + i * TimeUnit.MINUTES.toMillis(15), stats), collector);
+    }
+    verify(collector, times(4)).emit(eq(emitter.getStreamId()), any(Values.class));
+
+    // the first measurement of the next hour completes the rollup
+    emitter.emit(measurement(2 * hour, new OnlineStatisticsProvider()), collector);
+
+    ArgumentCaptor<Values> arg = ArgumentCaptor.forClass(Values.class);
+    verify(collector, times(6)).emit(eq(emitter.getStreamId()), arg.capture());
+    List<Values> values = arg.getAllValues();
+    ProfileMeasurement rollup = (ProfileMeasurement) values.get(values.size() - 1).get(0);
+    assertEquals(hour, rollup.getPeriod().getStartTimeMillis());
+
+    ProfileRollup value = (ProfileRollup) rollup.getProfileValue();
+    assertEquals(ProfileRollup.Granularity.HOURLY, value.getGranularity());
+    assertEquals(4, ((OnlineStatisticsProvider) value.getValue()).getCount());
+  }
+
+  private ProfileMeasurement measurement(long timestamp, Object value) {
+    return new ProfileMeasurement()
+            .withProfileName("profile")
+            .withEntity("entity")
+            .withPeriod(timestamp, 15, TimeUnit.MINUTES)
+            .withDefinition(profile)
+            .withProfileValue(value);
+  }
+
   /**
    * Verifies that the emitter does emit a {@code ProfileMeasurement}.
    *
@@ -37,8 +37,10 @@ import org.apache.storm.windowing.TupleWindow;
 import org.json.simple.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
@@ -65,6 +67,9 @@ public class ProfileBuilderBoltTest extends BaseBoltTest {
   private ManualFlushSignal flushSignal;
   private ProfileMeasurement measurement;
 
+  @TempDir
+  File tempDir;
+
   @BeforeEach
   public void setup() throws Exception {
 
@@ -265,6 +270,30 @@ public class ProfileBuilderBoltTest extends BaseBoltTest {
     bolt.flushExpired();
   }
 
+  /**
+   * The state of the profiles should be checkpointed and restored when the bolt is restarted.
+   */
+  @Test
+  public void testRestoreFromCheckpoint() throws Exception {
+
+    // apply a message to a profile, but do not flush it
+    ProfileBuilderBolt bolt = createBolt(tempDir.getAbsolutePath());
+    Tuple tuple1 = createTuple("entity1", message1, profile1, 1000L);
+    bolt.execute(createWindow(tuple1));
+    bolt.cleanup();
+
+    // the state of the profile should be restored by a new bolt
+    ProfileBuilderBolt restarted = createBolt(tempDir.getAbsolutePath());
+    flushSignal.setFlushNow(true);
+    Tuple tuple2 = createTuple("entity1", message1, profile1, 2000L);
+    restarted.execute(createWindow(tuple2));
+
+    // the measurement should include both messages
+    List<ProfileMeasurement> measurements = getProfileMeasurements(outputCollector, 1);
+    assertEquals(1, measurements.size());
+    assertEquals(2, measurements.get(0).getProfileValue());
+  }
+
   /**
    * Retrieves the ProfileMeasurement(s) (if any) that have been emitted.
    *
@@ -311,6 +340,15 @@ public class ProfileBuilderBoltTest extends BaseBoltTest {
    * @return A {@link ProfileBuilderBolt} to test.
    */
   private ProfileBuilderBolt createBolt() throws IOException {
+    return createBolt(null);
+  }
+
+  /**
+   * Create a ProfileBuilderBolt to test.
+   * @param checkpointDir The directory where the state of the profiles is checkpointed.
+   * @return A {@link ProfileBuilderBolt} to test.
+   */
+  private ProfileBuilderBolt createBolt(String checkpointDir) throws IOException {
 
     // defines the zk configurations accessible from the bolt
     ProfilerConfigurations configurations = new ProfilerConfigurations();
@@ -325,6 +363,8 @@ public class ProfileBuilderBoltTest extends BaseBoltTest {
             .withEmitter(emitter)
             .withProfilerConfigurations(configurations)
             .withPeriodDuration(1, TimeUnit.MINUTES)
+            .withCheckpointDir(checkpointDir)
+            .withCheckpointInterval(1, TimeUnit.MINUTES)
             .withTumblingWindow(new BaseWindowedBolt.Duration(30, TimeUnit.SECONDS));
     bolt.prepare(new HashMap<>(), topologyContext, outputCollector);
 
@@ -0,0 +1,137 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler.storm;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.common.configuration.profiler.ProfileConfig;
+import org.apache.metron.profiler.ProfileBuilderState;
+import org.apache.metron.statistics.OnlineStatisticsProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the ProfileCheckpointer.
+ */
+public class ProfileCheckpointerTest {
+
+  @TempDir
+  File tempDir;
+
+  private Path path;
+  private ProfileConfig profile;
+
+  @BeforeEach
+  public void setup() {
+    path = new Path(tempDir.getAbsolutePath(), "builderBolt-1");
+    profile = new ProfileConfig()
+            .withProfile("profile1")
+            .withForeach("ip_src_addr")
+            .withInit("x", "STATS_INIT()")
+            .withUpdate("x", "STATS_ADD(x, value)")
+            .withResult("x");
+  }
+
+  private ProfileBuilderState createState(String entity, long maxTimestamp, double... values) {
+    OnlineStatisticsProvider stats = new OnlineStatisticsProvider();
+    for(double value: values) {
+      stats.addValue(value);
+    }
+    return new ProfileBuilderState()
+            .withDefinition(profile)
+            .withEntity(entity)
+            .withMaxTimestamp(maxTimestamp)
+            .withVariables(Collections.singletonMap("x", stats));
+  }
+
+  @Test
+  public void testRestore() throws Exception {
+    Map<Integer, ProfileBuilderState> state = new HashMap<>();
+    state.put(1, createState("10.0.0.1", 1000L, 22, 23));
+    state.put(2, createState("10.0.0.2", 2000L, 44).withExpired(true));
+
+    new ProfileCheckpointer(path, 2, new Configuration()).checkpoint(state, state.keySet());
+
+    List<ProfileBuilderState> restored = new ProfileCheckpointer(path, 2, new Configuration()).restore();
+    assertEquals(new HashSet<>(state.values()), new HashSet<>(restored));
+  }
+
+  @Test
+  public void testCheckpointReplacesPrevious() throws Exception {
+    ProfileCheckpointer checkpointer = new ProfileCheckpointer(path, 2, new Configuration());
+    Map<Integer, ProfileBuilderState> state = new HashMap<>();
+    state.put(1, createState("10.0.0.1", 1000L, 22));
+    state.put(2, createState("10.0.0.2", 2000L, 44));
+    checkpointer.checkpoint(state, state.keySet());
+
+    // one profile was flushed and the other modified
+    state.remove(1);
+    state.put(2, createState("10.0.0.2", 3000L, 44, 45));
+    checkpointer.checkpoint(state, Collections.singleton(2));
+
+    List<ProfileBuilderState> restored = checkpointer.restore();
+    assertEquals(1, restored.size());
+    assertEquals(state.get(2), restored.get(0));
+  }
+
+  @Test
+  public void testOnlyModifiedProfilesAreSerialized() throws Exception {
+    ProfileCheckpointer checkpointer = new ProfileCheckpointer(path, 2, new Configuration());
+    Map<Integer, ProfileBuilderState> state = new HashMap<>();
+    ProfileBuilderState original = createState("10.0.0.1", 1000L, 22);
+    state.put(1, original);
+    checkpointer.checkpoint(state, state.keySet());
+
+    // a profile that was not modified is not serialized again
+    state.put(1, createState("10.0.0.1", 2000L, 22, 23));
+    checkpointer.checkpoint(state, Collections.emptySet());
+
+    List<ProfileBuilderState> restored = checkpointer.restore();
+    assertEquals(1, restored.size());
+    assertEquals(original, restored.get(0));
+  }
+
+  @Test
+  public void testNoCheckpoint() throws Exception {
+    assertTrue(new ProfileCheckpointer(path, 2, new Configuration()).restore().isEmpty());
+  }
+
+  @Test
+  public void testNumberOfTasksChanged() throws Exception {
+    Map<Integer, ProfileBuilderState> state = new HashMap<>();
+    state.put(1, createState("10.0.0.1", 1000L, 22));
+    new ProfileCheckpointer(path, 2, new Configuration()).checkpoint(state, state.keySet());
+
+    // messages are routed differently with a different number of tasks, so the state is not restored
+    assertTrue(new ProfileCheckpointer(path, 3, new Configuration()).restore().isEmpty());
+  }
+}
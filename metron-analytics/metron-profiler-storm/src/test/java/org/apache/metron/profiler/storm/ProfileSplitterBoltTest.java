@@ -23,6 +23,7 @@ package org.apache.metron.profiler.storm;
 import org.adrianwalker.multilinestring.Multiline;
 import org.apache.metron.common.configuration.profiler.ProfileConfig;
 import org.apache.metron.common.configuration.profiler.ProfilerConfig;
+import org.apache.metron.common.message.codec.MessageCodecs;
 import org.apache.metron.common.utils.JSONUtils;
 import org.apache.metron.profiler.DefaultMessageRouter;
 import org.apache.metron.profiler.clock.FixedClockFactory;
@@ -245,6 +246,24 @@ public class ProfileSplitterBoltTest extends BaseBoltTest {
             .ack(eq(tuple));
   }
 
+  /**
+   * A message written with a binary codec should be routed in the same way as a JSON message.
+   */
+  @Test
+  public void testEmitTupleFromSmileMessage() throws Exception {
+    when(tuple.getBinaryByField(VALUE.getFieldName())).thenReturn(MessageCodecs.SMILE.encode(message));
+
+    // setup the bolt and execute a tuple
+    ProfilerConfig config = toProfilerConfig(profileWithOnlyIfTrue);
+    ProfileSplitterBolt bolt = createBolt(config);
+    bolt.execute(tuple);
+
+    // the same tuple should be emitted as for the JSON message
+    Values expected = new Values(message, timestamp, "10.0.0.1", config.getProfiles().get(0));
+    verify(outputCollector, times(1))
+            .emit(eq(tuple), eq(expected));
+  }
+
   /**
    * If there are two profiles that need the same message, then two tuples should
    * be emitted.  One tuple for each profile.
@@ -427,6 +427,10 @@ public class ProfilerIntegrationTest extends BaseIntegrationTest {
       setProperty("profiler.window.lag", Long.toString(windowLagMillis));
       setProperty("profiler.window.lag.units", "MILLISECONDS");
       setProperty("profiler.max.routes.per.bolt", Long.toString(maxRoutesPerBolt));
+      setProperty("profiler.spill.dir", "");
+      setProperty("profiler.checkpoint.dir", "");
+      setProperty("profiler.checkpoint.interval", "1");
+      setProperty("profiler.checkpoint.interval.units", "MINUTES");
     }};
 
     // create the mock table
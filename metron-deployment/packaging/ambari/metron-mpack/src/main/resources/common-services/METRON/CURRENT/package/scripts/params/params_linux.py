@@ -326,6 +326,7 @@ enrichment_host_known_hosts = config['configurations']['metron-enrichment-env'][
 
 # Enrichment - Kafka
 enrichment_kafka_start = config['configurations']['metron-enrichment-env']['enrichment_kafka_start']
+enrichment_kafka_codec = config['configurations']['metron-enrichment-env']['enrichment_kafka_codec']
 enrichment_input_topic = status_params.enrichment_input_topic
 enrichment_output_topic = config['configurations']['metron-enrichment-env']['enrichment_output_topic']
 enrichment_error_topic = config['configurations']['metron-enrichment-env']['enrichment_error_topic']
@@ -349,6 +350,8 @@ unified_threat_intel_parallelism = config['configurations']['metron-enrichment-e
 unified_kafka_writer_parallelism = config['configurations']['metron-enrichment-env']['unified_kafka_writer_parallelism']
 unified_enrichment_cache_size = config['configurations']['metron-enrichment-env']['unified_enrichment_cache_size']
 unified_threat_intel_cache_size = config['configurations']['metron-enrichment-env']['unified_threat_intel_cache_size']
+unified_offheap_cache_size = config['configurations']['metron-enrichment-env']['unified_offheap_cache_size']
+unified_offheap_cache_time_retain = config['configurations']['metron-enrichment-env']['unified_offheap_cache_time_retain']
 unified_enrichment_threadpool_size = config['configurations']['metron-enrichment-env']['unified_enrichment_threadpool_size']
 unified_enrichment_threadpool_type = config['configurations']['metron-enrichment-env']['unified_enrichment_threadpool_type']
 
@@ -381,6 +384,10 @@ if not len(profiler_topology_worker_childopts) == 0:
     profiler_topology_worker_childopts += ' '
 profiler_topology_worker_childopts += config['configurations']['metron-profiler-env']['profiler_topology_worker_childopts']
 profiler_max_routes_per_bolt=config['configurations']['metron-profiler-env']['profiler_max_routes_per_bolt']
+profiler_spill_dir=default('/configurations/metron-profiler-env/profiler_spill_dir', '')
+profiler_checkpoint_dir=default('/configurations/metron-profiler-env/profiler_checkpoint_dir', '')
+profiler_checkpoint_interval=config['configurations']['metron-profiler-env']['profiler_checkpoint_interval']
+profiler_checkpoint_interval_units=config['configurations']['metron-profiler-env']['profiler_checkpoint_interval_units']
 profiler_window_lag=config['configurations']['metron-profiler-env']['profiler_window_lag']
 profiler_window_lag_units=config['configurations']['metron-profiler-env']['profiler_window_lag_units']
 profiler_topology_message_timeout_secs=config['configurations']['metron-profiler-env']['profiler_topology_message_timeout_secs']
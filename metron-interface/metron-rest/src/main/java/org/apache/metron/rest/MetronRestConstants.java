@@ -68,6 +68,9 @@ public class MetronRestConstants {
   public static final String SEARCH_MAX_GROUPS = "search.max.groups";
   public static final String SEARCH_FACET_FIELDS_SPRING_PROPERTY = "search.facet.fields";
   public static final String INDEX_DAO_IMPL = "index.dao.impl";
+  public static final String INDEX_DAO_TIMEOUT = "index.dao.timeout";
+  public static final String INDEX_DAO_HEDGE_DELAY = "index.dao.hedge.delay";
+  public static final String INDEX_DAO_THREADS = "index.dao.threads";
   public static final String INDEX_HBASE_TABLE_PROVIDER_IMPL = "index.hbase.provider";
   public static final String INDEX_WRITER_NAME = "index.writer.name";
 
@@ -91,6 +94,7 @@ public class MetronRestConstants {
   public static final String PCAP_PDML_SCRIPT_PATH_SPRING_PROPERTY = "pcap.pdml.script.path";
   public static final String PCAP_YARN_QUEUE_SPRING_PROPERTY = "pcap.yarn.queue";
   public static final String PCAP_FINALIZER_THREADPOOL_SIZE_SPRING_PROPERTY = "pcap.finalizer.threadpool.size";
+  public static final String PCAP_LOCAL_QUERY_MAX_BYTES_SPRING_PROPERTY = "pcap.local.query.max.bytes";
 
   public static final String LDAP_PROVIDER_URL_SPRING_PROPERTY = "ldap.provider.url";
   public static final String LDAP_PROVIDER_USERDN_SPRING_PROPERTY = "ldap.provider.userdn";
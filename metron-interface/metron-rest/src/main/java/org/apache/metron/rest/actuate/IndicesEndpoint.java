@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.rest.actuate;
+
+import java.util.Collections;
+import java.util.Map;
+import org.apache.metron.indexing.dao.IndexDao;
+import org.apache.metron.indexing.dao.MultiIndexDao;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Exposes the latency of the calls made to each index at {@code /actuator/indices}.  Nothing is
+ * reported unless more than one index DAO is configured.
+ */
+@Endpoint(id = "indices")
+public class IndicesEndpoint {
+
+  private IndexDao indexDao;
+
+  public IndicesEndpoint(IndexDao indexDao) {
+    this.indexDao = indexDao;
+  }
+
+  @ReadOperation
+  public Map<String, Map<String, Object>> latencies() {
+    if (indexDao instanceof MultiIndexDao) {
+      return ((MultiIndexDao) indexDao).getLatencies();
+    }
+    return Collections.emptyMap();
+  }
+}
@@ -27,10 +27,12 @@ import org.apache.metron.hbase.TableProvider;
 import org.apache.metron.indexing.dao.AccessConfig;
 import org.apache.metron.indexing.dao.IndexDao;
 import org.apache.metron.indexing.dao.IndexDaoFactory;
+import org.apache.metron.indexing.dao.MultiIndexDao;
 import org.apache.metron.indexing.dao.metaalert.MetaAlertDao;
 import org.apache.metron.indexing.util.IndexingCacheUtil;
 import org.apache.metron.rest.MetronRestConstants;
 import org.apache.metron.rest.RestException;
+import org.apache.metron.rest.actuate.IndicesEndpoint;
 import org.apache.metron.rest.service.GlobalConfigService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -49,6 +51,11 @@ public class IndexConfig {
   @Autowired
   private Environment environment;
 
+  /**
+   * The index DAO, before it is wrapped by the meta alert DAO.
+   */
+  private IndexDao combinedIndexDao;
+
   @Autowired
   public IndexConfig(Environment environment) {
     this.environment = environment;
@@ -84,6 +91,13 @@ public class IndexConfig {
       if (indexDao == null) {
         throw new IllegalStateException("IndexDao is unable to be created.");
       }
+      if (indexDao instanceof MultiIndexDao) {
+        ((MultiIndexDao) indexDao)
+            .withTimeout(environment.getProperty(MetronRestConstants.INDEX_DAO_TIMEOUT, Long.class, MultiIndexDao.DEFAULT_TIMEOUT_MILLIS))
+            .withHedgeDelay(environment.getProperty(MetronRestConstants.INDEX_DAO_HEDGE_DELAY, Long.class, MultiIndexDao.DEFAULT_HEDGE_DELAY_MILLIS))
+            .withThreads(environment.getProperty(MetronRestConstants.INDEX_DAO_THREADS, Integer.class, MultiIndexDao.DEFAULT_THREADS));
+      }
+      combinedIndexDao = indexDao;
       if (metaDaoImpl == null) {
         // We're not using meta alerts.
         return indexDao;
@@ -102,4 +116,11 @@ public class IndexConfig {
       throw new IllegalStateException("Unable to create index DAO: " + e.getMessage(), e);
     }
   }
+
+  @Bean
+  public IndicesEndpoint indicesEndpoint() {
+    // ensures the index DAO has been created
+    indexDao();
+    return new IndicesEndpoint(combinedIndexDao);
+  }
 }
@@ -271,6 +271,10 @@ public class PcapServiceImpl implements PcapService {
 
     PcapOptions.NUM_RECORDS_PER_FILE.put(pcapRequest, Integer.parseInt(environment.getProperty(MetronRestConstants.PCAP_PAGE_SIZE_SPRING_PROPERTY)));
     PcapOptions.FINALIZER_THREADPOOL_SIZE.put(pcapRequest, environment.getProperty(MetronRestConstants.PCAP_FINALIZER_THREADPOOL_SIZE_SPRING_PROPERTY));
+    String localQueryMaxBytes = environment.getProperty(MetronRestConstants.PCAP_LOCAL_QUERY_MAX_BYTES_SPRING_PROPERTY);
+    if (localQueryMaxBytes != null && !localQueryMaxBytes.isEmpty()) {
+      PcapOptions.LOCAL_QUERY_MAX_BYTES.put(pcapRequest, Long.parseLong(localQueryMaxBytes));
+    }
   }
 
   protected FileSystem getFileSystem() throws IOException {
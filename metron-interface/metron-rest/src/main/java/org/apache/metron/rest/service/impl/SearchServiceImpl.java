@@ -34,6 +34,7 @@ import java.util.Optional;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.configuration.ConfigurationsUtils;
 import org.apache.metron.indexing.dao.IndexDao;
+import org.apache.metron.indexing.dao.MultiIndexDao;
 import org.apache.metron.indexing.dao.search.FieldType;
 import org.apache.metron.indexing.dao.search.GetRequest;
 import org.apache.metron.indexing.dao.search.GroupRequest;
@@ -112,7 +113,8 @@ public class SearchServiceImpl implements SearchService {
   @Override
   public Optional<Map<String, Object>> getLatest(GetRequest request) throws RestException {
     try {
-      return dao.getLatestResult(request);
+      // the alert is only displayed, so the indices that do not respond can be left out
+      return MultiIndexDao.withPartialResults(() -> dao.getLatestResult(request));
     } catch (IOException e) {
       throw new RestException(e.getMessage(), e);
     }
@@ -18,21 +18,18 @@
 package org.apache.metron.storm.common.message;
 
 import org.apache.commons.io.Charsets;
+import org.apache.metron.common.message.codec.MessageCodecs;
 import org.apache.storm.tuple.Tuple;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 
+/**
+ * Gets a message from a byte array at a position in the tuple.  The message may be a JSON string
+ * or encoded by any of the {@link MessageCodecs}; the codec is detected from the message itself.
+ */
 public class JSONFromPosition implements MessageGetStrategy {
 
   private int position = 0;
 
-  private ThreadLocal<JSONParser> parser = new ThreadLocal<JSONParser>() {
-    @Override
-    protected JSONParser initialValue() {
-      return new JSONParser();
-    }
-  };
-
   public JSONFromPosition() {};
 
   public JSONFromPosition(Integer position) {
@@ -41,11 +38,12 @@ public class JSONFromPosition implements MessageGetStrategy {
 
   @Override
   public JSONObject get(Tuple tuple) {
-    String s = null;
+    byte[] bytes = tuple.getBinary(position);
+    MessageCodecs codec = MessageCodecs.detect(bytes);
     try {
-      s =  new String(tuple.getBinary(position), Charsets.UTF_8);
-      return (JSONObject) parser.get().parse(s);
+      return codec.decode(bytes);
     } catch (Exception e) {
+      String s = codec.isText() ? new String(bytes, Charsets.UTF_8) : codec + " message";
       throw new IllegalStateException("Unable to parse " + s + " due to " + e.getMessage(), e);
     }
   }
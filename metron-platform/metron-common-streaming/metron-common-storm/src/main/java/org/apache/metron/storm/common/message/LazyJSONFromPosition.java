@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.storm.common.message;
+
+import org.apache.commons.io.Charsets;
+import org.apache.metron.common.message.LazyJSONObject;
+import org.apache.metron.common.message.codec.MessageCodecs;
+import org.apache.storm.tuple.Tuple;
+import org.json.simple.JSONObject;
+
+/**
+ * Gets a message from a byte array at a position in the tuple.  A JSON message is returned as a
+ * {@link LazyJSONObject}, so only the fields that are used are parsed and the fields that are not
+ * modified are copied as-is when the message is written.  A message encoded by any of the other
+ * {@link MessageCodecs} is decoded in full.
+ */
+public class LazyJSONFromPosition implements MessageGetStrategy {
+
+  private int position = 0;
+
+  public LazyJSONFromPosition() {};
+
+  public LazyJSONFromPosition(Integer position) {
+    this.position = position == null?0:position;
+  }
+
+  @Override
+  public JSONObject get(Tuple tuple) {
+    byte[] bytes = tuple.getBinary(position);
+    MessageCodecs codec = MessageCodecs.detect(bytes);
+    try {
+      if(codec == MessageCodecs.JSON) {
+        return new LazyJSONObject(new String(bytes, Charsets.UTF_8));
+      }
+      return codec.decode(bytes);
+    } catch (Exception e) {
+      String s = codec.isText() ? new String(bytes, Charsets.UTF_8) : codec + " message";
+      throw new IllegalStateException("Unable to parse " + s + " due to " + e.getMessage(), e);
+    }
+  }
+}
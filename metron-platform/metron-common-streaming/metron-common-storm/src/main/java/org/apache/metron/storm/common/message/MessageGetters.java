@@ -27,10 +27,12 @@ import java.util.function.Function;
  * <ul>
  *   <li>BYTES_FROM_POSITION - gets a byte array from the provided position</li>
  *   <li>JSON_FROM_POSITION - gets a byte array from the provided position then converts to a string and parses the string to JSON</li>
+ *   <li>LAZY_JSON_FROM_POSITION - gets a byte array from the provided position then indexes the JSON string, parsing each field only when it is used</li>
  *   <li>JSON_FROM_FIELD - gets a JSONObject from the provided field</li>
  *   <li>OBJECT_FROM_FIELD - gets an Object from the provided field</li>
  *   <li>DEFAULT_BYTES_FROM_POSITION - gets a byte array from position 0</li>
  *   <li>DEFAULT_JSON_FROM_POSITION - gets a byte array from position 0 then converts to a string and parses the string to JSON</li>
+ *   <li>DEFAULT_LAZY_JSON_FROM_POSITION - gets a byte array from position 0 then indexes the JSON string, parsing each field only when it is used</li>
  *   <li>DEFAULT_JSON_FROM_FIELD - gets a JSONObject from the "message" field</li>
  *   <li>DEFAULT_OBJECT_FROM_FIELD - gets an Object from the "message" field</li>
  * </ul>
@@ -40,11 +42,13 @@ public enum MessageGetters {
 
   BYTES_FROM_POSITION((String arg) -> new BytesFromPosition(ConversionUtils.convert(arg, Integer.class))),
   JSON_FROM_POSITION((String arg) -> new JSONFromPosition(ConversionUtils.convert(arg, Integer.class))),
+  LAZY_JSON_FROM_POSITION((String arg) -> new LazyJSONFromPosition(ConversionUtils.convert(arg, Integer.class))),
   JSON_FROM_FIELD((String arg) -> new JSONFromField(arg)),
   JSON_FROM_FIELD_BY_REFERENCE((String arg) -> new JSONFromFieldByReference(arg)),
   OBJECT_FROM_FIELD((String arg) -> new ObjectFromField(arg)),
   DEFAULT_BYTES_FROM_POSITION(new BytesFromPosition()),
   DEFAULT_JSON_FROM_POSITION(new JSONFromPosition()),
+  DEFAULT_LAZY_JSON_FROM_POSITION(new LazyJSONFromPosition()),
   DEFAULT_JSON_FROM_FIELD(new JSONFromField()),
   DEFAULT_OBJECT_FROM_FIELD(new ObjectFromField());
 
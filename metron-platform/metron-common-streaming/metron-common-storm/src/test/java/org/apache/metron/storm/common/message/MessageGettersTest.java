@@ -17,6 +17,8 @@
  */
 package org.apache.metron.storm.common.message;
 
+import org.apache.metron.common.message.LazyJSONObject;
+import org.apache.metron.common.message.codec.MessageCodecs;
 import org.apache.storm.tuple.Tuple;
 import org.json.simple.JSONObject;
 import org.junit.jupiter.api.Test;
@@ -24,6 +26,7 @@ import org.junit.jupiter.api.Test;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -48,6 +51,18 @@ public class MessageGettersTest {
     assertEquals(expected, messageGetStrategy.get(tuple));
   }
 
+  @Test
+  public void jsonFromPositionShouldDecodeSmile() throws Exception {
+    JSONObject expected = new JSONObject();
+    expected.put("field", "value");
+    expected.put("number", 22L);
+    Tuple tuple = mock(Tuple.class);
+    when(tuple.getBinary(1)).thenReturn(MessageCodecs.SMILE.encode(expected));
+
+    MessageGetStrategy messageGetStrategy = MessageGetters.JSON_FROM_POSITION.get("1");
+    assertEquals(expected, messageGetStrategy.get(tuple));
+  }
+
   @Test
   public void jsonFromPositionShouldThrowException() {
     Tuple tuple = mock(Tuple.class);
@@ -57,6 +72,39 @@ public class MessageGettersTest {
     assertThrows(IllegalStateException.class, () -> messageGetStrategy.get(tuple));
   }
 
+  @Test
+  public void lazyJSONFromPositionShouldReturnJSON() {
+    Tuple tuple = mock(Tuple.class);
+    when(tuple.getBinary(1)).thenReturn("{\"field\":\"value\"}".getBytes(UTF_8));
+
+    JSONObject expected = new JSONObject();
+    expected.put("field", "value");
+    MessageGetStrategy messageGetStrategy = MessageGetters.LAZY_JSON_FROM_POSITION.get("1");
+    Object actual = messageGetStrategy.get(tuple);
+    assertTrue(actual instanceof LazyJSONObject);
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void lazyJSONFromPositionShouldDecodeSmile() throws Exception {
+    JSONObject expected = new JSONObject();
+    expected.put("field", "value");
+    Tuple tuple = mock(Tuple.class);
+    when(tuple.getBinary(0)).thenReturn(MessageCodecs.SMILE.encode(expected));
+
+    MessageGetStrategy messageGetStrategy = MessageGetters.DEFAULT_LAZY_JSON_FROM_POSITION.get();
+    assertEquals(expected, messageGetStrategy.get(tuple));
+  }
+
+  @Test
+  public void lazyJSONFromPositionShouldThrowException() {
+    Tuple tuple = mock(Tuple.class);
+    when(tuple.getBinary(1)).thenReturn("{\"field\":".getBytes(UTF_8));
+
+    MessageGetStrategy messageGetStrategy = MessageGetters.LAZY_JSON_FROM_POSITION.get("1");
+    assertThrows(IllegalStateException.class, () -> messageGetStrategy.get(tuple));
+  }
+
   @Test
   public void jsonFromFieldShouldReturnJSON() {
     JSONObject actual = new JSONObject();
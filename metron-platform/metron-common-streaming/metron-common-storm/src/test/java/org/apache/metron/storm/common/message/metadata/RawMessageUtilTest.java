@@ -20,6 +20,7 @@ package org.apache.metron.storm.common.message.metadata;
 import com.google.common.collect.ImmutableMap;
 import org.adrianwalker.multilinestring.Multiline;
 import org.apache.metron.common.Constants;
+import org.apache.metron.common.message.codec.MessageCodecs;
 import org.apache.metron.common.message.metadata.EnvelopedRawMessageStrategy;
 import org.apache.metron.common.message.metadata.MetadataUtil;
 import org.apache.metron.common.message.metadata.RawMessage;
@@ -27,6 +28,7 @@ import org.apache.metron.common.message.metadata.RawMessageStrategies;
 import org.apache.storm.tuple.Fields;
 import org.apache.storm.tuple.Tuple;
 import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
@@ -300,4 +302,17 @@ public class RawMessageUtilTest {
     }
   }
 
+
+  @Test
+  public void testEnvelopeStrategy_smileEncoded() throws Exception {
+    Tuple t = createTuple(new HashMap<>() , "{}");
+    Map<String, Object> config = ImmutableMap.of(EnvelopedRawMessageStrategy.MESSAGE_FIELD_CONFIG, "data");
+    JSONObject envelope = (JSONObject) new JSONParser().parse(envelopedData);
+    byte[] encoded = MessageCodecs.SMILE.encode(envelope);
+
+    RawMessage m = RawMessageUtil.INSTANCE.getRawMessage( RawMessageStrategies.ENVELOPE, t, encoded, true, config);
+    assertFalse(m.getMetadata().containsKey("data"));
+    assertEquals("raw_message", new String(m.getMessage(), StandardCharsets.UTF_8));
+    checkEnvelopeMetadata(m);
+  }
 }
@@ -32,9 +32,15 @@ import org.apache.metron.common.utils.JSONUtils;
 public class IndexingConfigurations extends Configurations {
   public static final String BATCH_SIZE_CONF = "batchSize";
   public static final String BATCH_TIMEOUT_CONF = "batchTimeout";
+  public static final String BATCH_TARGET_LATENCY_CONF = "batchTargetLatency";
+  public static final String BATCH_SIZE_MIN_CONF = "batchSizeMin";
+  public static final String BATCH_SIZE_MAX_CONF = "batchSizeMax";
   public static final String ENABLED_CONF = "enabled";
   public static final String INDEX_CONF = "index";
   public static final String OUTPUT_PATH_FUNCTION_CONF = "outputPathFunction";
+  public static final String OUTPUT_FORMAT_CONF = "outputFormat";
+  public static final String OUTPUT_SCHEMA_CONF = "outputSchema";
+  public static final String OUTPUT_COMPRESSION_CONF = "outputCompression";
   public static final String FIELD_NAME_CONVERTER_CONF = "fieldNameConverter";
   public static final String SET_DOCUMENT_ID_CONF = "setDocumentId";
   public static final String GLOBAL_ELASTICSEARCH_SET_DOCUMENT_ID_CONF = "indexing.writer.elasticsearch.setDocumentId";
@@ -142,6 +148,18 @@ public class IndexingConfigurations extends Configurations {
     return getBatchTimeout(getSensorIndexingConfig(sensorName, writerName));
   }
 
+  public int getBatchTargetLatency(String sensorName, String writerName) {
+    return getBatchTargetLatency(getSensorIndexingConfig(sensorName, writerName));
+  }
+
+  public int getBatchSizeMin(String sensorName, String writerName) {
+    return getBatchSizeMin(getSensorIndexingConfig(sensorName, writerName));
+  }
+
+  public int getBatchSizeMax(String sensorName, String writerName) {
+    return getBatchSizeMax(getSensorIndexingConfig(sensorName, writerName));
+  }
+
   /**
    * Returns all configured values of batchTimeout, for all configured sensors,
    * but only for the specific writer identified by {@code writerName}.  So, if it is
@@ -218,6 +236,36 @@ public class IndexingConfigurations extends Configurations {
                 );
   }
 
+  /**
+   * Retrieves the target time to write a batch, which enables adaptive batch sizing, from the config.
+   *
+   * @param conf The configuration to retrieve from
+   * @return The target batch write time in milliseconds if defined, 0 otherwise
+   */
+  public static int getBatchTargetLatency(Map<String, Object> conf) {
+    return getAs(BATCH_TARGET_LATENCY_CONF, conf, 0, Integer.class);
+  }
+
+  /**
+   * Retrieves the smallest batch size allowed by adaptive batch sizing from the config.
+   *
+   * @param conf The configuration to retrieve from
+   * @return The minimum batch size if defined, 1 otherwise
+   */
+  public static int getBatchSizeMin(Map<String, Object> conf) {
+    return getAs(BATCH_SIZE_MIN_CONF, conf, 1, Integer.class);
+  }
+
+  /**
+   * Retrieves the largest batch size allowed by adaptive batch sizing from the config.
+   *
+   * @param conf The configuration to retrieve from
+   * @return The maximum batch size if defined, 0 otherwise
+   */
+  public static int getBatchSizeMax(Map<String, Object> conf) {
+    return getAs(BATCH_SIZE_MAX_CONF, conf, 0, Integer.class);
+  }
+
   /**
    *  Retrieves the batch timeout value from the config.
    *
@@ -262,6 +310,37 @@ public class IndexingConfigurations extends Configurations {
     );
   }
 
+  /**
+   *  Retrieves the output file format value from the config.
+   *
+   * @param conf The configuration to retrieve from
+   * @return  The output format if defined, empty string otherwise
+   */
+  public static String getOutputFormat(Map<String, Object> conf) {
+    return getAs(OUTPUT_FORMAT_CONF, conf, "", String.class);
+  }
+
+  /**
+   *  Retrieves the output schema, a map of field name to type, from the config.
+   *
+   * @param conf The configuration to retrieve from
+   * @return  The output schema if defined, empty map otherwise
+   */
+  @SuppressWarnings("unchecked")
+  public static Map<String, Object> getOutputSchema(Map<String, Object> conf) {
+    return getAs(OUTPUT_SCHEMA_CONF, conf, new HashMap<>(), Map.class);
+  }
+
+  /**
+   *  Retrieves the output compression codec from the config.
+   *
+   * @param conf The configuration to retrieve from
+   * @return  The output compression codec if defined, empty string otherwise
+   */
+  public static String getOutputCompression(Map<String, Object> conf) {
+    return getAs(OUTPUT_COMPRESSION_CONF, conf, "", String.class);
+  }
+
   /**
    *  Retrieves the field name converter value from the config.
    *
@@ -43,6 +43,21 @@ public class IndexingWriterConfiguration implements WriterConfiguration{
     return config.orElse(new IndexingConfigurations()).getBatchTimeout(sensorName, writerName);
   }
 
+  @Override
+  public int getBatchTargetLatency(String sensorName) {
+    return config.orElse(new IndexingConfigurations()).getBatchTargetLatency(sensorName, writerName);
+  }
+
+  @Override
+  public int getBatchSizeMin(String sensorName) {
+    return config.orElse(new IndexingConfigurations()).getBatchSizeMin(sensorName, writerName);
+  }
+
+  @Override
+  public int getBatchSizeMax(String sensorName) {
+    return config.orElse(new IndexingConfigurations()).getBatchSizeMax(sensorName, writerName);
+  }
+
   @Override
   public List<Integer> getAllConfiguredTimeouts() {
       return config.orElse(new IndexingConfigurations()).getAllConfiguredTimeouts(writerName);
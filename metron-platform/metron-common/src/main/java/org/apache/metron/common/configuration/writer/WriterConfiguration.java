@@ -51,6 +51,38 @@ public interface WriterConfiguration extends Serializable {
    */
   int getBatchTimeout(String sensorName);
 
+  /**
+   * Defines the time, in milliseconds, that writing a batch should take for a given sensor.
+   * If defined, the batch size adapts to it, starting from the batch size and staying within
+   * the minimum and maximum batch sizes.
+   *
+   * @param sensorName The name of the sensor.
+   * @return The target batch latency for the sensor, or 0 if the batch size is fixed.
+   */
+  default int getBatchTargetLatency(String sensorName) {
+    return 0;
+  }
+
+  /**
+   * Defines the smallest batch size for a given sensor whose batch size adapts.
+   *
+   * @param sensorName The name of the sensor.
+   * @return The minimum batch size for the sensor.
+   */
+  default int getBatchSizeMin(String sensorName) {
+    return 1;
+  }
+
+  /**
+   * Defines the largest batch size for a given sensor whose batch size adapts.
+   *
+   * @param sensorName The name of the sensor.
+   * @return The maximum batch size for the sensor, or 0 if not defined.
+   */
+  default int getBatchSizeMax(String sensorName) {
+    return 0;
+  }
+
   /**
    * Returns the batch timeouts for all of the currently configured sensors.
    * @return All of the batch timeouts.
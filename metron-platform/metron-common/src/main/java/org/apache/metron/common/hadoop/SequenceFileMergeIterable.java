@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.hadoop;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.metron.common.utils.LazyLogger;
+import org.apache.metron.common.utils.LazyLoggerFactory;
+
+/**
+ * Iterates over the values of a set of sequence files, each sorted by its {@link LongWritable} keys, such
+ * as the outputs of the reducers of a MapReduce job, in the order of their keys.  The files are merged
+ * as they are read, so only the current record of each file is held in memory.  Records with the same key
+ * are returned in the order of the files.
+ */
+public class SequenceFileMergeIterable implements Iterable<byte[]> {
+  private static final LazyLogger LOGGER = LazyLoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private List<Path> files;
+  private Configuration config;
+
+  public SequenceFileMergeIterable(List<Path> files, Configuration config) {
+    this.files = files;
+    this.config = config;
+  }
+
+  @Override
+  public Iterator<byte[]> iterator() {
+    return new MergeIterator(files, config);
+  }
+
+  /**
+   * Cleans up all files read by this Iterable.
+   *
+   * @return true if success, false if any files were not deleted
+   * @throws IOException if there's an error cleaning up files
+   */
+  public boolean cleanup() throws IOException {
+    FileSystem fileSystem = FileSystem.get(config);
+    boolean success = true;
+    for (Path file : files) {
+      success &= fileSystem.delete(file, false);
+    }
+    return success;
+  }
+
+  /**
+   * The current record of one of the files.
+   */
+  private static class Head implements Comparable<Head> {
+    private final int index;
+    private final Path path;
+    private final SequenceFile.Reader reader;
+    private final LongWritable key = new LongWritable();
+    private final BytesWritable value = new BytesWritable();
+
+    private Head(int index, Path path, SequenceFile.Reader reader) {
+      this.index = index;
+      this.path = path;
+      this.reader = reader;
+    }
+
+    /**
+     * Reads the next record of the file, closing it once there are no more.
+     *
+     * @return true if there was another record
+     */
+    private boolean advance() {
+      try {
+        if (reader.next(key, value)) {
+          return true;
+        }
+      } catch (IOException e) {
+        close();
+        throw new RuntimeException("Failed to get next record of " + path, e);
+      }
+      close();
+      return false;
+    }
+
+    private void close() {
+      LOGGER.debug("Closing file: {}", () -> path.toString());
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // ah well, we tried...
+        LOGGER.warn("Error closing file", e);
+      }
+    }
+
+    @Override
+    public int compareTo(Head other) {
+      int ret = key.compareTo(other.key);
+      return ret != 0 ? ret : Integer.compare(index, other.index);
+    }
+  }
+
+  private static class MergeIterator implements Iterator<byte[]> {
+    private List<Path> files;
+    private Configuration config;
+    private PriorityQueue<Head> heads;
+
+    public MergeIterator(List<Path> files, Configuration config) {
+      this.files = files;
+      this.config = config;
+    }
+
+    private void open() {
+      heads = new PriorityQueue<>(Math.max(1, files.size()));
+      for (int i = 0; i < files.size(); i++) {
+        Path path = files.get(i);
+        SequenceFile.Reader reader;
+        try {
+          reader = new SequenceFile.Reader(config, SequenceFile.Reader.file(path));
+          LOGGER.debug("Reading file: {}", () -> path.toString());
+        } catch (IOException e) {
+          heads.forEach(Head::close);
+          throw new RuntimeException("Failed to get reader", e);
+        }
+        Head head = new Head(i, path, reader);
+        if (head.advance()) {
+          heads.add(head);
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (heads == null) {
+        open();
+      }
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public byte[] next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException("No more records");
+      }
+      Head head = heads.poll();
+      byte[] ret = head.value.copyBytes();
+      if (head.advance()) {
+        heads.add(head);
+      }
+      return ret;
+    }
+  }
+}
@@ -0,0 +1,503 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.message;
+
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A JSON message whose fields are only parsed when they are used.
+ *
+ * <p>When created, only the position of the value of each field in the JSON string is found.  A
+ * value is parsed the first time it is accessed.  Fields that are added, replaced or removed are
+ * kept as an overlay on the original message.  When the message is written back to JSON, the
+ * fields that were not modified are copied from the original string rather than serialized again.
+ *
+ * <p>Operations that need every field, like iterating over the entries, parse all of the fields
+ * that remain, after which the message behaves like any other {@link JSONObject}.
+ *
+ * <p>The value of each field is only validated when it is parsed.  Like a {@link JSONObject}, a
+ * message is not thread-safe; unlike one, reading a field modifies its internal state.
+ */
+public class LazyJSONObject extends JSONObject {
+
+  private static final long serialVersionUID = 1L;
+
+  private static ThreadLocal<JSONParser> parser = ThreadLocal.withInitial(JSONParser::new);
+
+  /**
+   * The original message.
+   */
+  private String json;
+
+  /**
+   * The start and end of the value of each field in the original message that has not been
+   * modified.  These fields are not in the overlay.
+   */
+  private LinkedHashMap<String, int[]> ranges;
+
+  /**
+   * The values of the unmodified fields that have been parsed and cannot be modified in place.
+   */
+  private transient Map<String, Object> parsed;
+
+  /**
+   * Creates an empty message.
+   */
+  public LazyJSONObject() {
+    this.ranges = new LinkedHashMap<>();
+  }
+
+  /**
+   * @param json A JSON object.
+   * @throws IllegalArgumentException If the string is not a JSON object.
+   */
+  public LazyJSONObject(String json) {
+    this.json = json;
+    this.ranges = index(json);
+  }
+
+  @Override
+  public Object get(Object key) {
+    if(super.containsKey(key)) {
+      return super.get(key);
+    }
+    return getUnmodified(key);
+  }
+
+  @Override
+  public Object getOrDefault(Object key, Object defaultValue) {
+    return containsKey(key) ? get(key) : defaultValue;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return super.containsKey(key) || ranges.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return super.size() + ranges.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public Object put(Object key, Object value) {
+    Object previous = get(key);
+    removeUnmodified(key);
+    super.put(key, value);
+    return previous;
+  }
+
+  @Override
+  public Object putIfAbsent(Object key, Object value) {
+    Object previous = get(key);
+    if(previous == null) {
+      put(key, value);
+    }
+    return previous;
+  }
+
+  @Override
+  public void putAll(Map m) {
+    for(Object entry: m.entrySet()) {
+      Map.Entry e = (Map.Entry) entry;
+      put(e.getKey(), e.getValue());
+    }
+  }
+
+  @Override
+  public Object remove(Object key) {
+    Object previous = get(key);
+    removeUnmodified(key);
+    super.remove(key);
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    json = null;
+    ranges.clear();
+    parsed = null;
+    super.clear();
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    materialize();
+    return super.containsValue(value);
+  }
+
+  @Override
+  public Set keySet() {
+    materialize();
+    return super.keySet();
+  }
+
+  @Override
+  public Collection values() {
+    materialize();
+    return super.values();
+  }
+
+  @Override
+  public Set entrySet() {
+    materialize();
+    return super.entrySet();
+  }
+
+  @Override
+  public void forEach(BiConsumer action) {
+    materialize();
+    super.forEach(action);
+  }
+
+  @Override
+  public void replaceAll(BiFunction function) {
+    materialize();
+    super.replaceAll(function);
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    materialize();
+    return super.remove(key, value);
+  }
+
+  @Override
+  public boolean replace(Object key, Object oldValue, Object newValue) {
+    materialize();
+    return super.replace(key, oldValue, newValue);
+  }
+
+  @Override
+  public Object replace(Object key, Object value) {
+    materialize();
+    return super.replace(key, value);
+  }
+
+  @Override
+  public Object computeIfAbsent(Object key, Function mappingFunction) {
+    materialize();
+    return super.computeIfAbsent(key, mappingFunction);
+  }
+
+  @Override
+  public Object computeIfPresent(Object key, BiFunction remappingFunction) {
+    materialize();
+    return super.computeIfPresent(key, remappingFunction);
+  }
+
+  @Override
+  public Object compute(Object key, BiFunction remappingFunction) {
+    materialize();
+    return super.compute(key, remappingFunction);
+  }
+
+  @Override
+  public Object merge(Object key, Object value, BiFunction remappingFunction) {
+    materialize();
+    return super.merge(key, value, remappingFunction);
+  }
+
+  /**
+   * Removes the fields whose value is null or an empty string.  The fields that have not been
+   * parsed are checked without parsing them.
+   */
+  public void removeEmptyValues() {
+    Iterator<Map.Entry<String, int[]>> fields = ranges.entrySet().iterator();
+    while(fields.hasNext()) {
+      Map.Entry<String, int[]> field = fields.next();
+      int[] range = field.getValue();
+      String value = json.substring(range[0], range[1]);
+      if("null".equals(value) || "\"\"".equals(value)) {
+        fields.remove();
+        if(parsed != null) {
+          parsed.remove(field.getKey());
+        }
+      }
+    }
+    super.values().removeIf(value -> value == null || value.toString().length() == 0);
+  }
+
+  /**
+   * The clone shares the original message, so no fields are parsed.
+   */
+  @Override
+  public Object clone() {
+    LazyJSONObject clone = new LazyJSONObject();
+    clone.json = json;
+    clone.ranges = new LinkedHashMap<>(ranges);
+    clone.parsed = parsed == null ? null : new HashMap<>(parsed);
+    for(Object entry: super.entrySet()) {
+      Map.Entry e = (Map.Entry) entry;
+      clone.putModified(e.getKey(), e.getValue());
+    }
+    return clone;
+  }
+
+  /**
+   * The unmodified fields are copied from the original message.
+   */
+  @Override
+  public String toJSONString() {
+    if(ranges.isEmpty()) {
+      return super.toJSONString();
+    }
+
+    StringBuilder builder = new StringBuilder(json.length() + 32 * super.size());
+    builder.append('{');
+    for(Map.Entry<String, int[]> field: ranges.entrySet()) {
+      if(builder.length() > 1) {
+        builder.append(',');
+      }
+      int[] range = field.getValue();
+      builder.append('"').append(JSONValue.escape(field.getKey())).append("\":").append(json, range[0], range[1]);
+    }
+    for(Object entry: super.entrySet()) {
+      Map.Entry e = (Map.Entry) entry;
+      if(builder.length() > 1) {
+        builder.append(',');
+      }
+      builder.append('"').append(JSONValue.escape(String.valueOf(e.getKey()))).append("\":")
+              .append(JSONValue.toJSONString(e.getValue()));
+    }
+    return builder.append('}').toString();
+  }
+
+  @Override
+  public void writeJSONString(Writer out) throws IOException {
+    out.write(toJSONString());
+  }
+
+  /**
+   * @return The number of fields that have not been modified.
+   */
+  int getUnmodifiedCount() {
+    return ranges.size();
+  }
+
+  /**
+   * @return The number of fields that have been parsed or modified.
+   */
+  int getParsedCount() {
+    return super.size() + (parsed == null ? 0 : parsed.size());
+  }
+
+  private void putModified(Object key, Object value) {
+    super.put(key, value);
+  }
+
+  private Object getUnmodified(Object key) {
+    int[] range = ranges.get(key);
+    if(range == null) {
+      return null;
+    }
+    if(parsed != null && parsed.containsKey(key)) {
+      return parsed.get(key);
+    }
+
+    Object value = parse((String) key, range);
+    if(value instanceof Map || value instanceof List) {
+      // the value can be modified in place, so it can no longer be copied from the original message
+      ranges.remove(key);
+      super.put(key, value);
+    } else {
+      if(parsed == null) {
+        parsed = new HashMap<>();
+      }
+      parsed.put((String) key, value);
+    }
+    return value;
+  }
+
+  private void removeUnmodified(Object key) {
+    if(ranges.remove(key) != null && parsed != null) {
+      parsed.remove(key);
+    }
+  }
+
+  /**
+   * Parses all of the remaining fields.
+   */
+  private void materialize() {
+    if(ranges.isEmpty()) {
+      return;
+    }
+    for(String key: new ArrayList<>(ranges.keySet())) {
+      super.put(key, getUnmodified(key));
+    }
+    json = null;
+    ranges.clear();
+    parsed = null;
+  }
+
+  private Object parse(String key, int[] range) {
+    int start = range[0];
+    int end = range[1];
+    if(json.charAt(start) == '"' && !hasEscape(json, start, end)) {
+      return json.substring(start + 1, end - 1);
+    }
+    try {
+      return parser.get().parse(json.substring(start, end));
+    } catch(ParseException e) {
+      throw new IllegalStateException("Unable to parse field '" + key + "' due to " + e, e);
+    }
+  }
+
+  /**
+   * Finds the start and end of the value of each field of a JSON object.
+   */
+  private static LinkedHashMap<String, int[]> index(String json) {
+    LinkedHashMap<String, int[]> ranges = new LinkedHashMap<>();
+    int i = skipWhitespace(json, 0);
+    expect(json, i++, '{');
+    i = skipWhitespace(json, i);
+    if(i < json.length() && json.charAt(i) == '}') {
+      i++;
+
+    } else {
+      while(true) {
+        i = skipWhitespace(json, i);
+        expect(json, i, '"');
+        int keyEnd = skipString(json, i);
+        String key = unquote(json, i, keyEnd);
+        i = skipWhitespace(json, keyEnd);
+        expect(json, i++, ':');
+        i = skipWhitespace(json, i);
+        int valueEnd = skipValue(json, i);
+        ranges.remove(key);
+        ranges.put(key, new int[] { i, valueEnd });
+
+        i = skipWhitespace(json, valueEnd);
+        if(i < json.length() && json.charAt(i) == ',') {
+          i++;
+        } else {
+          expect(json, i++, '}');
+          break;
+        }
+      }
+    }
+
+    if(skipWhitespace(json, i) != json.length()) {
+      throw new IllegalArgumentException("Unexpected content after the end of the message at position " + i);
+    }
+    return ranges;
+  }
+
+  private static int skipWhitespace(String json, int i) {
+    while(i < json.length() && Character.isWhitespace(json.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static void expect(String json, int i, char expected) {
+    if(i >= json.length() || json.charAt(i) != expected) {
+      throw new IllegalArgumentException("Expected '" + expected + "' at position " + i);
+    }
+  }
+
+  /**
+   * @return The position after the string that starts at a position.
+   */
+  private static int skipString(String json, int i) {
+    for(int j = i + 1; j < json.length(); j++) {
+      char c = json.charAt(j);
+      if(c == '\\') {
+        j++;
+      } else if(c == '"') {
+        return j + 1;
+      }
+    }
+    throw new IllegalArgumentException("Unterminated string at position " + i);
+  }
+
+  /**
+   * @return The position after the value that starts at a position.
+   */
+  private static int skipValue(String json, int i) {
+    if(i >= json.length()) {
+      throw new IllegalArgumentException("Expected a value at position " + i);
+    }
+    char c = json.charAt(i);
+    if(c == '"') {
+      return skipString(json, i);
+
+    } else if(c == '{' || c == '[') {
+      int depth = 0;
+      for(int j = i; j < json.length(); j++) {
+        char d = json.charAt(j);
+        if(d == '"') {
+          j = skipString(json, j) - 1;
+        } else if(d == '{' || d == '[') {
+          depth++;
+        } else if((d == '}' || d == ']') && --depth == 0) {
+          return j + 1;
+        }
+      }
+      throw new IllegalArgumentException("Unterminated value at position " + i);
+    }
+
+    // a number, true, false or null
+    int j = i;
+    while(j < json.length() && ",}] \t\r\n".indexOf(json.charAt(j)) < 0) {
+      j++;
+    }
+    if(j == i) {
+      throw new IllegalArgumentException("Expected a value at position " + i);
+    }
+    return j;
+  }
+
+  private static boolean hasEscape(String json, int start, int end) {
+    int escape = json.indexOf('\\', start);
+    return escape >= 0 && escape < end;
+  }
+
+  private static String unquote(String json, int start, int end) {
+    if(!hasEscape(json, start, end)) {
+      return json.substring(start + 1, end - 1);
+    }
+    try {
+      return (String) parser.get().parse(json.substring(start, end));
+    } catch(ParseException e) {
+      throw new IllegalArgumentException("Unable to parse field name at position " + start + " due to " + e, e);
+    }
+  }
+}
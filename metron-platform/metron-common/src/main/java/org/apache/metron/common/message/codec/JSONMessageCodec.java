@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.message.codec;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Encodes messages as JSON strings.  This is the default and is compatible with all existing
+ * producers and consumers of the Kafka topics.
+ */
+public class JSONMessageCodec implements MessageCodec {
+
+  private static ThreadLocal<JSONParser> parser = ThreadLocal.withInitial(JSONParser::new);
+
+  @Override
+  public byte[] encode(Map<String, Object> message) {
+    return JSONObject.toJSONString(message).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public JSONObject decode(byte[] bytes) throws IOException {
+    try {
+      return (JSONObject) parser.get().parse(new String(bytes, StandardCharsets.UTF_8));
+    } catch (ParseException | ClassCastException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Any message that was not encoded by another codec is presumed to be JSON.
+   */
+  @Override
+  public boolean canDecode(byte[] bytes) {
+    return true;
+  }
+}
@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.message.codec;
+
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Defines how a message is encoded when it is written to Kafka between the parser, enrichment
+ * and indexing topologies, and how it is decoded when it is read.
+ */
+public interface MessageCodec extends Serializable {
+
+  /**
+   * Encode a message.
+   *
+   * @param message The message to encode.
+   * @return The encoded message.
+   */
+  byte[] encode(Map<String, Object> message) throws IOException;
+
+  /**
+   * Decode a message.  Whole numbers are decoded as a Long and decimal numbers as a Double,
+   * the same as when a message is parsed from JSON.
+   *
+   * @param bytes The encoded message.
+   * @return The decoded message.
+   */
+  JSONObject decode(byte[] bytes) throws IOException;
+
+  /**
+   * Were the bytes encoded by this codec?
+   *
+   * @param bytes The encoded message.
+   * @return True, if this codec can decode the bytes.
+   */
+  boolean canDecode(byte[] bytes);
+}
@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.message.codec;
+
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The codecs that can be used to encode messages written to Kafka.  This fits the normal enum
+ * pattern that we use elsewhere for strategy pattern.
+ *
+ * <p>The codec used to write messages can be chosen for each sensor.  A consumer does not need
+ * to know which codec was used; {@link #decodeAny(byte[])} detects it from the message itself,
+ * so a topic can contain messages encoded by different codecs.
+ */
+public enum MessageCodecs implements MessageCodec {
+  /**
+   * The default codec; messages are JSON strings.
+   */
+  JSON(new JSONMessageCodec()),
+  /**
+   * Messages are encoded with Smile, a binary equivalent of JSON.
+   */
+  SMILE(new SmileMessageCodec())
+  ;
+  MessageCodec codec;
+  MessageCodecs(MessageCodec codec) {
+    this.codec = codec;
+  }
+
+  @Override
+  public byte[] encode(Map<String, Object> message) throws IOException {
+    return codec.encode(message);
+  }
+
+  @Override
+  public JSONObject decode(byte[] bytes) throws IOException {
+    return codec.decode(bytes);
+  }
+
+  @Override
+  public boolean canDecode(byte[] bytes) {
+    return codec.canDecode(bytes);
+  }
+
+  /**
+   * Is the encoded message a string?
+   *
+   * @return True, if the encoded message is a UTF-8 string.
+   */
+  public boolean isText() {
+    return this == JSON;
+  }
+
+  /**
+   * Decode a message encoded by any of the codecs.
+   *
+   * @param bytes The encoded message.
+   * @return The decoded message.
+   */
+  public static JSONObject decodeAny(byte[] bytes) throws IOException {
+    return detect(bytes).decode(bytes);
+  }
+
+  /**
+   * Find the codec that encoded a message.
+   *
+   * @param bytes The encoded message.
+   * @return The codec that encoded the message.
+   */
+  public static MessageCodecs detect(byte[] bytes) {
+    return SMILE.canDecode(bytes) ? SMILE : JSON;
+  }
+
+  /**
+   * Find a codec by name.
+   *
+   * @param name The name of the codec, like 'JSON' or 'SMILE'.  If null, the default codec.
+   * @return The codec.
+   */
+  public static MessageCodecs create(String name) {
+    if(name == null) {
+      return JSON;
+    }
+    try {
+      return MessageCodecs.valueOf(name.trim().toUpperCase());
+    } catch(IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown message codec '" + name + "'; expected one of JSON, SMILE", e);
+    }
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.metron.common.message.metadata;
 
 import java.nio.charset.StandardCharsets;
 import org.apache.metron.common.Constants;
+import org.apache.metron.common.message.codec.MessageCodecs;
 import org.apache.metron.common.utils.JSONUtils;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
@@ -32,7 +33,7 @@ import java.util.Map;
 /**
  * An alternative strategy whereby
  * <ul>
- *  <li>The raw data is presumed to be a JSON Map</li>
+ *  <li>The raw data is presumed to be a JSON Map, either as a string or encoded by a binary {@link MessageCodecs}</li>
  *  <li>The data to be parsed is the contents of one of the fields.</li>
  *  <li>The non-data fields are considered metadata</li>
  * </ul>
@@ -71,8 +72,14 @@ public class EnvelopedRawMessageStrategy implements RawMessageStrategy {
 
     try {
       String prefix = MetadataUtil.INSTANCE.getMetadataPrefix(config);
-      Map<String, Object> extraMetadata = JSONUtils.INSTANCE.load(new String(envelope,
-          StandardCharsets.UTF_8), JSONUtils.MAP_SUPPLIER);
+      Map<String, Object> extraMetadata;
+      if(MessageCodecs.SMILE.canDecode(envelope)) {
+        extraMetadata = MessageCodecs.SMILE.decode(envelope);
+      }
+      else {
+        extraMetadata = JSONUtils.INSTANCE.load(new String(envelope,
+            StandardCharsets.UTF_8), JSONUtils.MAP_SUPPLIER);
+      }
       String message = null;
       if(extraMetadata != null) {
         for(Map.Entry<String, Object> kv : extraMetadata.entrySet()) {
@@ -36,6 +36,8 @@ import java.util.Map;
 public class BulkWriterResponse {
     private Multimap<Throwable, MessageId> errors = ArrayListMultimap.create();
     private List<MessageId> successes = new ArrayList<>();
+    // how long the write took; it describes the write rather than its outcome, so is not part of equality
+    private long writeTimeMillis = 0;
 
     public void addError(Throwable error, MessageId id) {
         errors.put(error, id);
@@ -80,6 +82,17 @@ public class BulkWriterResponse {
         return successes;
     }
 
+    /**
+     * @return The time taken to write the batch in milliseconds, or 0 if it is not known
+     */
+    public long getWriteTimeMillis() {
+        return writeTimeMillis;
+    }
+
+    public void setWriteTimeMillis(long writeTimeMillis) {
+        this.writeTimeMillis = writeTimeMillis;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
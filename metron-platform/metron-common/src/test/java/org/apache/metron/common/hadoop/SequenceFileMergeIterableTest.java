@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.hadoop;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SequenceFileMergeIterableTest {
+
+  @TempDir
+  File tempDir;
+
+  private Configuration config = new Configuration();
+
+  private Path write(String name, long... keys) throws IOException {
+    Path path = new Path(tempDir.getAbsolutePath(), name);
+    try (SequenceFile.Writer writer = SequenceFile.createWriter(config,
+        SequenceFile.Writer.file(path),
+        SequenceFile.Writer.keyClass(LongWritable.class),
+        SequenceFile.Writer.valueClass(BytesWritable.class))) {
+      for (long key : keys) {
+        writer.append(new LongWritable(key), new BytesWritable((name + ":" + key).getBytes(StandardCharsets.UTF_8)));
+      }
+    }
+    return path;
+  }
+
+  private List<String> read(Iterable<byte[]> iterable) {
+    List<String> ret = new ArrayList<>();
+    for (byte[] value : iterable) {
+      ret.add(new String(value, StandardCharsets.UTF_8));
+    }
+    return ret;
+  }
+
+  @Test
+  public void mergesFilesInKeyOrder() throws Exception {
+    List<Path> files = Arrays.asList(
+        write("part-r-00000", 1, 4, 7),
+        write("part-r-00001", 2, 5, 8, 9),
+        write("part-r-00002"),
+        write("part-r-00003", 3, 6));
+    SequenceFileMergeIterable iterable = new SequenceFileMergeIterable(files, config);
+    assertEquals(Arrays.asList(
+        "part-r-00000:1", "part-r-00001:2", "part-r-00003:3", "part-r-00000:4", "part-r-00001:5",
+        "part-r-00003:6", "part-r-00000:7", "part-r-00001:8", "part-r-00001:9"), read(iterable));
+    // each iterator reads the files again
+    assertEquals(9, read(iterable).size());
+  }
+
+  @Test
+  public void equalKeysAreReturnedInFileOrder() throws Exception {
+    List<Path> files = Arrays.asList(write("b", 1, 2), write("a", 1, 2));
+    assertEquals(Arrays.asList("b:1", "a:1", "b:2", "a:2"), read(new SequenceFileMergeIterable(files, config)));
+  }
+
+  @Test
+  public void handlesNoFiles() {
+    Iterator<byte[]> it = new SequenceFileMergeIterable(Collections.emptyList(), config).iterator();
+    assertFalse(it.hasNext());
+    assertThrows(NoSuchElementException.class, it::next);
+  }
+
+  @Test
+  public void cleansUpFiles() throws Exception {
+    List<Path> files = Arrays.asList(write("part-r-00000", 1), write("part-r-00001", 2));
+    SequenceFileMergeIterable iterable = new SequenceFileMergeIterable(files, config);
+    read(iterable);
+    assertTrue(iterable.cleanup());
+    FileSystem fs = FileSystem.get(config);
+    for (Path file : files) {
+      assertFalse(fs.exists(file));
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.message;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LazyJSONObjectTest {
+
+  private static final String MESSAGE = "{ \"source.type\": \"bro\", \"ip_src_addr\" : \"10.0.0.1\","
+          + "\"ip_src_port\":8080, \"score\": 0.5, \"is_alert\": true, \"empty\": null,"
+          + "\"tags\": [\"a\", \"b]\"], \"nested\": {\"name\": \"{nested}\"},"
+          + "\"quoted \\\"key\\\"\": \"line\\none\" }";
+
+  private JSONObject expected;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    expected = (JSONObject) new JSONParser().parse(MESSAGE);
+  }
+
+  @Test
+  public void testEqualsParsedMessage() {
+    LazyJSONObject message = new LazyJSONObject(MESSAGE);
+    assertEquals(expected.size(), message.size());
+    assertEquals(expected, message);
+    assertEquals(message, expected);
+  }
+
+  @Test
+  public void testOnlyAccessedFieldsAreParsed() {
+    LazyJSONObject message = new LazyJSONObject(MESSAGE);
+    assertEquals(0, message.getParsedCount());
+
+    assertEquals("10.0.0.1", message.get("ip_src_addr"));
+    assertEquals(8080L, message.get("ip_src_port"));
+    assertEquals("line\none", message.get("quoted \"key\""));
+    assertTrue(message.containsKey("empty"));
+    assertNull(message.get("empty"));
+    assertNull(message.get("missing"));
+    assertFalse(message.containsKey("missing"));
+    assertEquals(4, message.getParsedCount());
+
+    // the fields that were only read are still copied from the original message
+    assertEquals(expected.size(), message.getUnmodifiedCount());
+  }
+
+  @Test
+  public void testModifiedFieldsAreWritten() throws Exception {
+    LazyJSONObject message = new LazyJSONObject(MESSAGE);
+    message.put("source.type", "yaf");
+    message.put("is_enriched", true);
+    message.remove("score");
+    ((JSONArray) message.get("tags")).add("c");
+
+    expected.put("source.type", "yaf");
+    expected.put("is_enriched", true);
+    expected.remove("score");
+    ((JSONArray) expected.get("tags")).add("c");
+
+    assertEquals(expected.size(), message.size());
+    assertEquals(expected, new JSONParser().parse(message.toJSONString()));
+  }
+
+  @Test
+  public void testUnmodifiedMessageIsCopied() throws Exception {
+    LazyJSONObject message = new LazyJSONObject(MESSAGE);
+    message.get("ip_src_addr");
+    String json = message.toJSONString();
+    assertTrue(json.contains("\"tags\":[\"a\", \"b]\"]"));
+    assertEquals(expected, new JSONParser().parse(json));
+  }
+
+  @Test
+  public void testModificationsThroughEntries() throws Exception {
+    LazyJSONObject message = new LazyJSONObject(MESSAGE);
+    for(Object entry: message.entrySet()) {
+      Map.Entry e = (Map.Entry) entry;
+      if("source.type".equals(e.getKey())) {
+        e.setValue("yaf");
+      }
+    }
+    assertEquals(0, message.getUnmodifiedCount());
+
+    expected.put("source.type", "yaf");
+    assertEquals(expected, new JSONParser().parse(message.toJSONString()));
+  }
+
+  @Test
+  public void testRemoveEmptyValues() throws Exception {
+    LazyJSONObject message = new LazyJSONObject("{\"a\": \"\", \"b\": null, \"c\": \"value\", \"d\": 0}");
+    message.put("e", "");
+    message.put("f", "value");
+    message.removeEmptyValues();
+
+    JSONObject expected = new JSONObject();
+    expected.put("c", "value");
+    expected.put("d", 0L);
+    expected.put("f", "value");
+    assertEquals(1, message.getParsedCount());
+    assertEquals(expected, new JSONParser().parse(message.toJSONString()));
+  }
+
+  @Test
+  public void testCloneIsIndependent() {
+    LazyJSONObject message = new LazyJSONObject(MESSAGE);
+    message.put("is_enriched", true);
+    LazyJSONObject clone = (LazyJSONObject) message.clone();
+    assertEquals(1, clone.getParsedCount());
+
+    clone.put("source.type", "yaf");
+    clone.remove("is_enriched");
+    assertEquals("bro", message.get("source.type"));
+    assertEquals(true, message.get("is_enriched"));
+    assertEquals("yaf", clone.get("source.type"));
+    assertFalse(clone.containsKey("is_enriched"));
+  }
+
+  @Test
+  public void testEmptyMessage() {
+    LazyJSONObject message = new LazyJSONObject(" {} ");
+    assertTrue(message.isEmpty());
+    assertEquals("{}", message.toJSONString());
+
+    message.put("source.type", "bro");
+    assertEquals("{\"source.type\":\"bro\"}", message.toJSONString());
+  }
+
+  @Test
+  public void testInvalidMessage() {
+    assertThrows(IllegalArgumentException.class, () -> new LazyJSONObject("[1, 2]"));
+    assertThrows(IllegalArgumentException.class, () -> new LazyJSONObject("{\"a\": \"b\""));
+    assertThrows(IllegalArgumentException.class, () -> new LazyJSONObject("{\"a\": }"));
+    assertThrows(IllegalArgumentException.class, () -> new LazyJSONObject("{\"a\": 1} 2"));
+
+    // values are only validated when they are parsed
+    LazyJSONObject message = new LazyJSONObject("{\"a\": tru}");
+    assertThrows(IllegalStateException.class, () -> message.get("a"));
+  }
+}
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.message.codec;
+
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of encoding and decoding an enriched message with each codec.
+ *
+ * <p>This is not run as part of the build.  To run it, execute the main method from the test
+ * classpath, for example:
+ *
+ * <pre>
+ *   mvn -pl metron-platform/metron-common test-compile exec:java \
+ *     -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.apache.metron.common.message.codec.MessageCodecsBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecsBenchmark {
+
+  @Param({"JSON", "SMILE"})
+  private String codecName;
+
+  private MessageCodecs codec;
+  private Map<String, Object> message;
+  private byte[] encoded;
+
+  @Setup
+  public void setup() throws IOException {
+    codec = MessageCodecs.create(codecName);
+    message = createMessage();
+    encoded = codec.encode(message);
+  }
+
+  /**
+   * An enriched Bro message, similar to those written to the indexing topic.
+   */
+  private static Map<String, Object> createMessage() {
+    Map<String, Object> message = new HashMap<>();
+    message.put("source.type", "bro");
+    message.put("guid", "3a5c6dbd-2a10-4e8e-a4f0-7d3f1c0e9b11");
+    message.put("timestamp", 1530000000000L);
+    message.put("original_string", "HTTP | id.orig_p:49204 method:GET host:www.example.com uri:/index.html");
+    message.put("protocol", "http");
+    message.put("ip_src_addr", "192.168.66.1");
+    message.put("ip_src_port", 49204);
+    message.put("ip_dst_addr", "93.184.216.34");
+    message.put("ip_dst_port", 80);
+    message.put("method", "GET");
+    message.put("host", "www.example.com");
+    message.put("uri", "/index.html");
+    message.put("user_agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64)");
+    message.put("status_code", 200);
+    message.put("request_body_len", 0);
+    message.put("response_body_len", 1270);
+    message.put("trans_depth", 1);
+    message.put("resp_mime_types", Arrays.asList("text/html"));
+    message.put("resp_fuids", Arrays.asList("FmQpJo3vQZ0V2M8v0k"));
+    message.put("enrichments.geo.ip_dst_addr.city", "Norwell");
+    message.put("enrichments.geo.ip_dst_addr.country", "US");
+    message.put("enrichments.geo.ip_dst_addr.latitude", "42.1508");
+    message.put("enrichments.geo.ip_dst_addr.longitude", "-70.8228");
+    message.put("enrichments.geo.ip_dst_addr.postalCode", "02061");
+    message.put("enrichments.host.ip_src_addr.local", "YES");
+    message.put("enrichments.host.ip_src_addr.type", "webserver");
+    message.put("is_alert", true);
+    message.put("threat.triage.score", 10.0);
+    message.put("adapter.geoadapter.begin.ts", "1530000000012");
+    message.put("adapter.geoadapter.end.ts", "1530000000013");
+    return message;
+  }
+
+  @Benchmark
+  public byte[] encode() throws IOException {
+    return codec.encode(message);
+  }
+
+  @Benchmark
+  public JSONObject decode() throws IOException {
+    return MessageCodecs.decodeAny(encoded);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+            .include(MessageCodecsBenchmark.class.getSimpleName())
+            .build())
+            .run();
+  }
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.message.codec;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MessageCodecsTest {
+
+  private Map<String, Object> createMessage() {
+    Map<String, Object> nested = new HashMap<>();
+    nested.put("name", "nested");
+    Map<String, Object> message = new HashMap<>();
+    message.put("source.type", "bro");
+    message.put("ip_src_port", 8080);
+    message.put("timestamp", 1530000000000L);
+    message.put("score", 0.5f);
+    message.put("is_alert", true);
+    message.put("empty", null);
+    message.put("tags", Arrays.asList("a", "b"));
+    message.put("nested", nested);
+    return message;
+  }
+
+  @Test
+  public void testCodecsDecodeTheSameMessage() throws Exception {
+    Map<String, Object> message = createMessage();
+    JSONObject fromJSON = MessageCodecs.JSON.decode(MessageCodecs.JSON.encode(message));
+    JSONObject fromSmile = MessageCodecs.SMILE.decode(MessageCodecs.SMILE.encode(message));
+    assertEquals(fromJSON, fromSmile);
+
+    // the same types as when parsed from JSON
+    assertEquals(8080L, fromSmile.get("ip_src_port"));
+    assertEquals(0.5, fromSmile.get("score"));
+    assertTrue(fromSmile.containsKey("empty"));
+    assertTrue(fromSmile.get("tags") instanceof JSONArray);
+    assertTrue(fromSmile.get("nested") instanceof JSONObject);
+  }
+
+  @Test
+  public void testDetect() throws Exception {
+    Map<String, Object> message = createMessage();
+    assertEquals(MessageCodecs.SMILE, MessageCodecs.detect(MessageCodecs.SMILE.encode(message)));
+    assertEquals(MessageCodecs.JSON, MessageCodecs.detect(MessageCodecs.JSON.encode(message)));
+    assertEquals(MessageCodecs.JSON, MessageCodecs.detect(new byte[0]));
+
+    JSONObject expected = MessageCodecs.JSON.decode(MessageCodecs.JSON.encode(message));
+    assertEquals(expected, MessageCodecs.decodeAny(MessageCodecs.SMILE.encode(message)));
+    assertEquals(expected, MessageCodecs.decodeAny(MessageCodecs.JSON.encode(message)));
+  }
+
+  @Test
+  public void testSmileIsSmaller() throws Exception {
+    Map<String, Object> message = createMessage();
+    assertTrue(MessageCodecs.SMILE.encode(message).length < MessageCodecs.JSON.encode(message).length);
+    assertFalse(MessageCodecs.SMILE.canDecode("{}".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testCreate() {
+    assertEquals(MessageCodecs.JSON, MessageCodecs.create(null));
+    assertEquals(MessageCodecs.SMILE, MessageCodecs.create("smile"));
+    assertThrows(IllegalArgumentException.class, () -> MessageCodecs.create("avro"));
+  }
+}
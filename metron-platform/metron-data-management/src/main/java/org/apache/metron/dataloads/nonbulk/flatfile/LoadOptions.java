@@ -100,6 +100,29 @@ public enum LoadOptions implements CLIOptions<LoadOptions> {
       return o;
     }
   })
+  ,FILTER_DIR(new OptionHandler<LoadOptions>() {
+    @Nullable
+    @Override
+    public Option apply(@Nullable String s) {
+      Option o = new Option(s, "filter_dir", true
+              , "HDFS directory to publish the membership filter of the table to once loaded." +
+              "  Enrichment workers skip the lookup of keys that the filters say are absent."
+      );
+      o.setArgName("DIR");
+      o.setRequired(false);
+      return o;
+    }
+
+    @Override
+    public Optional<Object> getValue(LoadOptions option, CommandLine cli) {
+      return Optional.ofNullable(option.get(cli)).map(String::trim);
+    }
+
+    @Override
+    public String getShortCode() {
+      return "f";
+    }
+  })
   ,LOG4J_PROPERTIES(new CommonOptions.Log4jProperties<>())
   ,NUM_THREADS(new CommonOptions.NumThreads<>())
   ,BATCH_SIZE(new CommonOptions.BatchSize<>())
@@ -23,15 +23,19 @@ import java.util.EnumMap;
 import java.util.List;
 import java.util.Optional;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.metron.dataloads.extractor.Extractor;
 import org.apache.metron.dataloads.extractor.ExtractorHandler;
 import org.apache.metron.dataloads.nonbulk.flatfile.HBaseExtractorState;
 import org.apache.metron.dataloads.nonbulk.flatfile.LoadOptions;
+import org.apache.metron.dataloads.nonbulk.flatfile.writer.InvalidWriterOutput;
 import org.apache.metron.enrichment.converter.EnrichmentConverter;
 import org.apache.metron.enrichment.converter.HbaseConverter;
 import org.apache.metron.enrichment.lookup.LookupKV;
+import org.apache.metron.enrichment.lookup.filter.MembershipFilterWriter;
 import org.apache.metron.hbase.HTableProvider;
 
 public class LocalImporter extends AbstractLocalImporter<LoadOptions, HBaseExtractorState> {
@@ -50,6 +54,29 @@ public class LocalImporter extends AbstractLocalImporter<LoadOptions, HBaseExtra
     this(() -> new HTableProvider());
   }
 
+  @Override
+  public void importData( final EnumMap<LoadOptions, Optional<Object>> config
+                        , final ExtractorHandler handler
+                        , final Configuration hadoopConfig
+                        ) throws IOException, InvalidWriterOutput {
+    Optional<Object> filterDir = config.getOrDefault(LoadOptions.FILTER_DIR, Optional.empty());
+    if (!filterDir.isPresent()) {
+      super.importData(config, handler, hadoopConfig);
+      return;
+    }
+    String tableName = (String) config.get(LoadOptions.HBASE_TABLE).get();
+    FileSystem fs = FileSystem.get(hadoopConfig);
+    MembershipFilterWriter filterWriter = new MembershipFilterWriter((String) filterDir.get());
+    Path marker = filterWriter.startWriting(fs, tableName);
+    try {
+      super.importData(config, handler, hadoopConfig);
+    } finally {
+      // publish even if the import failed, as some of the keys may have been written
+      try (Table table = provider.retrieve().getTable(hadoopConfig, tableName)) {
+        filterWriter.publish(fs, table, marker);
+      }
+    }
+  }
 
   @Override
   protected List<String> getInputs(EnumMap<LoadOptions, Optional<Object>> config) {
@@ -24,8 +24,10 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.TableMapReduceUtil;
 import org.apache.hadoop.hbase.mapreduce.TableOutputFormat;
@@ -34,6 +36,8 @@ import org.apache.metron.dataloads.extractor.ExtractorHandler;
 import org.apache.metron.dataloads.hbase.mr.BulkLoadMapper;
 import org.apache.metron.dataloads.nonbulk.flatfile.LoadOptions;
 import org.apache.metron.enrichment.converter.EnrichmentConverter;
+import org.apache.metron.enrichment.lookup.filter.MembershipFilterWriter;
+import org.apache.metron.hbase.HTableProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -69,10 +73,22 @@ public enum MapReduceImporter implements Importer<LoadOptions> {
     List<Path> paths = inputs.stream().map(p -> new Path(p)).collect(Collectors.toList());
     handler.getInputFormat().set(job, paths, handler.getConfig());
     TableMapReduceUtil.initCredentials(job);
+    // the mappers write to the table, so it is marked before they start and published once they are done
+    Optional<Object> filterDir = config.getOrDefault(LoadOptions.FILTER_DIR, Optional.empty());
+    FileSystem fs = FileSystem.get(hadoopConfig);
+    MembershipFilterWriter filterWriter = filterDir.isPresent() ? new MembershipFilterWriter((String) filterDir.get()) : null;
+    Path marker = filterWriter == null ? null : filterWriter.startWriting(fs, table);
     try {
       job.waitForCompletion(true);
     } catch (Exception e) {
       throw new IllegalStateException("Unable to complete job: " + e.getMessage(), e);
+    } finally {
+      // publish even if the job failed, as some of the keys may have been written
+      if(filterWriter != null) {
+        try(Table hbaseTable = new HTableProvider().getTable(hadoopConfig, table)) {
+          filterWriter.publish(fs, hbaseTable, marker);
+        }
+      }
     }
   }
 }
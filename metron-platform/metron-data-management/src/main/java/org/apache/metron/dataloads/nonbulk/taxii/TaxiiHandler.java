@@ -44,6 +44,8 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.http.HttpHost;
@@ -71,6 +73,7 @@ import org.apache.metron.enrichment.converter.EnrichmentConverter;
 import org.apache.metron.enrichment.converter.EnrichmentKey;
 import org.apache.metron.enrichment.converter.EnrichmentValue;
 import org.apache.metron.enrichment.lookup.LookupKV;
+import org.apache.metron.enrichment.lookup.filter.MembershipFilterWriter;
 import org.apache.metron.hbase.HTableProvider;
 import org.mitre.taxii.client.HttpClient;
 import org.mitre.taxii.messages.xml11.AnyMixedContentType;
@@ -125,6 +128,12 @@ public class TaxiiHandler extends TimerTask {
   private Configuration config;
   private boolean inProgress = false;
   private Set<String> allowedIndicatorTypes;
+  private MembershipFilterWriter filterWriter;
+
+  /**
+   * Marks the table as being written until its filter is published.
+   */
+  private Path filterMarker;
 
   public TaxiiHandler( TaxiiConnectionConfig connectionConfig
              , Extractor extractor
@@ -147,6 +156,29 @@ public class TaxiiHandler extends TimerTask {
     LOG.info("Configured, starting polling {} for {}", endpoint, collection);
   }
 
+  /**
+   * Publishes the membership filter of the table after every poll which found threat intel.
+   * @param filterWriter The writer of the filter
+   * @return this
+   */
+  public TaxiiHandler withFilterWriter(MembershipFilterWriter filterWriter) {
+    this.filterWriter = filterWriter;
+    return this;
+  }
+
+  private void publishFilter() {
+    if(filterMarker == null) {
+      return;
+    }
+    try {
+      filterWriter.publish(FileSystem.get(config), getTable(hbaseTable), filterMarker);
+      filterMarker = null;
+    } catch (IOException e) {
+      // the table stays marked, so its lookups are not filtered until the next poll publishes
+      LOG.error("Unable to publish the membership filter of {}: {}", hbaseTable, e.getMessage(), e);
+    }
+  }
+
   protected synchronized Table getTable(String table) throws IOException {
     Table ret = connectionCache.get(table);
     if(ret == null) {
@@ -222,6 +254,9 @@ public class TaxiiHandler extends TimerTask {
                   kv.getValue().getMetadata().put("taxii_url", endpoint.toString());
                   kv.getValue().getMetadata().put("taxii_collection", collection);
                   Put p = converter.toPut(columnFamily, kv.getKey(), kv.getValue());
+                  if(filterWriter != null && filterMarker == null) {
+                    filterMarker = filterWriter.startWriting(FileSystem.get(config), hbaseTable);
+                  }
                   Table table = getTable(hbaseTable);
                   table.put(p);
                   LOG.info("Found Threat Intel: {} => ", kv.getKey(), kv.getValue());
@@ -240,6 +275,9 @@ public class TaxiiHandler extends TimerTask {
       } catch (Exception e) {
         LOG.error(e.getMessage(), e);
         throw new RuntimeException("Unable to make request", e);
+      } finally {
+        // publish even if the poll failed, as some of the threat intel may have been written
+        publishFilter();
       }
     }
     finally {
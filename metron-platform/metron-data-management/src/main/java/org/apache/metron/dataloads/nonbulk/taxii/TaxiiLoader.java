@@ -35,6 +35,7 @@ import org.apache.metron.dataloads.extractor.TransformFilterExtractorDecorator;
 import org.apache.metron.dataloads.extractor.stix.StixExtractor;
 import org.apache.metron.common.configuration.enrichment.SensorEnrichmentUpdateConfig;
 import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.enrichment.lookup.filter.MembershipFilterWriter;
 
 import javax.annotation.Nullable;
 import java.io.File;
@@ -116,6 +117,19 @@ public class TaxiiLoader {
         return o;
       }
     })
+    ,FILTER_DIR("f", new OptionHandler() {
+      @Nullable
+      @Override
+      public Option apply(@Nullable String s) {
+        Option o = new Option(s, "filter_dir", true
+                , "The HDFS directory to publish the membership filter of the table to." +
+                "  This should match the enrichment.lookup.filter.dir global config."
+        );
+        o.setArgName("DIR");
+        o.setRequired(false);
+        return o;
+      }
+    })
     ;
     Option option;
     String shortCode;
@@ -208,7 +222,11 @@ public class TaxiiLoader {
       if(TaxiiOptions.TIME_BETWEEN_POLLS.has(cli)) {
         timeBetween = Long.parseLong(TaxiiOptions.TIME_BETWEEN_POLLS.get(cli));
       }
-      timer.scheduleAtFixedRate(new TaxiiHandler(connectionConfig, extractor, conf), 0, timeBetween);
+      TaxiiHandler taxiiHandler = new TaxiiHandler(connectionConfig, extractor, conf);
+      if(TaxiiOptions.FILTER_DIR.has(cli)) {
+        taxiiHandler.withFilterWriter(new MembershipFilterWriter(TaxiiOptions.FILTER_DIR.get(cli).trim()));
+      }
+      timer.scheduleAtFixedRate(taxiiHandler, 0, timeBetween);
     }
     else {
       throw new IllegalStateException("Extractor must be a STIX Extractor");
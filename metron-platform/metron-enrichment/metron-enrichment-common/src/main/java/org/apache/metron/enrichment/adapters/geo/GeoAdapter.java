@@ -55,6 +55,7 @@ public class GeoAdapter implements EnrichmentAdapter<CacheKey>, Serializable {
 
   @Override
   public boolean initializeAdapter(Map<String, Object> config) {
+    GeoLiteCityDatabase.INSTANCE.configure(config);
     GeoLiteCityDatabase.INSTANCE.update((String)config.get(GeoLiteCityDatabase.GEO_HDFS_FILE));
     return true;
   }
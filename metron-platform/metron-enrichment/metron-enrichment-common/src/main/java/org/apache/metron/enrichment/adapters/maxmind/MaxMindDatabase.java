@@ -35,6 +35,9 @@ public interface MaxMindDatabase {
   String EXTENSION_MMDB = ".mmdb";
   String EXTENSION_TAR_GZ = ".tar.gz";
   String EXTENSION_MMDB_GZ = ".mmdb.gz";
+  String MMAP_CONFIG = "maxmind.mmap";
+  String CACHE_SIZE_CONFIG = "maxmind.cache.size";
+  long CACHE_SIZE_DEFAULT = 10000;
 
   /**
    * Retrieves the configuration key that holds the HDFS database file location
@@ -67,6 +70,22 @@ public interface MaxMindDatabase {
   DatabaseReader getReader();
   void setReader(DatabaseReader reader);
 
+  /**
+   * Determines whether the database is memory-mapped from a local copy rather than loaded onto the heap.
+   * A memory-mapped database is shared by all users within the JVM and lives outside of the heap.
+   * @return true if the database should be memory-mapped
+   */
+  boolean isMemoryMapped();
+
+  /**
+   * Applies the global configuration that controls how the database is loaded and how lookups are cached.
+   * This takes effect on the next update of the database.
+   *
+   * @param globalConfig The global configuration.
+   * @return true if the way the database is loaded has changed
+   */
+  boolean configure(Map<String, Object> globalConfig);
+
   /**
    * Updates the database file, if the configuration points to a new file.
    * Implementations may need to be synchronized to avoid issues querying during updates.
@@ -92,7 +111,7 @@ public interface MaxMindDatabase {
     if (hdfsFile.endsWith(MaxMindDatabase.EXTENSION_MMDB)) {
       lockIfNecessary();
       try (BufferedInputStream is = new BufferedInputStream(fs.open(new Path(hdfsFile)))) {
-        setReader(MaxMindDbUtilities.readNewDatabase(getReader(), hdfsFile, is));
+        setReader(MaxMindDbUtilities.readNewDatabase(getReader(), hdfsFile, is, isMemoryMapped()));
       } catch (IOException e) {
         MaxMindDbUtilities.handleDatabaseIOException(hdfsFile, e);
       } finally {
@@ -101,7 +120,7 @@ public interface MaxMindDatabase {
     } else if (hdfsFile.endsWith(MaxMindDatabase.EXTENSION_MMDB_GZ)) {
       lockIfNecessary();
       try (GZIPInputStream is = new GZIPInputStream(fs.open(new Path(hdfsFile)))) {
-        setReader(MaxMindDbUtilities.readNewDatabase(getReader(), hdfsFile, is));
+        setReader(MaxMindDbUtilities.readNewDatabase(getReader(), hdfsFile, is, isMemoryMapped()));
       } catch (IOException e) {
         MaxMindDbUtilities.handleDatabaseIOException(hdfsFile, e);
       } finally {
@@ -117,7 +136,7 @@ public interface MaxMindDatabase {
           if (entry.isFile() && entry.getName().endsWith(MaxMindDatabase.EXTENSION_MMDB)) {
             try(InputStream mmdb = new BufferedInputStream(is))
             { // Read directly from tarInput
-              setReader(MaxMindDbUtilities.readNewDatabase(getReader(), hdfsFile, mmdb));
+              setReader(MaxMindDbUtilities.readNewDatabase(getReader(), hdfsFile, mmdb, isMemoryMapped()));
               break; // Don't care about the other entries, leave immediately
             }
           }
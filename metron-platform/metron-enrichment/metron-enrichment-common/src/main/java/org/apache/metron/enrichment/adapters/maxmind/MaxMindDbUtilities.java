@@ -17,12 +17,18 @@ package org.apache.metron.enrichment.adapters.maxmind;/*
  */
 
 import com.maxmind.db.CHMCache;
+import com.maxmind.db.Reader;
 import com.maxmind.geoip2.DatabaseReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.commons.validator.routines.InetAddressValidator;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
@@ -90,9 +96,27 @@ public enum MaxMindDbUtilities {
    * @throws IOException If there is an issue reading the file.
    */
   public static DatabaseReader readNewDatabase(DatabaseReader reader, String hdfsFile, InputStream is) throws IOException {
+    return readNewDatabase(reader, hdfsFile, is, false);
+  }
+
+  /**
+   * Reads a new Database from a given HDFS file
+   * @param reader The DatabaseReader to use to read the file
+   * @param hdfsFile The HDFS file to read
+   * @param is An InputStream for use with the reader
+   * @param memoryMapped If true, the database is copied to local disk and memory-mapped rather than read onto the heap
+   * @return The DatabaseReader that is set up with the new file
+   * @throws IOException If there is an issue reading the file.
+   */
+  public static DatabaseReader readNewDatabase(DatabaseReader reader, String hdfsFile, InputStream is, boolean memoryMapped) throws IOException {
     LOG.info("Update to GeoIP data started with {}", hdfsFile);
-    // InputStream based DatabaseReaders are always in memory.
-    DatabaseReader newReader = new DatabaseReader.Builder(is).withCache(new CHMCache()).build();
+    DatabaseReader newReader;
+    if (memoryMapped) {
+      newReader = readMemoryMappedDatabase(is);
+    } else {
+      // InputStream based DatabaseReaders are always in memory.
+      newReader = new DatabaseReader.Builder(is).withCache(new CHMCache()).build();
+    }
     // If we've never set a reader, don't close the old one
     if (reader != null) {
       reader.close();
@@ -101,6 +125,49 @@ public enum MaxMindDbUtilities {
     return newReader;
   }
 
+  /**
+   * Copies the database to a local file and maps it with a FileChannel. The mapping outlives the file, so the
+   * local copy is removed as soon as it has been mapped.
+   * @param is An InputStream of the uncompressed database
+   * @return A DatabaseReader backed by the memory-mapped file
+   * @throws IOException If there is an issue copying or mapping the file.
+   */
+  private static DatabaseReader readMemoryMappedDatabase(InputStream is) throws IOException {
+    File localFile = File.createTempFile("maxmind", MaxMindDatabase.EXTENSION_MMDB);
+    try {
+      Files.copy(is, localFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return new DatabaseReader.Builder(localFile)
+          .fileMode(Reader.FileMode.MEMORY_MAPPED)
+          .withCache(new CHMCache())
+          .build();
+    } finally {
+      if (!localFile.delete()) {
+        localFile.deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * Determines whether MaxMind databases should be memory-mapped.
+   * @param globalConfig The global configuration
+   * @return The value of {@link MaxMindDatabase#MMAP_CONFIG}, defaulting to false
+   */
+  public static boolean isMemoryMapped(Map<String, Object> globalConfig) {
+    Object raw = globalConfig == null ? null : globalConfig.get(MaxMindDatabase.MMAP_CONFIG);
+    return raw != null && Boolean.TRUE.equals(ConversionUtils.convert(raw, Boolean.class));
+  }
+
+  /**
+   * Determines the maximum number of lookup results to cache.
+   * @param globalConfig The global configuration
+   * @return The value of {@link MaxMindDatabase#CACHE_SIZE_CONFIG}, defaulting to {@link MaxMindDatabase#CACHE_SIZE_DEFAULT}
+   */
+  public static long getCacheSize(Map<String, Object> globalConfig) {
+    Object raw = globalConfig == null ? null : globalConfig.get(MaxMindDatabase.CACHE_SIZE_CONFIG);
+    Long size = raw == null ? null : ConversionUtils.convert(raw, Long.class);
+    return size == null ? MaxMindDatabase.CACHE_SIZE_DEFAULT : size;
+  }
+
   /**
    * Retrieves the FileSystem
    * @return A FileSystem object used to retrieve the the database
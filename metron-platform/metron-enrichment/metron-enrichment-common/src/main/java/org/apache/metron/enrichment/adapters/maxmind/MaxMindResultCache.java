@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.adapters.maxmind;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of MaxMind lookup results, shared by every user of a database within the JVM.
+ *
+ * <p>Results are keyed by the raw address; an IPv4 address by its 32 bit value and an IPv6 address
+ * by its bytes.  Cached results must be immutable, as the same instance is handed to every caller.
+ * Addresses that are not in the database are cached as well.
+ *
+ * @param <T> The type of the lookup result.
+ */
+public class MaxMindResultCache<T> {
+
+  private final Cache<Object, Optional<T>> cache;
+  private volatile boolean enabled = true;
+
+  public MaxMindResultCache() {
+    cache = Caffeine.newBuilder()
+            .maximumSize(MaxMindDatabase.CACHE_SIZE_DEFAULT)
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Retrieves the result for an address, performing the lookup if it is not cached.
+   * @param addr The address to lookup
+   * @param lookup Performs the lookup. Returns null if the lookup failed and should not be cached.
+   * @return The result or null if the lookup failed.
+   */
+  public Optional<T> get(InetAddress addr, Function<InetAddress, Optional<T>> lookup) {
+    if (!enabled) {
+      return lookup.apply(addr);
+    }
+    return cache.get(toKey(addr), k -> lookup.apply(addr));
+  }
+
+  /**
+   * Sets the maximum number of results to retain. A size of 0 disables the cache.
+   * @param maximumSize The maximum number of results
+   */
+  public void setMaximumSize(long maximumSize) {
+    enabled = maximumSize > 0;
+    if (!enabled) {
+      cache.invalidateAll();
+    } else {
+      cache.policy().eviction().ifPresent(eviction -> {
+        if (eviction.getMaximum() != maximumSize) {
+          eviction.setMaximum(maximumSize);
+        }
+      });
+    }
+  }
+
+  /**
+   * Discards all cached results. This must be called whenever the underlying database changes.
+   */
+  public void invalidate() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * @return The hit, miss and eviction counts of the cache.
+   */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  /**
+   * @return The metrics of the cache; the number of hits, misses and evictions and the number of
+   * cached results.
+   */
+  public Map<String, Object> getMetrics() {
+    CacheStats stats = cache.stats();
+    Map<String, Object> metrics = new HashMap<>();
+    metrics.put("hitCount", stats.hitCount());
+    metrics.put("missCount", stats.missCount());
+    metrics.put("evictionCount", stats.evictionCount());
+    metrics.put("size", cache.estimatedSize());
+    return metrics;
+  }
+
+  /**
+   * Creates the cache key for an address.
+   * @param addr The address
+   * @return An Integer for an IPv4 address, otherwise a ByteBuffer wrapping the address bytes.
+   */
+  static Object toKey(InetAddress addr) {
+    byte[] bytes = addr.getAddress();
+    if (bytes.length == 4) {
+      return ((bytes[0] & 0xff) << 24)
+              | ((bytes[1] & 0xff) << 16)
+              | ((bytes[2] & 0xff) << 8)
+              | (bytes[3] & 0xff);
+    }
+    return ByteBuffer.wrap(bytes);
+  }
+}
@@ -16,6 +16,7 @@ package org.apache.metron.enrichment.adapters.maxmind.asn;/*
  * limitations under the License.
  */
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.maxmind.geoip2.DatabaseReader;
 import com.maxmind.geoip2.exception.AddressNotFoundException;
 import com.maxmind.geoip2.exception.GeoIp2Exception;
@@ -24,6 +25,7 @@ import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -32,6 +34,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 import org.apache.metron.enrichment.adapters.maxmind.MaxMindDatabase;
 import org.apache.metron.enrichment.adapters.maxmind.MaxMindDbUtilities;
+import org.apache.metron.enrichment.adapters.maxmind.MaxMindResultCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +53,8 @@ public enum GeoLiteAsnDatabase implements MaxMindDatabase {
   private static final Lock writeLock = lock.writeLock();
   private static volatile String hdfsLoc = ASN_HDFS_FILE_DEFAULT;
   private static DatabaseReader reader = null;
+  private static volatile boolean memoryMapped = false;
+  private static final MaxMindResultCache<Map<String, Object>> results = new MaxMindResultCache<>();
 
   public enum AsnProps {
     NETWORK("network"),
@@ -110,6 +115,37 @@ public enum GeoLiteAsnDatabase implements MaxMindDatabase {
   @Override
   public void setReader(DatabaseReader reader) {
     GeoLiteAsnDatabase.reader = reader;
+    results.invalidate();
+  }
+
+  @Override
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  @Override
+  public boolean configure(Map<String, Object> globalConfig) {
+    results.setMaximumSize(MaxMindDbUtilities.getCacheSize(globalConfig));
+    boolean mmap = MaxMindDbUtilities.isMemoryMapped(globalConfig);
+    boolean changed = mmap != memoryMapped;
+    memoryMapped = mmap;
+    return changed;
+  }
+
+  /**
+   * Retrieves the hit and miss counts of the lookup results cached for all users of the database.
+   * @return The cache statistics
+   */
+  public CacheStats getCacheStats() {
+    return results.stats();
+  }
+
+  /**
+   * Retrieves the metrics of the lookup results cached for all users of the database.
+   * @return The cache metrics
+   */
+  public Map<String, Object> getCacheMetrics() {
+    return results.getMetrics();
   }
 
   public synchronized void updateIfNecessary(Map<String, Object> globalConfig) {
@@ -120,8 +156,10 @@ public enum GeoLiteAsnDatabase implements MaxMindDatabase {
       hdfsFile = (String) globalConfig.getOrDefault(ASN_HDFS_FILE, ASN_HDFS_FILE_DEFAULT);
     }
 
+    boolean reconfigured = configure(globalConfig);
+
     // Always update if we don't have a DatabaseReader
-    if (reader == null || !hdfsLoc.equals(hdfsFile)) {
+    if (reader == null || !hdfsLoc.equals(hdfsFile) || reconfigured) {
       // Update
       hdfsLoc = hdfsFile;
       update(hdfsFile);
@@ -143,6 +181,23 @@ public enum GeoLiteAsnDatabase implements MaxMindDatabase {
     try {
       readLock.lock();
       InetAddress addr = InetAddress.getByName(ip);
+      Optional<Map<String, Object>> result = results.get(addr, this::lookup);
+      return result == null ? Optional.empty() : result;
+    } catch (UnknownHostException e) {
+      LOG.debug("No result found for IP {}", ip);
+    } finally {
+      readLock.unlock();
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Queries the database for an address. The caller must hold the read lock.
+   * @param addr The address to lookup in the database
+   * @return An immutable result, Optional.empty() if the address is not in the database or null if the lookup failed.
+   */
+  private Optional<Map<String, Object>> lookup(InetAddress addr) {
+    try {
       AsnResponse asnResponse = reader.asn(addr);
       HashMap<String, Object> asnInfo = new HashMap<>();
       AsnProps.ASN.set(asnInfo, asnResponse.getAutonomousSystemNumber());
@@ -151,14 +206,13 @@ public enum GeoLiteAsnDatabase implements MaxMindDatabase {
       AsnProps.NETWORK
           .set(asnInfo, MaxMindDbUtilities.convertNullToEmptyString(asnResponse.getIpAddress()));
 
-      return Optional.of(asnInfo);
-    } catch (UnknownHostException | AddressNotFoundException e) {
-      LOG.debug("No result found for IP {}", ip);
+      return Optional.of(Collections.unmodifiableMap(asnInfo));
+    } catch (AddressNotFoundException e) {
+      LOG.debug("No result found for IP {}", addr);
+      return Optional.empty();
     } catch (GeoIp2Exception | IOException e) {
       LOG.warn("GeoLite2 ASN DB encountered an error", e);
-    } finally {
-      readLock.unlock();
     }
-    return Optional.empty();
+    return null;
   }
 }
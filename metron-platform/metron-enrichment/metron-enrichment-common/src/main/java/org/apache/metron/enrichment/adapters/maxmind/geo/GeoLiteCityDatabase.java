@@ -18,6 +18,7 @@
 package org.apache.metron.enrichment.adapters.maxmind.geo;
 
 import ch.hsr.geohash.WGS84Point;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.maxmind.geoip2.DatabaseReader;
 import com.maxmind.geoip2.exception.AddressNotFoundException;
 import com.maxmind.geoip2.exception.GeoIp2Exception;
@@ -30,6 +31,7 @@ import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -40,6 +42,7 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.metron.enrichment.adapters.maxmind.MaxMindDatabase;
 import org.apache.metron.enrichment.adapters.maxmind.MaxMindDbUtilities;
+import org.apache.metron.enrichment.adapters.maxmind.MaxMindResultCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,6 +62,8 @@ public enum GeoLiteCityDatabase implements MaxMindDatabase {
   private static final Lock writeLock = lock.writeLock();
   private static volatile String hdfsLoc = GEO_HDFS_FILE_DEFAULT;
   private static DatabaseReader reader = null;
+  private static volatile boolean memoryMapped = false;
+  private static final MaxMindResultCache<Map<String, String>> results = new MaxMindResultCache<>();
 
   public enum GeoProps {
     LOC_ID("locID"),
@@ -124,6 +129,37 @@ public enum GeoLiteCityDatabase implements MaxMindDatabase {
   @Override
   public void setReader(DatabaseReader reader) {
     GeoLiteCityDatabase.reader = reader;
+    results.invalidate();
+  }
+
+  @Override
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  @Override
+  public boolean configure(Map<String, Object> globalConfig) {
+    results.setMaximumSize(MaxMindDbUtilities.getCacheSize(globalConfig));
+    boolean mmap = MaxMindDbUtilities.isMemoryMapped(globalConfig);
+    boolean changed = mmap != memoryMapped;
+    memoryMapped = mmap;
+    return changed;
+  }
+
+  /**
+   * Retrieves the hit and miss counts of the lookup results cached for all users of the database.
+   * @return The cache statistics
+   */
+  public CacheStats getCacheStats() {
+    return results.stats();
+  }
+
+  /**
+   * Retrieves the metrics of the lookup results cached for all users of the database.
+   * @return The cache metrics
+   */
+  public Map<String, Object> getCacheMetrics() {
+    return results.getMetrics();
   }
 
   public synchronized void updateIfNecessary(Map<String, Object> globalConfig) {
@@ -135,8 +171,10 @@ public enum GeoLiteCityDatabase implements MaxMindDatabase {
       hdfsFile = determineHdfsDirWithFallback(globalConfig, hdfsFile, GEO_HDFS_FILE_DEFAULT_FALLBACK);
     }
 
+    boolean reconfigured = configure(globalConfig);
+
     // Always update if we don't have a DatabaseReader
-    if (reader == null || !hdfsLoc.equals(hdfsFile)) {
+    if (reader == null || !hdfsLoc.equals(hdfsFile) || reconfigured) {
       // Update
       hdfsLoc = hdfsFile;
       update(hdfsFile);
@@ -184,6 +222,23 @@ public enum GeoLiteCityDatabase implements MaxMindDatabase {
     try {
       readLock.lock();
       InetAddress addr = InetAddress.getByName(ip);
+      Optional<Map<String, String>> result = results.get(addr, this::lookup);
+      return result == null ? Optional.empty() : result;
+    } catch (UnknownHostException e) {
+      LOG.debug("No result found for IP {}", ip);
+    } finally {
+      readLock.unlock();
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Queries the database for an address. The caller must hold the read lock.
+   * @param addr The address to lookup in the database
+   * @return An immutable result, Optional.empty() if the address is not in the database or null if the lookup failed.
+   */
+  private Optional<Map<String, String>> lookup(InetAddress addr) {
+    try {
       CityResponse cityResponse = reader.city(addr);
       HashMap<String, String> geoInfo = new HashMap<>();
 
@@ -212,15 +267,14 @@ public enum GeoLiteCityDatabase implements MaxMindDatabase {
         GeoProps.LOCATION_POINT.set(geoInfo, latitude + "," + longitude);
       }
 
-      return Optional.of(geoInfo);
-    } catch (UnknownHostException | AddressNotFoundException e) {
-      LOG.debug("No result found for IP {}", ip);
+      return Optional.of(Collections.unmodifiableMap(geoInfo));
+    } catch (AddressNotFoundException e) {
+      LOG.debug("No result found for IP {}", addr);
+      return Optional.empty();
     } catch (GeoIp2Exception | IOException e) {
       LOG.warn("GeoLite2 City DB encountered an error", e);
-    } finally {
-      readLock.unlock();
     }
-    return Optional.empty();
+    return null;
   }
 
   public Optional<WGS84Point> toPoint(Map<String, String> geoInfo) {
@@ -25,6 +25,8 @@ import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.client.Connection;
@@ -37,6 +39,7 @@ import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
 import org.apache.metron.enrichment.lookup.EnrichmentLookup;
 import org.apache.metron.enrichment.lookup.LookupKV;
 import org.apache.metron.enrichment.lookup.accesstracker.NoopAccessTracker;
+import org.apache.metron.enrichment.lookup.handler.KeyWithContext;
 import org.apache.metron.enrichment.utils.EnrichmentUtils;
 import org.json.simple.JSONObject;
 
@@ -45,6 +48,7 @@ public class SimpleHBaseAdapter implements EnrichmentAdapter<CacheKey>,Serializa
   protected SimpleHBaseConfig config;
   protected EnrichmentLookup lookup;
   protected Connection connection;
+  protected transient Map<String, Object> globalConfig;
 
   public SimpleHBaseAdapter() {
   }
@@ -71,33 +75,15 @@ public class SimpleHBaseAdapter implements EnrichmentAdapter<CacheKey>,Serializa
     if(!isInitialized()) {
       initializeAdapter(null);
     }
-    List<String> enrichmentTypes = value.getConfig()
-                                        .getEnrichment().getFieldToTypeMap()
-                                        .get(EnrichmentUtils.toTopLevelField(value.getField()));
+    List<String> enrichmentTypes = getEnrichmentTypes(value);
     if(isInitialized() && enrichmentTypes != null && value.getValue() != null) {
+      EnrichmentLookup current = lookup;
       try {
-        for (LookupKV<EnrichmentKey, EnrichmentValue> kv :
-                lookup.get(Iterables.transform(enrichmentTypes
-                                              , new EnrichmentUtils.TypeToKey( value.coerceValue(String.class)
-                                                                             , lookup.getTable()
-                                                                             , value.getConfig().getEnrichment()
-                                                                             )
-                                              )
-                          , false
-                          )
-            )
-        {
-          if (kv != null && kv.getValue() != null && kv.getValue().getMetadata() != null) {
-            for (Map.Entry<String, Object> values : kv.getValue().getMetadata().entrySet()) {
-              enriched.put(kv.getKey().type + "." + values.getKey(), values.getValue());
-            }
-            LOG.trace("Enriched type {} => {}", () -> kv.getKey().type, ()->enriched);
-          }
-        }
+        enriched = toEnrichment(current.get(toKeys(current, value, enrichmentTypes), false));
       }
       catch (IOException e) {
         LOG.error("Unable to retrieve value: {}", e.getMessage(), e);
-        initializeAdapter(null);
+        reinitialize(current);
         throw new RuntimeException("Unable to retrieve value: " + e.getMessage(), e);
       }
     }
@@ -105,22 +91,114 @@ public class SimpleHBaseAdapter implements EnrichmentAdapter<CacheKey>,Serializa
     return enriched;
   }
 
+  /**
+   * The adapter is asynchronous if HBase lookup batching is enabled, in which case the lookups
+   * are queued and the calling thread is not blocked while they are in flight.
+   */
+  @Override
+  public boolean isAsync() {
+    return isInitialized() && lookup.isAsync();
+  }
+
   @Override
-  public boolean initializeAdapter(Map<String, Object> configuration) {
+  public CompletableFuture<JSONObject> enrichAsync(CacheKey value) {
+    List<String> enrichmentTypes = getEnrichmentTypes(value);
+    if(!isAsync() || enrichmentTypes == null || value.getValue() == null) {
+      return EnrichmentAdapter.super.enrichAsync(value);
+    }
+    EnrichmentLookup current = lookup;
+    return current.getAsync(toKeys(current, value, enrichmentTypes), false)
+                 .thenApply(this::toEnrichment)
+                 .whenComplete((enriched, t) -> {
+                   if (t != null) {
+                     LOG.error("Unable to retrieve value: {}", t.getMessage(), t);
+                     Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                     if (cause instanceof IOException) {
+                       reinitialize(current);
+                     }
+                   } else {
+                     LOG.trace("SimpleHBaseAdapter succeeded: {}", enriched);
+                   }
+                 });
+  }
+
+  private List<String> getEnrichmentTypes(CacheKey value) {
+    return value.getConfig()
+                .getEnrichment().getFieldToTypeMap()
+                .get(EnrichmentUtils.toTopLevelField(value.getField()));
+  }
+
+  private Iterable<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> toKeys(EnrichmentLookup lookup, CacheKey value, List<String> enrichmentTypes) {
+    return Iterables.transform(enrichmentTypes
+                              , new EnrichmentUtils.TypeToKey( value.coerceValue(String.class)
+                                                             , lookup.getTable()
+                                                             , value.getConfig().getEnrichment()
+                                                             )
+                              );
+  }
+
+  private JSONObject toEnrichment(Iterable<LookupKV<EnrichmentKey, EnrichmentValue>> kvs) {
+    JSONObject enriched = new JSONObject();
+    for (LookupKV<EnrichmentKey, EnrichmentValue> kv : kvs) {
+      if (kv != null && kv.getValue() != null && kv.getValue().getMetadata() != null) {
+        for (Map.Entry<String, Object> values : kv.getValue().getMetadata().entrySet()) {
+          enriched.put(kv.getKey().type + "." + values.getKey(), values.getValue());
+        }
+        LOG.trace("Enriched type {} => {}", () -> kv.getKey().type, ()->enriched);
+      }
+    }
+    return enriched;
+  }
+
+  @Override
+  public synchronized boolean initializeAdapter(Map<String, Object> configuration) {
+    if (configuration != null) {
+      // reinitializing after a failure does not have the global config at hand
+      globalConfig = configuration;
+    }
     String hbaseTable = config.getHBaseTable();
     Configuration hbaseConfig = HBaseConfiguration.create();
+    EnrichmentLookup previous = lookup;
+    EnrichmentLookup created;
     try {
-      lookup = new EnrichmentLookup( config.getProvider().getTable(hbaseConfig, hbaseTable)
-                                   , config.getHBaseCF()
-                                   , new NoopAccessTracker()
-                                   );
+      created = new EnrichmentLookup( config.getProvider().getTable(hbaseConfig, hbaseTable)
+                                    , config.getHBaseCF()
+                                    , new NoopAccessTracker()
+                                    );
     } catch (IOException e) {
       LOG.error("Unable to initialize adapter: {}", e.getMessage(), e);
       return false;
     }
+    try {
+      created.withBatching(globalConfig);
+    } catch (RuntimeException e) {
+      close(created);
+      throw e;
+    }
+    lookup = created;
+    close(previous);
     return true;
   }
 
+  /**
+   * Replaces a lookup that failed, unless another thread has already replaced it.
+   */
+  private synchronized void reinitialize(EnrichmentLookup failed) {
+    if (lookup == failed) {
+      initializeAdapter(null);
+    }
+  }
+
+  private static void close(EnrichmentLookup lookup) {
+    if (lookup != null) {
+      try {
+        lookup.close();
+      } catch (Exception e) {
+        LOG.error("Unable to close lookup", e);
+      }
+    }
+  }
+
   @Override
   public void updateAdapter(Map<String, Object> config) {
   }
@@ -24,6 +24,8 @@ import java.lang.invoke.MethodHandles;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.client.Connection;
@@ -33,6 +35,7 @@ import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
 import org.apache.metron.enrichment.lookup.EnrichmentLookup;
 import org.apache.metron.enrichment.lookup.accesstracker.BloomAccessTracker;
 import org.apache.metron.enrichment.lookup.accesstracker.PersistentAccessTracker;
+import org.apache.metron.enrichment.lookup.handler.KeyWithContext;
 import org.apache.metron.enrichment.utils.EnrichmentUtils;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
@@ -43,6 +46,7 @@ public class ThreatIntelAdapter implements EnrichmentAdapter<CacheKey>,Serializa
   protected ThreatIntelConfig config;
   protected EnrichmentLookup lookup;
   protected Connection connection;
+  protected transient Map<String, Object> globalConfig;
 
   public ThreatIntelAdapter() {
   }
@@ -72,33 +76,15 @@ public class ThreatIntelAdapter implements EnrichmentAdapter<CacheKey>,Serializa
       initializeAdapter(null);
     }
     JSONObject enriched = new JSONObject();
-    List<String> enrichmentTypes = value.getConfig()
-                                        .getThreatIntel().getFieldToTypeMap()
-                                        .get(EnrichmentUtils.toTopLevelField(value.getField()));
+    List<String> enrichmentTypes = getEnrichmentTypes(value);
     if(isInitialized() && enrichmentTypes != null) {
-      int i = 0;
+      EnrichmentLookup current = lookup;
       try {
-        for (Boolean isThreat :
-                lookup.exists(Iterables.transform(enrichmentTypes
-                                                 , new EnrichmentUtils.TypeToKey(value.coerceValue(String.class)
-                                                                                , lookup.getTable()
-                                                                                , value.getConfig().getThreatIntel()
-                                                                                )
-                                                 )
-                             , false
-                             )
-            )
-        {
-          String enrichmentType = enrichmentTypes.get(i++);
-          if (isThreat) {
-            enriched.put(enrichmentType, "alert");
-            LOG.trace("Theat Intel Enriched value => {}", enriched);
-          }
-        }
+        enriched = toEnrichment(enrichmentTypes, current.exists(toKeys(current, value, enrichmentTypes), false));
       }
       catch(IOException e) {
         LOG.error("Unable to retrieve value: {}", e.getMessage(), e);
-        initializeAdapter(null);
+        reinitialize(current);
         throw new RuntimeException("Theat Intel Unable to retrieve value", e);
       }
     }
@@ -106,13 +92,77 @@ public class ThreatIntelAdapter implements EnrichmentAdapter<CacheKey>,Serializa
     return enriched;
   }
 
+  /**
+   * The adapter is asynchronous if HBase lookup batching is enabled, in which case the lookups
+   * are queued and the calling thread is not blocked while they are in flight.
+   */
+  @Override
+  public boolean isAsync() {
+    return isInitialized() && lookup.isAsync();
+  }
+
+  @Override
+  public CompletableFuture<JSONObject> enrichAsync(CacheKey value) {
+    List<String> enrichmentTypes = getEnrichmentTypes(value);
+    if(!isAsync() || enrichmentTypes == null) {
+      return EnrichmentAdapter.super.enrichAsync(value);
+    }
+    EnrichmentLookup current = lookup;
+    return current.existsAsync(toKeys(current, value, enrichmentTypes), false)
+                 .thenApply(isThreat -> toEnrichment(enrichmentTypes, isThreat))
+                 .whenComplete((enriched, t) -> {
+                   if (t != null) {
+                     LOG.error("Unable to retrieve value: {}", t.getMessage(), t);
+                     Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                     if (cause instanceof IOException) {
+                       reinitialize(current);
+                     }
+                   } else {
+                     LOG.trace("Threat Intel Enrichment Success: {}", enriched);
+                   }
+                 });
+  }
+
+  private List<String> getEnrichmentTypes(CacheKey value) {
+    return value.getConfig()
+                .getThreatIntel().getFieldToTypeMap()
+                .get(EnrichmentUtils.toTopLevelField(value.getField()));
+  }
+
+  private Iterable<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> toKeys(EnrichmentLookup lookup, CacheKey value, List<String> enrichmentTypes) {
+    return Iterables.transform(enrichmentTypes
+                              , new EnrichmentUtils.TypeToKey(value.coerceValue(String.class)
+                                                             , lookup.getTable()
+                                                             , value.getConfig().getThreatIntel()
+                                                             )
+                              );
+  }
+
+  private JSONObject toEnrichment(List<String> enrichmentTypes, Iterable<Boolean> isThreats) {
+    JSONObject enriched = new JSONObject();
+    int i = 0;
+    for (Boolean isThreat : isThreats) {
+      String enrichmentType = enrichmentTypes.get(i++);
+      if (isThreat) {
+        enriched.put(enrichmentType, "alert");
+        LOG.trace("Theat Intel Enriched value => {}", enriched);
+      }
+    }
+    return enriched;
+  }
+
   public boolean isInitialized() {
     return lookup != null && lookup.getTable() != null;
   }
 
   @Override
-  public boolean initializeAdapter(Map<String, Object> configuration) {
-    PersistentAccessTracker accessTracker;
+  public synchronized boolean initializeAdapter(Map<String, Object> configuration) {
+    if (configuration != null) {
+      // reinitializing after a failure does not have the global config at hand
+      globalConfig = configuration;
+    }
+    PersistentAccessTracker accessTracker = null;
+    EnrichmentLookup created = null;
     String hbaseTable = config.getHBaseTable();
     int expectedInsertions = config.getExpectedInsertions();
     double falsePositives = config.getFalsePositiveRate();
@@ -121,6 +171,7 @@ public class ThreatIntelAdapter implements EnrichmentAdapter<CacheKey>,Serializa
     long millisecondsBetweenPersist = config.getMillisecondsBetweenPersists();
     BloomAccessTracker bat = new BloomAccessTracker(hbaseTable, expectedInsertions, falsePositives);
     Configuration hbaseConfig = HBaseConfiguration.create();
+    EnrichmentLookup previous = lookup;
     try {
       accessTracker = new PersistentAccessTracker( hbaseTable
               , UUID.randomUUID().toString()
@@ -129,15 +180,57 @@ public class ThreatIntelAdapter implements EnrichmentAdapter<CacheKey>,Serializa
               , bat
               , millisecondsBetweenPersist
       );
-      lookup = new EnrichmentLookup(config.getProvider().getTable(hbaseConfig, hbaseTable), config.getHBaseCF(), accessTracker);
+      created = new EnrichmentLookup(config.getProvider().getTable(hbaseConfig, hbaseTable), config.getHBaseCF(), accessTracker);
+      created.withBatching(globalConfig)
+             .withFilter(globalConfig);
     } catch (IOException e) {
+      discard(created, accessTracker);
       LOG.error("Unable to initialize ThreatIntelAdapter", e);
       return false;
+    } catch (RuntimeException e) {
+      discard(created, accessTracker);
+      throw e;
     }
+    lookup = created;
+    close(previous);
 
     return true;
   }
 
+  /**
+   * Replaces a lookup that failed, unless another thread has already replaced it.
+   */
+  private synchronized void reinitialize(EnrichmentLookup failed) {
+    if (lookup == failed) {
+      initializeAdapter(null);
+    }
+  }
+
+  /**
+   * Releases a lookup that could not be fully configured, or its access tracker if the lookup was never built.
+   */
+  private static void discard(EnrichmentLookup lookup, PersistentAccessTracker accessTracker) {
+    if (lookup != null) {
+      close(lookup);
+    } else if (accessTracker != null) {
+      try {
+        accessTracker.cleanup();
+      } catch (IOException e) {
+        LOG.error("Unable to cleanup access tracker", e);
+      }
+    }
+  }
+
+  private static void close(EnrichmentLookup lookup) {
+    if (lookup != null) {
+      try {
+        lookup.close();
+      } catch (Exception e) {
+        LOG.error("Unable to close lookup", e);
+      }
+    }
+  }
+
   @Override
   public void updateAdapter(Map<String, Object> config) {
   }
@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed amount of memory outside of the heap, divided into blocks of equal size.
+ *
+ * <p>The memory is allocated as a few large direct buffers, called slabs, which are created as
+ * they are first needed and never released.  Values are written to one or more blocks, which
+ * need not be contiguous, and the blocks are returned to the arena as soon as the value is freed.
+ * This avoids allocating a direct buffer for each value, which the JVM only releases when the
+ * buffer is garbage collected.
+ */
+class OffHeapArena {
+
+  /**
+   * The default number of bytes in each block.
+   */
+  static final int BLOCK_SIZE_DEFAULT = 256;
+
+  /**
+   * The maximum number of bytes in each slab.
+   */
+  private static final int MAX_SLAB_BYTES = 1 << 30;
+
+  private final int blockSize;
+  private final int blocksPerSlab;
+  private final int maxBlocks;
+  private final ByteBuffer[] slabs;
+
+  /**
+   * The blocks that have been freed.
+   */
+  private final int[] freeBlocks;
+  private int freeCount;
+
+  /**
+   * The first block that has never been allocated.
+   */
+  private int nextBlock;
+
+  /**
+   * @param maxBytes The maximum number of bytes in the arena.
+   * @param blockSize The number of bytes in each block.
+   */
+  OffHeapArena(long maxBytes, int blockSize) {
+    if(blockSize <= 0 || maxBytes < blockSize) {
+      throw new IllegalArgumentException(String.format("Invalid arena; maxBytes=%d, blockSize=%d", maxBytes, blockSize));
+    }
+    this.blockSize = blockSize;
+    this.blocksPerSlab = MAX_SLAB_BYTES / blockSize;
+    this.maxBlocks = (int) Math.min(Integer.MAX_VALUE, maxBytes / blockSize);
+    this.slabs = new ByteBuffer[(maxBlocks + blocksPerSlab - 1) / blocksPerSlab];
+    this.freeBlocks = new int[maxBlocks];
+    this.freeCount = 0;
+    this.nextBlock = 0;
+  }
+
+  /**
+   * Allocates the blocks needed to store a value.
+   *
+   * @param length The length of the value in bytes.
+   * @return The blocks or null, if there are not enough free blocks.
+   */
+  synchronized int[] allocate(int length) {
+    int count = Math.max(1, (length + blockSize - 1) / blockSize);
+    if(count > freeCount + (maxBlocks - nextBlock)) {
+      return null;
+    }
+    int[] blocks = new int[count];
+    for(int i = 0; i < count; i++) {
+      if(freeCount > 0) {
+        blocks[i] = freeBlocks[--freeCount];
+      } else {
+        int slab = nextBlock / blocksPerSlab;
+        if(slabs[slab] == null) {
+          int slabBlocks = Math.min(blocksPerSlab, maxBlocks - slab * blocksPerSlab);
+          slabs[slab] = ByteBuffer.allocateDirect(slabBlocks * blockSize);
+        }
+        blocks[i] = nextBlock++;
+      }
+    }
+    return blocks;
+  }
+
+  /**
+   * Returns blocks to the arena.  The blocks must not be read or written afterwards.
+   *
+   * @param blocks The blocks allocated for a value.
+   */
+  synchronized void free(int[] blocks) {
+    for(int block : blocks) {
+      freeBlocks[freeCount++] = block;
+    }
+  }
+
+  /**
+   * Writes a value to the blocks allocated for it.
+   */
+  void write(int[] blocks, byte[] value) {
+    int offset = 0;
+    for(int block : blocks) {
+      int length = Math.min(blockSize, value.length - offset);
+      if(length <= 0) {
+        break;
+      }
+      slice(block).put(value, offset, length);
+      offset += length;
+    }
+  }
+
+  /**
+   * Reads a value from the blocks allocated for it.
+   *
+   * @param length The length of the value in bytes.
+   */
+  byte[] read(int[] blocks, int length) {
+    byte[] value = new byte[length];
+    int offset = 0;
+    for(int block : blocks) {
+      int count = Math.min(blockSize, length - offset);
+      if(count <= 0) {
+        break;
+      }
+      slice(block).get(value, offset, count);
+      offset += count;
+    }
+    return value;
+  }
+
+  /**
+   * @return The number of bytes in the blocks that are allocated.
+   */
+  synchronized long getUsedBytes() {
+    return (long) (nextBlock - freeCount) * blockSize;
+  }
+
+  /**
+   * @return The number of bytes in the slabs that have been created.
+   */
+  synchronized long getReservedBytes() {
+    long bytes = 0;
+    for(ByteBuffer slab : slabs) {
+      bytes += slab == null ? 0 : slab.capacity();
+    }
+    return bytes;
+  }
+
+  int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * @return A buffer positioned at the start of a block.
+   */
+  private ByteBuffer slice(int block) {
+    // the slab was created when the block was allocated, which happened before the value was shared
+    ByteBuffer buffer = slabs[block / blocksPerSlab].duplicate();
+    buffer.position((block % blocksPerSlab) * blockSize);
+    return buffer;
+  }
+}
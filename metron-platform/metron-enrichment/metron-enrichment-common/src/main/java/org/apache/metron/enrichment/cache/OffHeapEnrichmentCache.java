@@ -0,0 +1,348 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.cache;
+
+import static org.apache.metron.common.Constants.STELLAR_CONTEXT_CONF;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
+import org.apache.metron.common.utils.HashUtils;
+import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.common.utils.SerDeUtils;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A second level cache of enrichment results, stored outside of the heap in serialized form.
+ *
+ * <p>The on-heap cache of each enrichment strategy holds a limited number of enrichments as
+ * objects.  This cache is larger, is limited by the number of bytes it uses rather than the number
+ * of enrichments, and is shared by all of the enrichment strategies and bolts in a worker.  Each
+ * enrichment is serialized with Kryo, so that its values keep their types, and stored in an
+ * {@link OffHeapArena}; only the index of the cache is kept on the heap.  Which enrichments are
+ * admitted and evicted is decided by the W-TinyLFU policy of Caffeine, so that rarely used
+ * enrichments do not displace frequently used ones.  The memory of an enrichment is returned to
+ * the arena as soon as it is evicted and no longer being read.
+ *
+ * <p>How long an enrichment is retained can be set for each type of enrichment.  An enrichment
+ * type with a time to retain of 0 is not cached here.
+ *
+ * <p>An enrichment is identified by its type, the field and value enriched, and a SHA-256 digest
+ * of the sensor enrichment configuration, since the configuration itself is not stored.  The
+ * digest is computed once for each configuration object.  The Stellar context is left out of the
+ * digest so that bolts with the same configuration share enrichments, and a changed configuration
+ * never reads the enrichments of the old one.
+ */
+public class OffHeapEnrichmentCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * Serializes configurations with the keys of each map in order, so that equal configurations
+   * have equal digests.
+   */
+  private static final ObjectMapper DIGEST_MAPPER = JSONUtils.INSTANCE.getMapper().copy()
+          .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+  /**
+   * An enrichment stored in the arena.
+   *
+   * <p>The blocks are freed once the entry has been removed from the cache and is no longer being
+   * read.  The cache holds one reference and each read holds another.
+   */
+  private class Entry {
+    private final int[] blocks;
+    private final int length;
+    private final long timeToRetainNanos;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    Entry(int[] blocks, int length, long timeToRetainNanos) {
+      this.blocks = blocks;
+      this.length = length;
+      this.timeToRetainNanos = timeToRetainNanos;
+    }
+
+    /**
+     * @return The serialized enrichment, or null if the entry has already been freed.
+     */
+    byte[] read() {
+      int count;
+      do {
+        count = references.get();
+        if(count <= 0) {
+          return null;
+        }
+      } while(!references.compareAndSet(count, count + 1));
+      try {
+        return arena.read(blocks, length);
+      } finally {
+        release();
+      }
+    }
+
+    void release() {
+      if(references.decrementAndGet() == 0) {
+        arena.free(blocks);
+      }
+    }
+  }
+
+  private final OffHeapArena arena;
+  private final Cache<String, Entry> cache;
+
+  /**
+   * The digest of each sensor enrichment configuration, keyed by the identity of the configuration.
+   */
+  private final Cache<SensorEnrichmentConfig, String> digests;
+
+  /**
+   * The digest of the global configuration last seen.
+   */
+  private String globalConfigDigest;
+
+  /**
+   * The number of enrichments that were not cached because the arena was full or they could not
+   * be serialized.
+   */
+  private final LongAdder rejected = new LongAdder();
+
+  /**
+   * The time to retain an enrichment of each type, in minutes.
+   */
+  private final Map<String, Long> timeToRetain;
+  private final long defaultTimeToRetain;
+  private final long maxBytes;
+
+  /**
+   * @param maxBytes The maximum number of bytes used by the cached enrichments.
+   * @param defaultTimeToRetain The time to retain an enrichment after it is written, in minutes.
+   * @param timeToRetain The time to retain each type of enrichment, in minutes, if different from the default.
+   */
+  public OffHeapEnrichmentCache( long maxBytes
+                               , long defaultTimeToRetain
+                               , Map<String, Long> timeToRetain
+                               ) {
+    this.maxBytes = maxBytes;
+    this.defaultTimeToRetain = defaultTimeToRetain;
+    this.timeToRetain = timeToRetain == null ? new HashMap<>() : new HashMap<>(timeToRetain);
+    this.arena = new OffHeapArena(maxBytes, OffHeapArena.BLOCK_SIZE_DEFAULT);
+    this.digests = Caffeine.newBuilder().weakKeys().build();
+    this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((String key, Entry entry) -> entry.blocks.length * arena.getBlockSize())
+            .expireAfter(new Expiry<String, Entry>() {
+              @Override
+              public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                return entry.timeToRetainNanos;
+              }
+
+              @Override
+              public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                return entry.timeToRetainNanos;
+              }
+
+              @Override
+              public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                return currentDuration;
+              }
+            })
+            // maintenance runs on the calling thread, so that evicted entries are freed before the next allocation
+            .executor(Runnable::run)
+            .removalListener((String key, Entry entry, RemovalCause cause) -> {
+              if(entry != null) {
+                entry.release();
+              }
+            })
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Returns a cached enrichment.
+   *
+   * @param type The type of enrichment.
+   * @param key The field and value enriched.
+   * @return The enrichment, if it is cached.
+   */
+  public Optional<JSONObject> get(String type, CacheKey key) {
+    if(getTimeToRetain(type) <= 0) {
+      return Optional.empty();
+    }
+    Entry entry = cache.getIfPresent(toKey(type, key));
+    byte[] bytes = entry == null ? null : entry.read();
+    if(bytes == null) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(SerDeUtils.fromBytes(bytes, JSONObject.class));
+    } catch(RuntimeException e) {
+      LOG.error("Unable to read cached enrichment; type={}, key={}", type, key, e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Caches an enrichment.
+   *
+   * @param type The type of enrichment.
+   * @param key The field and value enriched.
+   * @param enrichment The enrichment.
+   */
+  public void put(String type, CacheKey key, JSONObject enrichment) {
+    long minutes = getTimeToRetain(type);
+    if(minutes <= 0 || enrichment == null) {
+      return;
+    }
+
+    byte[] bytes;
+    try {
+      bytes = SerDeUtils.toBytes(enrichment);
+    } catch(RuntimeException e) {
+      LOG.debug("Unable to cache enrichment; type={}, key={}", type, key, e);
+      rejected.increment();
+      return;
+    }
+
+    int[] blocks = arena.allocate(bytes.length);
+    if(blocks == null) {
+      // evictions may be pending
+      cache.cleanUp();
+      blocks = arena.allocate(bytes.length);
+    }
+    if(blocks == null) {
+      rejected.increment();
+      return;
+    }
+    arena.write(blocks, bytes);
+    cache.put(toKey(type, key), new Entry(blocks, bytes.length, TimeUnit.MINUTES.toNanos(minutes)));
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Invalidates all of the cached enrichments when the global configuration changes, since the
+   * global configuration can change how enrichments are made.  Each bolt sharing the cache calls
+   * this on each change, but the enrichments are only invalidated once.
+   *
+   * @param globalConfig The global configuration.
+   */
+  public synchronized void onGlobalConfigUpdate(Map<String, Object> globalConfig) {
+    String digest = digest(globalConfig);
+    if(globalConfigDigest != null && !globalConfigDigest.equals(digest)) {
+      LOG.info("Global configuration changed, invalidating off-heap cache");
+      cache.invalidateAll();
+    }
+    globalConfigDigest = digest;
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  /**
+   * @return The number of bytes used by the cached enrichments.
+   */
+  public long getWeightedSize() {
+    return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public long getDefaultTimeToRetain() {
+    return defaultTimeToRetain;
+  }
+
+  public Map<String, Long> getTimeToRetain() {
+    return timeToRetain;
+  }
+
+  /**
+   * @return The metrics of the cache; the number of hits, misses, evictions and rejected
+   * enrichments, the number of cached enrichments, the number of bytes they use and the number of
+   * bytes reserved outside of the heap.
+   */
+  public Map<String, Object> getMetrics() {
+    CacheStats stats = cache.stats();
+    Map<String, Object> metrics = new HashMap<>();
+    metrics.put("hitCount", stats.hitCount());
+    metrics.put("missCount", stats.missCount());
+    metrics.put("evictionCount", stats.evictionCount());
+    metrics.put("rejectedCount", rejected.sum());
+    metrics.put("size", cache.estimatedSize());
+    metrics.put("bytes", arena.getUsedBytes());
+    metrics.put("reservedBytes", arena.getReservedBytes());
+    return metrics;
+  }
+
+  private long getTimeToRetain(String type) {
+    return timeToRetain.getOrDefault(type, defaultTimeToRetain);
+  }
+
+  private String toKey(String type, CacheKey key) {
+    String configDigest = key.getConfig() == null ? "" : digests.get(key.getConfig(), OffHeapEnrichmentCache::digest);
+    return type + '\0' + key.getField() + '\0' + configDigest + '\0' + JSONValue.toJSONString(key.getValue());
+  }
+
+  /**
+   * Digests the configuration without the Stellar context, which is different in each bolt.
+   */
+  private static String digest(SensorEnrichmentConfig config) {
+    Map<String, Object> configuration = new LinkedHashMap<>();
+    if(config.getConfiguration() != null) {
+      configuration.putAll(config.getConfiguration());
+      configuration.remove(STELLAR_CONTEXT_CONF);
+    }
+    Map<String, Object> digested = new LinkedHashMap<>();
+    digested.put("enrichment", config.getEnrichment());
+    digested.put("threatIntel", config.getThreatIntel());
+    digested.put("configuration", configuration);
+    return digest(digested);
+  }
+
+  private static String digest(Map<String, Object> value) {
+    try {
+      return HashUtils.getMessageHash(DIGEST_MAPPER.writeValueAsBytes(value));
+    } catch(Exception e) {
+      // a digest that matches no other, so that nothing is shared
+      LOG.debug("Unable to digest configuration, enrichments will not be shared", e);
+      return UUID.randomUUID().toString();
+    }
+  }
+}
@@ -21,6 +21,7 @@ package org.apache.metron.enrichment.interfaces;
 import org.json.simple.JSONObject;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface EnrichmentAdapter<T>
 {
@@ -33,4 +34,28 @@ public interface EnrichmentAdapter<T>
 	default String getStreamSubGroup(String enrichmentType, String field) {
 		return "";
 	}
+
+	/**
+	 * Whether the adapter can enrich without blocking the calling thread.  If so,
+	 * {@link #enrichAsync(Object)} is used in place of {@link #enrich(Object)}.
+	 */
+	default boolean isAsync() {
+		return false;
+	}
+
+	/**
+	 * Enriches without blocking the calling thread.  Adapters which are not asynchronous
+	 * enrich on the calling thread.
+	 * @param value The value to enrich
+	 * @return The enrichment, once available
+	 */
+	default CompletableFuture<JSONObject> enrichAsync(T value) {
+		CompletableFuture<JSONObject> ret = new CompletableFuture<>();
+		try {
+			ret.complete(enrich(value));
+		} catch (Throwable t) {
+			ret.completeExceptionally(t);
+		}
+		return ret;
+	}
 }
@@ -0,0 +1,402 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.lookup;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.metron.enrichment.converter.EnrichmentKey;
+import org.apache.metron.enrichment.converter.EnrichmentValue;
+import org.apache.metron.enrichment.lookup.handler.AsyncHandler;
+import org.apache.metron.enrichment.lookup.handler.Handler;
+import org.apache.metron.enrichment.lookup.handler.KeyWithContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A handler that coalesces the lookups made by concurrent callers into batched multi-gets.
+ *
+ * <p>Each lookup is queued and the caller waits upon its result.  A single background thread collects
+ * lookups until either the maximum batch size is reached or the maximum wait has elapsed since the first
+ * lookup of the batch arrived.  Identical keys within a batch are fetched once and the result is shared
+ * by every caller that asked for it.
+ *
+ * <p>Each batch is executed on a small pool of lookup threads, so that up to the maximum number of batches
+ * are in flight at once.  While that many are in flight, lookups continue to queue and are sent in the
+ * next batch once one completes.
+ *
+ * <p>Callers may also queue lookups without waiting, via {@link #getAsync(Iterable, boolean)} and
+ * {@link #existsAsync(Iterable, boolean)}.  Those futures are completed on the lookup threads, so callers
+ * should do any further work on their own executor.
+ */
+public class CoalescingHandler implements AsyncHandler<EnrichmentLookup.HBaseContext, EnrichmentKey, LookupKV<EnrichmentKey, EnrichmentValue>> {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * The maximum number of lookups sent in a single batch.
+   */
+  public static final String BATCH_SIZE_CONF = "enrichment.lookup.batchSize";
+
+  /**
+   * The maximum number of milliseconds a lookup waits for others to join its batch.
+   */
+  public static final String BATCH_WAIT_CONF = "enrichment.lookup.batchWaitMs";
+  public static final long BATCH_WAIT_DEFAULT = 5;
+
+  /**
+   * The maximum number of batches in flight at once.
+   */
+  public static final String MAX_IN_FLIGHT_CONF = "enrichment.lookup.maxInFlight";
+  public static final int MAX_IN_FLIGHT_DEFAULT = 4;
+
+  private static final long POLL_MS = 100;
+
+  private final Handler<EnrichmentLookup.HBaseContext, EnrichmentKey, LookupKV<EnrichmentKey, EnrichmentValue>> delegate;
+  private final int maxBatchSize;
+  private final long maxWaitNanos;
+  private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+  private final Thread batcher;
+
+  /**
+   * Executes the batches.  The number of batches submitted is bounded by the permits of {@link #inFlight}.
+   */
+  private final ExecutorService executor;
+  private final Semaphore inFlight;
+  private volatile boolean closed = false;
+
+  public CoalescingHandler( Handler<EnrichmentLookup.HBaseContext, EnrichmentKey, LookupKV<EnrichmentKey, EnrichmentValue>> delegate
+                          , int maxBatchSize
+                          , long maxWaitMillis
+                          )
+  {
+    this(delegate, maxBatchSize, maxWaitMillis, MAX_IN_FLIGHT_DEFAULT);
+  }
+
+  public CoalescingHandler( Handler<EnrichmentLookup.HBaseContext, EnrichmentKey, LookupKV<EnrichmentKey, EnrichmentValue>> delegate
+                          , int maxBatchSize
+                          , long maxWaitMillis
+                          , int maxInFlight
+                          )
+  {
+    this.delegate = delegate;
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMillis));
+    this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+    this.executor = Executors.newFixedThreadPool(Math.max(1, maxInFlight),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("enrichment-lookup-%d").build());
+    this.batcher = new Thread(this::run, "enrichment-lookup-batcher");
+    this.batcher.setDaemon(true);
+    this.batcher.start();
+  }
+
+  private static class Request {
+    final KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext> key;
+    final boolean exists;
+    final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    Request(KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext> key, boolean exists) {
+      this.key = key;
+      this.exists = exists;
+    }
+
+    Object dedupeKey() {
+      return new DedupeKey(key.getKey(), key.getContext() == null ? null : key.getContext().getColumnFamily(), exists);
+    }
+  }
+
+  private static class DedupeKey {
+    final EnrichmentKey key;
+    final String columnFamily;
+    final boolean exists;
+
+    DedupeKey(EnrichmentKey key, String columnFamily, boolean exists) {
+      this.key = key;
+      this.columnFamily = columnFamily;
+      this.exists = exists;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      DedupeKey that = (DedupeKey) o;
+      return exists == that.exists
+              && Objects.equals(key, that.key)
+              && Objects.equals(columnFamily, that.columnFamily);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(key, columnFamily, exists);
+    }
+  }
+
+  @Override
+  public boolean exists(EnrichmentKey key, EnrichmentLookup.HBaseContext context, boolean logAccess) throws IOException {
+    return (Boolean) await(Collections.singletonList(submit(new KeyWithContext<>(key, context), true))).get(0);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public LookupKV<EnrichmentKey, EnrichmentValue> get(EnrichmentKey key, EnrichmentLookup.HBaseContext context, boolean logAccess) throws IOException {
+    return (LookupKV<EnrichmentKey, EnrichmentValue>) await(Collections.singletonList(submit(new KeyWithContext<>(key, context), false))).get(0);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Iterable<Boolean> exists(Iterable<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys, boolean logAccess) throws IOException {
+    List<Request> requests = new ArrayList<>();
+    for (KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext> key : keys) {
+      requests.add(submit(key, true));
+    }
+    return (List<Boolean>) (List<?>) await(requests);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Iterable<LookupKV<EnrichmentKey, EnrichmentValue>> get(Iterable<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys, boolean logAccess) throws IOException {
+    List<Request> requests = new ArrayList<>();
+    for (KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext> key : keys) {
+      requests.add(submit(key, false));
+    }
+    return (List<LookupKV<EnrichmentKey, EnrichmentValue>>) (List<?>) await(requests);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public CompletableFuture<List<Boolean>> existsAsync(Iterable<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys, boolean logAccess) {
+    return (CompletableFuture<List<Boolean>>) (CompletableFuture<?>) submitAll(keys, true);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public CompletableFuture<List<LookupKV<EnrichmentKey, EnrichmentValue>>> getAsync(Iterable<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys, boolean logAccess) {
+    return (CompletableFuture<List<LookupKV<EnrichmentKey, EnrichmentValue>>>) (CompletableFuture<?>) submitAll(keys, false);
+  }
+
+  private CompletableFuture<List<Object>> submitAll(Iterable<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys, boolean exists) {
+    List<CompletableFuture<Object>> results = new ArrayList<>();
+    try {
+      for (KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext> key : keys) {
+        results.add(submit(key, exists).result);
+      }
+    } catch (IOException e) {
+      CompletableFuture<List<Object>> ret = new CompletableFuture<>();
+      ret.completeExceptionally(e);
+      return ret;
+    }
+    return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                            .thenApply(v -> {
+                              List<Object> ret = new ArrayList<>(results.size());
+                              for (CompletableFuture<Object> result : results) {
+                                ret.add(result.join());
+                              }
+                              return ret;
+                            });
+  }
+
+  private Request submit(KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext> key, boolean exists) throws IOException {
+    if (closed) {
+      throw new IOException("Lookup has been closed");
+    }
+    Request request = new Request(key, exists);
+    queue.add(request);
+    if (closed) {
+      // closed while queueing, so the batcher may never see the request
+      failPending(new IOException("Lookup has been closed"));
+    }
+    return request;
+  }
+
+  private static List<Object> await(List<Request> requests) throws IOException {
+    List<Object> ret = new ArrayList<>(requests.size());
+    try {
+      for (Request request : requests) {
+        ret.add(request.result.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for lookup", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Unable to complete lookup: " + e.getCause().getMessage(), e.getCause());
+    }
+    return ret;
+  }
+
+  private void run() {
+    List<Request> batch = new ArrayList<>(maxBatchSize);
+    boolean acquired = false;
+    while (!closed) {
+      try {
+        // wait for a batch to complete before collecting the next, so lookups keep queueing meanwhile
+        if (!acquired && !(acquired = inFlight.tryAcquire(POLL_MS, TimeUnit.MILLISECONDS))) {
+          continue;
+        }
+        Request first = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatchSize) {
+          long remaining = deadline - System.nanoTime();
+          Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        dispatch(new ArrayList<>(batch));
+        acquired = false;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (Throwable t) {
+        LOG.error("Unable to execute batched lookup: {}", t.getMessage(), t);
+        fail(batch, t);
+      } finally {
+        batch.clear();
+      }
+    }
+    failPending(new IOException("Lookup has been closed"));
+  }
+
+  /**
+   * Executes a batch on the pool of lookup threads.  The permit acquired for the batch is released once
+   * it completes.
+   */
+  private void dispatch(List<Request> batch) {
+    try {
+      executor.execute(() -> {
+        try {
+          execute(batch);
+        } catch (Throwable t) {
+          LOG.error("Unable to execute batched lookup: {}", t.getMessage(), t);
+          fail(batch, t);
+        } finally {
+          inFlight.release();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      inFlight.release();
+      fail(batch, new IOException("Lookup has been closed", e));
+    }
+  }
+
+  private static void fail(List<Request> batch, Throwable t) {
+    for (Request request : batch) {
+      request.result.completeExceptionally(t);
+    }
+  }
+
+  /**
+   * Executes a batch of lookups, issuing one multi-get and one multi-exists per table.
+   */
+  private void execute(List<Request> batch) {
+    Map<Table, Map<Object, List<Request>>> byTable = new IdentityHashMap<>();
+    for (Request request : batch) {
+      Table table = request.key.getContext() == null ? null : request.key.getContext().getTable();
+      byTable.computeIfAbsent(table, t -> new LinkedHashMap<>())
+             .computeIfAbsent(request.dedupeKey(), k -> new ArrayList<>())
+             .add(request);
+    }
+    LOG.debug("Executing {} lookups as {} distinct lookups", batch.size(), byTable.values().stream().mapToInt(Map::size).sum());
+    for (Map<Object, List<Request>> lookups : byTable.values()) {
+      List<List<Request>> gets = new ArrayList<>();
+      List<List<Request>> exists = new ArrayList<>();
+      for (List<Request> requests : lookups.values()) {
+        if (requests.get(0).exists) {
+          exists.add(requests);
+        } else {
+          gets.add(requests);
+        }
+      }
+      try {
+        if (!gets.isEmpty()) {
+          complete(gets, delegate.get(keys(gets), false));
+        }
+        if (!exists.isEmpty()) {
+          complete(exists, delegate.exists(keys(exists), false));
+        }
+      } catch (IOException | RuntimeException e) {
+        for (List<Request> requests : lookups.values()) {
+          for (Request request : requests) {
+            request.result.completeExceptionally(e);
+          }
+        }
+      }
+    }
+  }
+
+  private static List<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys(List<List<Request>> lookups) {
+    List<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> ret = new ArrayList<>(lookups.size());
+    for (List<Request> requests : lookups) {
+      ret.add(requests.get(0).key);
+    }
+    return ret;
+  }
+
+  private static void complete(List<List<Request>> lookups, Iterable<?> results) {
+    Iterator<?> it = results.iterator();
+    for (List<Request> requests : lookups) {
+      Object result = it.next();
+      for (Request request : requests) {
+        request.result.complete(result);
+      }
+    }
+  }
+
+  private void failPending(IOException e) {
+    Request request;
+    while ((request = queue.poll()) != null) {
+      request.result.completeExceptionally(e);
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    closed = true;
+    batcher.interrupt();
+    batcher.join(TimeUnit.SECONDS.toMillis(1));
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.SECONDS);
+    failPending(new IOException("Lookup has been closed"));
+    delegate.close();
+  }
+}
@@ -18,6 +18,8 @@
 package org.apache.metron.enrichment.lookup;
 
 import com.google.common.collect.Iterables;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.client.Result;
@@ -26,6 +28,8 @@ import org.apache.metron.enrichment.converter.EnrichmentConverter;
 import org.apache.metron.enrichment.converter.EnrichmentKey;
 import org.apache.metron.enrichment.converter.EnrichmentValue;
 import org.apache.metron.enrichment.lookup.accesstracker.AccessTracker;
+import org.apache.metron.enrichment.lookup.filter.FilteringHandler;
+import org.apache.metron.enrichment.lookup.filter.MembershipFilter;
 import org.apache.metron.enrichment.lookup.handler.KeyWithContext;
 
 import java.io.IOException;
@@ -33,6 +37,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import org.apache.metron.stellar.common.utils.ConversionUtils;
 
 
 public class EnrichmentLookup extends Lookup<EnrichmentLookup.HBaseContext, EnrichmentKey, LookupKV<EnrichmentKey,EnrichmentValue>> implements AutoCloseable {
@@ -122,6 +128,57 @@ public class EnrichmentLookup extends Lookup<EnrichmentLookup.HBaseContext, Enri
     this.setAccessTracker(tracker);
   }
 
+  /**
+   * Coalesces the lookups of concurrent callers into batched multi-gets, if enabled in the global config
+   * by setting {@link CoalescingHandler#BATCH_SIZE_CONF} to more than 1.
+   *
+   * @param globalConfig The global config.
+   * @return This lookup.
+   */
+  public EnrichmentLookup withBatching(Map<String, Object> globalConfig) {
+    if (globalConfig == null || getLookupHandler() instanceof CoalescingHandler) {
+      return this;
+    }
+    Integer maxBatchSize = ConversionUtils.convert(globalConfig.getOrDefault(CoalescingHandler.BATCH_SIZE_CONF, 1), Integer.class);
+    Long maxWaitMillis = ConversionUtils.convert(globalConfig.getOrDefault(CoalescingHandler.BATCH_WAIT_CONF, CoalescingHandler.BATCH_WAIT_DEFAULT), Long.class);
+    Integer maxInFlight = ConversionUtils.convert(globalConfig.getOrDefault(CoalescingHandler.MAX_IN_FLIGHT_CONF, CoalescingHandler.MAX_IN_FLIGHT_DEFAULT), Integer.class);
+    if (maxBatchSize != null && maxBatchSize > 1) {
+      setLookupHandler(new CoalescingHandler( getLookupHandler()
+                                            , maxBatchSize
+                                            , maxWaitMillis == null ? CoalescingHandler.BATCH_WAIT_DEFAULT : maxWaitMillis
+                                            , maxInFlight == null ? CoalescingHandler.MAX_IN_FLIGHT_DEFAULT : maxInFlight
+                                            )
+                      );
+    }
+    return this;
+  }
+
+  /**
+   * Skips the lookup of keys that the table's published membership filter says are definitely absent,
+   * if {@link MembershipFilter#FILTER_DIR_CONF} is set in the global config.  The filter is loaded before this
+   * returns and is then kept up to date in the background.  It is shared with the other lookups of the table.
+   *
+   * @param globalConfig The global config.
+   * @return This lookup.
+   * @throws IOException If the file system holding the filters is unavailable.
+   */
+  public EnrichmentLookup withFilter(Map<String, Object> globalConfig) throws IOException {
+    if (globalConfig == null
+            || globalConfig.get(MembershipFilter.FILTER_DIR_CONF) == null
+            || getLookupHandler() instanceof FilteringHandler) {
+      return this;
+    }
+    String filterDir = globalConfig.get(MembershipFilter.FILTER_DIR_CONF).toString();
+    Long refreshMillis = ConversionUtils.convert(globalConfig.getOrDefault(MembershipFilter.REFRESH_CONF, MembershipFilter.REFRESH_DEFAULT), Long.class);
+    MembershipFilter filter = MembershipFilter.acquire( FileSystem.get(new Configuration())
+                                                      , filterDir
+                                                      , table.getName().getNameAsString()
+                                                      , refreshMillis == null ? MembershipFilter.REFRESH_DEFAULT : refreshMillis
+                                                      );
+    setLookupHandler(new FilteringHandler<>(getLookupHandler(), filter));
+    return this;
+  }
+
   public Table getTable() {
     return table;
   }
@@ -18,10 +18,13 @@
 package org.apache.metron.enrichment.lookup;
 
 import org.apache.metron.enrichment.lookup.accesstracker.AccessTracker;
+import org.apache.metron.enrichment.lookup.handler.AsyncHandler;
 import org.apache.metron.enrichment.lookup.handler.Handler;
 import org.apache.metron.enrichment.lookup.handler.KeyWithContext;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class Lookup<CONTEXT_T, KEY_T extends LookupKey, RESULT_T> implements Handler<CONTEXT_T, KEY_T, RESULT_T> {
   private String name;
@@ -89,6 +92,37 @@ public class Lookup<CONTEXT_T, KEY_T extends LookupKey, RESULT_T> implements Han
     return lookupHandler.get(key, logAccess);
   }
 
+  /**
+   * @return Whether lookups can be performed without blocking the caller.
+   */
+  public boolean isAsync() {
+    return AsyncHandler.isAsync(lookupHandler);
+  }
+
+  /**
+   * Checks for the keys without blocking the caller, if the lookup is asynchronous.
+   */
+  public CompletableFuture<List<Boolean>> existsAsync(Iterable<KeyWithContext<KEY_T, CONTEXT_T>> key, boolean logAccess) {
+    if(logAccess) {
+      for (KeyWithContext<KEY_T, CONTEXT_T> k : key) {
+        accessTracker.logAccess(k.getKey());
+      }
+    }
+    return AsyncHandler.existsAsync(lookupHandler, key, logAccess);
+  }
+
+  /**
+   * Gets the keys without blocking the caller, if the lookup is asynchronous.
+   */
+  public CompletableFuture<List<RESULT_T>> getAsync(Iterable<KeyWithContext<KEY_T, CONTEXT_T>> key, boolean logAccess) {
+    if(logAccess) {
+      for (KeyWithContext<KEY_T, CONTEXT_T> k : key) {
+        accessTracker.logAccess(k.getKey());
+      }
+    }
+    return AsyncHandler.getAsync(lookupHandler, key, logAccess);
+  }
+
   @Override
   public void close() throws Exception {
     accessTracker.cleanup();
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.lookup.filter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.metron.enrichment.lookup.LookupKey;
+import org.apache.metron.enrichment.lookup.handler.AsyncHandler;
+import org.apache.metron.enrichment.lookup.handler.Handler;
+import org.apache.metron.enrichment.lookup.handler.KeyWithContext;
+
+/**
+ * A handler that skips the lookup of any key that the table's {@link MembershipFilter} says is
+ * definitely absent.  Those keys do not exist and have no value.  Asynchronous lookups are
+ * asynchronous only if the delegate is.
+ */
+public class FilteringHandler<CONTEXT_T, KEY_T extends LookupKey, RESULT_T> implements AsyncHandler<CONTEXT_T, KEY_T, RESULT_T> {
+  private final Handler<CONTEXT_T, KEY_T, RESULT_T> delegate;
+  private final MembershipFilter filter;
+
+  public FilteringHandler(Handler<CONTEXT_T, KEY_T, RESULT_T> delegate, MembershipFilter filter) {
+    this.delegate = delegate;
+    this.filter = filter;
+  }
+
+  public MembershipFilter getFilter() {
+    return filter;
+  }
+
+  @Override
+  public boolean exists(KEY_T key, CONTEXT_T context, boolean logAccess) throws IOException {
+    return filter.mightContain(key) && delegate.exists(key, context, logAccess);
+  }
+
+  @Override
+  public RESULT_T get(KEY_T key, CONTEXT_T context, boolean logAccess) throws IOException {
+    return filter.mightContain(key) ? delegate.get(key, context, logAccess) : null;
+  }
+
+  @Override
+  public Iterable<Boolean> exists(Iterable<KeyWithContext<KEY_T, CONTEXT_T>> keys, boolean logAccess) throws IOException {
+    List<Boolean> mightContain = new ArrayList<>();
+    List<KeyWithContext<KEY_T, CONTEXT_T>> candidates = candidates(keys, mightContain);
+    List<Boolean> ret = new ArrayList<>(mightContain.size());
+    Iterator<Boolean> results = candidates.isEmpty() ? null : delegate.exists(candidates, logAccess).iterator();
+    for (boolean candidate : mightContain) {
+      ret.add(candidate && results.next());
+    }
+    return ret;
+  }
+
+  @Override
+  public Iterable<RESULT_T> get(Iterable<KeyWithContext<KEY_T, CONTEXT_T>> keys, boolean logAccess) throws IOException {
+    List<Boolean> mightContain = new ArrayList<>();
+    List<KeyWithContext<KEY_T, CONTEXT_T>> candidates = candidates(keys, mightContain);
+    List<RESULT_T> ret = new ArrayList<>(mightContain.size());
+    Iterator<RESULT_T> results = candidates.isEmpty() ? null : delegate.get(candidates, logAccess).iterator();
+    for (boolean candidate : mightContain) {
+      ret.add(candidate ? results.next() : null);
+    }
+    return ret;
+  }
+
+  @Override
+  public boolean isAsync() {
+    return AsyncHandler.isAsync(delegate);
+  }
+
+  @Override
+  public CompletableFuture<List<Boolean>> existsAsync(Iterable<KeyWithContext<KEY_T, CONTEXT_T>> keys, boolean logAccess) {
+    List<Boolean> mightContain = new ArrayList<>();
+    List<KeyWithContext<KEY_T, CONTEXT_T>> candidates = candidates(keys, mightContain);
+    CompletableFuture<List<Boolean>> results = candidates.isEmpty()
+            ? CompletableFuture.completedFuture(new ArrayList<>())
+            : AsyncHandler.existsAsync(delegate, candidates, logAccess);
+    return results.thenApply(found -> {
+      Iterator<Boolean> it = found.iterator();
+      List<Boolean> ret = new ArrayList<>(mightContain.size());
+      for (boolean candidate : mightContain) {
+        ret.add(candidate && it.next());
+      }
+      return ret;
+    });
+  }
+
+  @Override
+  public CompletableFuture<List<RESULT_T>> getAsync(Iterable<KeyWithContext<KEY_T, CONTEXT_T>> keys, boolean logAccess) {
+    List<Boolean> mightContain = new ArrayList<>();
+    List<KeyWithContext<KEY_T, CONTEXT_T>> candidates = candidates(keys, mightContain);
+    CompletableFuture<List<RESULT_T>> results = candidates.isEmpty()
+            ? CompletableFuture.completedFuture(new ArrayList<>())
+            : AsyncHandler.getAsync(delegate, candidates, logAccess);
+    return results.thenApply(found -> {
+      Iterator<RESULT_T> it = found.iterator();
+      List<RESULT_T> ret = new ArrayList<>(mightContain.size());
+      for (boolean candidate : mightContain) {
+        ret.add(candidate ? it.next() : null);
+      }
+      return ret;
+    });
+  }
+
+  private List<KeyWithContext<KEY_T, CONTEXT_T>> candidates(Iterable<KeyWithContext<KEY_T, CONTEXT_T>> keys, List<Boolean> mightContain) {
+    List<KeyWithContext<KEY_T, CONTEXT_T>> candidates = new ArrayList<>();
+    for (KeyWithContext<KEY_T, CONTEXT_T> key : keys) {
+      boolean candidate = filter.mightContain(key.getKey());
+      mightContain.add(candidate);
+      if (candidate) {
+        candidates.add(key);
+      }
+    }
+    return candidates;
+  }
+
+  @Override
+  public void close() throws Exception {
+    try {
+      filter.close();
+    } finally {
+      delegate.close();
+    }
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.lookup.filter;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.enrichment.lookup.LookupKey;
+import org.apache.metron.stellar.common.utils.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The membership filter of an enrichment table, as published to HDFS by the data loaders.
+ *
+ * <p>A key that the filter does not contain is definitely not in the table, so the lookup can be
+ * skipped.  Each publish replaces the table's filter with one built from every key in the table.
+ * Once started, the filter is reloaded in the background whenever a newer one is published, so
+ * lookups never wait on HDFS.  If no filter has been published, or it cannot be read, every key
+ * might be present.
+ *
+ * <p>A writer marks the table before it writes to it, and removes its marker once it has published
+ * the filter; see {@link MembershipFilterWriter#startWriting(FileSystem, String)}.  While any writer
+ * has marked the table, every key might be present, so keys that are not yet in the filter are still
+ * found.  Workers only notice a new marker when they next refresh the filter.
+ *
+ * <p>Each table has one filter per JVM, shared by all of its lookups; see {@link #acquire(FileSystem, String, String, long)}.
+ */
+public class MembershipFilter implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * The HDFS directory holding the membership filters, one subdirectory per table.
+   */
+  public static final String FILTER_DIR_CONF = "enrichment.lookup.filter.dir";
+
+  /**
+   * How often, in milliseconds, the published filter is checked for changes.
+   */
+  public static final String REFRESH_CONF = "enrichment.lookup.filter.refreshMs";
+  public static final long REFRESH_DEFAULT = 60000;
+
+  public static final String EXTENSION = ".bloom";
+
+  /**
+   * The prefix of the markers of the writers that have not yet published the filter.
+   */
+  public static final String WRITER_PREFIX = "_writer-";
+  public static final double FALSE_POSITIVE_RATE_DEFAULT = 0.01;
+
+  /**
+   * Filters are built from the table's row keys, which are the serialized lookup keys.
+   */
+  public static class RowKeySerializer implements Function<byte[], byte[]>, Serializable {
+    @Override
+    public byte[] apply(byte[] rowKey) {
+      return rowKey;
+    }
+  }
+
+  /**
+   * The filters shared within the JVM, keyed by the directory of their table.
+   */
+  private static final Map<Path, MembershipFilter> SHARED = new HashMap<>();
+
+  private final FileSystem fs;
+  private final Path tableDir;
+  private final long refreshMillis;
+  private boolean shared;
+  private int references;
+  private ScheduledExecutorService refresher;
+  private volatile Path loaded;
+  private volatile BloomFilter<byte[]> filter;
+
+  public MembershipFilter(FileSystem fs, String filterDir, String table, long refreshMillis) {
+    this.fs = fs;
+    this.tableDir = getTableDir(filterDir, table);
+    this.refreshMillis = refreshMillis;
+  }
+
+  /**
+   * Returns the started filter of a table, shared by every lookup of the table within the JVM, so
+   * the table's filter is only held and refreshed once.  Each call must be matched by a call to
+   * {@link #close()}.
+   *
+   * @param fs The file system the filters are published to
+   * @param filterDir The directory the filters are published to
+   * @param table The table
+   * @param refreshMillis How often to check for a newer filter, if the filter is not already shared
+   * @return The shared filter
+   */
+  public static MembershipFilter acquire(FileSystem fs, String filterDir, String table, long refreshMillis) {
+    synchronized (SHARED) {
+      Path tableDir = getTableDir(filterDir, table);
+      MembershipFilter filter = SHARED.get(tableDir);
+      if (filter == null) {
+        filter = new MembershipFilter(fs, filterDir, table, refreshMillis);
+        filter.shared = true;
+        SHARED.put(tableDir, filter);
+      }
+      filter.references++;
+      return filter.start();
+    }
+  }
+
+  static Path getTableDir(String filterDir, String table) {
+    return new Path(filterDir, table);
+  }
+
+  static String getFileName(long timestamp, String id) {
+    // zero padded, so the newest filter sorts last
+    return String.format("%020d-%s%s", timestamp, id, EXTENSION);
+  }
+
+  static boolean isFilter(FileStatus status) {
+    return status.isFile() && status.getPath().getName().endsWith(EXTENSION);
+  }
+
+  static boolean isWriter(FileStatus status) {
+    return status.isFile() && status.getPath().getName().startsWith(WRITER_PREFIX);
+  }
+
+  /**
+   * @return The newest filter published to a table directory, or null if there is none.
+   */
+  static FileStatus getNewest(FileSystem fs, Path tableDir) throws IOException {
+    FileStatus newest = null;
+    if (fs.exists(tableDir)) {
+      for (FileStatus status : fs.listStatus(tableDir)) {
+        if (isFilter(status) && (newest == null || status.getPath().getName().compareTo(newest.getPath().getName()) > 0)) {
+          newest = status;
+        }
+      }
+    }
+    return newest;
+  }
+
+  /**
+   * @return True if a writer that has not yet published the filter has marked the table directory.
+   */
+  static boolean hasWriters(FileSystem fs, Path tableDir) throws IOException {
+    return fs.exists(tableDir) && fs.listStatus(tableDir, path -> path.getName().startsWith(WRITER_PREFIX)).length > 0;
+  }
+
+  /**
+   * Loads the published filter and then checks for a newer one every refresh interval on a
+   * background thread.  A refresh interval of 0 or less disables the checks.
+   * @return this
+   */
+  public synchronized MembershipFilter start() {
+    if (refresher == null) {
+      refresh();
+      if (refreshMillis <= 0) {
+        return this;
+      }
+      refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "membership-filter-" + tableDir.getName());
+        thread.setDaemon(true);
+        return thread;
+      });
+      refresher.scheduleWithFixedDelay(this::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+    return this;
+  }
+
+  /**
+   * @param key The key to look up
+   * @return false if the key is definitely not in the table, true if it might be.
+   */
+  public boolean mightContain(LookupKey key) {
+    BloomFilter<byte[]> current = filter;
+    return current == null || current.mightContain(key.toBytes());
+  }
+
+  /**
+   * Reloads the published filter if a newer one has been published.  The filter is not used while
+   * a writer has marked the table.
+   */
+  public synchronized void refresh() {
+    try {
+      Path path = null;
+      if (hasWriters(fs, tableDir)) {
+        LOG.debug("Table {} is being written, lookups will not be filtered", tableDir.getName());
+      } else {
+        FileStatus newest = getNewest(fs, tableDir);
+        path = newest == null ? null : newest.getPath();
+      }
+      if (path == null ? loaded == null : path.equals(loaded)) {
+        return;
+      }
+      filter = path == null ? null : load(path);
+      loaded = path;
+      if (path == null) {
+        LOG.info("No membership filter in use for {}, lookups will not be filtered", tableDir.getName());
+      } else {
+        LOG.info("Loaded membership filter {}", path);
+      }
+    } catch (IOException | ClassNotFoundException | RuntimeException e) {
+      // fail open; a lookup is always correct, a stale filter may not be
+      LOG.warn("Unable to load membership filter from {}, lookups will not be filtered: {}", tableDir, e.getMessage(), e);
+      filter = null;
+      loaded = null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private BloomFilter<byte[]> load(Path path) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream ois = new ObjectInputStream(fs.open(path))) {
+      return (BloomFilter<byte[]>) ois.readObject();
+    }
+  }
+
+  /**
+   * Stops refreshing the filter.  A shared filter is only stopped once it has been closed as many
+   * times as it was acquired.
+   */
+  @Override
+  public void close() {
+    if (shared) {
+      synchronized (SHARED) {
+        if (--references > 0) {
+          return;
+        }
+        SHARED.remove(tableDir, this);
+      }
+    }
+    stop();
+  }
+
+  private synchronized void stop() {
+    if (refresher != null) {
+      refresher.shutdownNow();
+      refresher = null;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.lookup.filter;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.UUID;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.metron.stellar.common.utils.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds the membership filter of an enrichment table and publishes it to HDFS, where it is picked
+ * up by the {@link MembershipFilter} of the enrichment workers.
+ *
+ * <p>Writers mark the table before they write to it, with {@link #startWriting(FileSystem, String)},
+ * so that workers do not filter its lookups while keys are missing from the filter.  Once done,
+ * whether or not every write succeeded, they publish the filter and remove their marker with
+ * {@link #publish(FileSystem, Table, Path)}.  A writer that stops without publishing leaves the
+ * table unfiltered, which is slower but never misses a key.
+ *
+ * <p>The filter is built from a scan of the table's row keys, so it is sized from the number of keys
+ * actually in the table and holds every one of them, however they were written.  Each table has a
+ * single filter; publishing replaces it.  The new file is in place before the older ones are removed,
+ * so workers never see a filter that is missing keys.
+ */
+public class MembershipFilterWriter {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int SCAN_CACHING = 1000;
+
+  private final String filterDir;
+  private final double falsePositiveRate;
+
+  public MembershipFilterWriter(String filterDir) {
+    this(filterDir, MembershipFilter.FALSE_POSITIVE_RATE_DEFAULT);
+  }
+
+  public MembershipFilterWriter(String filterDir, double falsePositiveRate) {
+    this.filterDir = filterDir;
+    this.falsePositiveRate = falsePositiveRate;
+  }
+
+  /**
+   * Marks a table as being written.  Until the marker is removed, workers do not filter the lookups of
+   * the table.
+   * @param fs The file system to publish to
+   * @param table The name of the table
+   * @return The marker
+   * @throws IOException If the marker could not be written
+   */
+  public Path startWriting(FileSystem fs, String table) throws IOException {
+    Path marker = new Path(MembershipFilter.getTableDir(filterDir, table), MembershipFilter.WRITER_PREFIX + UUID.randomUUID());
+    fs.create(marker, false).close();
+    LOG.debug("Marked table {} as being written with {}", table, marker);
+    return marker;
+  }
+
+  /**
+   * Publishes the filter of every key in a table and then removes a writer's marker.  The marker
+   * is left in place if the filter could not be published.
+   * @param fs The file system to publish to
+   * @param table The table
+   * @param marker The marker returned by {@link #startWriting(FileSystem, String)}
+   * @throws IOException If the table could not be scanned or the filter could not be written
+   */
+  public void publish(FileSystem fs, Table table, Path marker) throws IOException {
+    publish(fs, table);
+    fs.delete(marker, false);
+  }
+
+  /**
+   * Publishes the filter of every key in a table.
+   * @param fs The file system to publish to
+   * @param table The table
+   * @throws IOException If the table could not be scanned or the filter could not be written
+   */
+  public void publish(FileSystem fs, Table table) throws IOException {
+    String tableName = table.getName().getNameAsString();
+    Path tableDir = MembershipFilter.getTableDir(filterDir, tableName);
+    // named for when the scan started; every key written before then is in the filter
+    Path path = new Path(tableDir, MembershipFilter.getFileName(System.currentTimeMillis(), UUID.randomUUID().toString()));
+
+    long numKeys = 0;
+    try (ResultScanner scanner = table.getScanner(keysOnly())) {
+      for (Result ignored : scanner) {
+        numKeys++;
+      }
+    }
+    // keys loaded since the count only raise the false positive rate until the next publish
+    BloomFilter<byte[]> filter = new BloomFilter<>( new MembershipFilter.RowKeySerializer()
+                                                  , (int) Math.min(Math.max(numKeys, 1), Integer.MAX_VALUE)
+                                                  , falsePositiveRate
+                                                  );
+    try (ResultScanner scanner = table.getScanner(keysOnly())) {
+      for (Result result : scanner) {
+        filter.add(result.getRow());
+      }
+    }
+
+    Path tmp = new Path(tableDir, "." + path.getName() + ".tmp");
+    try (ObjectOutputStream oos = new ObjectOutputStream(fs.create(tmp, true))) {
+      oos.writeObject(filter);
+    }
+    if (!fs.rename(tmp, path)) {
+      throw new IOException("Unable to rename " + tmp + " to " + path);
+    }
+    LOG.info("Published membership filter of {} keys to {}", numKeys, path);
+    removeSuperseded(fs, tableDir);
+  }
+
+  /**
+   * Removes all but the newest filter.  The newest was built from the latest scan, so it holds
+   * every key that the older filters do.
+   */
+  private static void removeSuperseded(FileSystem fs, Path tableDir) throws IOException {
+    FileStatus newest = MembershipFilter.getNewest(fs, tableDir);
+    for (FileStatus status : fs.listStatus(tableDir)) {
+      if (MembershipFilter.isFilter(status) && status.getPath().getName().compareTo(newest.getPath().getName()) < 0) {
+        fs.delete(status.getPath(), false);
+      }
+    }
+  }
+
+  private static Scan keysOnly() {
+    Scan scan = new Scan();
+    scan.setCaching(SCAN_CACHING);
+    scan.setCacheBlocks(false);
+    scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+    return scan;
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.lookup.handler;
+
+import org.apache.metron.enrichment.lookup.LookupKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A handler that can perform lookups without blocking the caller.  The returned futures
+ * may be completed on a thread owned by the handler, so callers should not do expensive
+ * work in dependent stages unless they supply their own executor.
+ */
+public interface AsyncHandler<CONTEXT_T, KEY_T extends LookupKey, RESULT_T> extends Handler<CONTEXT_T, KEY_T, RESULT_T> {
+  CompletableFuture<List<Boolean>> existsAsync(Iterable<KeyWithContext<KEY_T, CONTEXT_T>> keys, boolean logAccess);
+  CompletableFuture<List<RESULT_T>> getAsync(Iterable<KeyWithContext<KEY_T, CONTEXT_T>> keys, boolean logAccess);
+
+  /**
+   * @return Whether lookups are actually performed without blocking the caller.  A handler
+   * wrapping another may only be asynchronous if the handler it wraps is.
+   */
+  default boolean isAsync() {
+    return true;
+  }
+
+  /**
+   * @return Whether the handler performs lookups without blocking the caller.
+   */
+  static boolean isAsync(Handler<?, ?, ?> handler) {
+    return handler instanceof AsyncHandler && ((AsyncHandler<?, ?, ?>) handler).isAsync();
+  }
+
+  /**
+   * Checks for the keys using the handler, asynchronously if the handler supports it and otherwise
+   * blocking the caller.
+   */
+  @SuppressWarnings("unchecked")
+  static <CONTEXT_T, KEY_T extends LookupKey, RESULT_T> CompletableFuture<List<Boolean>> existsAsync(
+          Handler<CONTEXT_T, KEY_T, RESULT_T> handler
+          , Iterable<KeyWithContext<KEY_T, CONTEXT_T>> keys
+          , boolean logAccess
+  ) {
+    if (isAsync(handler)) {
+      return ((AsyncHandler<CONTEXT_T, KEY_T, RESULT_T>) handler).existsAsync(keys, logAccess);
+    }
+    CompletableFuture<List<Boolean>> ret = new CompletableFuture<>();
+    try {
+      List<Boolean> results = new ArrayList<>();
+      handler.exists(keys, logAccess).forEach(results::add);
+      ret.complete(results);
+    } catch (Throwable t) {
+      ret.completeExceptionally(t);
+    }
+    return ret;
+  }
+
+  /**
+   * Gets the keys using the handler, asynchronously if the handler supports it and otherwise
+   * blocking the caller.
+   */
+  @SuppressWarnings("unchecked")
+  static <CONTEXT_T, KEY_T extends LookupKey, RESULT_T> CompletableFuture<List<RESULT_T>> getAsync(
+          Handler<CONTEXT_T, KEY_T, RESULT_T> handler
+          , Iterable<KeyWithContext<KEY_T, CONTEXT_T>> keys
+          , boolean logAccess
+  ) {
+    if (isAsync(handler)) {
+      return ((AsyncHandler<CONTEXT_T, KEY_T, RESULT_T>) handler).getAsync(keys, logAccess);
+    }
+    CompletableFuture<List<RESULT_T>> ret = new CompletableFuture<>();
+    try {
+      List<RESULT_T> results = new ArrayList<>();
+      handler.get(keys, logAccess).forEach(results::add);
+      ret.complete(results);
+    } catch (Throwable t) {
+      ret.completeExceptionally(t);
+    }
+    return ret;
+  }
+}
@@ -20,19 +20,23 @@ package org.apache.metron.enrichment.parallel;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.metron.enrichment.cache.CacheKey;
+import org.apache.metron.enrichment.cache.OffHeapEnrichmentCache;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 /**
- * This provides the parallel infrastructure, the thread pool and the cache.
- * The threadpool is static and the cache is instance specific.
+ * This provides the parallel infrastructure, the thread pool and the caches.
+ * The threadpool and the off-heap cache are static and the on-heap cache is instance specific.
  */
 public class ConcurrencyContext {
   private static Executor executor;
+  private static OffHeapEnrichmentCache offHeapCache;
   private Cache<CacheKey, JSONObject> cache;
 
   private static EnumMap<EnrichmentStrategies, ConcurrencyContext> strategyToInfrastructure
@@ -86,10 +90,50 @@ public class ConcurrencyContext {
     }
   }
 
+  /**
+   * Initialize the off-heap cache, which is shared by all strategies.  Only the first call creates
+   * the cache; a later call with different settings is logged and otherwise has no effect.
+   *
+   * @param maxBytes The maximum number of bytes used by the cache.
+   * @param maxTimeRetain The maximum time to retain an element in the cache (in minutes)
+   * @param timeRetainByType The maximum time to retain each type of enrichment, if different (in minutes)
+   * @param log The logger to use
+   * @return True, if this call created the cache.
+   */
+  public static synchronized boolean initializeOffHeapCache( long maxBytes
+                                                           , long maxTimeRetain
+                                                           , Map<String, Long> timeRetainByType
+                                                           , Logger log
+                                                           ) {
+    if(offHeapCache == null) {
+      if (log != null) {
+        log.info("Creating new off-heap cache with maximum size {} bytes, and expiration after write of {} minutes, {}"
+                , maxBytes, maxTimeRetain, timeRetainByType);
+      }
+      offHeapCache = new OffHeapEnrichmentCache(maxBytes, maxTimeRetain, timeRetainByType);
+      return true;
+    }
+    if (log != null && (offHeapCache.getMaxBytes() != maxBytes
+            || offHeapCache.getDefaultTimeToRetain() != maxTimeRetain
+            || !offHeapCache.getTimeToRetain().equals(timeRetainByType == null ? Collections.emptyMap() : timeRetainByType))) {
+      log.warn("The off-heap cache shared by this worker was created with different settings, which are used instead;"
+              + " maximum size {} bytes, expiration after write of {} minutes, {}"
+              , offHeapCache.getMaxBytes(), offHeapCache.getDefaultTimeToRetain(), offHeapCache.getTimeToRetain());
+    }
+    return false;
+  }
+
   public static Executor getExecutor() {
     return executor;
   }
 
+  /**
+   * @return The off-heap cache, or null if there is none.
+   */
+  public static OffHeapEnrichmentCache getOffHeapCache() {
+    return offHeapCache;
+  }
+
   public Cache<CacheKey, JSONObject> getCache() {
     return cache;
   }
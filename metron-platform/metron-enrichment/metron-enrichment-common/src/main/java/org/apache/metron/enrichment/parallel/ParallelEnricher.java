@@ -17,14 +17,17 @@
  */
 package org.apache.metron.enrichment.parallel;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.google.common.base.Joiner;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
 import org.apache.metron.common.configuration.enrichment.handler.ConfigHandler;
+import org.apache.metron.common.message.LazyJSONObject;
 import org.apache.metron.common.performance.PerformanceLogger;
 import org.apache.metron.common.utils.MessageUtils;
 import org.apache.metron.enrichment.cache.CacheKey;
+import org.apache.metron.enrichment.cache.OffHeapEnrichmentCache;
 import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
 import org.apache.metron.enrichment.utils.EnrichmentUtils;
 import org.json.simple.JSONObject;
@@ -37,10 +40,14 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.function.BinaryOperator;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -53,6 +60,47 @@ public class ParallelEnricher {
   private Map<String, EnrichmentAdapter<CacheKey>> enrichmentsByType = new HashMap<>();
   private EnumMap<EnrichmentStrategies, CacheStats> cacheStats = new EnumMap<>(EnrichmentStrategies.class);
 
+  /**
+   * The names of the timing fields, so they are not built for every message.
+   */
+  private final String splitterBeginField;
+  private final String splitterEndField;
+  private final String enrichBeginField;
+  private final String enrichEndField;
+  private final Map<Class<?>, String[]> adapterTimingFields = new ConcurrentHashMap<>();
+
+  /**
+   * The enriched fields produced by one task.  They are written directly into the message once all
+   * of the tasks are complete.
+   */
+  private static class TaskResult {
+    private static final TaskResult EMPTY = new TaskResult(null, null, null, null);
+
+    /**
+     * The result of the adapter.  This may be shared with the cache, so it is never modified.
+     */
+    private final JSONObject enrichment;
+    private final String field;
+    private final String prefix;
+    private final String endField;
+    private final long endTimestamp;
+
+    TaskResult(JSONObject enrichment, String field, String prefix, String endField) {
+      this.enrichment = enrichment;
+      this.field = field;
+      this.prefix = prefix;
+      this.endField = endField;
+      this.endTimestamp = System.currentTimeMillis();
+    }
+
+    void mergeInto(JSONObject message) {
+      EnrichmentUtils.mergeAdjustedKeys(message, enrichment, field, prefix);
+      if(endField != null) {
+        message.put(endField, Long.toString(endTimestamp));
+      }
+    }
+  }
+
   /**
    * The result of an enrichment.
    */
@@ -84,17 +132,43 @@ public class ParallelEnricher {
 
   private ConcurrencyContext concurrencyContext;
 
+  /**
+   * The second level cache, consulted when an enrichment is not in the cache of the concurrency context.  This may be null.
+   */
+  private OffHeapEnrichmentCache offHeapCache;
+
   /**
    * Construct a parallel enricher with a set of enrichment adapters associated with their enrichment types.
+   * The off-heap cache of the worker is used, if it has been initialized.
    * @param enrichmentsByType
    */
   public ParallelEnricher( Map<String, EnrichmentAdapter<CacheKey>> enrichmentsByType
                          , ConcurrencyContext concurrencyContext
                          , boolean logStats
                          )
+  {
+    this(enrichmentsByType, concurrencyContext, logStats, ConcurrencyContext.getOffHeapCache());
+  }
+
+  /**
+   * Construct a parallel enricher with a set of enrichment adapters associated with their enrichment types.
+   * @param enrichmentsByType
+   * @param offHeapCache The second level cache, or null if there is none.
+   */
+  public ParallelEnricher( Map<String, EnrichmentAdapter<CacheKey>> enrichmentsByType
+                         , ConcurrencyContext concurrencyContext
+                         , boolean logStats
+                         , OffHeapEnrichmentCache offHeapCache
+                         )
   {
     this.enrichmentsByType = enrichmentsByType;
     this.concurrencyContext = concurrencyContext;
+    this.offHeapCache = offHeapCache;
+    String name = getClass().getSimpleName().toLowerCase();
+    this.splitterBeginField = name + ".splitter.begin.ts";
+    this.splitterEndField = name + ".splitter.end.ts";
+    this.enrichBeginField = name + ".enrich.begin.ts";
+    this.enrichEndField = name + ".enrich.end.ts";
     if(logStats) {
       for(EnrichmentStrategies s : EnrichmentStrategies.values()) {
         cacheStats.put(s, null);
@@ -104,7 +178,8 @@ public class ParallelEnricher {
 
   /**
    * Fully enriches a message.  Each enrichment is done in parallel via a threadpool.
-   * Each enrichment is fronted with a LRU cache.
+   * Each enrichment is fronted with a LRU cache.  The enrichments are written into the message itself,
+   * which becomes the result.
    *
    * @param message the message to enrich
    * @param strategy The enrichment strategy to use (e.g. enrichment or threat intel)
@@ -133,7 +208,7 @@ public class ParallelEnricher {
       }
     }
     String sensorType = MessageUtils.getSensorType(message);
-    message.put(getClass().getSimpleName().toLowerCase() + ".splitter.begin.ts", "" + System.currentTimeMillis());
+    message.put(splitterBeginField, Long.toString(System.currentTimeMillis()));
     // Split the message into individual tasks.
     //
     // A task will either correspond to an enrichment adapter or,
@@ -143,12 +218,12 @@ public class ParallelEnricher {
                                                       , strategy
                                                       , config
                                                       );
-    message.put(getClass().getSimpleName().toLowerCase() + ".splitter.end.ts", "" + System.currentTimeMillis());
-    message.put(getClass().getSimpleName().toLowerCase() + ".enrich.begin.ts", "" + System.currentTimeMillis());
+    message.put(splitterEndField, Long.toString(System.currentTimeMillis()));
+    message.put(enrichBeginField, Long.toString(System.currentTimeMillis()));
     if(perfLog != null) {
       perfLog.mark("enrich");
     }
-    List<CompletableFuture<JSONObject>> taskList = new ArrayList<>();
+    List<CompletableFuture<TaskResult>> taskList = new ArrayList<>();
     List<Map.Entry<Object, Throwable>> errors = Collections.synchronizedList(new ArrayList<>());
     for(Map.Entry<String, List<JSONObject>> task : tasks.entrySet()) {
       //task is the list of enrichment tasks for the task.getKey() adapter
@@ -157,7 +232,11 @@ public class ParallelEnricher {
         throw new IllegalStateException("Unable to find an adapter for " + task.getKey()
                 + ", possible adapters are: " + Joiner.on(",").join(enrichmentsByType.keySet()));
       }
-      message.put("adapter." + adapter.getClass().getSimpleName().toLowerCase() + ".begin.ts", "" + System.currentTimeMillis());
+      String[] timingFields = adapterTimingFields.computeIfAbsent(adapter.getClass(), c -> new String[] {
+              "adapter." + c.getSimpleName().toLowerCase() + ".begin.ts",
+              "adapter." + c.getSimpleName().toLowerCase() + ".end.ts"
+      });
+      message.put(timingFields[0], Long.toString(System.currentTimeMillis()));
       for(JSONObject m : task.getValue()) {
         /* now for each unit of work (each of these only has one element in them)
          * the key is the field name and the value is value associated with that field.
@@ -172,28 +251,36 @@ public class ParallelEnricher {
           String field = (String) o;
           Object value = m.get(o);
           if(value == null) {
-            message.put("adapter." + adapter.getClass().getSimpleName().toLowerCase() + ".end.ts", "" + System.currentTimeMillis());
+            message.put(timingFields[1], Long.toString(System.currentTimeMillis()));
             continue;
           }
           CacheKey cacheKey = new CacheKey(field, value, config);
           String prefix = adapter.getOutputPrefix(cacheKey);
-          Supplier<JSONObject> supplier = () -> {
-            try {
-              JSONObject ret = concurrencyContext.getCache().get(cacheKey, new EnrichmentCallable(cacheKey, adapter));
-              if(ret == null) {
-                ret = new JSONObject();
+          //each enrichment has their own unique prefix to use to adjust the keys for the enriched fields.
+          Function<JSONObject, TaskResult> adjustKeys = ret -> new TaskResult(ret, cacheKey.getField(), prefix, timingFields[1]);
+          Function<Throwable, TaskResult> onError = e -> {
+            JSONObject errorMessage = new JSONObject();
+            errorMessage.putAll(m);
+            errorMessage.put(Constants.SENSOR_TYPE, sensorType );
+            errors.add(new AbstractMap.SimpleEntry<>(errorMessage, new IllegalStateException(strategy + " error with " + task.getKey() + " failed: " + e.getMessage(), e)));
+            return TaskResult.EMPTY;
+          };
+          if(adapter.isAsync()) {
+            //the lookup is in flight without holding a thread, the result is handled on the threadpool
+            taskList.add(enrichAsync(task.getKey(), cacheKey, adapter).handleAsync((ret, e) -> {
+              try {
+                return e == null ? adjustKeys.apply(ret) : onError.apply(unwrap(e));
+              } catch (Throwable t) {
+                return onError.apply(t);
               }
-              //each enrichment has their own unique prefix to use to adjust the keys for the enriched fields.
-              JSONObject adjustedKeys = EnrichmentUtils
-                  .adjustKeys(new JSONObject(), ret, cacheKey.getField(), prefix);
-              adjustedKeys.put("adapter." + adapter.getClass().getSimpleName().toLowerCase() + ".end.ts", "" + System.currentTimeMillis());
-              return adjustedKeys;
+            }, ConcurrencyContext.getExecutor()));
+            continue;
+          }
+          Supplier<TaskResult> supplier = () -> {
+            try {
+              return adjustKeys.apply(concurrencyContext.getCache().get(cacheKey, k -> enrich(task.getKey(), cacheKey, adapter)));
             } catch (Throwable e) {
-              JSONObject errorMessage = new JSONObject();
-              errorMessage.putAll(m);
-              errorMessage.put(Constants.SENSOR_TYPE, sensorType );
-              errors.add(new AbstractMap.SimpleEntry<>(errorMessage, new IllegalStateException(strategy + " error with " + task.getKey() + " failed: " + e.getMessage(), e)));
-              return new JSONObject();
+              return onError.apply(e);
             }
           };
           //add the Future to the task list
@@ -202,12 +289,19 @@ public class ParallelEnricher {
       }
     }
     if(taskList.isEmpty()) {
-      message.put(getClass().getSimpleName().toLowerCase() + ".enrich.end.ts", "" + System.currentTimeMillis());
+      message.put(enrichEndField, Long.toString(System.currentTimeMillis()));
       return new EnrichmentResult(message, errors);
     }
 
-    EnrichmentResult ret = new EnrichmentResult(all(taskList, message, (left, right) -> join(left, right)).get(), errors);
-    ret.getResult().put(getClass().getSimpleName().toLowerCase() + ".enrich.end.ts", "" + System.currentTimeMillis());
+    // write the results directly into the message, in the order of the tasks, rather than copying
+    // the message for each result
+    CompletableFuture.allOf(taskList.toArray(new CompletableFuture[taskList.size()])).get();
+    removeEmptyValues(message);
+    for(CompletableFuture<TaskResult> task : taskList) {
+      task.join().mergeInto(message);
+    }
+    EnrichmentResult ret = new EnrichmentResult(message, errors);
+    message.put(enrichEndField, Long.toString(System.currentTimeMillis()));
     if(perfLog != null) {
       String key = message.get(Constants.GUID) + "";
       perfLog.log("enrich", "key={}, elapsed time to enrich", key);
@@ -216,21 +310,73 @@ public class ParallelEnricher {
     return ret;
   }
 
-  private static JSONObject join(JSONObject left, JSONObject right) {
-    JSONObject message = new JSONObject();
-    message.putAll(left);
-    message.putAll(right);
-    List<Object> emptyKeys = new ArrayList<>();
-    for(Object key : message.keySet()) {
-      Object value = message.get(key);
-      if(value == null || value.toString().length() == 0) {
-        emptyKeys.add(key);
+  /**
+   * Enriches using the off-heap cached enrichment, if there is one, or else the adapter.  This is called when the
+   * enrichment is not in the cache of the concurrency context.
+   */
+  private JSONObject enrich(String type, CacheKey cacheKey, EnrichmentAdapter<CacheKey> adapter) {
+    if(offHeapCache != null) {
+      Optional<JSONObject> cached = offHeapCache.get(type, cacheKey);
+      if(cached.isPresent()) {
+        return cached.get();
       }
     }
-    for(Object o : emptyKeys) {
-      message.remove(o);
+    JSONObject ret = new EnrichmentCallable(cacheKey, adapter).apply(cacheKey);
+    if(offHeapCache != null) {
+      offHeapCache.put(type, cacheKey, ret);
+    }
+    return ret;
+  }
+
+  /**
+   * Enriches using the cached enrichment, if there is one, or else the adapter's asynchronous enrichment.
+   * Unlike the synchronous path, concurrent misses on the same key are not collapsed into one enrichment.
+   */
+  private CompletableFuture<JSONObject> enrichAsync(String type, CacheKey cacheKey, EnrichmentAdapter<CacheKey> adapter) {
+    Cache<CacheKey, JSONObject> cache = concurrencyContext.getCache();
+    JSONObject cached = cache.getIfPresent(cacheKey);
+    if(cached == null && offHeapCache != null) {
+      cached = offHeapCache.get(type, cacheKey).orElse(null);
+      if(cached != null) {
+        cache.put(cacheKey, cached);
+      }
+    }
+    if(cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+    try {
+      adapter.logAccess(cacheKey);
+      // the lookup completes on the lookup thread, so the result is cached on the threadpool
+      return adapter.enrichAsync(cacheKey).thenApplyAsync(ret -> {
+        if(ret != null) {
+          cache.put(cacheKey, ret);
+          if(offHeapCache != null) {
+            offHeapCache.put(type, cacheKey, ret);
+          }
+        }
+        return ret;
+      }, ConcurrencyContext.getExecutor());
+    } catch (Throwable t) {
+      CompletableFuture<JSONObject> ret = new CompletableFuture<>();
+      ret.completeExceptionally(t);
+      return ret;
+    }
+  }
+
+  private static Throwable unwrap(Throwable t) {
+    return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+  }
+
+  /**
+   * Removes the fields of the message whose values are null or empty, without parsing the fields
+   * of a lazily parsed message.
+   */
+  private static void removeEmptyValues(JSONObject message) {
+    if(message instanceof LazyJSONObject) {
+      ((LazyJSONObject) message).removeEmptyValues();
+    } else {
+      message.values().removeIf(EnrichmentUtils::isEmpty);
     }
-    return message;
   }
 
 
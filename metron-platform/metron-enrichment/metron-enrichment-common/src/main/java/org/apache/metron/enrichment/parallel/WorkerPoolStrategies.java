@@ -17,9 +17,12 @@
  */
 package org.apache.metron.enrichment.parallel;
 
+import java.lang.invoke.MethodHandles;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * The strategy to use to construct the thread pool.
@@ -32,8 +35,15 @@ public enum WorkerPoolStrategies {
   /**
    * Work stealing thread pool.
    */
-  WORK_STEALING(numThreads -> Executors.newWorkStealingPool(numThreads))
+  WORK_STEALING(numThreads -> Executors.newWorkStealingPool(numThreads)),
+  /**
+   * A virtual thread per task, so that blocking enrichments do not hold a platform thread.
+   * The size is ignored.  Requires a Java 21 runtime, otherwise a fixed thread pool is used.
+   */
+  VIRTUAL(WorkerPoolStrategies::newVirtualThreadPool)
   ;
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
   Function<Integer, ExecutorService> creator;
   WorkerPoolStrategies(Function<Integer, ExecutorService> creator) {
     this.creator = creator;
@@ -42,4 +52,14 @@ public enum WorkerPoolStrategies {
   public ExecutorService create(int numThreads) {
     return creator.apply(numThreads);
   }
+
+  private static ExecutorService newVirtualThreadPool(int numThreads) {
+    try {
+      // looked up reflectively, since we build for Java 8
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      LOG.warn("Virtual threads are not supported by this runtime, using a fixed threadpool of size {}", numThreads);
+      return Executors.newFixedThreadPool(numThreads);
+    }
+  }
 }
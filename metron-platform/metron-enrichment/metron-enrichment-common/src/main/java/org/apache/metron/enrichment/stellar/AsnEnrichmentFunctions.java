@@ -67,7 +67,8 @@ public class AsnEnrichmentFunctions {
         }
 
         Optional<Map<String, Object>> result = GeoLiteAsnDatabase.INSTANCE.get(ip);
-        return result.orElse(Collections.EMPTY_MAP);
+        // the cached result is shared, so return a copy that can be changed
+        return result.isPresent() ? new HashMap<>(result.get()) : Collections.EMPTY_MAP;
       } else if (args.size() == 2 && args.get(1) instanceof List) {
         // If fields are provided, return just those fields.
         String ip = (String) args.get(0);
@@ -100,6 +101,7 @@ public class AsnEnrichmentFunctions {
       LOG.info("Initializing AsnEnrichmentFunctions");
       Map<String, Object> config = getConfig(context);
       String hdfsDir = (String) config.get(GeoLiteAsnDatabase.ASN_HDFS_FILE);
+      GeoLiteAsnDatabase.INSTANCE.configure(config);
       GeoLiteAsnDatabase.INSTANCE.update(hdfsDir);
       initialized = true;
     }
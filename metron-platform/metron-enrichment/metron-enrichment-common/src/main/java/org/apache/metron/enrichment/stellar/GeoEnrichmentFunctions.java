@@ -63,7 +63,8 @@ public class GeoEnrichmentFunctions {
         }
 
         Optional<Map<String, String>> result = GeoLiteCityDatabase.INSTANCE.get(ip);
-        return result.orElse(Collections.emptyMap());
+        // the cached result is shared, so return a copy that can be changed
+        return result.isPresent() ? new HashMap<>(result.get()) : Collections.emptyMap();
       } else if (args.size() == 2 && args.get(1) instanceof List) {
         // If fields are provided, return just those fields.
         String ip = (String) args.get(0);
@@ -93,6 +94,7 @@ public class GeoEnrichmentFunctions {
         LOG.info("Initializing GeoEnrichmentFunctions");
         Map<String, Object> config = getConfig(context);
         String hdfsDir = (String) config.get(GeoLiteCityDatabase.GEO_HDFS_FILE);
+        GeoLiteCityDatabase.INSTANCE.configure(config);
         GeoLiteCityDatabase.INSTANCE.update(hdfsDir);
         initialized = true;
     }
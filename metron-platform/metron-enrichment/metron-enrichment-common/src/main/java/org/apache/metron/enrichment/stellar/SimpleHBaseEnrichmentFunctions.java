@@ -156,7 +156,7 @@ public class SimpleHBaseEnrichmentFunctions {
       try {
         lookup = enrichmentCollateralCache.get(key, () -> {
             Table hTable = provider.getTable(HBaseConfiguration.create(), key.name);
-            return new EnrichmentLookup(hTable, key.columnFamily, tracker);
+            return new EnrichmentLookup(hTable, key.columnFamily, tracker).withBatching(getConfig(context));
           }
         );
       } catch (ExecutionException e) {
@@ -233,7 +233,7 @@ public class SimpleHBaseEnrichmentFunctions {
       try {
         lookup = enrichmentCollateralCache.get(key, () -> {
                   Table hTable = provider.getTable(HBaseConfiguration.create(), key.name);
-                  return new EnrichmentLookup(hTable, key.columnFamily, tracker);
+                  return new EnrichmentLookup(hTable, key.columnFamily, tracker).withBatching(getConfig(context));
                 }
         );
       } catch (ExecutionException e) {
@@ -119,16 +119,48 @@ public class EnrichmentUtils {
 
   public static JSONObject adjustKeys(JSONObject enrichedMessage, JSONObject enrichedField, String field, String prefix) {
     if ( !enrichedField.isEmpty()) {
-      for (Object enrichedKey : enrichedField.keySet()) {
-        if(!StringUtils.isEmpty(prefix)) {
-          enrichedMessage.put(field + "." + enrichedKey, enrichedField.get(enrichedKey));
-        }
-        else {
-          enrichedMessage.put(enrichedKey, enrichedField.get(enrichedKey));
-        }
+      for (Object o : enrichedField.entrySet()) {
+        Map.Entry enriched = (Map.Entry) o;
+        enrichedMessage.put(adjustKey(enriched.getKey(), field, prefix), enriched.getValue());
       }
     }
     return enrichedMessage;
   }
 
+  /**
+   * Writes the fields of an enrichment directly into a message, adjusting their keys as {@link #adjustKeys} does.
+   * A field whose value is null or empty removes the adjusted key from the message instead.
+   *
+   * @param message The message to write into.
+   * @param enrichedField The result of the enrichment.  It is not modified.
+   * @param field The field that was enriched.
+   * @param prefix The output prefix of the enrichment.
+   */
+  public static void mergeAdjustedKeys(Map<Object, Object> message, JSONObject enrichedField, String field, String prefix) {
+    if (enrichedField == null || enrichedField.isEmpty()) {
+      return;
+    }
+    for (Object o : enrichedField.entrySet()) {
+      Map.Entry enriched = (Map.Entry) o;
+      Object key = adjustKey(enriched.getKey(), field, prefix);
+      if (isEmpty(enriched.getValue())) {
+        message.remove(key);
+      }
+      else {
+        message.put(key, enriched.getValue());
+      }
+    }
+  }
+
+  /**
+   * @return True if the value of an enriched field is null or empty.
+   */
+  public static boolean isEmpty(Object value) {
+    return value == null || value.toString().length() == 0;
+  }
+
+  private static Object adjustKey(Object enrichedKey, String field, String prefix) {
+    return StringUtils.isEmpty(prefix) ? enrichedKey : field + "." + enrichedKey;
+  }
+
 }
@@ -36,6 +36,7 @@ import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -84,13 +85,16 @@ public class ThreatTriageProcessor implements Function<Map, ThreatScore> {
     StellarProcessor processor = new StellarProcessor();
     VariableResolver variableResolver = new MapVariableResolver(message, sensorConfig.getConfiguration(), threatIntelConfig.getConfig());
 
+    // every rule is evaluated against the same message, so common subexpressions can be shared
+    Map<String, Object> subexpressions = new HashMap<>();
+
     // attempt to apply each rule to the threat
     for(RiskLevelRule rule : threatTriageConfig.getRiskLevelRules()) {
-      if(predicateProcessor.parse(rule.getRule(), variableResolver, functionResolver, context)) {
+      if(predicateProcessor.parse(rule.getRule(), variableResolver, functionResolver, context, subexpressions)) {
 
         // add the rule's score to the overall threat score
-        String reason = execute(rule.getReason(), processor, variableResolver, String.class);
-        Double score = execute(rule.getScoreExpression(), processor, variableResolver, Double.class);
+        String reason = execute(rule.getReason(), processor, variableResolver, subexpressions, String.class);
+        Double score = execute(rule.getScoreExpression(), processor, variableResolver, subexpressions, Double.class);
         threatScore.addRuleScore(new RuleScore(rule, reason, score));
       }
     }
@@ -107,8 +111,8 @@ public class ThreatTriageProcessor implements Function<Map, ThreatScore> {
     return threatScore;
   }
 
-  private <T> T execute(String expression, StellarProcessor processor, VariableResolver resolver, Class<T> clazz) {
-    Object result = processor.parse(expression, resolver, functionResolver, context);
+  private <T> T execute(String expression, StellarProcessor processor, VariableResolver resolver, Map<String, Object> subexpressions, Class<T> clazz) {
+    Object result = processor.parse(expression, resolver, functionResolver, context, subexpressions);
     return ConversionUtils.convert(result, clazz);
   }
 
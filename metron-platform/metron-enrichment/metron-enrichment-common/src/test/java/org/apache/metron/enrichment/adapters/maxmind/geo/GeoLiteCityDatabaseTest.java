@@ -22,6 +22,7 @@ import org.adrianwalker.multilinestring.Multiline;
 import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.metron.enrichment.adapters.maxmind.MaxMindDatabase;
 import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.test.utils.UnitTestHelper;
 import org.json.simple.JSONObject;
@@ -46,6 +47,9 @@ import static org.apache.metron.enrichment.adapters.maxmind.MaxMindDatabase.EXTE
 import static org.apache.metron.enrichment.adapters.maxmind.MaxMindDatabase.EXTENSION_TAR_GZ;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @EnableRuleMigrationSupport
 public class GeoLiteCityDatabaseTest {
@@ -232,6 +236,34 @@ public class GeoLiteCityDatabaseTest {
     assertEquals(expectedNoDmaMessage, result.get(), "Remote Local IP should return result based on DB");
   }
 
+  @Test
+  public void testMemoryMappedUpdateIfNecessary() {
+    HashMap<String, Object> globalConfig = new HashMap<>();
+    globalConfig.put(GeoLiteCityDatabase.GEO_HDFS_FILE, geoHdfsFile.getAbsolutePath());
+    globalConfig.put(MaxMindDatabase.MMAP_CONFIG, true);
+    try {
+      GeoLiteCityDatabase.INSTANCE.updateIfNecessary(globalConfig);
+      assertTrue(GeoLiteCityDatabase.INSTANCE.isMemoryMapped());
+
+      Optional<Map<String, String>> result = GeoLiteCityDatabase.INSTANCE.get(IP_NO_DMA);
+      assertEquals(expectedNoDmaMessage, result.get(), "Remote Local IP should return result based on DB");
+    } finally {
+      GeoLiteCityDatabase.INSTANCE.configure(Collections.emptyMap());
+    }
+  }
+
+  @Test
+  public void testResultsAreCached() {
+    GeoLiteCityDatabase.INSTANCE.update(geoHdfsFile.getAbsolutePath());
+    long hits = GeoLiteCityDatabase.INSTANCE.getCacheStats().hitCount();
+
+    Optional<Map<String, String>> first = GeoLiteCityDatabase.INSTANCE.get(IP_WITH_DMA);
+    Optional<Map<String, String>> second = GeoLiteCityDatabase.INSTANCE.get(IP_WITH_DMA);
+    assertSame(first.get(), second.get());
+    assertEquals(hits + 1, GeoLiteCityDatabase.INSTANCE.getCacheStats().hitCount());
+    assertThrows(UnsupportedOperationException.class, () -> first.get().put("city", "elsewhere"));
+  }
+
   @Test
   public void testFallbackUnnecessary() {
     String fakeFile = "fakefile.geolitecitydbtest";
@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.cache;
+
+import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.apache.metron.common.Constants.STELLAR_CONTEXT_CONF;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffHeapEnrichmentCacheTest {
+
+  private OffHeapEnrichmentCache cache;
+  private SensorEnrichmentConfig config;
+
+  @BeforeEach
+  public void setup() {
+    cache = new OffHeapEnrichmentCache(1024 * 1024, 10, Collections.singletonMap("disabled", 0L));
+    config = new SensorEnrichmentConfig();
+  }
+
+  private JSONObject createEnrichment(String city) {
+    JSONObject enrichment = new JSONObject();
+    enrichment.put("city", city);
+    enrichment.put("latitude", 37.5);
+    enrichment.put("dmaCode", 807L);
+    return enrichment;
+  }
+
+  @Test
+  public void testPutAndGet() {
+    CacheKey key = new CacheKey("ip_src_addr", "10.0.0.1", config);
+    assertFalse(cache.get("geo", key).isPresent());
+
+    cache.put("geo", key, createEnrichment("Fremont"));
+    assertEquals(Optional.of(createEnrichment("Fremont")), cache.get("geo", new CacheKey("ip_src_addr", "10.0.0.1", config)));
+    assertEquals(1, cache.stats().hitCount());
+    assertEquals(1, cache.stats().missCount());
+  }
+
+  @Test
+  public void testKeysIncludeTheEnrichmentType() {
+    CacheKey key = new CacheKey("ip_src_addr", "10.0.0.1", config);
+    cache.put("geo", key, createEnrichment("Fremont"));
+    assertFalse(cache.get("hbaseThreatIntel", key).isPresent());
+    assertFalse(cache.get("geo", new CacheKey("ip_dst_addr", "10.0.0.1", config)).isPresent());
+    assertFalse(cache.get("geo", new CacheKey("ip_src_addr", "10.0.0.2", config)).isPresent());
+  }
+
+  @Test
+  public void testKeysIgnoreTheStellarContext() {
+    SensorEnrichmentConfig other = new SensorEnrichmentConfig();
+    other.getConfiguration().put(STELLAR_CONTEXT_CONF, new Object());
+    cache.put("stellar", new CacheKey("", "10.0.0.1", config), createEnrichment("Fremont"));
+    assertTrue(cache.get("stellar", new CacheKey("", "10.0.0.1", other)).isPresent());
+
+    other.getConfiguration().put("other", "value");
+    assertFalse(cache.get("stellar", new CacheKey("", "10.0.0.1", other)).isPresent());
+  }
+
+  @Test
+  public void testTypeNotRetained() {
+    CacheKey key = new CacheKey("ip_src_addr", "10.0.0.1", config);
+    cache.put("disabled", key, createEnrichment("Fremont"));
+    assertFalse(cache.get("disabled", key).isPresent());
+    assertEquals(0, cache.getWeightedSize());
+  }
+
+  @Test
+  public void testSizeIsLimitedInBytes() {
+    cache = new OffHeapEnrichmentCache(4096, 10, null);
+    for(int i = 0; i < 1000; i++) {
+      cache.put("geo", new CacheKey("ip_src_addr", "10.0.0." + i, config), createEnrichment("Fremont"));
+    }
+    assertTrue(cache.getWeightedSize() > 0);
+    assertTrue(cache.getWeightedSize() <= 4096);
+
+    // the memory of evicted enrichments is reused
+    Map<String, Object> metrics = cache.getMetrics();
+    assertEquals(cache.getWeightedSize(), metrics.get("bytes"));
+    assertEquals(4096L, metrics.get("reservedBytes"));
+    assertTrue((Long) metrics.get("evictionCount") > 0);
+  }
+
+  @Test
+  public void testTypesArePreserved() {
+    JSONObject enrichment = new JSONObject();
+    enrichment.put("port", 8080);
+    enrichment.put("score", 0.5f);
+    enrichment.put("seen", new Date(1530000000000L));
+    enrichment.put("tags", Arrays.asList("a", "b"));
+
+    CacheKey key = new CacheKey("ip_src_addr", "10.0.0.1", config);
+    cache.put("stellar", key, enrichment);
+    JSONObject actual = cache.get("stellar", key).get();
+    assertEquals(enrichment, actual);
+    assertEquals(Integer.class, actual.get("port").getClass());
+    assertEquals(Float.class, actual.get("score").getClass());
+  }
+
+  @Test
+  public void testEqualConfigsShareEnrichments() {
+    SensorEnrichmentConfig same = new SensorEnrichmentConfig();
+    cache.put("geo", new CacheKey("ip_src_addr", "10.0.0.1", config), createEnrichment("Fremont"));
+    assertTrue(cache.get("geo", new CacheKey("ip_src_addr", "10.0.0.1", same)).isPresent());
+
+    SensorEnrichmentConfig changed = new SensorEnrichmentConfig();
+    changed.getEnrichment().getFieldMap().put("geo", Arrays.asList("ip_src_addr"));
+    assertFalse(cache.get("geo", new CacheKey("ip_src_addr", "10.0.0.1", changed)).isPresent());
+  }
+
+  @Test
+  public void testGlobalConfigUpdate() {
+    CacheKey key = new CacheKey("ip_src_addr", "10.0.0.1", config);
+    cache.onGlobalConfigUpdate(Collections.singletonMap("geo.hdfs.file", "one"));
+    cache.put("geo", key, createEnrichment("Fremont"));
+
+    // an unchanged global config does not invalidate the cache
+    cache.onGlobalConfigUpdate(Collections.singletonMap("geo.hdfs.file", "one"));
+    assertTrue(cache.get("geo", key).isPresent());
+
+    cache.onGlobalConfigUpdate(Collections.singletonMap("geo.hdfs.file", "two"));
+    assertFalse(cache.get("geo", key).isPresent());
+  }
+}
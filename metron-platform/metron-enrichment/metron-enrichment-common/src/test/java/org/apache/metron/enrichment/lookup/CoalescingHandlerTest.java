@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.lookup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.metron.enrichment.converter.EnrichmentHelper;
+import org.apache.metron.enrichment.converter.EnrichmentKey;
+import org.apache.metron.enrichment.converter.EnrichmentValue;
+import org.apache.metron.enrichment.lookup.accesstracker.NoopAccessTracker;
+import org.apache.metron.enrichment.lookup.handler.Handler;
+import org.apache.metron.enrichment.lookup.handler.KeyWithContext;
+import org.apache.metron.hbase.mock.MockHBaseTableProvider;
+import org.apache.metron.hbase.mock.MockHTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CoalescingHandlerTest {
+  private static final String CF = "cf";
+  private static final String TABLE = "enrichments_coalescing";
+  private static final EnrichmentKey KNOWN = new EnrichmentKey("type", "10.0.2.3");
+  private static final EnrichmentKey UNKNOWN = new EnrichmentKey("type", "10.0.2.4");
+
+  private MockHTable table;
+  private EnrichmentLookup.HBaseContext context;
+  private AtomicInteger batches;
+  private AtomicInteger lookups;
+  private CoalescingHandler handler;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    table = (MockHTable) MockHBaseTableProvider.addToCache(TABLE, CF);
+    EnrichmentHelper.INSTANCE.load(table, CF, ImmutableList.of(
+            new LookupKV<>(KNOWN, new EnrichmentValue(ImmutableMap.<String, Object>of("orientation", "north")))
+    ));
+    context = new EnrichmentLookup.HBaseContext(table, CF);
+    batches = new AtomicInteger();
+    lookups = new AtomicInteger();
+    handler = new CoalescingHandler(new CountingHandler(new EnrichmentLookup.Handler(CF)), 100, 50);
+  }
+
+  @AfterEach
+  public void teardown() throws Exception {
+    handler.close();
+    MockHBaseTableProvider.clear();
+  }
+
+  @Test
+  public void testGetAndExists() throws Exception {
+    assertEquals("north", handler.get(KNOWN, context, false).getValue().getMetadata().get("orientation"));
+    assertNull(handler.get(UNKNOWN, context, false));
+    assertTrue(handler.exists(KNOWN, context, false));
+    assertFalse(handler.exists(UNKNOWN, context, false));
+
+    List<Boolean> exists = new ArrayList<>();
+    handler.exists(ImmutableList.of(new KeyWithContext<>(UNKNOWN, context), new KeyWithContext<>(KNOWN, context)), false)
+           .forEach(exists::add);
+    assertEquals(ImmutableList.of(false, true), exists);
+  }
+
+  @Test
+  public void testConcurrentLookupsAreCoalesced() throws Exception {
+    int callers = 20;
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    try {
+      List<Future<LookupKV<EnrichmentKey, EnrichmentValue>>> results = new ArrayList<>();
+      for (int i = 0; i < callers; i++) {
+        results.add(executor.submit(() -> handler.get(KNOWN, context, false)));
+      }
+      for (Future<LookupKV<EnrichmentKey, EnrichmentValue>> result : results) {
+        assertEquals(KNOWN, result.get().getKey());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    // identical keys within a batch are only fetched once
+    assertEquals(batches.get(), lookups.get());
+    assertTrue(batches.get() < callers, "Expected fewer batches than callers, but saw " + batches.get());
+  }
+
+  @Test
+  public void testAsyncLookups() throws Exception {
+    try (EnrichmentLookup lookup = new EnrichmentLookup(table, CF, new NoopAccessTracker())) {
+      assertFalse(lookup.isAsync());
+      lookup.setLookupHandler(handler);
+      assertTrue(lookup.isAsync());
+      List<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys =
+              ImmutableList.of(new KeyWithContext<>(UNKNOWN, context), new KeyWithContext<>(KNOWN, context));
+      CompletableFuture<List<Boolean>> exists = lookup.existsAsync(keys, false);
+      CompletableFuture<List<LookupKV<EnrichmentKey, EnrichmentValue>>> results = lookup.getAsync(keys, false);
+      assertEquals(ImmutableList.of(false, true), exists.get());
+      assertNull(results.get().get(0));
+      assertEquals("north", results.get().get(1).getValue().getMetadata().get("orientation"));
+    }
+  }
+
+  @Test
+  public void testBatchesAreInFlightConcurrently() throws Exception {
+    // each lookup is its own batch, and neither completes until both are in flight
+    CountDownLatch started = new CountDownLatch(2);
+    Handler<EnrichmentLookup.HBaseContext, EnrichmentKey, LookupKV<EnrichmentKey, EnrichmentValue>> blocking =
+            new CountingHandler(new EnrichmentLookup.Handler(CF)) {
+      @Override
+      public Iterable<LookupKV<EnrichmentKey, EnrichmentValue>> get(Iterable<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys, boolean logAccess) throws IOException {
+        started.countDown();
+        try {
+          if (!started.await(5, TimeUnit.SECONDS)) {
+            throw new IOException("Only one batch was in flight");
+          }
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+        return super.get(keys, logAccess);
+      }
+    };
+    try (CoalescingHandler concurrent = new CoalescingHandler(blocking, 1, 0, 2)) {
+      CompletableFuture<List<LookupKV<EnrichmentKey, EnrichmentValue>>> known =
+              concurrent.getAsync(ImmutableList.of(new KeyWithContext<>(KNOWN, context)), false);
+      CompletableFuture<List<LookupKV<EnrichmentKey, EnrichmentValue>>> unknown =
+              concurrent.getAsync(ImmutableList.of(new KeyWithContext<>(UNKNOWN, context)), false);
+      assertEquals(KNOWN, known.get().get(0).getKey());
+      assertNull(unknown.get().get(0));
+    }
+    assertEquals(2, batches.get());
+  }
+
+  @Test
+  public void testLookupsFailAfterClose() throws Exception {
+    handler.close();
+    assertThrows(IOException.class, () -> handler.get(KNOWN, context, false));
+  }
+
+  @Test
+  public void testWithBatching() throws Exception {
+    try (EnrichmentLookup lookup = new EnrichmentLookup(table, CF, new NoopAccessTracker())) {
+      lookup.withBatching(ImmutableMap.<String, Object>of(CoalescingHandler.BATCH_SIZE_CONF, 1));
+      assertFalse(lookup.getLookupHandler() instanceof CoalescingHandler);
+      lookup.withBatching(ImmutableMap.<String, Object>of(CoalescingHandler.BATCH_SIZE_CONF, "10"));
+      assertTrue(lookup.getLookupHandler() instanceof CoalescingHandler);
+      assertTrue(lookup.exists(KNOWN, context, false));
+    }
+  }
+
+  private class CountingHandler implements Handler<EnrichmentLookup.HBaseContext, EnrichmentKey, LookupKV<EnrichmentKey, EnrichmentValue>> {
+    private final EnrichmentLookup.Handler delegate;
+
+    CountingHandler(EnrichmentLookup.Handler delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean exists(EnrichmentKey key, EnrichmentLookup.HBaseContext context, boolean logAccess) throws IOException {
+      batches.incrementAndGet();
+      lookups.incrementAndGet();
+      return delegate.exists(key, context, logAccess);
+    }
+
+    @Override
+    public LookupKV<EnrichmentKey, EnrichmentValue> get(EnrichmentKey key, EnrichmentLookup.HBaseContext context, boolean logAccess) throws IOException {
+      batches.incrementAndGet();
+      lookups.incrementAndGet();
+      return delegate.get(key, context, logAccess);
+    }
+
+    @Override
+    public Iterable<Boolean> exists(Iterable<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys, boolean logAccess) throws IOException {
+      batches.incrementAndGet();
+      keys.forEach(k -> lookups.incrementAndGet());
+      return delegate.exists(keys, logAccess);
+    }
+
+    @Override
+    public Iterable<LookupKV<EnrichmentKey, EnrichmentValue>> get(Iterable<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys, boolean logAccess) throws IOException {
+      batches.incrementAndGet();
+      keys.forEach(k -> lookups.incrementAndGet());
+      return delegate.get(keys, logAccess);
+    }
+
+    @Override
+    public void close() throws Exception {
+      delegate.close();
+    }
+  }
+}
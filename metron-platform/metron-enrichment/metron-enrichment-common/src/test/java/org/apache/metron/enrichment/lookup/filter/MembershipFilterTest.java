@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.lookup.filter;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.enrichment.converter.EnrichmentHelper;
+import org.apache.metron.enrichment.converter.EnrichmentKey;
+import org.apache.metron.enrichment.converter.EnrichmentValue;
+import org.apache.metron.enrichment.lookup.EnrichmentLookup;
+import org.apache.metron.enrichment.lookup.LookupKV;
+import org.apache.metron.enrichment.lookup.accesstracker.NoopAccessTracker;
+import org.apache.metron.enrichment.lookup.handler.KeyWithContext;
+import org.apache.metron.hbase.mock.MockHBaseTableProvider;
+import org.apache.metron.hbase.mock.MockHTable;
+import org.apache.metron.integration.utils.TestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MembershipFilterTest {
+  private static final String CF = "cf";
+  private static final String TABLE = "threatintel_filtered";
+  private static final EnrichmentKey LOADED = new EnrichmentKey("malicious_ip", "10.0.2.3");
+  private static final EnrichmentKey OTHER_LOADED = new EnrichmentKey("malicious_ip", "10.0.2.5");
+  private static final EnrichmentKey UNLOADED = new EnrichmentKey("malicious_ip", "10.0.2.4");
+
+  private FileSystem fs;
+  private String filterDir;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    fs = FileSystem.get(new Configuration());
+    filterDir = new File(TestUtils.createTempDir(this.getClass().getName()), "filters").getAbsolutePath();
+  }
+
+  @AfterEach
+  public void teardown() {
+    MockHBaseTableProvider.clear();
+  }
+
+  @Test
+  public void testNoPublishedFilterPassesEverything() {
+    MembershipFilter filter = new MembershipFilter(fs, filterDir, TABLE, 0);
+    filter.refresh();
+    assertTrue(filter.mightContain(LOADED));
+    assertTrue(filter.mightContain(UNLOADED));
+  }
+
+  @Test
+  public void testPublishedFilterHoldsEveryKeyInTheTable() throws Exception {
+    MockHTable table = (MockHTable) MockHBaseTableProvider.addToCache(TABLE, CF);
+    load(table, LOADED, OTHER_LOADED);
+    new MembershipFilterWriter(filterDir).publish(fs, table);
+
+    MembershipFilter filter = new MembershipFilter(fs, filterDir, TABLE, 0);
+    filter.refresh();
+    assertTrue(filter.mightContain(LOADED));
+    assertTrue(filter.mightContain(OTHER_LOADED));
+    assertFalse(filter.mightContain(UNLOADED));
+  }
+
+  @Test
+  public void testPublishingAgainReplacesThePreviousFilter() throws Exception {
+    MockHTable table = (MockHTable) MockHBaseTableProvider.addToCache(TABLE, CF);
+    load(table, LOADED);
+    MembershipFilterWriter writer = new MembershipFilterWriter(filterDir);
+    writer.publish(fs, table);
+    MembershipFilter filter = new MembershipFilter(fs, filterDir, TABLE, 0);
+    filter.refresh();
+    assertFalse(filter.mightContain(OTHER_LOADED));
+
+    load(table, OTHER_LOADED);
+    writer.publish(fs, table);
+    assertEquals(1, fs.listStatus(new Path(filterDir, TABLE), p -> p.getName().endsWith(MembershipFilter.EXTENSION)).length);
+    filter.refresh();
+    assertTrue(filter.mightContain(LOADED));
+    assertTrue(filter.mightContain(OTHER_LOADED));
+    assertFalse(filter.mightContain(UNLOADED));
+  }
+
+  @Test
+  public void testTableIsNotFilteredWhileBeingWritten() throws Exception {
+    MockHTable table = (MockHTable) MockHBaseTableProvider.addToCache(TABLE, CF);
+    load(table, LOADED);
+    MembershipFilterWriter writer = new MembershipFilterWriter(filterDir);
+    writer.publish(fs, table);
+    MembershipFilter filter = new MembershipFilter(fs, filterDir, TABLE, 0);
+    filter.refresh();
+    assertFalse(filter.mightContain(UNLOADED));
+
+    // the key is written after the filter was published, but is found while the table is marked
+    Path marker = writer.startWriting(fs, TABLE);
+    load(table, UNLOADED);
+    filter.refresh();
+    assertTrue(filter.mightContain(UNLOADED));
+    assertTrue(filter.mightContain(OTHER_LOADED));
+
+    writer.publish(fs, table, marker);
+    assertFalse(fs.exists(marker));
+    filter.refresh();
+    assertTrue(filter.mightContain(LOADED));
+    assertTrue(filter.mightContain(UNLOADED));
+    assertFalse(filter.mightContain(OTHER_LOADED));
+  }
+
+  @Test
+  public void testFilterIsSharedByTheLookupsOfATable() throws Exception {
+    MembershipFilter first = MembershipFilter.acquire(fs, filterDir, TABLE, 0);
+    MembershipFilter second = MembershipFilter.acquire(fs, filterDir, TABLE, 0);
+    assertSame(first, second);
+    first.close();
+
+    // still in use by the second lookup
+    assertSame(second, MembershipFilter.acquire(fs, filterDir, TABLE, 0));
+    second.close();
+    second.close();
+
+    MembershipFilter third = MembershipFilter.acquire(fs, filterDir, TABLE, 0);
+    assertNotSame(first, third);
+    third.close();
+  }
+
+  @Test
+  public void testLookupsOfFilteredKeysAreSkipped() throws Exception {
+    MockHTable table = (MockHTable) MockHBaseTableProvider.addToCache(TABLE, CF);
+    load(table, LOADED);
+    new MembershipFilterWriter(filterDir).publish(fs, table);
+    // the unloaded key is in the table, but missing from the filter, so it must not be looked up
+    load(table, UNLOADED);
+
+    try (EnrichmentLookup lookup = new EnrichmentLookup(table, CF, new NoopAccessTracker())) {
+      lookup.withFilter(ImmutableMap.<String, Object>of(MembershipFilter.FILTER_DIR_CONF, filterDir));
+      assertTrue(lookup.getLookupHandler() instanceof FilteringHandler);
+      EnrichmentLookup.HBaseContext context = new EnrichmentLookup.HBaseContext(table, CF);
+      assertNotNull(lookup.get(LOADED, context, false));
+      assertNull(lookup.get(UNLOADED, context, false));
+      assertTrue(lookup.exists(LOADED, context, false));
+      assertFalse(lookup.exists(UNLOADED, context, false));
+
+      List<Boolean> exists = new ArrayList<>();
+      lookup.exists(ImmutableList.of(new KeyWithContext<>(UNLOADED, context), new KeyWithContext<>(LOADED, context)), false)
+            .forEach(exists::add);
+      assertEquals(ImmutableList.of(false, true), exists);
+    }
+  }
+
+  private static void load(MockHTable table, EnrichmentKey... keys) throws Exception {
+    List<LookupKV<EnrichmentKey, EnrichmentValue>> kvs = new ArrayList<>();
+    for (EnrichmentKey key : keys) {
+      kvs.add(new LookupKV<>(key, new EnrichmentValue(ImmutableMap.<String, Object>of("source", "feed"))));
+    }
+    EnrichmentHelper.INSTANCE.load(table, CF, kvs);
+  }
+}
@@ -18,6 +18,8 @@
 package org.apache.metron.enrichment.parallel;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -26,10 +28,12 @@ import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.adrianwalker.multilinestring.Multiline;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
+import org.apache.metron.common.message.LazyJSONObject;
 import org.apache.metron.common.utils.JSONUtils;
 import org.apache.metron.enrichment.adapters.stellar.StellarAdapter;
 import org.apache.metron.enrichment.cache.CacheKey;
@@ -109,6 +113,19 @@ public class ParallelEnricherTest {
     }
   }
 
+  // Declaring explicit class bc getClass().getSimpleName() returns "" for anon classes
+  public static class AsyncStellarAdapter extends StellarAdapter {
+    @Override
+    public boolean isAsync() {
+      return true;
+    }
+
+    @Override
+    public CompletableFuture<JSONObject> enrichAsync(CacheKey value) {
+      return CompletableFuture.supplyAsync(() -> enrich(value));
+    }
+  }
+
   @BeforeAll
   public static void setup() {
     ConcurrencyContext infrastructure = new ConcurrencyContext();
@@ -162,6 +179,23 @@ public class ParallelEnricherTest {
     assertTrue(result.getResult().containsKey("parallelenricher.enrich.begin.ts"));
     assertTrue(result.getResult().containsKey("parallelenricher.enrich.end.ts"));
   }
+
+  @Test
+  public void testEnrichmentsAreWrittenIntoLazyMessage() throws Exception {
+    SensorEnrichmentConfig config = JSONUtils.INSTANCE.load(goodConfig, SensorEnrichmentConfig.class);
+    config.getConfiguration().putIfAbsent("stellarContext", stellarContext);
+    LazyJSONObject message = new LazyJSONObject("{\"source.type\": \"test\", \"empty\": \"\", \"ip_src_addr\": \"10.0.0.1\"}");
+    ParallelEnricher.EnrichmentResult result = enricher.apply(message, EnrichmentStrategies.ENRICHMENT, config, null);
+
+    // the message is enriched without being copied, and empty fields are removed
+    assertSame(message, result.getResult());
+    assertEquals(12, message.size(), "Got the wrong result count: " + message);
+    assertEquals(1, message.get("one"));
+    assertEquals("TEST", message.get("ALL_CAPS"));
+    assertEquals("10.0.0.1", message.get("ip_src_addr"));
+    assertFalse(message.containsKey("empty"));
+  }
+
 /**
    * {
   "enrichment": {
@@ -244,6 +278,29 @@ public class ParallelEnricherTest {
     assertTrue(result.getResult().containsKey("parallelenricher.enrich.end.ts"));
   }
 
+  @Test
+  public void testAsyncAdapter() throws Exception {
+    ConcurrencyContext infrastructure = new ConcurrencyContext();
+    infrastructure.initialize(5, 100, 10, null, null, false);
+    StellarAdapter adapter = new AsyncStellarAdapter().ofType("ENRICHMENT");
+    adapter.initializeAdapter(new HashMap<>());
+    ParallelEnricher asyncEnricher = new ParallelEnricher(ImmutableMap.of("stellar", adapter), infrastructure, false);
+    SensorEnrichmentConfig config = JSONUtils.INSTANCE.load(badConfig, SensorEnrichmentConfig.class);
+    config.getConfiguration().putIfAbsent("stellarContext", stellarContext);
+    JSONObject message = new JSONObject() {{
+      put(Constants.SENSOR_TYPE, "test");
+    }};
+    ParallelEnricher.EnrichmentResult result = asyncEnricher.apply(message, EnrichmentStrategies.ENRICHMENT, config, null);
+    JSONObject ret = result.getResult();
+    assertEquals(11, ret.size(), ret + " is not what I expected");
+    assertEquals(1, ret.get("map.blah"));
+    assertEquals(1, ret.get("one"));
+    assertEquals(2, ret.get("foo"));
+    assertEquals("TEST", ret.get("ALL_CAPS"));
+    assertEquals(1, result.getEnrichmentErrors().size());
+    assertTrue(result.getResult().containsKey("adapter.asyncstellaradapter.end.ts"));
+  }
+
   /**
    * {
   "enrichment": {
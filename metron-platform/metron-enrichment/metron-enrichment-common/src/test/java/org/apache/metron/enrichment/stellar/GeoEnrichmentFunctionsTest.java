@@ -169,6 +169,16 @@ public class GeoEnrichmentFunctionsTest {
     assertEquals(expectedMessage, result, "Remote IP should return result based on DB");
   }
 
+  @Test
+  public void testGetRemoteCanBeModified() {
+    String stellar = "MAP_PUT('city', 'elsewhere', GEO_GET('216.160.83.56'))";
+    Map<String, String> result = (Map<String, String>) run(stellar, ImmutableMap.of());
+    assertEquals("elsewhere", result.get("city"));
+
+    // the cached result is unchanged
+    assertEquals(expectedMessage, run("GEO_GET('216.160.83.56')", ImmutableMap.of()));
+  }
+
   @Test
   public void testGetRemoteSingleField() {
     String stellar = "GEO_GET('216.160.83.56', ['country'])";
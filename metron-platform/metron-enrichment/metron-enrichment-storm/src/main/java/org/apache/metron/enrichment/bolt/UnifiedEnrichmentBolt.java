@@ -31,6 +31,7 @@ import org.apache.metron.common.utils.MessageUtils;
 import org.apache.metron.enrichment.adapters.maxmind.asn.GeoLiteAsnDatabase;
 import org.apache.metron.enrichment.adapters.maxmind.geo.GeoLiteCityDatabase;
 import org.apache.metron.enrichment.cache.CacheKey;
+import org.apache.metron.enrichment.cache.OffHeapEnrichmentCache;
 import org.apache.metron.enrichment.configuration.Enrichment;
 import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
 import org.apache.metron.enrichment.parallel.EnrichmentContext;
@@ -38,9 +39,11 @@ import org.apache.metron.enrichment.parallel.EnrichmentStrategies;
 import org.apache.metron.enrichment.parallel.ParallelEnricher;
 import org.apache.metron.enrichment.parallel.ConcurrencyContext;
 import org.apache.metron.enrichment.parallel.WorkerPoolStrategies;
+import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.stellar.dsl.StellarFunctions;
 import org.apache.metron.storm.common.utils.StormErrorUtils;
+import org.apache.storm.metric.api.IMetric;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -56,6 +59,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This bolt is a unified enrichment/threat intel bolt.  In contrast to the split/enrich/join
@@ -83,6 +87,24 @@ public class UnifiedEnrichmentBolt extends ConfiguredEnrichmentBolt {
    * The type of threadpool to create. This is a topology-level configuration.
    */
   public static final String THREADPOOL_TYPE_TOPOLOGY_CONF = "metron.threadpool.type";
+  /**
+   * The maximum size in bytes of the off-heap cache shared by the enrichment bolts in a worker.  If this is
+   * not set or is 0, there is no off-heap cache.  This is a topology-level configuration.
+   */
+  public static final String OFFHEAP_CACHE_SIZE_TOPOLOGY_CONF = "metron.cache.offheap.size";
+  /**
+   * The time in minutes to retain each type of enrichment in the off-heap cache, keyed by the enrichment type.
+   * A type that is not set is retained for the max time retain of the bolt.  This is a topology-level configuration.
+   */
+  public static final String OFFHEAP_CACHE_TIME_RETAIN_TOPOLOGY_CONF = "metron.cache.offheap.time.retain";
+
+  private static final int METRICS_INTERVAL_SECS = 60;
+
+  /**
+   * The MaxMind databases are shared by the worker, so the metrics of their result caches are only
+   * reported by the first task.
+   */
+  private static final AtomicBoolean MAXMIND_METRICS_REGISTERED = new AtomicBoolean(false);
 
   /**
    * The enricher implementation to use.  This will do the parallel enrichment via a thread pool.
@@ -233,6 +255,10 @@ public class UnifiedEnrichmentBolt extends ConfiguredEnrichmentBolt {
       if(strategy != null && ConcurrencyContext.get(strategy).getCache() != null) {
         ConcurrencyContext.get(strategy).getCache().invalidateAll();
       }
+      // the off-heap cache is keyed by the sensor config, so only a change to the global config invalidates it
+      if(type == ConfigurationType.GLOBAL && ConcurrencyContext.getOffHeapCache() != null) {
+        ConcurrencyContext.getOffHeapCache().onGlobalConfigUpdate(getConfigurations().getGlobalConfig());
+      }
     }
     if(type == ConfigurationType.GLOBAL && enrichmentsByType != null) {
       for(EnrichmentAdapter adapter : enrichmentsByType.values()) {
@@ -355,6 +381,23 @@ public class UnifiedEnrichmentBolt extends ConfiguredEnrichmentBolt {
     else {
       throw new IllegalStateException("You must pass " + THREADPOOL_NUM_THREADS_TOPOLOGY_CONF + " via storm config.");
     }
+    long offHeapCacheSize = ConversionUtils.convert(map.getOrDefault(OFFHEAP_CACHE_SIZE_TOPOLOGY_CONF, 0L), Long.class);
+    if(offHeapCacheSize > 0) {
+      Map<String, Long> timeRetainByType = new HashMap<>();
+      Object timeRetain = map.get(OFFHEAP_CACHE_TIME_RETAIN_TOPOLOGY_CONF);
+      if(timeRetain instanceof Map) {
+        for(Map.Entry<Object, Object> kv : ((Map<Object, Object>) timeRetain).entrySet()) {
+          timeRetainByType.put(kv.getKey().toString(), ConversionUtils.convert(kv.getValue(), Long.class));
+        }
+      }
+      if(ConcurrencyContext.initializeOffHeapCache(offHeapCacheSize, maxTimeRetain, timeRetainByType, LOG)) {
+        // the cache is shared by the worker, so it is only reported by the task that created it
+        OffHeapEnrichmentCache offHeapCache = ConcurrencyContext.getOffHeapCache();
+        offHeapCache.onGlobalConfigUpdate(getConfigurations().getGlobalConfig());
+        IMetric offHeapCacheMetric = offHeapCache::getMetrics;
+        topologyContext.registerMetric("enrichmentOffHeapCache", offHeapCacheMetric, METRICS_INTERVAL_SECS);
+      }
+    }
     messageGetter = this.getterStrategy.get(messageFieldName);
     enricher = new ParallelEnricher(enrichmentsByType, ConcurrencyContext.get(strategy), captureCacheStats);
     perfLog = new PerformanceLogger(() -> getConfigurations().getGlobalConfig(), Perf.class.getName());
@@ -362,6 +405,12 @@ public class UnifiedEnrichmentBolt extends ConfiguredEnrichmentBolt {
         GeoLiteCityDatabase.GEO_HDFS_FILE));
     GeoLiteAsnDatabase.INSTANCE.update((String)getConfigurations().getGlobalConfig().get(
         GeoLiteAsnDatabase.ASN_HDFS_FILE));
+    if(MAXMIND_METRICS_REGISTERED.compareAndSet(false, true)) {
+      IMetric geoCacheMetric = GeoLiteCityDatabase.INSTANCE::getCacheMetrics;
+      topologyContext.registerMetric("geoResultCache", geoCacheMetric, METRICS_INTERVAL_SECS);
+      IMetric asnCacheMetric = GeoLiteAsnDatabase.INSTANCE::getCacheMetrics;
+      topologyContext.registerMetric("asnResultCache", asnCacheMetric, METRICS_INTERVAL_SECS);
+    }
     initializeStellar();
     enrichmentContext = new EnrichmentContext(StellarFunctions.FUNCTION_RESOLVER(), stellarContext);
   }
@@ -145,6 +145,7 @@ public class EnrichmentIntegrationTest extends BaseIntegrationTest {
       // kafka - zookeeper_quorum, kafka_brokers set elsewhere
       setProperty("kafka_security_protocol", "PLAINTEXT");
       setProperty("enrichment_kafka_start", "UNCOMMITTED_EARLIEST");
+      setProperty("enrichment_kafka_codec", "JSON");
       setProperty("enrichment_input_topic", Constants.ENRICHMENT_TOPIC);
       setProperty("enrichment_output_topic", Constants.INDEXING_TOPIC);
       setProperty("enrichment_error_topic", ERROR_TOPIC);
@@ -172,6 +173,8 @@ public class EnrichmentIntegrationTest extends BaseIntegrationTest {
       // caches
       setProperty("unified_enrichment_cache_size", "1000");
       setProperty("unified_threat_intel_cache_size", "1000");
+      setProperty("unified_offheap_cache_size", "1048576");
+      setProperty("unified_offheap_cache_time_retain", "{}");
 
       // threads
       setProperty("unified_enrichment_threadpool_size", "1");
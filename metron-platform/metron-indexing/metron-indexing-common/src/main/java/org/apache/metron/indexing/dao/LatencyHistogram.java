@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.indexing.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of the latency of the calls made to an {@link IndexDao}.
+ *
+ * <p>Latencies are counted in fixed buckets, so recording a latency is cheap and safe to do
+ * from any number of threads.  Percentiles are estimated as the upper bound of the bucket
+ * that contains them.
+ */
+public class LatencyHistogram {
+
+  /**
+   * The upper bound of each bucket in milliseconds.  The last bucket has no upper bound.
+   */
+  private static final long[] BOUNDS_MILLIS = {
+          1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 60000 };
+
+  private final LongAdder[] buckets;
+  private final LongAdder count;
+  private final LongAdder totalNanos;
+  private final LongAccumulator maxNanos;
+  private final LongAdder failures;
+  private final LongAdder timeouts;
+
+  public LatencyHistogram() {
+    this.buckets = new LongAdder[BOUNDS_MILLIS.length + 1];
+    for(int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+    this.count = new LongAdder();
+    this.totalNanos = new LongAdder();
+    this.maxNanos = new LongAccumulator(Math::max, 0);
+    this.failures = new LongAdder();
+    this.timeouts = new LongAdder();
+  }
+
+  /**
+   * Records the latency of a call.
+   *
+   * @param nanos The latency in nanoseconds.
+   */
+  public void record(long nanos) {
+    long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+    int bucket = 0;
+    while(bucket < BOUNDS_MILLIS.length && millis > BOUNDS_MILLIS[bucket]) {
+      bucket++;
+    }
+    buckets[bucket].increment();
+    count.increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+  }
+
+  /**
+   * Records a call that failed.  Its latency is recorded separately.
+   */
+  public void recordFailure() {
+    failures.increment();
+  }
+
+  /**
+   * Records a call that did not complete before the caller stopped waiting for it.  Its
+   * latency is recorded when it does complete.
+   */
+  public void recordTimeout() {
+    timeouts.increment();
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getFailures() {
+    return failures.sum();
+  }
+
+  public long getTimeouts() {
+    return timeouts.sum();
+  }
+
+  public long getMaxMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+  }
+
+  public double getMeanMillis() {
+    long n = count.sum();
+    return n == 0 ? 0.0 : totalNanos.sum() / (double) n / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * Estimates a percentile of the latency.
+   *
+   * @param percentile The percentile; between 0 and 100.
+   * @return The upper bound in milliseconds of the bucket that contains the percentile.
+   */
+  public long getPercentileMillis(double percentile) {
+    long[] counts = new long[buckets.length];
+    long total = 0;
+    for(int i = 0; i < buckets.length; i++) {
+      counts[i] = buckets[i].sum();
+      total += counts[i];
+    }
+    if(total == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+    long seen = 0;
+    long max = getMaxMillis();
+    for(int i = 0; i < BOUNDS_MILLIS.length; i++) {
+      seen += counts[i];
+      if(seen >= rank) {
+        return Math.min(BOUNDS_MILLIS[i], max);
+      }
+    }
+    return max;
+  }
+
+  /**
+   * @return A summary of the histogram that can be serialized to JSON.
+   */
+  public Map<String, Object> snapshot() {
+    Map<String, Object> snapshot = new LinkedHashMap<>();
+    snapshot.put("count", getCount());
+    snapshot.put("failures", getFailures());
+    snapshot.put("timeouts", getTimeouts());
+    snapshot.put("meanMillis", getMeanMillis());
+    snapshot.put("maxMillis", getMaxMillis());
+    snapshot.put("p50Millis", getPercentileMillis(50));
+    snapshot.put("p90Millis", getPercentileMillis(90));
+    snapshot.put("p99Millis", getPercentileMillis(99));
+
+    // the number of calls in each bucket, keyed by the upper bound of the bucket in milliseconds
+    Map<String, Long> histogram = new LinkedHashMap<>();
+    for(int i = 0; i < BOUNDS_MILLIS.length; i++) {
+      histogram.put(Long.toString(BOUNDS_MILLIS[i]), buckets[i].sum());
+    }
+    histogram.put("+Inf", buckets[BOUNDS_MILLIS.length].sum());
+    snapshot.put("buckets", histogram);
+    return snapshot;
+  }
+}
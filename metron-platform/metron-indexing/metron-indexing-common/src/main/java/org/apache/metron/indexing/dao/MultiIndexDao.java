@@ -20,6 +20,7 @@ package org.apache.metron.indexing.dao;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang.ClassUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.metron.indexing.dao.search.FieldType;
@@ -38,42 +39,177 @@ import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
+import static java.lang.String.format;
+
+/**
+ * An {@link IndexDao} that is composed of multiple {@link IndexDao}s; Elasticsearch and HBase, for example.
+ *
+ * <p>Calls to the composed {@link IndexDao}s are made in parallel on a dedicated, bounded pool of threads,
+ * so that a slow index cannot starve the rest of the application of threads.  The caller waits no
+ * longer than the timeout for the indices to respond.
+ *
+ * <ul>
+ *   <li>Updates must be applied by every index.</li>
+ *   <li>The latest version of a document must be found by every index, so that it is never read, modified
+ *   and written back from an index that is behind.  Only callers that just display the document may
+ *   accept the latest version found by the indices that responded; see {@link #withPartialResults(PartialRead)}.</li>
+ *   <li>Searches are sent to the first index.  If it has not responded after the hedge delay, or does
+ *   not return a result, the search is also sent to the next index.  The first result returned is used.</li>
+ * </ul>
+ *
+ * <p>An index that does not respond in time is treated the same as an index that fails.
+ *
+ * <p>The latency of the calls made to each index is recorded; see {@link #getLatencies()}.
+ */
 public class MultiIndexDao implements IndexDao {
 
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+  public static final long DEFAULT_HEDGE_DELAY_MILLIS = 1000;
+  public static final int DEFAULT_THREADS = 32;
+
+  /**
+   * The number of calls that can wait for a thread before further calls are rejected.
+   */
+  private static final int QUEUE_SIZE = 1024;
+
   private List<IndexDao> indices;
 
+  /**
+   * The latency of the calls made to each index; in the same order as the indices.
+   */
+  private List<LatencyHistogram> latencies;
+
+  /**
+   * The name used to report the latency of each index; in the same order as the indices.
+   */
+  private List<String> names;
+
+  private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+  private long hedgeDelayMillis = DEFAULT_HEDGE_DELAY_MILLIS;
+  private int threads = DEFAULT_THREADS;
+
+  /**
+   * Created when first needed, so that the number of threads can be configured.
+   */
+  private volatile ExecutorService executor;
+
+  /**
+   * True while the calling thread accepts partial results; see {@link #withPartialResults(PartialRead)}.
+   */
+  private static final ThreadLocal<Boolean> PARTIAL_RESULTS = ThreadLocal.withInitial(() -> false);
+
+  /**
+   * A call made to one of the indices.
+   */
+  @FunctionalInterface
+  private interface IndexCall<T> {
+    T apply(IndexDao indexDao) throws Exception;
+  }
+
+  /**
+   * A read that accepts partial results.
+   */
+  @FunctionalInterface
+  public interface PartialRead<T> {
+    T read() throws IOException;
+  }
+
   public MultiIndexDao(IndexDao... composedDao) {
     indices = new ArrayList<>();
     Collections.addAll(indices, composedDao);
+    initLatencies();
   }
 
   public MultiIndexDao(Iterable<IndexDao> composedDao) {
     this.indices = new ArrayList<>();
     Iterables.addAll(indices, composedDao);
+    initLatencies();
   }
 
   public MultiIndexDao(Iterable<IndexDao> composedDao, Function<IndexDao, IndexDao> decoratorTransformation) {
     this(Iterables.transform(composedDao, x -> decoratorTransformation.apply(x)));
   }
 
+  /**
+   * @param timeoutMillis The maximum time to wait for the indices to respond to a call.
+   */
+  public MultiIndexDao withTimeout(long timeoutMillis) {
+    if(timeoutMillis <= 0) {
+      throw new IllegalArgumentException(format("Timeout must be positive; timeout=%d", timeoutMillis));
+    }
+    this.timeoutMillis = timeoutMillis;
+    return this;
+  }
+
+  /**
+   * @param hedgeDelayMillis The time to wait for an index to respond to a search before also sending the
+   *                         search to the next index.  If negative, a search is only sent to the next index
+   *                         when the previous index fails or does not return a result.
+   */
+  public MultiIndexDao withHedgeDelay(long hedgeDelayMillis) {
+    this.hedgeDelayMillis = hedgeDelayMillis;
+    return this;
+  }
+
+  /**
+   * @param threads The maximum number of threads used to call the indices.
+   */
+  public synchronized MultiIndexDao withThreads(int threads) {
+    if(threads <= 0) {
+      throw new IllegalArgumentException(format("Number of threads must be positive; threads=%d", threads));
+    }
+    if(executor != null) {
+      throw new IllegalStateException("Number of threads cannot be changed once calls have been made");
+    }
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * Makes a read that accepts the latest version of a document found by the indices that responded.
+   *
+   * <p>Within the read, an index that fails or does not respond in time is left out when finding the
+   * latest version of a document, which fails only if no index responds.  This applies to each
+   * {@link MultiIndexDao} called on the current thread, including those wrapped by another
+   * {@link IndexDao}.  The result must not be used to update the document.
+   *
+   * @param read The read to make.
+   * @return The result of the read.
+   */
+  public static <T> T withPartialResults(PartialRead<T> read) throws IOException {
+    boolean previous = PARTIAL_RESULTS.get();
+    PARTIAL_RESULTS.set(true);
+    try {
+      return read.read();
+    } finally {
+      PARTIAL_RESULTS.set(previous);
+    }
+  }
+
   @Override
   public Document update(final Document update, Optional<String> index) throws IOException {
-    List<String> exceptions =
-    indices.parallelStream().map(dao -> {
-      try {
-        dao.update(update, index);
-        return null;
-      } catch (Throwable e) {
-        return dao.getClass() + ": " + e.getMessage() + "\n" + ExceptionUtils.getStackTrace(e);
-      }
-    }).filter(e -> e != null).collect(Collectors.toList());
+    List<String> exceptions = updateAll(dao -> dao.update(update, index));
     if(exceptions.size() > 0) {
       throw new IOException(Joiner.on("\n").join(exceptions));
     }
@@ -82,21 +218,36 @@ public class MultiIndexDao implements IndexDao {
 
   @Override
   public Map<Document, Optional<String>> batchUpdate(Map<Document, Optional<String>> updates) throws IOException {
-    List<String> exceptions =
-        indices.parallelStream().map(dao -> {
-          try {
-            dao.batchUpdate(updates);
-            return null;
-          } catch (Throwable e) {
-            return dao.getClass() + ": " + e.getMessage() + "\n" + ExceptionUtils.getStackTrace(e);
-          }
-        }).filter(e -> e != null).collect(Collectors.toList());
+    List<String> exceptions = updateAll(dao -> dao.batchUpdate(updates));
     if (exceptions.size() > 0) {
       throw new IOException(Joiner.on("\n").join(exceptions));
     }
     return updates;
   }
 
+  /**
+   * Applies an update to every index in parallel.
+   *
+   * @param update The update to apply.
+   * @return A description of each failure.  An index that does not respond in time has failed.
+   */
+  private List<String> updateAll(IndexCall<?> update) {
+    List<CompletableFuture<Object>> futures = new ArrayList<>();
+    for(int i = 0; i < indices.size(); i++) {
+      futures.add(submit(i, dao -> update.apply(dao)));
+    }
+    await(futures);
+
+    List<String> exceptions = new ArrayList<>();
+    for(int i = 0; i < futures.size(); i++) {
+      Throwable e = getFailure(i, futures.get(i));
+      if(e != null) {
+        exceptions.add(indices.get(i).getClass() + ": " + e.getMessage() + "\n" + ExceptionUtils.getStackTrace(e));
+      }
+    }
+    return exceptions;
+  }
+
   @Override
   public Map<String, FieldType> getColumnMetadata(List<String> in) throws IOException {
     for(IndexDao dao : indices) {
@@ -124,10 +275,7 @@ public class MultiIndexDao implements IndexDao {
    */
   @Override
   public Document addCommentToAlert(CommentAddRemoveRequest request, Document latest) throws IOException {
-    List<DocumentContainer> output = indices
-            .parallelStream()
-            .map(dao -> addCommentToAlert(dao, request, latest))
-            .collect(Collectors.toList());
+    List<DocumentContainer> output = applyToAll(dao -> addCommentToAlert(dao, request, latest));
     return getLatestDocument(output);
   }
 
@@ -164,10 +312,7 @@ public class MultiIndexDao implements IndexDao {
    */
   @Override
   public Document removeCommentFromAlert(CommentAddRemoveRequest request, Document latest) throws IOException {
-    List<DocumentContainer> output = indices
-            .parallelStream()
-            .map(dao -> removeCommentFromAlert(dao, request, latest))
-            .collect(Collectors.toList());
+    List<DocumentContainer> output = applyToAll(dao -> removeCommentFromAlert(dao, request, latest));
     return getLatestDocument(output);
   }
 
@@ -228,22 +373,97 @@ public class MultiIndexDao implements IndexDao {
 
   @Override
   public SearchResponse search(SearchRequest searchRequest) throws InvalidSearchException {
-    for(IndexDao dao : indices) {
-      SearchResponse s = dao.search(searchRequest);
-      if(s != null) {
-        return s;
-      }
-    }
-    return null;
+    return firstResult(dao -> dao.search(searchRequest));
   }
 
   @Override
   public GroupResponse group(GroupRequest groupRequest) throws InvalidSearchException {
-    for(IndexDao dao : indices) {
-      GroupResponse s = dao.group(groupRequest);
-      if(s != null) {
-        return s;
+    return firstResult(dao -> dao.group(groupRequest));
+  }
+
+  /**
+   * Returns the first result returned by any of the indices.
+   *
+   * <p>The call is made to the first index.  If it has not responded after the hedge delay, or it fails or
+   * does not return a result, the call is also made to the next index, and so on.
+   *
+   * @param search The call to make.
+   * @return The first result returned, or null if none of the indices return a result.
+   * @throws InvalidSearchException If none of the indices return a result and at least one failed, or if
+   * no index responds in time.
+   */
+  private <T> T firstResult(IndexCall<T> search) throws InvalidSearchException {
+    BlockingQueue<Integer> responded = new LinkedBlockingQueue<>();
+    List<CompletableFuture<T>> futures = new ArrayList<>();
+    long now = System.nanoTime();
+    long deadline = now + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    long nextCall = now;
+    int outstanding = 0;
+    Throwable failure = null;
+    try {
+      while(true) {
+        now = System.nanoTime();
+        boolean hedge = hedgeDelayMillis >= 0 && now - nextCall >= 0;
+        if(futures.size() < indices.size() && (outstanding == 0 || hedge)) {
+          // make the call to the next index
+          int index = futures.size();
+          CompletableFuture<T> future = submit(index, search);
+          future.whenComplete((result, e) -> responded.add(index));
+          futures.add(future);
+          outstanding++;
+          nextCall = now + TimeUnit.MILLISECONDS.toNanos(Math.max(hedgeDelayMillis, 0));
+          continue;
+        }
+        if(outstanding == 0) {
+          // every index has responded without a result
+          break;
+        }
+
+        long wait = deadline - now;
+        if(futures.size() < indices.size() && hedgeDelayMillis >= 0) {
+          wait = Math.min(wait, nextCall - now);
+        }
+        Integer index = responded.poll(wait, TimeUnit.NANOSECONDS);
+        if(index == null) {
+          if(System.nanoTime() - deadline >= 0) {
+            for(int i = 0; i < futures.size(); i++) {
+              if(!futures.get(i).isDone()) {
+                latencies.get(i).recordTimeout();
+              }
+            }
+            throw new InvalidSearchException(format("No index responded within %d ms", timeoutMillis));
+          }
+          continue;
+        }
+
+        outstanding--;
+        CompletableFuture<T> future = futures.get(index);
+        Throwable e = getFailure(index, future);
+        if(e == null && future.join() != null) {
+          return future.join();
+        }
+        if(e != null) {
+          LOG.debug("Unable to search index; indexDao={}, error={}", names.get(index),
+                  ExceptionUtils.getRootCauseMessage(e));
+          failure = failure == null ? e : failure;
+        }
+        // no result from this index; try the next one now
+        nextCall = now;
       }
+
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InvalidSearchException("Interrupted while waiting for the indices to respond", e);
+
+    } finally {
+      // no need to make calls that are still waiting for a thread
+      futures.forEach(future -> future.cancel(false));
+    }
+
+    if(failure instanceof InvalidSearchException) {
+      throw (InvalidSearchException) failure;
+    } else if(failure != null) {
+      throw new InvalidSearchException(failure.getMessage(), failure);
     }
     return null;
   }
@@ -257,13 +477,42 @@ public class MultiIndexDao implements IndexDao {
 
   @Override
   public Document getLatest(final String guid, String sensorType) throws IOException {
-    List<DocumentContainer> output = indices
-            .parallelStream()
-            .map(dao -> getLatest(dao, guid, sensorType))
-            .collect(Collectors.toList());
+    List<DocumentContainer> output = applyToAll(dao -> getLatest(dao, guid, sensorType));
+    if(PARTIAL_RESULTS.get()) {
+      return getLatestAvailable(output, guid, sensorType);
+    }
     return getLatestDocument(output);
   }
 
+  /**
+   * Returns the most recent {@link Document} found by the indices that responded.
+   *
+   * @param documentContainers A list of containers; each retrieved from a separate index.
+   * @return The latest {@link Document} found.
+   * @throws IOException If none of the indices responded.
+   */
+  private Document getLatestAvailable(List<DocumentContainer> documentContainers, String guid, String sensorType)
+          throws IOException {
+    List<DocumentContainer> available = new ArrayList<>();
+    List<String> missing = new ArrayList<>();
+    for(int i = 0; i < documentContainers.size(); i++) {
+      DocumentContainer dc = documentContainers.get(i);
+      if(dc.getException().isPresent()) {
+        missing.add(names.get(i));
+      } else {
+        available.add(dc);
+      }
+    }
+    if(available.isEmpty() && !documentContainers.isEmpty()) {
+      // report all of the errors encountered
+      return getLatestDocument(documentContainers);
+    }
+    if(!missing.isEmpty()) {
+      LOG.warn("Using the indices that responded; guid={}, sensorType={}, missing={}", guid, sensorType, missing);
+    }
+    return getLatestDocument(available);
+  }
+
   private DocumentContainer getLatest(IndexDao indexDao, String guid, String sensorType) {
     DocumentContainer container;
     try {
@@ -284,14 +533,17 @@ public class MultiIndexDao implements IndexDao {
   @Override
   public Iterable<Document> getAllLatest(List<GetRequest> getRequests) throws IOException {
     Iterable<Document> ret = null;
-    List<DocumentIterableContainer> output =
-        indices.parallelStream().map(dao -> {
-          try {
-            return new DocumentIterableContainer(dao.getAllLatest(getRequests));
-          } catch (Throwable e) {
-            return new DocumentIterableContainer(e);
-          }
-        }).collect(Collectors.toList());
+    List<CompletableFuture<Iterable<Document>>> futures = new ArrayList<>();
+    for(int i = 0; i < indices.size(); i++) {
+      futures.add(submit(i, dao -> dao.getAllLatest(getRequests)));
+    }
+    await(futures);
+
+    List<DocumentIterableContainer> output = new ArrayList<>();
+    for(int i = 0; i < futures.size(); i++) {
+      Throwable e = getFailure(i, futures.get(i));
+      output.add(e == null ? new DocumentIterableContainer(futures.get(i).join()) : new DocumentIterableContainer(e));
+    }
 
     List<String> error = new ArrayList<>();
     for(DocumentIterableContainer dc : output) {
@@ -318,6 +570,143 @@ public class MultiIndexDao implements IndexDao {
     return indices;
   }
 
+  /**
+   * @return A summary of the latency of the calls made to each index, keyed by the name of the index.
+   */
+  public Map<String, Map<String, Object>> getLatencies() {
+    Map<String, Map<String, Object>> snapshot = new LinkedHashMap<>();
+    for(int i = 0; i < indices.size(); i++) {
+      snapshot.put(names.get(i), latencies.get(i).snapshot());
+    }
+    return snapshot;
+  }
+
+  private void initLatencies() {
+    this.latencies = new ArrayList<>();
+    this.names = new ArrayList<>();
+    Set<String> used = new HashSet<>();
+    for(int i = 0; i < indices.size(); i++) {
+      String name = ClassUtils.getShortClassName(indices.get(i).getClass());
+      names.add(used.add(name) ? name : name + "-" + i);
+      latencies.add(new LatencyHistogram());
+    }
+  }
+
+  private ExecutorService getExecutor() {
+    ExecutorService result = executor;
+    if(result == null) {
+      synchronized (this) {
+        if(executor == null) {
+          ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                  new ArrayBlockingQueue<>(QUEUE_SIZE),
+                  new ThreadFactoryBuilder().setDaemon(true).setNameFormat("multi-index-dao-%d").build());
+          pool.allowCoreThreadTimeOut(true);
+          executor = pool;
+        }
+        result = executor;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Makes a call to one of the indices on the pool of threads and records its latency.
+   *
+   * @param index The position of the index.
+   * @param call The call to make.
+   * @return The result of the call.  Fails if the pool of threads is saturated.
+   */
+  private <T> CompletableFuture<T> submit(int index, IndexCall<T> call) {
+    IndexDao dao = indices.get(index);
+    LatencyHistogram latency = latencies.get(index);
+    CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      getExecutor().execute(() -> {
+        if(future.isDone()) {
+          // the caller is no longer waiting
+          return;
+        }
+        long start = System.nanoTime();
+        try {
+          T result = call.apply(dao);
+          latency.record(System.nanoTime() - start);
+          future.complete(result);
+
+        } catch(Throwable e) {
+          latency.record(System.nanoTime() - start);
+          latency.recordFailure();
+          future.completeExceptionally(e);
+        }
+      });
+
+    } catch(RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Waits until each call has completed or the timeout has elapsed.
+   */
+  private void await(List<? extends CompletableFuture<?>> futures) {
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(timeoutMillis, TimeUnit.MILLISECONDS);
+
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+
+    } catch(ExecutionException | TimeoutException e) {
+      // the outcome of each call is checked individually
+    }
+  }
+
+  /**
+   * Returns why a call failed.  A call that has not completed has failed with a {@link TimeoutException}.
+   *
+   * @param index The position of the index the call was made to.
+   * @param future The result of the call.
+   * @return The cause of the failure, or null if the call succeeded.
+   */
+  private Throwable getFailure(int index, CompletableFuture<?> future) {
+    if(!future.isDone()) {
+      latencies.get(index).recordTimeout();
+      return new TimeoutException(format("%s did not respond within %d ms", names.get(index), timeoutMillis));
+    }
+    try {
+      future.join();
+      return null;
+
+    } catch(CompletionException e) {
+      return e.getCause() == null ? e : e.getCause();
+
+    } catch(Throwable e) {
+      return e;
+    }
+  }
+
+  /**
+   * Makes a call to every index in parallel.
+   *
+   * @param call The call to make, which never fails.
+   * @return The result returned by each index; in the same order as the indices.  An index that does not
+   * respond in time has failed.
+   */
+  private List<DocumentContainer> applyToAll(IndexCall<DocumentContainer> call) {
+    List<CompletableFuture<DocumentContainer>> futures = new ArrayList<>();
+    for(int i = 0; i < indices.size(); i++) {
+      futures.add(submit(i, call));
+    }
+    await(futures);
+
+    List<DocumentContainer> output = new ArrayList<>();
+    for(int i = 0; i < futures.size(); i++) {
+      CompletableFuture<DocumentContainer> future = futures.get(i);
+      Throwable e = getFailure(i, future);
+      output.add(e == null ? future.join() : new DocumentContainer(e));
+    }
+    return output;
+  }
+
   /**
    * Returns the most recent {@link Document} from a list of {@link DocumentContainer}s.
    *
@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.indexing.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void shouldEstimatePercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for(int i = 0; i < 98; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+    }
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(150));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(120000));
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(5, histogram.getPercentileMillis(50));
+    assertEquals(200, histogram.getPercentileMillis(99));
+    assertEquals(120000, histogram.getPercentileMillis(100));
+    assertEquals(120000, histogram.getMaxMillis());
+  }
+
+  @Test
+  public void shouldBeEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentileMillis(99));
+    assertEquals(0.0, histogram.getMeanMillis(), 0.0);
+  }
+
+  @Test
+  public void shouldSummarize() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(30));
+    histogram.recordFailure();
+    histogram.recordTimeout();
+
+    Map<String, Object> snapshot = histogram.snapshot();
+    assertEquals(2L, snapshot.get("count"));
+    assertEquals(1L, snapshot.get("failures"));
+    assertEquals(1L, snapshot.get("timeouts"));
+    assertEquals(20.0, (double) snapshot.get("meanMillis"), 0.001);
+    assertEquals(30L, snapshot.get("maxMillis"));
+
+    Map<String, Long> buckets = (Map<String, Long>) snapshot.get("buckets");
+    assertEquals(1L, (long) buckets.get("10"));
+    assertEquals(1L, (long) buckets.get("50"));
+    assertEquals(0L, (long) buckets.get("+Inf"));
+  }
+}
@@ -229,4 +229,158 @@ public class MultiIndexDaoTest {
     GroupResponse actual = multiIndexDao.group(request);
     assertNull(actual);
   }
+
+  @Test
+  public void shouldSearchNextIndexWhenFirstIsSlow() throws Exception {
+    SearchRequest request = new SearchRequest();
+    SearchResponse slow = new SearchResponse();
+    SearchResponse expected = new SearchResponse();
+
+    // dao1 does not respond before the hedge delay, so the search is also sent to dao2
+    when(dao1.search(eq(request))).thenAnswer(invocation -> {
+      Thread.sleep(500);
+      return slow;
+    });
+    when(dao2.search(eq(request))).thenReturn(expected);
+
+    SearchResponse actual = multiIndexDao.withHedgeDelay(10).search(request);
+    assertSame(expected, actual);
+  }
+
+  @Test
+  public void shouldSearchNextIndexWhenFirstFails() throws Exception {
+    SearchRequest request = new SearchRequest();
+    SearchResponse expected = new SearchResponse();
+
+    when(dao1.search(eq(request))).thenThrow(new InvalidSearchException("dao1 failed"));
+    when(dao2.search(eq(request))).thenReturn(expected);
+
+    SearchResponse actual = multiIndexDao.withHedgeDelay(-1).search(request);
+    assertSame(expected, actual);
+  }
+
+  @Test
+  public void shouldThrowExceptionWhenAllSearchesFail() throws Exception {
+    SearchRequest request = new SearchRequest();
+
+    when(dao1.search(eq(request))).thenThrow(new InvalidSearchException("dao1 failed"));
+    when(dao2.search(eq(request))).thenReturn(null);
+
+    assertThrows(InvalidSearchException.class, () -> multiIndexDao.search(request));
+  }
+
+  @Test
+  public void shouldThrowExceptionWhenSearchTimesOut() throws Exception {
+    SearchRequest request = new SearchRequest();
+    when(dao1.search(eq(request))).thenAnswer(invocation -> {
+      Thread.sleep(500);
+      return new SearchResponse();
+    });
+    when(dao2.search(eq(request))).thenAnswer(invocation -> {
+      Thread.sleep(500);
+      return new SearchResponse();
+    });
+
+    multiIndexDao.withTimeout(50).withHedgeDelay(10);
+    assertThrows(InvalidSearchException.class, () -> multiIndexDao.search(request));
+  }
+
+  @Test
+  public void getLatestShouldThrowExceptionWhenAnIndexDoesNotRespondInTime() throws Exception {
+    // dao2 has a later version of the alert, but does not respond in time
+    when(dao1.getLatest("guid", "bro")).thenReturn(document1);
+    when(dao2.getLatest("guid", "bro")).thenAnswer(invocation -> {
+      Thread.sleep(500);
+      return document2;
+    });
+
+    multiIndexDao.withTimeout(50);
+    assertThrows(IOException.class, () -> multiIndexDao.getLatest("guid", "bro"));
+  }
+
+  @Test
+  public void getLatestShouldThrowExceptionWithPartialFailure() throws Exception {
+    when(dao1.getLatest("guid", "bro")).thenReturn(document1);
+    when(dao2.getLatest("guid", "bro")).thenThrow(new IllegalStateException());
+
+    assertThrows(IOException.class, () -> multiIndexDao.getLatest("guid", "bro"));
+  }
+
+  @Test
+  public void getLatestWithPartialResultsShouldReturnLatestAlertFromIndicesThatRespondInTime() throws Exception {
+    // dao2 has a later version of the alert, but does not respond in time
+    when(dao1.getLatest("guid", "bro")).thenReturn(document1);
+    when(dao2.getLatest("guid", "bro")).thenAnswer(invocation -> {
+      Thread.sleep(500);
+      return document2;
+    });
+
+    multiIndexDao.withTimeout(50);
+    assertEquals(document1, MultiIndexDao.withPartialResults(() -> multiIndexDao.getLatest("guid", "bro")));
+  }
+
+  @Test
+  public void getLatestWithPartialResultsShouldReturnLatestAlertFromIndicesThatSucceed() throws Exception {
+    when(dao1.getLatest("guid", "bro")).thenReturn(document1);
+    when(dao2.getLatest("guid", "bro")).thenThrow(new IllegalStateException());
+
+    assertEquals(document1, MultiIndexDao.withPartialResults(() -> multiIndexDao.getLatest("guid", "bro")));
+
+    // the partial results are only accepted within the read
+    assertThrows(IOException.class, () -> multiIndexDao.getLatest("guid", "bro"));
+  }
+
+  @Test
+  public void getLatestWithPartialResultsShouldThrowExceptionWhenNoIndexResponds() throws Exception {
+    when(dao1.getLatest("guid", "bro")).thenThrow(new IllegalStateException());
+    when(dao2.getLatest("guid", "bro")).thenAnswer(invocation -> {
+      Thread.sleep(500);
+      return document2;
+    });
+
+    multiIndexDao.withTimeout(50);
+    assertThrows(IOException.class,
+            () -> MultiIndexDao.withPartialResults(() -> multiIndexDao.getLatest("guid", "bro")));
+  }
+
+  @Test
+  public void getLatestShouldThrowExceptionWhenNoIndexRespondsInTime() throws Exception {
+    when(dao1.getLatest("guid", "bro")).thenAnswer(invocation -> {
+      Thread.sleep(500);
+      return document1;
+    });
+    when(dao2.getLatest("guid", "bro")).thenAnswer(invocation -> {
+      Thread.sleep(500);
+      return document2;
+    });
+
+    multiIndexDao.withTimeout(50);
+    assertThrows(IOException.class, () -> multiIndexDao.getLatest("guid", "bro"));
+  }
+
+  @Test
+  public void shouldThrowExceptionWhenUpdateTimesOut() throws Exception {
+    // an update that is not applied in time is a 'partial failure'
+    when(dao2.update(any(), any())).thenAnswer(invocation -> {
+      Thread.sleep(500);
+      return document1;
+    });
+
+    multiIndexDao.withTimeout(50);
+    assertThrows(IOException.class, () -> multiIndexDao.update(document1, Optional.of("bro")));
+  }
+
+  @Test
+  public void shouldRecordLatencyOfEachIndex() throws Exception {
+    when(dao1.getLatest("guid", "bro")).thenReturn(document1);
+    when(dao2.getLatest("guid", "bro")).thenReturn(document2);
+    multiIndexDao.getLatest("guid", "bro");
+
+    Map<String, Map<String, Object>> latencies = multiIndexDao.getLatencies();
+    assertEquals(2, latencies.size());
+    for(Map<String, Object> latency : latencies.values()) {
+      assertEquals(1L, latency.get("count"));
+      assertEquals(0L, latency.get("failures"));
+    }
+  }
 }
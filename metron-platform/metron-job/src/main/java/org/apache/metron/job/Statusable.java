@@ -26,7 +26,8 @@ import java.util.Map;
 public interface Statusable<PAGE_T> {
 
   enum JobType {
-    MAP_REDUCE;
+    MAP_REDUCE,
+    LOCAL;
   }
 
   /**
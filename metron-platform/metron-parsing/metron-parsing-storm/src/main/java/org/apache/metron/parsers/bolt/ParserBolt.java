@@ -46,6 +46,7 @@ import org.apache.metron.writer.AckTuplesPolicy;
 import org.apache.metron.parsers.ParserRunner;
 import org.apache.metron.parsers.ParserRunnerResults;
 import org.apache.metron.stellar.common.CachingStellarProcessor;
+import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.stellar.dsl.StellarFunctions;
 import org.apache.metron.storm.kafka.flux.SimpleStormKafkaBuilder.FieldsConfiguration;
@@ -76,6 +77,8 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
   private int maxBatchTimeout;
   private int batchTimeoutDivisor = 1;
   private transient AckTuplesPolicy ackTuplesPolicy;
+  private transient Cache<CachingStellarProcessor.Key, Object> stellarCache;
+  private transient boolean recordStellarCacheStats;
 
   public ParserBolt( String zookeeperUrl
                    , ParserRunner parserRunner
@@ -293,6 +296,9 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
       }
     }
     Cache<CachingStellarProcessor.Key, Object> cache = CachingStellarProcessor.createCache(cacheConfig);
+    this.stellarCache = cache;
+    this.recordStellarCacheStats = Boolean.TRUE.equals(
+            ConversionUtils.convert(cacheConfig.get(CachingStellarProcessor.RECORD_STATS), Boolean.class));
 
     Context.Builder builder = new Context.Builder()
             .with(Context.Capabilities.ZOOKEEPER_CLIENT, () -> client)
@@ -308,6 +314,9 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
   }
 
   protected void handleTickTuple(Tuple tuple) {
+    if (stellarCache != null && recordStellarCacheStats) {
+      LOG.info("Stellar cache stats; {}", CachingStellarProcessor.describeStats(stellarCache));
+    }
     try {
       for (Entry<String, WriterHandler> entry : sensorToWriterMap.entrySet()) {
         entry.getValue().flush(getConfigurations(), messageGetStrategy);
@@ -58,6 +58,7 @@ public class CliParser {
     options.addOption(newOption("df", "date_format", true, "Date format to use for parsing start_time and end_time. Default is to use time in millis since the epoch."));
     options.addOption(newOption("yq", "yarn_queue", true, "Yarn queue this job will be submitted to"));
     options.addOption(newOption("ft", "finalizer_threads", true, "Number of threads to use for the final output writing."));
+    options.addOption(newOption("lmb", "local_max_bytes", true, "Run queries that read no more than this many bytes in process, rather than as a MapReduce job. Default is 0, which always runs a MapReduce job."));
     return options;
   }
 
@@ -137,6 +138,9 @@ public class CliParser {
     } else {
       config.setFinalizerThreadpoolSize(NUM_FINALIZER_THREADS_DEFAULT);
     }
+    if (commandLine.hasOption("local_max_bytes")) {
+      config.setLocalQueryMaxBytes(Long.parseLong(commandLine.getOptionValue("local_max_bytes")));
+    }
   }
 
   public void printHelp(String msg, Options opts) {
@@ -37,6 +37,7 @@ public class HDFSWriterConfig implements Serializable {
   private long numPackets;
   private long maxTimeNS;
   private int syncEvery = 1;
+  private int indexEvery = 1024;
   private int replicationFactor = -1;
   private String outputPath;
   private String zookeeperQuorum;
@@ -84,6 +85,17 @@ public class HDFSWriterConfig implements Serializable {
     return this;
   }
 
+  /**
+   * The number of packets in each block of the index written next to each file.  Queries read only
+   * the blocks that may hold matching packets.  A value of 0 or less will not write an index.
+   * @param n
+   * @return
+   */
+  public HDFSWriterConfig withIndexEvery(int n) {
+    indexEvery = n;
+    return this;
+  }
+
   /**
    * The map config for HDFS
    * @param config
@@ -155,6 +167,10 @@ public class HDFSWriterConfig implements Serializable {
     return syncEvery;
   }
 
+  public int getIndexEvery() {
+    return indexEvery;
+  }
+
   public int getReplicationFactor() {
     return replicationFactor;
   }
@@ -35,6 +35,8 @@ import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.metron.pcap.PcapHelper;
+import org.apache.metron.pcap.index.PcapIndex;
+import org.apache.metron.pcap.index.PcapIndexWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +46,8 @@ import org.slf4j.LoggerFactory;
 public class PartitionHDFSWriter implements AutoCloseable, Serializable {
   static final long serialVersionUID = 0xDEADBEEFL;
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  // the size of the escape and hash of a sync point in a sequence file
+  private static final int SYNC_SIZE = Integer.BYTES + 16;
 
 
   public static interface SyncHandler {
@@ -107,6 +111,8 @@ public class PartitionHDFSWriter implements AutoCloseable, Serializable {
   private FileSystem fs;
   private FSDataOutputStream outputStream;
   private SequenceFile.Writer writer;
+  private Path path;
+  private PcapIndexWriter indexWriter;
   private HDFSWriterConfig config;
   private SyncHandler syncHandler;
   private long batchStartTime;
@@ -159,6 +165,15 @@ public class PartitionHDFSWriter implements AutoCloseable, Serializable {
 
   public void handle(long ts, byte[] value) throws IOException {
     turnoverIfNecessary(ts);
+    if (indexWriter != null) {
+      if (indexWriter.isBlockFull()) {
+        // each block of the index starts at a sync point, so it can be read on its own
+        long position = writer.getLength();
+        writer.sync();
+        indexWriter.startBlock(writer.getLength() > position ? position : position - SYNC_SIZE);
+      }
+      indexWriter.add(ts, value);
+    }
     BytesWritable bw = new BytesWritable(value);
     try {
       writer.append(new LongWritable(ts), bw);
@@ -184,12 +199,24 @@ public class PartitionHDFSWriter implements AutoCloseable, Serializable {
 
   @Override
   public void close() throws IOException {
+    long length = indexWriter == null ? 0 : writer.getLength();
     if(writer != null) {
       writer.close();
     }
     if(outputStream != null) {
       outputStream.close();
     }
+    if(indexWriter != null) {
+      // the index is written once the file is complete, as a query trusts it to cover the whole file
+      PcapIndex index = indexWriter.finish(length);
+      indexWriter = null;
+      try {
+        index.write(fs, path);
+      }
+      catch(IOException ioe) {
+        LOG.warn("Unable to write the index of {}, so it will be read in full by queries: {}", path, ioe.getMessage(), ioe);
+      }
+    }
   }
 
   private Path getPath(long ts) {
@@ -236,6 +263,10 @@ public class PartitionHDFSWriter implements AutoCloseable, Serializable {
               , SequenceFile.Writer.stream(outputStream)
               , SequenceFile.Writer.compression(SequenceFile.CompressionType.NONE)
       );
+      if (config.getIndexEvery() > 0) {
+        indexWriter = new PcapIndexWriter(config.getIndexEvery());
+      }
+      this.path = path;
       //reset state
       LOG.info("Turning over and writing to {}: [duration={} NS, force={}, initial={}, overDuration={}, tooManyPackets={}]", path, duration, force, initial, overDuration, tooManyPackets);
       batchStartTime = ts;
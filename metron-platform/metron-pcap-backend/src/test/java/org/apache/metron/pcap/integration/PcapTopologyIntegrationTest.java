@@ -73,6 +73,7 @@ import org.apache.metron.pcap.config.PcapOptions;
 import org.apache.metron.pcap.filter.fixed.FixedPcapFilter;
 import org.apache.metron.pcap.filter.query.QueryPcapFilter;
 import org.apache.metron.pcap.finalizer.PcapFinalizerStrategies;
+import org.apache.metron.pcap.index.PcapIndex;
 import org.apache.metron.pcap.mr.PcapJob;
 import org.apache.metron.pcap.query.PcapCli;
 import org.apache.metron.spout.pcap.Endianness;
@@ -119,7 +120,7 @@ public class PcapTopologyIntegrationTest extends BaseIntegrationTest {
     return outDir.list(new FilenameFilter() {
       @Override
       public boolean accept(File dir, String name) {
-        return !name.endsWith(".crc");
+        return !name.endsWith(".crc") && !name.endsWith(PcapIndex.EXTENSION);
       }
     }).length;
   }
@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.pcap;
+
+/**
+ * The protocol, addresses and ports of a single packet, read in place from its pcap bytes
+ * (global header, packet header and ethernet frame) without decoding it into a {@link PacketInfo}.
+ *
+ * <p>Only the common case of an IPv4 packet in an ethernet frame, with at most one 802.1Q tag, is
+ * read.  Anything else is left for {@link PcapHelper#toPacketInfo(byte[])} to decode.  As with
+ * {@link PcapHelper#packetToFields(PacketInfo)}, only TCP and UDP packets have addresses and ports.
+ *
+ * <p>Instances are reused from one packet to the next and are not thread-safe.
+ */
+public class RawPacketHeader {
+  private static final int ETHERNET_LINK_TYPE = 1;
+  private static final int ETHERNET_ADDRESSES_SIZE = 12;
+  private static final int ETHERTYPE_IPV4 = 0x0800;
+  private static final int ETHERTYPE_802_1Q = 0x8100;
+  private static final int IPV4_MIN_HEADER_SIZE = 20;
+
+  private int protocol;
+  private boolean transport;
+  private int srcAddr;
+  private int dstAddr;
+  private int srcPort;
+  private int dstPort;
+
+  /**
+   * Reads the header of the packet.
+   * @param pcap The bytes of a single packet with its pcap global and packet headers
+   * @param offset The offset of the packet in the array
+   * @param length The length of the packet
+   * @return false if the header could not be read, in which case the packet must be decoded
+   */
+  public boolean parse(byte[] pcap, int offset, int length) {
+    transport = false;
+    int frame = offset + PcapHelper.GLOBAL_HEADER_SIZE + PcapHelper.PACKET_HEADER_SIZE;
+    int end = offset + length;
+    if (frame + ETHERNET_ADDRESSES_SIZE + 2 > end) {
+      return false;
+    }
+    boolean swapped;
+    switch (readInt(pcap, offset, false)) {
+      case 0xa1b2c3d4:
+      case 0xa1b23c4d:
+        swapped = false;
+        break;
+      case 0xd4c3b2a1:
+      case 0x4d3cb2a1:
+        swapped = true;
+        break;
+      default:
+        return false;
+    }
+    if (readInt(pcap, offset + 20, swapped) != ETHERNET_LINK_TYPE) {
+      return false;
+    }
+    int capturedLength = readInt(pcap, offset + PcapHelper.GLOBAL_HEADER_SIZE + 8, swapped);
+    if (capturedLength < 0) {
+      return false;
+    }
+    end = (int) Math.min(end, (long) frame + capturedLength);
+    if (frame + ETHERNET_ADDRESSES_SIZE + 2 > end) {
+      return false;
+    }
+
+    int pos = frame + ETHERNET_ADDRESSES_SIZE;
+    int etherType = readShort(pcap, pos);
+    pos += 2;
+    if (etherType == ETHERTYPE_802_1Q) {
+      if (pos + 4 > end) {
+        return false;
+      }
+      etherType = readShort(pcap, pos + 2);
+      pos += 4;
+    }
+    if (etherType != ETHERTYPE_IPV4 || pos + IPV4_MIN_HEADER_SIZE > end) {
+      return false;
+    }
+    int version = (pcap[pos] >> 4) & 0xf;
+    int ipHeaderSize = (pcap[pos] & 0xf) * 4;
+    if (version != 4 || ipHeaderSize < IPV4_MIN_HEADER_SIZE) {
+      return false;
+    }
+    protocol = pcap[pos + 9] & 0xff;
+    if (protocol == Constants.PROTOCOL_TCP || protocol == Constants.PROTOCOL_UDP) {
+      int ports = pos + ipHeaderSize;
+      if (ports + 4 > end) {
+        return false;
+      }
+      srcAddr = readInt(pcap, pos + 12, false);
+      dstAddr = readInt(pcap, pos + 16, false);
+      srcPort = readShort(pcap, ports);
+      dstPort = readShort(pcap, ports + 2);
+      transport = true;
+    }
+    return true;
+  }
+
+  /**
+   * @return The IP protocol number
+   */
+  public int getProtocol() {
+    return protocol;
+  }
+
+  /**
+   * @return Whether the packet is TCP or UDP, and so has addresses and ports
+   */
+  public boolean isTransport() {
+    return transport;
+  }
+
+  public int getSrcAddr() {
+    return srcAddr;
+  }
+
+  public int getDstAddr() {
+    return dstAddr;
+  }
+
+  public int getSrcPort() {
+    return srcPort;
+  }
+
+  public int getDstPort() {
+    return dstPort;
+  }
+
+  /**
+   * @param address An IPv4 address in dotted decimal form, as returned by {@link java.net.InetAddress#getHostAddress()}
+   * @return The address as an int, or null if it is not in exactly that form
+   */
+  public static Integer parseAddress(String address) {
+    String[] octets = address.split("\\.", -1);
+    if (octets.length != 4) {
+      return null;
+    }
+    int ret = 0;
+    for (String octet : octets) {
+      int value;
+      try {
+        value = Integer.parseInt(octet);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+      if (value < 0 || value > 255 || !Integer.toString(value).equals(octet)) {
+        return null;
+      }
+      ret = (ret << 8) | value;
+    }
+    return ret;
+  }
+
+  /**
+   * @return The IPv4 address in dotted decimal form
+   */
+  public static String toAddress(int address) {
+    return ((address >>> 24) & 0xff) + "." + ((address >>> 16) & 0xff) + "." + ((address >>> 8) & 0xff) + "." + (address & 0xff);
+  }
+
+  private static int readShort(byte[] bytes, int pos) {
+    return ((bytes[pos] & 0xff) << 8) | (bytes[pos + 1] & 0xff);
+  }
+
+  private static int readInt(byte[] bytes, int pos, boolean swapped) {
+    int ret = ((bytes[pos] & 0xff) << 24) | ((bytes[pos + 1] & 0xff) << 16) | ((bytes[pos + 2] & 0xff) << 8) | (bytes[pos + 3] & 0xff);
+    return swapped ? Integer.reverseBytes(ret) : ret;
+  }
+}
@@ -153,4 +153,8 @@ public class PcapConfig extends AbstractMapDecorator<String, Object>{
     PcapOptions.FINALIZER_THREADPOOL_SIZE.put(this, numThreads);
   }
 
+  public void setLocalQueryMaxBytes(long maxBytes) {
+    PcapOptions.LOCAL_QUERY_MAX_BYTES.put(this, maxBytes);
+  }
+
 }
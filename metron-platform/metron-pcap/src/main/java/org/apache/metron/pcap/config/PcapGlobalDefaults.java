@@ -26,4 +26,5 @@ public class PcapGlobalDefaults {
   public static final int NUM_REDUCERS_DEFAULT = 10;
   public static final int NUM_RECORDS_PER_FILE_DEFAULT = 10000;
   public static final String NUM_FINALIZER_THREADS_DEFAULT = "1";
+  public static final long LOCAL_QUERY_MAX_BYTES_DEFAULT = 0L;
 }
@@ -25,6 +25,7 @@ import org.apache.metron.common.configuration.ConfigOption;
 public enum PcapOptions implements ConfigOption {
   JOB_NAME("jobName"),
   JOB_ID("jobId"),
+  JOB_TYPE("jobType"),
   USERNAME("username"),
   FINAL_FILENAME_PREFIX("finalFilenamePrefix"),
   BASE_PATH("basePath", (s, o) -> o == null ? null : new Path(o.toString())),
@@ -42,7 +43,8 @@ public enum PcapOptions implements ConfigOption {
   HADOOP_CONF("hadoopConf"),
   FILESYSTEM("fileSystem"),
   PRINT_JOB_STATUS("printJobStatus"),
-  FINALIZER_THREADPOOL_SIZE("finalizerThreadpoolSize");
+  FINALIZER_THREADPOOL_SIZE("finalizerThreadpoolSize"),
+  LOCAL_QUERY_MAX_BYTES("localQueryMaxBytes");
 
   public static final BiFunction<String, Object, Path> STRING_TO_PATH =
       (s, o) -> o == null ? null : new Path(o.toString());
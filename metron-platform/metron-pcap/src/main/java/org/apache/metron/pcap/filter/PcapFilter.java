@@ -19,10 +19,19 @@
 package org.apache.metron.pcap.filter;
 
 import org.apache.metron.pcap.PacketInfo;
+import org.apache.metron.pcap.index.PcapIndex;
 
 import java.util.Map;
 import java.util.function.Predicate;
 
 public interface PcapFilter extends Predicate<PacketInfo>{
   void configure(Iterable<Map.Entry<String, String>> config);
+
+  /**
+   * @param block A block of an indexed pcap file
+   * @return false only if no packet in the block can pass the filter
+   */
+  default boolean mightMatch(PcapIndex.Block block) {
+    return true;
+  }
 }
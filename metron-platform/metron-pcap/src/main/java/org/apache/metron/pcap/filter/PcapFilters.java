@@ -18,6 +18,7 @@
 
 package org.apache.metron.pcap.filter;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.metron.common.Creator;
 import org.apache.metron.pcap.filter.fixed.FixedPcapFilter;
 import org.apache.metron.pcap.filter.query.QueryPcapFilter;
@@ -47,4 +48,13 @@ public enum PcapFilters implements Creator<PcapFilter> {
     return creator.create();
   }
 
+  /**
+   * Creates the filter named in the job configuration, configured from it.
+   */
+  public static PcapFilter fromConfiguration(Configuration conf) {
+    PcapFilter filter = valueOf(conf.get(PcapFilterConfigurator.PCAP_FILTER_NAME_CONF)).create();
+    filter.configure(conf);
+    return filter;
+  }
+
 }
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.pcap.filter;
+
+import static org.apache.metron.pcap.PcapHelper.greaterThanOrEqualTo;
+import static org.apache.metron.pcap.PcapHelper.lessThanOrEqualTo;
+
+import java.util.Arrays;
+import java.util.List;
+import org.apache.metron.pcap.PacketInfo;
+import org.apache.metron.pcap.PcapHelper;
+import org.apache.metron.pcap.RawPacketHeader;
+import org.apache.metron.pcap.filter.fixed.FixedPcapFilter;
+
+/**
+ * Decides whether a stored packet is part of the results of a query, from its timestamp and the
+ * query's filter.  A filter on the packet header alone is applied to the raw bytes, without copying
+ * and decoding the packet.  Not thread safe.
+ */
+public class PcapPacketMatcher {
+
+  public enum Result {
+    MATCH,
+    NO_MATCH,
+    MALFORMED
+  }
+
+  private final PcapFilter filter;
+  private final FixedPcapFilter headerFilter;
+  private final RawPacketHeader header = new RawPacketHeader();
+  private final long start;
+  private final long end;
+
+  /**
+   * @param filter The filter of the query
+   * @param start The start of the time range of the query in nanoseconds, inclusive
+   * @param end The end of the time range of the query in nanoseconds, inclusive
+   */
+  public PcapPacketMatcher(PcapFilter filter, long start, long end) {
+    this.filter = filter;
+    if (filter instanceof FixedPcapFilter && ((FixedPcapFilter) filter).isHeaderOnly()) {
+      headerFilter = (FixedPcapFilter) filter;
+    } else {
+      headerFilter = null;
+    }
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * @param timestamp The timestamp of the packet
+   * @param pcap A buffer holding the packet, with its pcap global and packet headers
+   * @param length The length of the packet in the buffer
+   */
+  public Result match(long timestamp, byte[] pcap, int length) {
+    if (!greaterThanOrEqualTo(timestamp, start) || !lessThanOrEqualTo(timestamp, end)) {
+      return Result.NO_MATCH;
+    }
+    if (headerFilter != null && header.parse(pcap, 0, length)) {
+      return headerFilter.testHeader(header) ? Result.MATCH : Result.NO_MATCH;
+    }
+    // It is assumed that the value is always a *single* PacketInfo object. Passing more than 1
+    // object will result in the whole set being passed through if any pass the filter. We cannot serialize PacketInfo
+    // objects back to byte arrays, otherwise we could support more than one packet.
+    List<PacketInfo> packetInfos;
+    try {
+      packetInfos = PcapHelper.toPacketInfo(length == pcap.length ? pcap : Arrays.copyOf(pcap, length));
+    } catch (Exception e) {
+      // toPacketInfo is throwing RuntimeExceptions, so these are counted as malformed packets
+      return Result.MALFORMED;
+    }
+    // Note: short-circuit anyMatch
+    return packetInfos.stream().anyMatch(filter) ? Result.MATCH : Result.NO_MATCH;
+  }
+}
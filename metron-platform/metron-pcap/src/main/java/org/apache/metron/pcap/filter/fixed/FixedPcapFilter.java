@@ -26,9 +26,11 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.metron.common.Constants;
 import org.apache.metron.pcap.PacketInfo;
 import org.apache.metron.pcap.PcapHelper;
+import org.apache.metron.pcap.RawPacketHeader;
 import org.apache.metron.pcap.filter.PcapFilter;
 import org.apache.metron.pcap.filter.PcapFilterConfigurator;
 import org.apache.metron.pcap.filter.PcapFilters;
+import org.apache.metron.pcap.index.PcapIndex;
 import org.apache.metron.pcap.pattern.ByteArrayMatchingUtil;
 import org.apache.metron.stellar.dsl.MapVariableResolver;
 import org.apache.metron.stellar.dsl.VariableResolver;
@@ -60,6 +62,11 @@ public class FixedPcapFilter implements PcapFilter {
   private String protocol;
   private boolean includesReverseTraffic = false;
   private boolean doHeaderFiltering = false;
+  // the header criteria as read from raw packet headers
+  private Integer protocolNumber;
+  private Integer srcAddrBits;
+  private Integer dstAddrBits;
+  private boolean doRawHeaderFiltering = false;
 
   @Override
   public void configure(Iterable<Map.Entry<String, String>> config) {
@@ -98,6 +105,72 @@ public class FixedPcapFilter implements PcapFilter {
         this.packetFilter = kv.getValue();
       }
     }
+    protocolNumber = protocol == null ? null : parseProtocol(protocol);
+    srcAddrBits = srcAddr == null ? null : RawPacketHeader.parseAddress(srcAddr);
+    dstAddrBits = dstAddr == null ? null : RawPacketHeader.parseAddress(dstAddr);
+    doRawHeaderFiltering = doHeaderFiltering
+            && (protocol == null || protocolNumber != null)
+            && (srcAddr == null || srcAddrBits != null)
+            && (dstAddr == null || dstAddrBits != null);
+  }
+
+  /**
+   * @return Whether packets can be filtered by {@link #testHeader(RawPacketHeader)} on their raw
+   * headers alone, without being decoded
+   */
+  public boolean isHeaderOnly() {
+    return doRawHeaderFiltering && packetFilter == null;
+  }
+
+  /**
+   * Tests a packet on its raw header, with the same result as {@link #test(PacketInfo)} on the
+   * decoded packet.  Only valid if {@link #isHeaderOnly()}.
+   */
+  public boolean testHeader(RawPacketHeader header) {
+    if (protocolNumber != null && protocolNumber != header.getProtocol()) {
+      return false;
+    }
+    return matchesHeader(header, false) || (includesReverseTraffic && matchesHeader(header, true));
+  }
+
+  @Override
+  public boolean mightMatch(PcapIndex.Block block) {
+    if (!doRawHeaderFiltering || !block.isComplete()) {
+      return true;
+    }
+    if (protocolNumber != null && !block.hasProtocol(protocolNumber)) {
+      return false;
+    }
+    return block.mightContain(srcAddrBits, srcPort, dstAddrBits, dstPort)
+            || (includesReverseTraffic && block.mightContain(dstAddrBits, dstPort, srcAddrBits, srcPort));
+  }
+
+  private boolean matchesHeader(RawPacketHeader header, boolean reverse) {
+    if (!header.isTransport()) {
+      // only TCP and UDP packets have addresses and ports
+      return srcAddr == null && srcPort == null && dstAddr == null && dstPort == null;
+    }
+    return headerMatches(srcAddrBits, reverse ? header.getDstAddr() : header.getSrcAddr())
+            && headerMatches(srcPort, reverse ? header.getDstPort() : header.getSrcPort())
+            && headerMatches(dstAddrBits, reverse ? header.getSrcAddr() : header.getDstAddr())
+            && headerMatches(dstPort, reverse ? header.getSrcPort() : header.getDstPort());
+  }
+
+  private static boolean headerMatches(Integer filter, int input) {
+    return filter == null || filter == input;
+  }
+
+  /**
+   * @return The protocol number, or null if the protocol is not exactly as an IP protocol number
+   * is formatted, in which case it is compared only with decoded packets
+   */
+  private static Integer parseProtocol(String protocol) {
+    try {
+      int ret = Integer.parseInt(protocol);
+      return ret >= 0 && ret < 256 && Integer.toString(ret).equals(protocol) ? ret : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
   }
 
 
@@ -26,17 +26,20 @@ import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.LocatedFileStatus;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.RemoteIterator;
-import org.apache.metron.common.hadoop.SequenceFileIterable;
+import org.apache.metron.common.hadoop.SequenceFileMergeIterable;
 import org.apache.metron.job.Finalizer;
 import org.apache.metron.job.JobException;
 import org.apache.metron.job.Pageable;
@@ -47,10 +50,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Takes Pcap results from a specified path - for PCAP, it is assumed that these results are SequenceFileIterables.
- * The results are then processed by partitioning the results based on a num records per file option
- * into a final output file with a PCAP header for each partition, and written to a final output location.
- * The MapReduce results are cleaned up after successfully writing out the final results.
+ * Takes Pcap results from a specified path - for PCAP, it is assumed that these results are sequence files,
+ * each sorted by timestamp. The results are merged in timestamp order as they are read, and partitioned
+ * based on a num records per file option into a final output file with a PCAP header for each partition,
+ * written to a final output location. Only the pages being written are held in memory, so memory use does
+ * not grow with the size of the results. The MapReduce results are cleaned up after successfully writing
+ * out the final results.
  */
 public abstract class PcapFinalizer implements Finalizer<Path> {
 
@@ -76,24 +81,16 @@ public abstract class PcapFinalizer implements Finalizer<Path> {
     int parallelism = getNumThreads(PcapOptions.FINALIZER_THREADPOOL_SIZE.get(config, String.class));
     LOG.info("Finalizer running with parallelism set to " + parallelism);
 
-    SequenceFileIterable interimResults = null;
+    SequenceFileMergeIterable interimResults = null;
     try {
       interimResults = readInterimResults(interimResultPath, hadoopConfig, fs);
     } catch (IOException e) {
       throw new JobException("Unable to read interim job results while finalizing", e);
     }
-    List<Path> outFiles = new ArrayList<>();
+    List<Path> outFiles;
     try {
-      Iterable<List<byte[]>> partitions = Iterables.partition(interimResults, recPerFile);
-      Map<Path, List<byte[]>> toWrite = new HashMap<>();
-      int part = 1;
-      if (partitions.iterator().hasNext()) {
-        for (List<byte[]> data : partitions) {
-          Path outputPath = getOutputPath(config, part++);
-          toWrite.put(outputPath, data);
-        }
-        outFiles = writeParallel(hadoopConfig, toWrite, parallelism);
-      } else {
+      outFiles = writePages(config, hadoopConfig, interimResults, recPerFile, parallelism);
+      if (outFiles.isEmpty()) {
         LOG.info("No results returned.");
       }
     } catch (IOException e) {
@@ -130,32 +127,54 @@ public abstract class PcapFinalizer implements Finalizer<Path> {
     }
   }
 
-  protected List<Path> writeParallel(Configuration hadoopConfig, Map<Path, List<byte[]>> toWrite,
-      int parallelism) throws IOException {
-    List<Path> outFiles = Collections.synchronizedList(new ArrayList<>());
-    ForkJoinPool tp = new ForkJoinPool(parallelism);
+  /**
+   * Writes the results out in pages, in order.  Each page is filled from the results while up to
+   * parallelism earlier pages are being written, so at most parallelism + 1 pages are held in memory.
+   */
+  protected List<Path> writePages(Map<String, Object> config, Configuration hadoopConfig,
+      Iterable<byte[]> results, int recPerFile, int parallelism) throws IOException {
+    List<Path> outFiles = new ArrayList<>();
+    List<Future<Void>> writes = new ArrayList<>();
+    Semaphore permits = new Semaphore(parallelism);
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
     try {
-      tp.submit(() -> {
-        toWrite.entrySet().parallelStream().forEach(e -> {
-          Path path = e.getKey();
-          List<byte[]> data = e.getValue();
-          if (data.size() > 0) {
-            try {
-              write(getResultsWriter(), hadoopConfig, data, path);
-            } catch (IOException ioe) {
-              throw new RuntimeException(
-                  String.format("Failed to write results to path '%s'", path.toString()), ioe);
-            }
-            outFiles.add(path);
+      int part = 1;
+      for (List<byte[]> data : Iterables.partition(results, recPerFile)) {
+        Path path = getOutputPath(config, part++);
+        permits.acquire();
+        writes.add(executor.submit(() -> {
+          try {
+            write(getResultsWriter(), hadoopConfig, data, path);
+            return null;
+          } catch (IOException ioe) {
+            throw new IOException(String.format("Failed to write results to path '%s'", path.toString()), ioe);
+          } finally {
+            permits.release();
+          }
+        }));
+        outFiles.add(path);
+        // stop reading the results as soon as a page fails
+        for (Iterator<Future<Void>> it = writes.iterator(); it.hasNext(); ) {
+          Future<Void> write = it.next();
+          if (write.isDone()) {
+            write.get();
+            it.remove();
           }
-        });
-      }).get();
-    } catch (InterruptedException | ExecutionException  e) {
-      throw new IOException("Error finalizing results.", e);
+        }
+      }
+      for (Future<Void> write : writes) {
+        write.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while finalizing results.", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Error finalizing results.", e.getCause());
     } catch (RuntimeException e) {
       throw new IOException(e.getMessage(), e.getCause());
+    } finally {
+      executor.shutdownNow();
     }
-    outFiles.sort((o1, o2) -> o1.getName().compareTo(o2.getName()));
     return outFiles;
   }
 
@@ -165,9 +184,9 @@ public abstract class PcapFinalizer implements Finalizer<Path> {
   protected abstract Path getOutputPath(Map<String, Object> config, int partition);
 
   /**
-   * Returns a lazily-read Iterable over a set of sequence files.
+   * Returns a lazily-read Iterable merging a set of sequence files in timestamp order.
    */
-  protected SequenceFileIterable readInterimResults(Path interimResultPath, Configuration config,
+  protected SequenceFileMergeIterable readInterimResults(Path interimResultPath, Configuration config,
       FileSystem fs) throws IOException {
     List<Path> files = new ArrayList<>();
     for (RemoteIterator<LocatedFileStatus> it = fs.listFiles(interimResultPath, false);
@@ -185,6 +204,6 @@ public abstract class PcapFinalizer implements Finalizer<Path> {
       LOG.debug("Interim results path={}", interimResultPath);
       Collections.sort(files, (o1, o2) -> o1.getName().compareTo(o2.getName()));
     }
-    return new SequenceFileIterable(files, config);
+    return new SequenceFileMergeIterable(files, config);
   }
 }
@@ -36,8 +36,6 @@ public class PcapRestFinalizer extends PcapFinalizer {
 
   private static final String PCAP_REST_FILEPATH_FORMAT = "%s/%s/%s/%s/page-%s.pcap";
 
-  private String jobType = Statusable.JobType.MAP_REDUCE.name();
-
   @Override
   protected void write(PcapResultsWriter resultsWriter, Configuration hadoopConfig,
       List<byte[]> data, Path outputPath) throws IOException {
@@ -50,6 +48,7 @@ public class PcapRestFinalizer extends PcapFinalizer {
         .getOrDefault(config, String.class, FINAL_OUTPUT_PATH_DEFAULT);
     String user = PcapOptions.USERNAME.get(config, String.class);
     String jobId = PcapOptions.JOB_ID.get(config, String.class);
+    String jobType = PcapOptions.JOB_TYPE.getOrDefault(config, String.class, Statusable.JobType.MAP_REDUCE.name());
     return new Path(
         String.format(PCAP_REST_FILEPATH_FORMAT, finalOutputPath, user, jobType, jobId, partition));
   }
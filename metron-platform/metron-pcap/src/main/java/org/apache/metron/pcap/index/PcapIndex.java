@@ -0,0 +1,292 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.pcap.index;
+
+import static org.apache.metron.pcap.PcapHelper.greaterThanOrEqualTo;
+import static org.apache.metron.pcap.PcapHelper.lessThanOrEqualTo;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.common.utils.LazyLogger;
+import org.apache.metron.common.utils.LazyLoggerFactory;
+import org.apache.metron.pcap.RawPacketHeader;
+import org.apache.metron.pcap.filter.PcapFilter;
+
+/**
+ * A sidecar index of a pcap sequence file, written next to it once the file is complete.
+ *
+ * <p>The file is divided into blocks of consecutive packets, each starting at a sync point so
+ * that it can be read on its own.  For each block, the index records the byte range, the minimum and
+ * maximum timestamp, a bitmap of the IP protocols and a Bloom filter of the source and destination
+ * addresses and ports.  A query reads only the blocks that may hold matching packets, and skips files
+ * with none.  A file without an index, or with one that cannot be read, is read in full.
+ */
+public class PcapIndex {
+  private static final LazyLogger LOG = LazyLoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final String EXTENSION = ".index";
+  private static final int VERSION = 1;
+  private static final double FALSE_POSITIVE_RATE = 0.01;
+
+  private static final long SRC_ADDR = 1;
+  private static final long DST_ADDR = 2;
+  private static final long SRC_PORT = 3;
+  private static final long DST_PORT = 4;
+
+  /**
+   * The index of a range of consecutive packets in the file.
+   */
+  public static class Block {
+    private final long start;
+    private long end;
+    private long minTimestamp;
+    private long maxTimestamp;
+    private final long[] protocols;
+    private boolean complete;
+    private final BloomFilter<Long> headers;
+
+    Block(long start, int expectedPackets) {
+      this(start, start, -1L, 0L, new long[4], true, BloomFilter.create(Funnels.longFunnel(), expectedPackets, FALSE_POSITIVE_RATE));
+    }
+
+    private Block(long start, long end, long minTimestamp, long maxTimestamp, long[] protocols, boolean complete, BloomFilter<Long> headers) {
+      this.start = start;
+      this.end = end;
+      this.minTimestamp = minTimestamp;
+      this.maxTimestamp = maxTimestamp;
+      this.protocols = protocols;
+      this.complete = complete;
+      this.headers = headers;
+    }
+
+    /**
+     * Adds a packet to the block.
+     * @param header The header of the packet, or null if it could not be read
+     */
+    void add(long timestamp, RawPacketHeader header) {
+      if (lessThanOrEqualTo(timestamp, minTimestamp)) {
+        minTimestamp = timestamp;
+      }
+      if (greaterThanOrEqualTo(timestamp, maxTimestamp)) {
+        maxTimestamp = timestamp;
+      }
+      if (header == null) {
+        complete = false;
+        return;
+      }
+      protocols[header.getProtocol() >>> 6] |= 1L << header.getProtocol();
+      if (header.isTransport()) {
+        headers.put(key(SRC_ADDR, header.getSrcAddr()));
+        headers.put(key(DST_ADDR, header.getDstAddr()));
+        headers.put(key(SRC_PORT, header.getSrcPort()));
+        headers.put(key(DST_PORT, header.getDstPort()));
+      }
+    }
+
+    void setEnd(long end) {
+      this.end = end;
+    }
+
+    /**
+     * @return The position of the block in the file
+     */
+    public long getStart() {
+      return start;
+    }
+
+    /**
+     * @return The position just past the end of the block in the file
+     */
+    public long getEnd() {
+      return end;
+    }
+
+    /**
+     * @return Whether any packet in the block has a timestamp in the range, inclusive
+     */
+    public boolean overlaps(long beginNS, long endNS) {
+      return lessThanOrEqualTo(minTimestamp, endNS) && greaterThanOrEqualTo(maxTimestamp, beginNS);
+    }
+
+    /**
+     * @return Whether the header of every packet in the block was indexed.  If not, only the
+     * timestamps of the block can be relied on.
+     */
+    public boolean isComplete() {
+      return complete;
+    }
+
+    /**
+     * @return Whether any packet in the block has the IP protocol
+     */
+    public boolean hasProtocol(int protocol) {
+      return protocol >= 0 && protocol < 256 && (protocols[protocol >>> 6] & (1L << protocol)) != 0;
+    }
+
+    /**
+     * @return Whether any TCP or UDP packet in the block may have all of the given addresses and
+     * ports, each of which may be null to match any
+     */
+    public boolean mightContain(Integer srcAddr, Integer srcPort, Integer dstAddr, Integer dstPort) {
+      return mightContain(SRC_ADDR, srcAddr) && mightContain(SRC_PORT, srcPort)
+              && mightContain(DST_ADDR, dstAddr) && mightContain(DST_PORT, dstPort);
+    }
+
+    private boolean mightContain(long field, Integer value) {
+      return value == null || headers.mightContain(key(field, value));
+    }
+
+    private static Long key(long field, int value) {
+      return (field << 32) | (value & 0xffffffffL);
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeLong(start);
+      out.writeLong(end);
+      out.writeLong(minTimestamp);
+      out.writeLong(maxTimestamp);
+      for (long protocol : protocols) {
+        out.writeLong(protocol);
+      }
+      out.writeBoolean(complete);
+      headers.writeTo(out);
+    }
+
+    private static Block read(DataInputStream in) throws IOException {
+      long start = in.readLong();
+      long end = in.readLong();
+      long minTimestamp = in.readLong();
+      long maxTimestamp = in.readLong();
+      long[] protocols = new long[4];
+      for (int i = 0; i < protocols.length; i++) {
+        protocols[i] = in.readLong();
+      }
+      boolean complete = in.readBoolean();
+      BloomFilter<Long> headers = BloomFilter.readFrom(in, Funnels.longFunnel());
+      return new Block(start, end, minTimestamp, maxTimestamp, protocols, complete, headers);
+    }
+  }
+
+  private final List<Block> blocks;
+
+  public PcapIndex(List<Block> blocks) {
+    this.blocks = blocks;
+  }
+
+  public List<Block> getBlocks() {
+    return Collections.unmodifiableList(blocks);
+  }
+
+  /**
+   * Finds the parts of the file that may hold packets matching a query.
+   * @param beginNS The start of the time range of the query, inclusive
+   * @param endNS The end of the time range of the query, inclusive
+   * @param filter The filter of the query
+   * @return The byte ranges, as start and end positions, of the blocks that may hold matching
+   * packets.  Adjacent blocks are merged into a single range.
+   */
+  public List<long[]> getRanges(long beginNS, long endNS, PcapFilter filter) {
+    List<long[]> ranges = new ArrayList<>();
+    long[] last = null;
+    for (Block block : blocks) {
+      if (block.overlaps(beginNS, endNS) && filter.mightMatch(block)) {
+        if (last != null && last[1] == block.getStart()) {
+          last[1] = block.getEnd();
+        } else {
+          last = new long[] {block.getStart(), block.getEnd()};
+          ranges.add(last);
+        }
+      }
+    }
+    return ranges;
+  }
+
+  /**
+   * @param file A pcap sequence file
+   * @return The path of the file's index
+   */
+  public static Path getIndexPath(Path file) {
+    return new Path(file.getParent(), file.getName() + EXTENSION);
+  }
+
+  /**
+   * @return Whether the path is of an index, rather than of a pcap sequence file
+   */
+  public static boolean isIndex(Path path) {
+    return path.getName().endsWith(EXTENSION);
+  }
+
+  /**
+   * Writes the index of a pcap sequence file.
+   * @param fs The file system of the file
+   * @param file The pcap sequence file
+   */
+  public void write(FileSystem fs, Path file) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fs.create(getIndexPath(file), true)))) {
+      out.writeInt(VERSION);
+      out.writeInt(blocks.size());
+      for (Block block : blocks) {
+        block.write(out);
+      }
+    }
+  }
+
+  /**
+   * Reads the index of a pcap sequence file.
+   * @param fs The file system of the file
+   * @param file The pcap sequence file
+   * @return The index, or null if the file has no index or it cannot be read
+   */
+  public static PcapIndex read(FileSystem fs, Path file) {
+    Path indexPath = getIndexPath(file);
+    try {
+      if (!fs.exists(indexPath)) {
+        return null;
+      }
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(fs.open(indexPath)))) {
+        int version = in.readInt();
+        if (version != VERSION) {
+          LOG.warn("Ignoring index {} of unknown version {}", indexPath, version);
+          return null;
+        }
+        int count = in.readInt();
+        List<Block> blocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          blocks.add(Block.read(in));
+        }
+        return new PcapIndex(blocks);
+      }
+    } catch (IOException | RuntimeException e) {
+      // an index is only an optimization, so the file is read in full instead
+      LOG.warn("Unable to read index {}, so the file will be read in full", indexPath, e);
+      return null;
+    }
+  }
+}
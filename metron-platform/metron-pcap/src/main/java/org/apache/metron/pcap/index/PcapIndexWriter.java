@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.pcap.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.metron.pcap.RawPacketHeader;
+
+/**
+ * Builds the {@link PcapIndex} of a pcap sequence file as its packets are written.
+ *
+ * <p>The first block starts at the beginning of the file.  Once a block is full, the caller must
+ * start the next one at a sync point of the file, before appending the next packet.
+ */
+public class PcapIndexWriter {
+  private final int packetsPerBlock;
+  private final RawPacketHeader header = new RawPacketHeader();
+  private final List<PcapIndex.Block> blocks = new ArrayList<>();
+  private PcapIndex.Block current;
+  private int packets;
+
+  /**
+   * @param packetsPerBlock The number of packets in each block
+   */
+  public PcapIndexWriter(int packetsPerBlock) {
+    this.packetsPerBlock = packetsPerBlock;
+    startBlock(0);
+  }
+
+  /**
+   * @return Whether the current block is full, so the next packet must start a new block
+   */
+  public boolean isBlockFull() {
+    return packets >= packetsPerBlock;
+  }
+
+  /**
+   * Starts a new block.
+   * @param position The position of the sync point starting the block
+   */
+  public void startBlock(long position) {
+    if (current != null) {
+      current.setEnd(position);
+    }
+    current = new PcapIndex.Block(position, packetsPerBlock);
+    blocks.add(current);
+    packets = 0;
+  }
+
+  /**
+   * Adds a packet to the current block.
+   * @param timestamp The timestamp of the packet
+   * @param pcap The packet, with its pcap global and packet headers
+   */
+  public void add(long timestamp, byte[] pcap) {
+    current.add(timestamp, header.parse(pcap, 0, pcap.length) ? header : null);
+    packets++;
+  }
+
+  /**
+   * @param length The length of the complete file
+   * @return The index of the file
+   */
+  public PcapIndex finish(long length) {
+    current.setEnd(length);
+    return new PcapIndex(blocks);
+  }
+}
@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.pcap.local;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.metron.common.utils.LazyLogger;
+import org.apache.metron.common.utils.LazyLoggerFactory;
+import org.apache.metron.pcap.filter.PcapFilters;
+import org.apache.metron.pcap.filter.PcapPacketMatcher;
+
+/**
+ * Runs a pcap query in process, as an alternative to a MapReduce job for queries that read little
+ * data.  The files are read in parallel on a fork/join pool, and the matching packets are written in
+ * timestamp order to a single sequence file, which the job's finalizer pages like the output of the
+ * MapReduce job.
+ *
+ * <p>The matching packets are held in memory until they are written, so a query should only be run
+ * in process if the bytes it reads are bounded.
+ */
+public class LocalPcapQuery {
+
+  private static final LazyLogger LOG = LazyLoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  public static final String OUTPUT_FILE_NAME = "part-r-00000";
+
+  private static class Packet {
+    private final long timestamp;
+    private final byte[] pcap;
+
+    private Packet(long timestamp, byte[] pcap) {
+      this.timestamp = timestamp;
+      this.pcap = pcap;
+    }
+  }
+
+  private final Map<Path, List<long[]>> ranges;
+  private final long beginNS;
+  private final long endNS;
+  private final Configuration conf;
+  private final AtomicInteger filesRead = new AtomicInteger();
+  private final AtomicLong malformedPackets = new AtomicLong();
+  private volatile boolean killed;
+
+  /**
+   * @param ranges The files to read, each with the byte ranges, as start and end positions, to read
+   *               from it
+   * @param beginNS The start of the time range of the query, inclusive
+   * @param endNS The end of the time range of the query, inclusive
+   * @param conf The configuration of the query, including its filter
+   */
+  public LocalPcapQuery(Map<Path, List<long[]>> ranges, long beginNS, long endNS, Configuration conf) {
+    this.ranges = ranges;
+    this.beginNS = beginNS;
+    this.endNS = endNS;
+    this.conf = conf;
+  }
+
+  /**
+   * @return Whether there are no files to read
+   */
+  public boolean isEmpty() {
+    return ranges.isEmpty();
+  }
+
+  /**
+   * @return The fraction of the files that have been read
+   */
+  public float getProgress() {
+    return ranges.isEmpty() ? 1.0f : (float) filesRead.get() / ranges.size();
+  }
+
+  /**
+   * Stops the query.  A query that is killed does not write its results.
+   */
+  public void kill() {
+    killed = true;
+  }
+
+  public boolean isKilled() {
+    return killed;
+  }
+
+  /**
+   * Runs the query, blocking until it completes or is killed.
+   * @param outputPath The directory to write the results to
+   * @param parallelism The number of files to read at once
+   * @return The number of matching packets
+   */
+  public long run(Path outputPath, int parallelism) throws IOException {
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, ranges.size())));
+    List<Packet> packets = new ArrayList<>();
+    try {
+      List<List<Packet>> results = pool.submit(() ->
+          ranges.entrySet().parallelStream()
+              .map(file -> read(file.getKey(), file.getValue()))
+              .collect(Collectors.toList())
+      ).get();
+      results.forEach(packets::addAll);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading pcap files.", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Error reading pcap files.", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+    if (malformedPackets.get() > 0) {
+      LOG.warn("Skipped {} malformed packets", malformedPackets.get());
+    }
+    if (killed) {
+      return 0;
+    }
+    // stable, so that packets with the same timestamp keep the order of the files
+    packets.sort((p1, p2) -> Long.compareUnsigned(p1.timestamp, p2.timestamp));
+    write(new Path(outputPath, OUTPUT_FILE_NAME), packets);
+    return packets.size();
+  }
+
+  /**
+   * Reads the packets of a file in the given ranges, as a MapReduce job reads the splits of the file.
+   */
+  private List<Packet> read(Path file, List<long[]> fileRanges) {
+    PcapPacketMatcher matcher = new PcapPacketMatcher(PcapFilters.fromConfiguration(conf), beginNS, endNS);
+    List<Packet> ret = new ArrayList<>();
+    LongWritable key = new LongWritable();
+    BytesWritable value = new BytesWritable();
+    try (SequenceFile.Reader reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(file))) {
+      for (long[] range : fileRanges) {
+        if (range[0] > reader.getPosition()) {
+          reader.sync(range[0]);
+        }
+        while (!killed) {
+          long position = reader.getPosition();
+          if (!reader.next(key, value) || (position >= range[1] && reader.syncSeen())) {
+            break;
+          }
+          switch (matcher.match(key.get(), value.getBytes(), value.getLength())) {
+            case MATCH:
+              ret.add(new Packet(key.get(), value.copyBytes()));
+              break;
+            case MALFORMED:
+              malformedPackets.incrementAndGet();
+              break;
+            default:
+              break;
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Failed to read pcap file '%s'", file), e);
+    }
+    filesRead.incrementAndGet();
+    LOG.debug("Read {} matching packets from {}", ret.size(), file);
+    return ret;
+  }
+
+  private void write(Path path, List<Packet> packets) throws IOException {
+    try (SequenceFile.Writer writer = SequenceFile.createWriter(conf,
+        SequenceFile.Writer.file(path),
+        SequenceFile.Writer.keyClass(LongWritable.class),
+        SequenceFile.Writer.valueClass(BytesWritable.class))) {
+      LongWritable key = new LongWritable();
+      BytesWritable value = new BytesWritable();
+      for (Packet packet : packets) {
+        key.set(packet.timestamp);
+        value.set(packet.pcap, 0, packet.pcap.length);
+        writer.append(key, value);
+      }
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.pcap.mr;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.metron.common.utils.LazyLogger;
+import org.apache.metron.common.utils.LazyLoggerFactory;
+import org.apache.metron.pcap.filter.PcapFilter;
+import org.apache.metron.pcap.filter.PcapFilters;
+import org.apache.metron.pcap.index.PcapIndex;
+
+/**
+ * Reads pcap sequence files, skipping the parts of indexed files that the {@link PcapIndex} shows
+ * cannot hold packets matching the query.  Files without an index are read in full.
+ */
+public class PcapInputFormat extends SequenceFileInputFormat<LongWritable, BytesWritable> {
+  private static final LazyLogger LOG = LazyLoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Override
+  public List<InputSplit> getSplits(JobContext job) throws IOException {
+    Configuration conf = job.getConfiguration();
+    long beginNS = Long.parseUnsignedLong(conf.get(PcapJob.START_TS_CONF));
+    long endNS = Long.parseUnsignedLong(conf.get(PcapJob.END_TS_CONF));
+    PcapFilter filter = PcapFilters.fromConfiguration(conf);
+
+    Map<Path, List<FileSplit>> splitsByFile = new LinkedHashMap<>();
+    for (InputSplit split : super.getSplits(job)) {
+      FileSplit fileSplit = (FileSplit) split;
+      splitsByFile.computeIfAbsent(fileSplit.getPath(), path -> new ArrayList<>()).add(fileSplit);
+    }
+    List<InputSplit> ret = new ArrayList<>();
+    for (Map.Entry<Path, List<FileSplit>> file : splitsByFile.entrySet()) {
+      PcapIndex index = PcapIndex.read(file.getKey().getFileSystem(conf), file.getKey());
+      if (index == null) {
+        ret.addAll(file.getValue());
+        continue;
+      }
+      int before = ret.size();
+      for (long[] range : index.getRanges(beginNS, endNS, filter)) {
+        // split the range along the original splits, so that large ranges are still read in parallel and locally
+        for (FileSplit split : file.getValue()) {
+          long start = Math.max(range[0], split.getStart());
+          long end = Math.min(range[1], split.getStart() + split.getLength());
+          if (start < end) {
+            ret.add(new FileSplit(split.getPath(), start, end - start, split.getLocations()));
+          }
+        }
+      }
+      LOG.debug("Reading {} of {} splits of {}", ret.size() - before, file.getValue().size(), file.getKey());
+    }
+    return ret;
+  }
+}
@@ -18,8 +18,7 @@
 
 package org.apache.metron.pcap.mr;
 
-import static org.apache.metron.pcap.PcapHelper.greaterThanOrEqualTo;
-import static org.apache.metron.pcap.PcapHelper.lessThanOrEqualTo;
+import static org.apache.metron.pcap.config.PcapGlobalDefaults.LOCAL_QUERY_MAX_BYTES_DEFAULT;
 import static org.apache.metron.pcap.config.PcapGlobalDefaults.NUM_REDUCERS_DEFAULT;
 
 import com.google.common.base.Joiner;
@@ -28,14 +27,16 @@ import java.lang.invoke.MethodHandles;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.stream.Stream;
+import java.util.UUID;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
@@ -49,7 +50,6 @@ import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Partitioner;
 import org.apache.hadoop.mapreduce.Reducer;
-import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.metron.common.utils.LazyLogger;
 import org.apache.metron.common.utils.LazyLoggerFactory;
@@ -60,19 +60,23 @@ import org.apache.metron.job.JobStatus;
 import org.apache.metron.job.JobStatus.State;
 import org.apache.metron.job.Pageable;
 import org.apache.metron.job.Statusable;
-import org.apache.metron.pcap.PacketInfo;
-import org.apache.metron.pcap.PcapHelper;
 import org.apache.metron.pcap.PcapPages;
 import org.apache.metron.pcap.config.PcapGlobalDefaults;
 import org.apache.metron.pcap.config.PcapOptions;
 import org.apache.metron.pcap.filter.PcapFilter;
 import org.apache.metron.pcap.filter.PcapFilterConfigurator;
 import org.apache.metron.pcap.filter.PcapFilters;
+import org.apache.metron.pcap.filter.PcapPacketMatcher;
+import org.apache.metron.pcap.index.PcapIndex;
+import org.apache.metron.pcap.local.LocalPcapQuery;
 import org.apache.metron.pcap.utils.FileFilterUtil;
 
 /**
  * Encompasses MapReduce job and final writing of Pageable results to specified location.
  * Cleans up MapReduce results from HDFS on completion.
+ *
+ * <p>A query that reads no more than {@link PcapOptions#LOCAL_QUERY_MAX_BYTES} bytes is run in process
+ * by a {@link LocalPcapQuery} instead, which avoids the cost of scheduling a MapReduce job.
  */
 public class PcapJob<T> implements Statusable<Path> {
 
@@ -82,8 +86,10 @@ public class PcapJob<T> implements Statusable<Path> {
   public static final String WIDTH_CONF = "width";
   private static final long THREE_SECONDS = 3000;
   private static final long ONE_SECOND = 1000;
+  private static final float QUERY_FRACTION = 0.75f; // fraction of total job progress calculation we're allocating to the query vs finalization
   private final OutputDirFormatter outputDirFormatter;
   private Job mrJob; // store a running MR job reference for async status check
+  private LocalPcapQuery localQuery; // or the query run in process instead of a MR job
   private JobStatus jobStatus; // overall job status, including finalization step
   private Finalizer<Path> finalizer;
   private Map<String, Object> configuration;
@@ -135,44 +141,30 @@ public class PcapJob<T> implements Statusable<Path> {
 
   public static class PcapMapper extends Mapper<LongWritable, BytesWritable, LongWritable, BytesWritable> {
 
-    PcapFilter filter;
-    long start;
-    long end;
+    PcapPacketMatcher matcher;
 
     @Override
     protected void setup(Context context) throws IOException, InterruptedException {
       super.setup(context);
-      filter = PcapFilters.valueOf(context.getConfiguration().get(PcapFilterConfigurator.PCAP_FILTER_NAME_CONF)).create();
-      filter.configure(context.getConfiguration());
-      start = Long.parseUnsignedLong(context.getConfiguration().get(START_TS_CONF));
-      end = Long.parseUnsignedLong(context.getConfiguration().get(END_TS_CONF));
+      long start = Long.parseUnsignedLong(context.getConfiguration().get(START_TS_CONF));
+      long end = Long.parseUnsignedLong(context.getConfiguration().get(END_TS_CONF));
+      matcher = new PcapPacketMatcher(PcapFilters.fromConfiguration(context.getConfiguration()), start, end);
     }
 
     @Override
     protected void map(LongWritable key, BytesWritable value, Context context) throws IOException, InterruptedException {
-      if (greaterThanOrEqualTo(key.get(), start) && lessThanOrEqualTo(key.get(), end)) {
-        // It is assumed that the passed BytesWritable value is always a *single* PacketInfo object. Passing more than 1
-        // object will result in the whole set being passed through if any pass the filter. We cannot serialize PacketInfo
-        // objects back to byte arrays, otherwise we could support more than one packet.
-        // Note: short-circuit findAny() func on stream
-        List<PacketInfo> packetInfos;
-        try {
-          packetInfos = PcapHelper.toPacketInfo(value.copyBytes());
-        } catch (Exception e) {
-          // toPacketInfo is throwing RuntimeExceptions. Attempt to catch and count errors with malformed packets
-          context.getCounter(PCAP_COUNTER.MALFORMED_PACKET_COUNT).increment(1);
-          return;
-        }
-        boolean send = filteredPacketInfo(packetInfos).findAny().isPresent();
-        if (send) {
+      switch (matcher.match(key.get(), value.getBytes(), value.getLength())) {
+        case MATCH:
           context.write(key, value);
-        }
+          break;
+        case MALFORMED:
+          // attempt to catch and count errors with malformed packets
+          context.getCounter(PCAP_COUNTER.MALFORMED_PACKET_COUNT).increment(1);
+          break;
+        default:
+          break;
       }
     }
-
-    private Stream<PacketInfo> filteredPacketInfo(List<PacketInfo> packetInfos) throws IOException {
-      return packetInfos.stream().filter(filter);
-    }
   }
 
   public static class PcapReducer extends Reducer<LongWritable, BytesWritable, LongWritable, BytesWritable> {
@@ -252,6 +244,7 @@ public class PcapJob<T> implements Statusable<Path> {
           fileSystem,
           filterImpl);
       PcapOptions.JOB_ID.put(configuration, statusable.getStatus().getJobId());
+      PcapOptions.JOB_TYPE.put(configuration, JobType.MAP_REDUCE.name());
       return statusable;
     } catch (IOException | InterruptedException | ClassNotFoundException e) {
       throw new JobException("Failed to run pcap query.", e);
@@ -284,17 +277,25 @@ public class PcapJob<T> implements Statusable<Path> {
     }
     Path interimResultPath =  new Path(baseInterimResultPath, outputDirName);
     PcapOptions.INTERIM_RESULT_PATH.put(configuration, interimResultPath);
-    mrJob = createJob(jobName
-        , basePath
-        , interimResultPath
-        , beginNS
-        , endNS
-        , numReducers
-        , fields
-        , conf
-        , fs
-        , filterImpl
-    );
+    LocalPcapQuery plannedLocalQuery = planLocalQuery(basePath, beginNS, endNS, numReducers, fields, conf, fs, filterImpl);
+    if (plannedLocalQuery != null) {
+      if (!plannedLocalQuery.isEmpty()) {
+        submitLocalQuery(plannedLocalQuery, interimResultPath);
+        return this;
+      }
+    } else {
+      mrJob = createJob(jobName
+          , basePath
+          , interimResultPath
+          , beginNS
+          , endNS
+          , numReducers
+          , fields
+          , conf
+          , fs
+          , filterImpl
+      );
+    }
     if (mrJob == null) {
       LOG.info("No files to process with specified date range.");
       try {
@@ -321,6 +322,100 @@ public class PcapJob<T> implements Statusable<Path> {
     return this;
   }
 
+  /**
+   * Plans the query to run in process if the bytes it reads, from the matching blocks of indexed files
+   * and the whole of the other files in the time range, are no more than the configured maximum.
+   *
+   * @return The query to run in process, or null if it should run as a MapReduce job
+   */
+  private LocalPcapQuery planLocalQuery(Path basePath, long beginNS, long endNS, int numReducers, T fields,
+      Configuration conf, FileSystem fs, PcapFilterConfigurator<T> filterImpl) throws IOException {
+    long maxBytes = PcapOptions.LOCAL_QUERY_MAX_BYTES.getOrDefault(configuration, Long.class, LOCAL_QUERY_MAX_BYTES_DEFAULT);
+    if (maxBytes <= 0) {
+      return null;
+    }
+    configure(beginNS, endNS, numReducers, fields, conf, filterImpl);
+    PcapFilter filter = PcapFilters.fromConfiguration(conf);
+    Map<Path, List<long[]>> ranges = new LinkedHashMap<>();
+    long bytes = 0;
+    for (String path : FileFilterUtil.getPathsInTimeRange(beginNS, endNS, listFiles(fs, basePath))) {
+      Path file = new Path(path);
+      PcapIndex index = PcapIndex.read(fs, file);
+      List<long[]> fileRanges = index == null
+          ? Collections.singletonList(new long[] {0, fs.getFileStatus(file).getLen()})
+          : index.getRanges(beginNS, endNS, filter);
+      for (long[] range : fileRanges) {
+        bytes += range[1] - range[0];
+      }
+      if (bytes > maxBytes) {
+        LOG.debug("Running query as a MapReduce job, as it reads more than {} bytes", maxBytes);
+        return null;
+      }
+      if (!fileRanges.isEmpty()) {
+        ranges.put(file, fileRanges);
+      }
+    }
+    LOG.debug("Running query in process, as it reads {} bytes of {} files", bytes, ranges.size());
+    return new LocalPcapQuery(ranges, beginNS, endNS, conf);
+  }
+
+  private void submitLocalQuery(LocalPcapQuery query, Path interimResultPath) {
+    String jobId = "job_local_" + UUID.randomUUID().toString().replace("-", "");
+    // the finalizer may need the job id and type before submit() returns
+    PcapOptions.JOB_ID.put(configuration, jobId);
+    PcapOptions.JOB_TYPE.put(configuration, JobType.LOCAL.name());
+    synchronized (this) {
+      localQuery = query;
+      jobStatus.withState(State.SUBMITTED).withDescription("Job submitted").withJobId(jobId);
+    }
+    getTimer().schedule(new TimerTask() {
+      @Override
+      public void run() {
+        runLocalQuery(interimResultPath);
+      }
+    }, 0);
+  }
+
+  /**
+   * Runs the in process query and finalizes its results, updating the job status as it goes.
+   */
+  private void runLocalQuery(Path interimResultPath) {
+    JobStatus tempStatus;
+    synchronized (this) {
+      jobStatus.withState(State.RUNNING).withDescription("Reading pcap files.");
+      tempStatus = new JobStatus(jobStatus);
+    }
+    try {
+      long numPackets = localQuery.run(interimResultPath, Runtime.getRuntime().availableProcessors());
+      if (localQuery.isKilled()) {
+        tempStatus.withPercentComplete(100.0).withState(State.KILLED).withDescription("Job killed.");
+      } else {
+        LOG.info("Query matched {} packets", numPackets);
+        tempStatus.withPercentComplete(100.0 * QUERY_FRACTION).withState(State.FINALIZING).withDescription("Finalizing job.");
+        synchronized (this) {
+          // want to update the description while the job is finalizing
+          jobStatus = new JobStatus(tempStatus);
+        }
+        setFinalResults(finalizer, configuration);
+        tempStatus.withPercentComplete(100.0).withState(State.SUCCEEDED).withDescription("Job completed.");
+      }
+    } catch (IOException e) {
+      tempStatus.withPercentComplete(100.0).withState(State.FAILED).withDescription("Job failed.")
+          .withFailureException(e);
+    } catch (JobException je) {
+      tempStatus.withPercentComplete(100.0).withState(State.FAILED).withDescription("Job finalize failed.")
+          .withFailureException(je);
+    } catch (Throwable t) {
+      // anything else would kill the timer thread and leave the job running forever
+      LOG.error("Local pcap query failed", t);
+      tempStatus.withPercentComplete(100.0).withState(State.FAILED).withDescription("Job failed.")
+          .withFailureException(t);
+    }
+    synchronized (this) {
+      jobStatus = new JobStatus(tempStatus);
+    }
+  }
+
   private void startJobStatusTimerThread(long interval) {
     getTimer().scheduleAtFixedRate(new TimerTask() {
       @Override
@@ -347,7 +442,7 @@ public class PcapJob<T> implements Statusable<Path> {
    */
   private boolean updateStatus() {
     JobStatus tempStatus = null;
-    final float mrJobFraction = 0.75f; // fraction of total job progress calculation we're allocating to the MR job vs finalization
+    final float mrJobFraction = QUERY_FRACTION;
     synchronized (this) {
       tempStatus = new JobStatus(jobStatus);
     }
@@ -443,15 +538,13 @@ public class PcapJob<T> implements Statusable<Path> {
                       , PcapFilterConfigurator<T> filterImpl
                       ) throws IOException
   {
+    configure(beginNS, endNS, numReducers, fields, conf, filterImpl);
     Iterable<String> filteredPaths = FileFilterUtil.getPathsInTimeRange(beginNS, endNS, listFiles(fs, basePath));
+    filteredPaths = filterByIndex(filteredPaths, beginNS, endNS, conf, fs);
     String inputPaths = Joiner.on(',').join(filteredPaths);
     if (StringUtils.isEmpty(inputPaths)) {
       return null;
     }
-    conf.set(START_TS_CONF, Long.toUnsignedString(beginNS));
-    conf.set(END_TS_CONF, Long.toUnsignedString(endNS));
-    conf.set(WIDTH_CONF, "" + findWidth(beginNS, endNS, numReducers));
-    filterImpl.addToConfig(fields, conf);
     Job job = Job.getInstance(conf);
     jobName.ifPresent(job::setJobName);
     job.setJarByClass(PcapJob.class);
@@ -464,12 +557,37 @@ public class PcapJob<T> implements Statusable<Path> {
     job.setOutputKeyClass(LongWritable.class);
     job.setOutputValueClass(BytesWritable.class);
     SequenceFileInputFormat.addInputPaths(job, inputPaths);
-    job.setInputFormatClass(SequenceFileInputFormat.class);
+    job.setInputFormatClass(PcapInputFormat.class);
     job.setOutputFormatClass(SequenceFileOutputFormat.class);
     SequenceFileOutputFormat.setOutputPath(job, jobOutputPath);
     return job;
   }
 
+  private void configure(long beginNS, long endNS, int numReducers, T fields, Configuration conf,
+      PcapFilterConfigurator<T> filterImpl) {
+    conf.set(START_TS_CONF, Long.toUnsignedString(beginNS));
+    conf.set(END_TS_CONF, Long.toUnsignedString(endNS));
+    conf.set(WIDTH_CONF, "" + findWidth(beginNS, endNS, numReducers));
+    filterImpl.addToConfig(fields, conf);
+  }
+
+  /**
+   * Drops the files whose index shows that they hold no packets matching the query.
+   */
+  private static List<String> filterByIndex(Iterable<String> paths, long beginNS, long endNS, Configuration conf, FileSystem fs) {
+    PcapFilter filter = PcapFilters.fromConfiguration(conf);
+    List<String> ret = new ArrayList<>();
+    for (String path : paths) {
+      PcapIndex index = PcapIndex.read(fs, new Path(path));
+      if (index == null || !index.getRanges(beginNS, endNS, filter).isEmpty()) {
+        ret.add(path);
+      } else {
+        LOG.debug("Skipping {}, which its index shows has no matching packets", path);
+      }
+    }
+    return ret;
+  }
+
   public static long findWidth(long start, long end, int numReducers) {
     return Long.divideUnsigned(end - start, numReducers) + 1;
   }
@@ -478,19 +596,26 @@ public class PcapJob<T> implements Statusable<Path> {
     List<Path> ret = new ArrayList<>();
     RemoteIterator<LocatedFileStatus> filesIt = fs.listFiles(basePath, true);
     while (filesIt.hasNext()) {
-      ret.add(filesIt.next().getPath());
+      Path path = filesIt.next().getPath();
+      if (!PcapIndex.isIndex(path)) {
+        ret.add(path);
+      }
     }
     return ret;
   }
 
   @Override
-  public JobType getJobType() {
-    return JobType.MAP_REDUCE;
+  public synchronized JobType getJobType() {
+    return localQuery != null ? JobType.LOCAL : JobType.MAP_REDUCE;
   }
 
   @Override
   public synchronized JobStatus getStatus() throws JobException {
-    return new JobStatus(jobStatus);
+    JobStatus status = new JobStatus(jobStatus);
+    if (localQuery != null && status.getState() == State.RUNNING) {
+      status.withPercentComplete(100.0 * localQuery.getProgress() * QUERY_FRACTION);
+    }
+    return status;
   }
 
   protected void setJobStatus(JobStatus jobStatus) {
@@ -545,7 +670,11 @@ public class PcapJob<T> implements Statusable<Path> {
   public void kill() throws JobException {
     try {
       synchronized (this) {
-        mrJob.killJob();
+        if (localQuery != null) {
+          localQuery.kill();
+        } else {
+          mrJob.killJob();
+        }
       }
     } catch (IOException e) {
       throw new JobException("Unable to kill pcap job.", e);
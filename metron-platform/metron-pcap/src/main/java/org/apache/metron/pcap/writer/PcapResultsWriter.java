@@ -17,13 +17,16 @@
  */
 package org.apache.metron.pcap.writer;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.metron.common.utils.HDFSUtils;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.pcap.PcapHelper;
 import org.apache.metron.pcap.PcapMerger;
 
 public class PcapResultsWriter {
@@ -32,28 +35,69 @@ public class PcapResultsWriter {
    * Write out pcaps. Configuration offers ability to configure for HDFS or local FS, if desired.
    *
    * @param config Standard hadoop filesystem config.
-   * @param pcaps pcap data to write. Pre-merged format as a list of pcaps as byte arrays.
+   * @param pcaps pcap data to write, in timestamp order. Pre-merged format as a list of pcaps as byte arrays.
    * @param outPath where to write the pcap data to.
    * @throws IOException I/O issue encountered.
    */
   public void write(Configuration config, List<byte[]> pcaps, String outPath) throws IOException {
-    HDFSUtils.write(config, mergePcaps(pcaps), outPath);
+    Path path = new Path(outPath);
+    FileSystem fs = FileSystem.get(path.toUri(), config);
+    fs.mkdirs(path.getParent());
+    try (OutputStream out = fs.create(path)) {
+      write(out, pcaps);
+    }
   }
 
   /**
    * Write out pcaps to the local FS
    *
-   * @param pcaps pcap data to write. Pre-merged format as a list of pcaps as byte arrays.
+   * @param pcaps pcap data to write, in timestamp order. Pre-merged format as a list of pcaps as byte arrays.
    * @param outPath where to write the pcap data to.
    * @throws IOException I/O issue encountered.
    */
   public void writeLocal(List<byte[]> pcaps, String outPath) throws IOException {
-    File out = new File(outPath);
-    try (FileOutputStream fos = new FileOutputStream(out)) {
-      fos.write(mergePcaps(pcaps));
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outPath))) {
+      write(out, pcaps);
+    }
+  }
+
+  /**
+   * Streams pcaps out as a pcap file, with the global header of the first pcap followed by the
+   * packet records of each, without decoding or buffering them.  The packet headers of pcaps written
+   * in the other byte order are swapped to match the global header.
+   *
+   * @param out where to write the pcap file to.
+   * @param pcaps pcap data to write, in timestamp order. Each is a pcap file of a single packet.
+   * @throws IOException I/O issue encountered.
+   */
+  public void write(OutputStream out, Iterable<byte[]> pcaps) throws IOException {
+    byte[] globalHeader = null;
+    byte[] packetHeader = new byte[PcapHelper.PACKET_HEADER_SIZE];
+    for (byte[] pcap : pcaps) {
+      if (globalHeader == null) {
+        globalHeader = pcap;
+        out.write(pcap, 0, PcapHelper.GLOBAL_HEADER_SIZE);
+      }
+      int offset = PcapHelper.GLOBAL_HEADER_SIZE;
+      if (sameByteOrder(globalHeader, pcap)) {
+        out.write(pcap, offset, pcap.length - offset);
+      } else {
+        for (int i = 0; i < packetHeader.length; i += Integer.BYTES) {
+          for (int j = 0; j < Integer.BYTES; j++) {
+            packetHeader[i + j] = pcap[offset + i + Integer.BYTES - 1 - j];
+          }
+        }
+        out.write(packetHeader);
+        offset += packetHeader.length;
+        out.write(pcap, offset, pcap.length - offset);
+      }
     }
   }
 
+  private static boolean sameByteOrder(byte[] globalHeader, byte[] pcap) {
+    return globalHeader == pcap || globalHeader[0] == pcap[0];
+  }
+
   /**
    * Creates a pcap file with proper global header from individual pcaps.
    *
@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.pcap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.metron.pcap.filter.fixed.FixedPcapFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.metron.common.Constants.Fields;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RawPacketHeaderTest {
+  public static final String SAMPLE_PCAP = "../metron-integration-test/src/main/sample/data/SampleInput/PCAPExampleOutput";
+
+  @Test
+  public void headerMatchesDecodedPacket() throws Exception {
+    RawPacketHeader header = new RawPacketHeader();
+    for (byte[] pcap : PcapHelperTest.readSamplePackets(SAMPLE_PCAP)) {
+      Map<String, Object> fields = PcapHelper.packetToFields(PcapHelper.toPacketInfo(pcap).get(0));
+      assertTrue(header.parse(pcap, 0, pcap.length));
+      assertEquals(fields.get(Fields.PROTOCOL.getName()), header.getProtocol());
+      if (header.isTransport()) {
+        assertEquals(fields.get(Fields.SRC_ADDR.getName()), RawPacketHeader.toAddress(header.getSrcAddr()));
+        assertEquals(fields.get(Fields.DST_ADDR.getName()), RawPacketHeader.toAddress(header.getDstAddr()));
+        assertEquals(fields.get(Fields.SRC_PORT.getName()), header.getSrcPort());
+        assertEquals(fields.get(Fields.DST_PORT.getName()), header.getDstPort());
+      } else {
+        assertFalse(fields.containsKey(Fields.SRC_ADDR.getName()));
+      }
+    }
+  }
+
+  @Test
+  public void headerFilteringMatchesDecodedFiltering() throws Exception {
+    List<byte[]> pcaps = PcapHelperTest.readSamplePackets(SAMPLE_PCAP);
+    RawPacketHeader header = new RawPacketHeader();
+    for (byte[] query : pcaps.subList(0, Math.min(pcaps.size(), 10))) {
+      Map<String, Object> queryFields = PcapHelper.packetToFields(PcapHelper.toPacketInfo(query).get(0));
+      for (boolean includesReverseTraffic : new boolean[] {false, true}) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(Fields.SRC_ADDR.getName(), "" + queryFields.get(Fields.SRC_ADDR.getName()));
+        fields.put(Fields.DST_PORT.getName(), "" + queryFields.get(Fields.DST_PORT.getName()));
+        fields.put(Fields.PROTOCOL.getName(), "" + queryFields.get(Fields.PROTOCOL.getName()));
+        fields.put(Fields.INCLUDES_REVERSE_TRAFFIC.getName(), "" + includesReverseTraffic);
+        Configuration config = new Configuration();
+        new FixedPcapFilter.Configurator().addToConfig(fields, config);
+        FixedPcapFilter filter = new FixedPcapFilter();
+        filter.configure(config);
+        assertTrue(filter.isHeaderOnly());
+
+        for (byte[] pcap : pcaps) {
+          assertTrue(header.parse(pcap, 0, pcap.length));
+          assertEquals(filter.test(PcapHelper.toPacketInfo(pcap).get(0)), filter.testHeader(header));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void truncatedPacketIsNotParsed() throws Exception {
+    byte[] pcap = PcapHelperTest.readSamplePackets(SAMPLE_PCAP).get(0);
+    RawPacketHeader header = new RawPacketHeader();
+    assertFalse(header.parse(pcap, 0, PcapHelper.GLOBAL_HEADER_SIZE + PcapHelper.PACKET_HEADER_SIZE + 20));
+    assertFalse(header.parse(new byte[PcapHelper.GLOBAL_HEADER_SIZE + PcapHelper.PACKET_HEADER_SIZE + 40], 0, 80));
+  }
+
+  @Test
+  public void addressesAreParsedOnlyInDottedDecimalForm() {
+    assertEquals(0x0a000201, (int) RawPacketHeader.parseAddress("10.0.2.1"));
+    assertEquals("192.168.66.1", RawPacketHeader.toAddress(RawPacketHeader.parseAddress("192.168.66.1")));
+    assertEquals("255.255.255.255", RawPacketHeader.toAddress(RawPacketHeader.parseAddress("255.255.255.255")));
+    assertNull(RawPacketHeader.parseAddress("010.0.2.1"));
+    assertNull(RawPacketHeader.parseAddress("10.0.2"));
+    assertNull(RawPacketHeader.parseAddress("10.0.2.256"));
+    assertNull(RawPacketHeader.parseAddress("src_ip"));
+  }
+}
@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.pcap.index;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.common.Constants;
+import org.apache.metron.pcap.PcapHelper;
+import org.apache.metron.pcap.PcapHelperTest;
+import org.apache.metron.pcap.RawPacketHeaderTest;
+import org.apache.metron.pcap.filter.PcapFilter;
+import org.apache.metron.pcap.filter.fixed.FixedPcapFilter;
+import org.apache.metron.pcap.filter.query.QueryPcapFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.metron.pcap.Constants.PROTOCOL_TCP;
+import static org.apache.metron.pcap.Constants.PROTOCOL_UDP;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PcapIndexTest {
+  private static final int PACKETS_PER_BLOCK = 4;
+  private static final int PACKET_SIZE = 100;
+
+  @TempDir
+  File tempDir;
+
+  private FileSystem fs;
+  private List<byte[]> pcaps;
+  private List<Long> timestamps;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    fs = FileSystem.getLocal(new Configuration());
+    pcaps = PcapHelperTest.readSamplePackets(RawPacketHeaderTest.SAMPLE_PCAP);
+    timestamps = new ArrayList<>();
+    for (byte[] pcap : pcaps) {
+      timestamps.add(PcapHelper.getTimestamp(pcap));
+    }
+  }
+
+  /**
+   * Indexes the sample packets as if each took up PACKET_SIZE bytes of the file.
+   */
+  private PcapIndex index() {
+    PcapIndexWriter writer = new PcapIndexWriter(PACKETS_PER_BLOCK);
+    for (int i = 0; i < pcaps.size(); i++) {
+      if (writer.isBlockFull()) {
+        writer.startBlock((long) i * PACKET_SIZE);
+      }
+      writer.add(timestamps.get(i), pcaps.get(i));
+    }
+    return writer.finish((long) pcaps.size() * PACKET_SIZE);
+  }
+
+  private FixedPcapFilter filter(Map<String, String> fields) {
+    Configuration config = new Configuration();
+    new FixedPcapFilter.Configurator().addToConfig(fields, config);
+    FixedPcapFilter filter = new FixedPcapFilter();
+    filter.configure(config);
+    return filter;
+  }
+
+  private boolean inRanges(long position, List<long[]> ranges) {
+    for (long[] range : ranges) {
+      if (position >= range[0] && position < range[1]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void blocksCoverTheFile() throws Exception {
+    List<PcapIndex.Block> blocks = index().getBlocks();
+    assertEquals((pcaps.size() + PACKETS_PER_BLOCK - 1) / PACKETS_PER_BLOCK, blocks.size());
+    assertEquals(0, blocks.get(0).getStart());
+    for (int i = 1; i < blocks.size(); i++) {
+      assertEquals(blocks.get(i - 1).getEnd(), blocks.get(i).getStart());
+    }
+    assertEquals((long) pcaps.size() * PACKET_SIZE, blocks.get(blocks.size() - 1).getEnd());
+    assertTrue(blocks.get(0).isComplete());
+    assertTrue(blocks.get(0).hasProtocol(PROTOCOL_TCP));
+  }
+
+  @Test
+  public void allBlocksWithMatchingPacketsAreRead() throws Exception {
+    PcapIndex index = index();
+    for (byte[] query : pcaps) {
+      Map<String, Object> queryFields = PcapHelper.packetToFields(PcapHelper.toPacketInfo(query).get(0));
+      Map<String, String> fields = new HashMap<>();
+      fields.put(Constants.Fields.SRC_ADDR.getName(), "" + queryFields.get(Constants.Fields.SRC_ADDR.getName()));
+      fields.put(Constants.Fields.SRC_PORT.getName(), "" + queryFields.get(Constants.Fields.SRC_PORT.getName()));
+      FixedPcapFilter filter = filter(fields);
+
+      List<long[]> ranges = index.getRanges(0, -1L, filter);
+      for (int i = 0; i < pcaps.size(); i++) {
+        if (filter.test(PcapHelper.toPacketInfo(pcaps.get(i)).get(0))) {
+          assertTrue(inRanges((long) i * PACKET_SIZE, ranges));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void blocksWithoutMatchingPacketsAreSkipped() throws Exception {
+    PcapIndex index = index();
+    Map<String, String> fields = new HashMap<>();
+    fields.put(Constants.Fields.DST_ADDR.getName(), "203.0.113.1");
+    assertEquals(0, index.getRanges(0, -1L, filter(fields)).size());
+
+    fields = new HashMap<>();
+    fields.put(Constants.Fields.PROTOCOL.getName(), "" + PROTOCOL_UDP);
+    assertEquals(0, index.getRanges(0, -1L, filter(fields)).size());
+  }
+
+  @Test
+  public void blocksOutsideTheTimeRangeAreSkipped() throws Exception {
+    PcapIndex index = index();
+    PcapFilter filter = new QueryPcapFilter();
+    long first = timestamps.get(0);
+    long last = timestamps.get(timestamps.size() - 1);
+    assertEquals(0, index.getRanges(0, first - 1, filter).size());
+    assertEquals(0, index.getRanges(last + 1, -1L, filter).size());
+    assertArrayEquals(new long[] {0, (long) pcaps.size() * PACKET_SIZE}, index.getRanges(first, last, filter).get(0));
+  }
+
+  @Test
+  public void incompleteBlocksAreNotSkippedOnHeaders() throws Exception {
+    PcapIndexWriter writer = new PcapIndexWriter(PACKETS_PER_BLOCK);
+    writer.add(timestamps.get(0), new byte[PcapHelper.GLOBAL_HEADER_SIZE]);
+    PcapIndex index = writer.finish(PACKET_SIZE);
+    Map<String, String> fields = new HashMap<>();
+    fields.put(Constants.Fields.DST_ADDR.getName(), "203.0.113.1");
+    assertEquals(1, index.getRanges(0, -1L, filter(fields)).size());
+  }
+
+  @Test
+  public void indexIsWrittenAndRead() throws Exception {
+    Path file = new Path(tempDir.getAbsolutePath(), "pcap_pcap_1_0_uuid");
+    assertNull(PcapIndex.read(fs, file));
+
+    PcapIndex index = index();
+    index.write(fs, file);
+    assertTrue(PcapIndex.isIndex(PcapIndex.getIndexPath(file)));
+    PcapIndex read = PcapIndex.read(fs, file);
+    assertNotNull(read);
+    assertEquals(index.getBlocks().size(), read.getBlocks().size());
+    Map<String, String> fields = new HashMap<>();
+    fields.put(Constants.Fields.PROTOCOL.getName(), "" + PROTOCOL_TCP);
+    FixedPcapFilter filter = filter(fields);
+    List<long[]> expected = index.getRanges(0, -1L, filter);
+    List<long[]> actual = read.getRanges(0, -1L, filter);
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertArrayEquals(expected.get(i), actual.get(i));
+    }
+  }
+
+  @Test
+  public void unreadableIndexIsIgnored() throws Exception {
+    Path file = new Path(tempDir.getAbsolutePath(), "pcap_pcap_1_0_uuid");
+    try (FSDataOutputStream out = fs.create(PcapIndex.getIndexPath(file))) {
+      out.writeInt(1);
+      out.writeInt(10);
+    }
+    assertNull(PcapIndex.read(fs, file));
+  }
+}
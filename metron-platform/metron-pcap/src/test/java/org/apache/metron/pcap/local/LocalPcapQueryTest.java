@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.pcap.local;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.metron.common.Constants;
+import org.apache.metron.common.hadoop.SequenceFileIterable;
+import org.apache.metron.pcap.PcapHelper;
+import org.apache.metron.pcap.PcapHelperTest;
+import org.apache.metron.pcap.RawPacketHeaderTest;
+import org.apache.metron.pcap.filter.fixed.FixedPcapFilter;
+import org.apache.metron.pcap.index.PcapIndex;
+import org.apache.metron.pcap.index.PcapIndexWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LocalPcapQueryTest {
+  private static final int PACKETS_PER_BLOCK = 4;
+
+  @TempDir
+  File tempDir;
+
+  private Configuration conf;
+  private FileSystem fs;
+  private List<byte[]> pcaps;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    conf = new Configuration();
+    fs = FileSystem.getLocal(conf);
+    pcaps = PcapHelperTest.readSamplePackets(RawPacketHeaderTest.SAMPLE_PCAP);
+  }
+
+  /**
+   * Writes the packets to a sequence file and indexes it, as the pcap topology does.
+   */
+  private PcapIndex write(Path file, List<byte[]> packets) throws IOException {
+    PcapIndexWriter indexWriter = new PcapIndexWriter(PACKETS_PER_BLOCK);
+    try (SequenceFile.Writer writer = SequenceFile.createWriter(conf,
+        SequenceFile.Writer.file(file),
+        SequenceFile.Writer.keyClass(LongWritable.class),
+        SequenceFile.Writer.valueClass(BytesWritable.class))) {
+      for (byte[] pcap : packets) {
+        if (indexWriter.isBlockFull()) {
+          long position = writer.getLength();
+          writer.sync();
+          indexWriter.startBlock(writer.getLength() > position ? position : position - Integer.BYTES - 16);
+        }
+        long ts = PcapHelper.getTimestamp(pcap);
+        indexWriter.add(ts, pcap);
+        writer.append(new LongWritable(ts), new BytesWritable(pcap));
+      }
+    }
+    return indexWriter.finish(fs.getFileStatus(file).getLen());
+  }
+
+  private Configuration filter(Map<String, String> fields) {
+    Configuration ret = new Configuration();
+    new FixedPcapFilter.Configurator().addToConfig(fields, ret);
+    return ret;
+  }
+
+  private List<byte[]> expected(Configuration filterConf, List<byte[]> packets) throws Exception {
+    FixedPcapFilter filter = new FixedPcapFilter();
+    filter.configure(filterConf);
+    List<byte[]> ret = new ArrayList<>();
+    for (byte[] pcap : packets) {
+      if (filter.test(PcapHelper.toPacketInfo(pcap).get(0))) {
+        ret.add(pcap);
+      }
+    }
+    return ret;
+  }
+
+  private List<byte[]> results(Path outputPath) {
+    List<byte[]> ret = new ArrayList<>();
+    for (byte[] pcap : new SequenceFileIterable(Collections.singletonList(new Path(outputPath, LocalPcapQuery.OUTPUT_FILE_NAME)), conf)) {
+      ret.add(pcap);
+    }
+    return ret;
+  }
+
+  @Test
+  public void readsMatchingPacketsOfWholeFiles() throws Exception {
+    Path file = new Path(tempDir.getAbsolutePath(), "pcap_pcap_1_0_uuid");
+    write(file, pcaps);
+    Map<String, String> fields = new HashMap<>();
+    fields.put(Constants.Fields.PROTOCOL.getName(), "6");
+    Configuration filterConf = filter(fields);
+    Map<Path, List<long[]>> ranges = new LinkedHashMap<>();
+    ranges.put(file, Collections.singletonList(new long[] {0, fs.getFileStatus(file).getLen()}));
+
+    LocalPcapQuery query = new LocalPcapQuery(ranges, 0, -1L, filterConf);
+    Path outputPath = new Path(tempDir.getAbsolutePath(), "out");
+    List<byte[]> expected = expected(filterConf, pcaps);
+    assertEquals(expected.size(), query.run(outputPath, 2));
+    assertEquals(1.0f, query.getProgress());
+    List<byte[]> actual = results(outputPath);
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertArrayEquals(expected.get(i), actual.get(i));
+    }
+  }
+
+  @Test
+  public void readsOnlyIndexedRanges() throws Exception {
+    Path file = new Path(tempDir.getAbsolutePath(), "pcap_pcap_1_0_uuid");
+    PcapIndex index = write(file, pcaps);
+    for (byte[] query : pcaps) {
+      Map<String, Object> queryFields = PcapHelper.packetToFields(PcapHelper.toPacketInfo(query).get(0));
+      Map<String, String> fields = new HashMap<>();
+      fields.put(Constants.Fields.SRC_ADDR.getName(), "" + queryFields.get(Constants.Fields.SRC_ADDR.getName()));
+      fields.put(Constants.Fields.SRC_PORT.getName(), "" + queryFields.get(Constants.Fields.SRC_PORT.getName()));
+      Configuration filterConf = filter(fields);
+      FixedPcapFilter filter = new FixedPcapFilter();
+      filter.configure(filterConf);
+      Map<Path, List<long[]>> ranges = new LinkedHashMap<>();
+      ranges.put(file, index.getRanges(0, -1L, filter));
+
+      Path outputPath = new Path(tempDir.getAbsolutePath(), "out");
+      new LocalPcapQuery(ranges, 0, -1L, filterConf).run(outputPath, 1);
+      List<byte[]> expected = expected(filterConf, pcaps);
+      List<byte[]> actual = results(outputPath);
+      assertTrue(actual.size() > 0);
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertArrayEquals(expected.get(i), actual.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void mergesFilesInTimestampOrder() throws Exception {
+    Path first = new Path(tempDir.getAbsolutePath(), "pcap_pcap_1_0_uuid");
+    Path second = new Path(tempDir.getAbsolutePath(), "pcap_pcap_1_1_uuid");
+    List<byte[]> odd = new ArrayList<>();
+    List<byte[]> even = new ArrayList<>();
+    for (int i = 0; i < pcaps.size(); i++) {
+      (i % 2 == 0 ? even : odd).add(pcaps.get(i));
+    }
+    write(first, odd);
+    write(second, even);
+    Map<Path, List<long[]>> ranges = new LinkedHashMap<>();
+    ranges.put(first, Collections.singletonList(new long[] {0, fs.getFileStatus(first).getLen()}));
+    ranges.put(second, Collections.singletonList(new long[] {0, fs.getFileStatus(second).getLen()}));
+    Long lastTs = PcapHelper.getTimestamp(pcaps.get(pcaps.size() - 1));
+
+    Path outputPath = new Path(tempDir.getAbsolutePath(), "out");
+    new LocalPcapQuery(ranges, 0, lastTs, filter(new HashMap<>())).run(outputPath, 2);
+    List<byte[]> actual = results(outputPath);
+    assertEquals(pcaps.size(), actual.size());
+    for (int i = 1; i < actual.size(); i++) {
+      assertTrue(Long.compareUnsigned(PcapHelper.getTimestamp(actual.get(i - 1)), PcapHelper.getTimestamp(actual.get(i))) <= 0);
+    }
+  }
+
+  @Test
+  public void killedQueryWritesNoResults() throws Exception {
+    Path file = new Path(tempDir.getAbsolutePath(), "pcap_pcap_1_0_uuid");
+    write(file, pcaps);
+    Map<Path, List<long[]>> ranges = new LinkedHashMap<>();
+    ranges.put(file, Collections.singletonList(new long[] {0, fs.getFileStatus(file).getLen()}));
+    LocalPcapQuery query = new LocalPcapQuery(ranges, 0, -1L, filter(new HashMap<>()));
+    query.kill();
+
+    Path outputPath = new Path(tempDir.getAbsolutePath(), "out");
+    assertEquals(0, query.run(outputPath, 1));
+    assertTrue(query.isKilled());
+    assertFalse(fs.exists(new Path(outputPath, LocalPcapQuery.OUTPUT_FILE_NAME)));
+  }
+}
@@ -25,27 +25,35 @@ import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.io.SequenceFile;
 import org.apache.metron.common.utils.timestamp.TimestampConverters;
 import org.apache.metron.job.Finalizer;
 import org.apache.metron.job.JobStatus;
 import org.apache.metron.job.JobStatus.State;
 import org.apache.metron.job.Pageable;
 import org.apache.metron.job.Statusable;
+import org.apache.metron.pcap.PcapHelper;
+import org.apache.metron.pcap.PcapHelperTest;
 import org.apache.metron.pcap.PcapPages;
+import org.apache.metron.pcap.RawPacketHeaderTest;
 import org.apache.metron.pcap.config.FixedPcapConfig;
 import org.apache.metron.pcap.config.PcapOptions;
 import org.apache.metron.pcap.filter.PcapFilterConfigurator;
 import org.apache.metron.pcap.filter.fixed.FixedPcapFilter;
+import org.apache.metron.pcap.local.LocalPcapQuery;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
 import static java.lang.Long.toUnsignedString;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.*;
 
@@ -296,6 +304,79 @@ public class PcapJobTest {
     assertThat(status.getJobId(), equalTo(jobIdVal));
   }
 
+  /**
+   * Writes the sample packets to a pcap file in the directory, and points the query at them.
+   */
+  private void setupLocalData(File dir) throws IOException {
+    List<byte[]> pcaps = PcapHelperTest.readSamplePackets(RawPacketHeaderTest.SAMPLE_PCAP);
+    long firstTs = PcapHelper.getTimestamp(pcaps.get(0));
+    long lastTs = PcapHelper.getTimestamp(pcaps.get(pcaps.size() - 1));
+    Path file = new Path(new Path(dir.getAbsolutePath(), "input"), "pcap_pcap_" + firstTs + "_0_uuid");
+    try (SequenceFile.Writer writer = SequenceFile.createWriter(hadoopConfig,
+        SequenceFile.Writer.file(file),
+        SequenceFile.Writer.keyClass(LongWritable.class),
+        SequenceFile.Writer.valueClass(BytesWritable.class))) {
+      for (byte[] pcap : pcaps) {
+        writer.append(new LongWritable(PcapHelper.getTimestamp(pcap)), new BytesWritable(pcap));
+      }
+    }
+    PcapOptions.BASE_PATH.put(config, file.getParent());
+    PcapOptions.BASE_INTERIM_RESULT_PATH.put(config, new Path(dir.getAbsolutePath(), "interim"));
+    PcapOptions.START_TIME_NS.put(config, firstTs);
+    PcapOptions.END_TIME_NS.put(config, lastTs);
+  }
+
+  @Test
+  public void small_queries_run_in_process(@TempDir File tempDir) throws Exception {
+    setupLocalData(tempDir);
+    PcapOptions.LOCAL_QUERY_MAX_BYTES.put(config, 1024 * 1024L);
+    pageableResult = new PcapPages(
+        Arrays.asList(new Path("1.txt"), new Path("2.txt"), new Path("3.txt")));
+    when(finalizer.finalizeJob(any())).thenReturn(pageableResult);
+    Statusable<Path> statusable = testJob.submit(finalizer, config);
+    Pageable<Path> results = statusable.get();
+    assertThat(results.getSize(), equalTo(3));
+    assertThat(statusable.getJobType(), equalTo(Statusable.JobType.LOCAL));
+    JobStatus status = statusable.getStatus();
+    assertThat(status.getState(), equalTo(State.SUCCEEDED));
+    assertThat(status.getPercentComplete(), equalTo(100.0));
+    assertThat(status.getJobId(), startsWith("job_local_"));
+    assertThat(PcapOptions.JOB_ID.get(config, String.class), equalTo(status.getJobId()));
+    assertThat(PcapOptions.JOB_TYPE.get(config, String.class), equalTo(Statusable.JobType.LOCAL.name()));
+    Path interimResultPath = PcapOptions.INTERIM_RESULT_PATH.get(config, PcapOptions.STRING_TO_PATH, Path.class);
+    assertThat(fileSystem.exists(new Path(interimResultPath, LocalPcapQuery.OUTPUT_FILE_NAME)), equalTo(true));
+    verify(finalizer).finalizeJob(any());
+    verifyNoMoreInteractions(mrJob);
+  }
+
+  @Test
+  public void in_process_queries_fail_on_unexpected_exceptions(@TempDir File tempDir) throws Exception {
+    setupLocalData(tempDir);
+    PcapOptions.LOCAL_QUERY_MAX_BYTES.put(config, 1024 * 1024L);
+    when(finalizer.finalizeJob(any())).thenThrow(new IllegalStateException("finalizer failed"));
+    Statusable<Path> statusable = testJob.submit(finalizer, config);
+    Pageable<Path> results = statusable.get();
+    assertThat(results.getSize(), equalTo(0));
+    JobStatus status = statusable.getStatus();
+    assertThat(status.getState(), equalTo(State.FAILED));
+    assertThat(status.getPercentComplete(), equalTo(100.0));
+  }
+
+  @Test
+  public void large_queries_run_as_mapreduce_jobs(@TempDir File tempDir) throws Exception {
+    setupLocalData(tempDir);
+    PcapOptions.LOCAL_QUERY_MAX_BYTES.put(config, 1L);
+    when(finalizer.finalizeJob(any())).thenReturn(pageableResult);
+    when(mrJob.isComplete()).thenReturn(true);
+    when(mrStatus.getState()).thenReturn(org.apache.hadoop.mapreduce.JobStatus.State.SUCCEEDED);
+    when(mrJob.getStatus()).thenReturn(mrStatus);
+    Statusable<Path> statusable = testJob.submit(finalizer, config);
+    timer.updateJobStatus();
+    statusable.get();
+    assertThat(statusable.getJobType(), equalTo(Statusable.JobType.MAP_REDUCE));
+    assertThat(statusable.getStatus().getJobId(), equalTo(jobIdVal));
+  }
+
   @Test
   public void get_should_print_status() throws Exception {
     Map<String, Object> configuration = new HashMap<>();
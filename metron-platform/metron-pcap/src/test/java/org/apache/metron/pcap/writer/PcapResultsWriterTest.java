@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.pcap.writer;
+
+import org.apache.metron.pcap.PacketInfo;
+import org.apache.metron.pcap.PcapHelper;
+import org.apache.metron.pcap.PcapHelperTest;
+import org.apache.metron.pcap.RawPacketHeaderTest;
+import org.apache.metron.spout.pcap.Endianness;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PcapResultsWriterTest {
+
+  private void assertPackets(List<byte[]> expected, byte[] pcapFile) throws Exception {
+    List<PacketInfo> actual = PcapHelper.toPacketInfo(pcapFile);
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      PacketInfo packet = PcapHelper.toPacketInfo(expected.get(i)).get(0);
+      assertEquals(packet.getPacketTimeInNanos(), actual.get(i).getPacketTimeInNanos());
+      assertArrayEquals(packet.getPacketBytes(), actual.get(i).getPacketBytes());
+    }
+  }
+
+  @Test
+  public void writesPacketsInOrderWithOneGlobalHeader() throws Exception {
+    List<byte[]> pcaps = PcapHelperTest.readSamplePackets(RawPacketHeaderTest.SAMPLE_PCAP);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new PcapResultsWriter().write(out, pcaps);
+    int expectedSize = PcapHelper.GLOBAL_HEADER_SIZE;
+    for (byte[] pcap : pcaps) {
+      expectedSize += pcap.length - PcapHelper.GLOBAL_HEADER_SIZE;
+    }
+    assertEquals(expectedSize, out.size());
+    assertPackets(pcaps, out.toByteArray());
+  }
+
+  @Test
+  public void swapsPacketHeadersWrittenInTheOtherByteOrder() throws Exception {
+    List<byte[]> pcaps = PcapHelperTest.readSamplePackets(RawPacketHeaderTest.SAMPLE_PCAP);
+    List<byte[]> mixed = new ArrayList<>();
+    for (int i = 0; i < pcaps.size(); i++) {
+      byte[] pcap = pcaps.get(i);
+      Endianness endianness = i % 2 == 0 ? Endianness.LITTLE : Endianness.BIG;
+      mixed.add(PcapHelper.addHeaders(PcapHelper.getTimestamp(pcap), PcapHelperTest.stripHeaders(pcap), endianness));
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new PcapResultsWriter().write(out, mixed);
+    assertPackets(mixed, out.toByteArray());
+  }
+
+  @Test
+  public void writesNothingWithoutPackets() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new PcapResultsWriter().write(out, new ArrayList<>());
+    assertEquals(0, out.size());
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.writer;
+
+import org.apache.metron.common.configuration.writer.WriterConfiguration;
+import org.apache.metron.common.writer.BulkWriterResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link org.apache.metron.writer.BatchSizePolicy} that, for sensors configured with a target batch latency, adjusts the
+ * batch size based on how long each batch takes to write.  Sensors without a target use their configured batch size.
+ *
+ * <p>Larger batches amortize the cost of each request to the endpoint, so the batch size grows while full batches are
+ * written faster than the target, and shrinks when they are written slower.  Each step is proportional to how far the
+ * smoothed write time is from the target, limited to growing by half or shrinking by half.  A batch that fails entirely,
+ * which typically means the endpoint is rejecting or timing out writes, halves the batch size.  The batch size always
+ * stays within the configured minimum and maximum, and starts at the configured batch size.
+ */
+public class AdaptiveBatchSizePolicy<MESSAGE_T> extends BatchSizePolicy<MESSAGE_T> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * The weight of the latest write time in the smoothed write time.
+   */
+  static final double SMOOTHING = 0.3;
+
+  /**
+   * The write time must be this fraction away from the target before the batch size changes.
+   */
+  static final double TOLERANCE = 0.2;
+  static final double MAX_GROWTH = 1.5;
+  static final double MAX_SHRINK = 0.5;
+
+  /**
+   * If no maximum is configured, the batch size may grow to this multiple of the configured batch size.
+   */
+  static final int DEFAULT_MAX_MULTIPLE = 10;
+
+  private Map<String, BatchSize> batchSizes = new ConcurrentHashMap<>();
+
+  /**
+   * The adaptive batch size of a sensor.
+   */
+  static class BatchSize {
+    private int size;
+    private int min;
+    private int max;
+    private int targetLatency;
+    private double latency = -1;
+
+    BatchSize(int size) {
+      this.size = size;
+    }
+
+    void configure(int targetLatency, int min, int max) {
+      this.targetLatency = targetLatency;
+      this.min = min;
+      this.max = max;
+      this.size = clamp(size);
+    }
+
+    /**
+     * Adjusts the batch size given the outcome of writing a batch.
+     * @param written The number of messages in the batch
+     * @param failed The number of messages that failed
+     * @param writeTime The time taken to write the batch in milliseconds
+     * @return true if the batch size changed
+     */
+    boolean update(int written, int failed, long writeTime) {
+      latency = latency < 0 ? writeTime : SMOOTHING * writeTime + (1 - SMOOTHING) * latency;
+      double next;
+      if (written > 0 && failed == written) {
+        next = size * MAX_SHRINK;
+      } else if (latency > targetLatency * (1 + TOLERANCE)) {
+        next = size * Math.max(MAX_SHRINK, targetLatency / latency);
+      } else if (latency < targetLatency * (1 - TOLERANCE) && written >= size) {
+        // only a full batch shows how long a batch of this size takes
+        next = size * Math.min(MAX_GROWTH, targetLatency / latency);
+      } else {
+        return false;
+      }
+      int previous = size;
+      size = clamp((int) Math.round(next));
+      return size != previous;
+    }
+
+    private int clamp(int value) {
+      return Math.max(min, Math.min(max, value));
+    }
+
+    int getSize() {
+      return size;
+    }
+  }
+
+  @Override
+  protected int getBatchSize(String sensorType, WriterConfiguration configurations) {
+    int configuredBatchSize = super.getBatchSize(sensorType, configurations);
+    int targetLatency = configurations.getBatchTargetLatency(sensorType);
+    if (targetLatency <= 0) {
+      batchSizes.remove(sensorType);
+      return configuredBatchSize;
+    }
+    int min = Math.max(1, configurations.getBatchSizeMin(sensorType));
+    int max = configurations.getBatchSizeMax(sensorType);
+    if (max <= 0) {
+      max = Math.max(min, configuredBatchSize * DEFAULT_MAX_MULTIPLE);
+    }
+    BatchSize batchSize = batchSizes.computeIfAbsent(sensorType, s -> new BatchSize(configuredBatchSize));
+    // the configuration can change at any time
+    batchSize.configure(targetLatency, min, Math.max(min, max));
+    return batchSize.getSize();
+  }
+
+  /**
+   * Adjusts the batch size of the sensor type, if adaptive, given how long the batch took to write.
+   * @param sensorType sensor type
+   * @param response response from a bulk write call
+   */
+  @Override
+  public void onFlush(String sensorType, BulkWriterResponse response) {
+    BatchSize batchSize = batchSizes.get(sensorType);
+    if (batchSize == null || response.getWriteTimeMillis() <= 0) {
+      return;
+    }
+    int failed = response.getErrors().values().stream().mapToInt(ids -> ids.size()).sum();
+    int written = response.getSuccesses().size() + failed;
+    int previous = batchSize.getSize();
+    if (batchSize.update(written, failed, response.getWriteTimeMillis())) {
+      LOG.debug("Changed batch size from {} to {} for sensor {}; wrote {} messages in {} ms",
+              previous, batchSize.getSize(), sensorType, written, response.getWriteTimeMillis());
+    }
+  }
+
+  /**
+   * @return The current batch size of each sensor type whose batch size is adaptive
+   */
+  public Map<String, Integer> getBatchSizes() {
+    Map<String, Integer> ret = new HashMap<>();
+    batchSizes.forEach((sensorType, batchSize) -> ret.put(sensorType, batchSize.getSize()));
+    return ret;
+  }
+}
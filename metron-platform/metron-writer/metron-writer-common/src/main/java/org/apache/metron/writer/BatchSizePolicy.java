@@ -42,7 +42,7 @@ public class BatchSizePolicy<MESSAGE_T> implements FlushPolicy<MESSAGE_T> {
   public boolean shouldFlush(String sensorType, WriterConfiguration configurations, List<BulkMessage<MESSAGE_T>> messages) {
     boolean shouldFlush = false;
     int batchSize = messages.size();
-    int configuredBatchSize = configurations.getBatchSize(sensorType);
+    int configuredBatchSize = getBatchSize(sensorType, configurations);
     //Check for batchSize flush
     if (batchSize >= configuredBatchSize) {
       LOG.debug("Batch size of {} reached. Flushing {} messages for sensor {}.", configuredBatchSize, batchSize, sensorType);
@@ -55,4 +55,14 @@ public class BatchSizePolicy<MESSAGE_T> implements FlushPolicy<MESSAGE_T> {
   public void onFlush(String sensorType, BulkWriterResponse response) {
 
   }
+
+  /**
+   * Returns the number of messages at which a batch for the sensor type is flushed.
+   * @param sensorType sensor type
+   * @param configurations writer configurations
+   * @return the configured batch size
+   */
+  protected int getBatchSize(String sensorType, WriterConfiguration configurations) {
+    return configurations.getBatchSize(sensorType);
+  }
 }
@@ -37,6 +37,7 @@ public class BatchTimeoutPolicy<MESSAGE_T> implements FlushPolicy<MESSAGE_T> {
   private int maxBatchTimeout;
   private Clock clock = new Clock();
   private Map<String, Long> timeouts = new HashMap<>();
+  private boolean pipelined = false;
 
   public BatchTimeoutPolicy(int maxBatchTimeout) {
     if (maxBatchTimeout <= 0) {
@@ -81,12 +82,34 @@ public class BatchTimeoutPolicy<MESSAGE_T> implements FlushPolicy<MESSAGE_T> {
   }
 
   /**
-   * Removes the timeout value for a sensor type.  The next call to {@link org.apache.metron.writer.BatchTimeoutPolicy#shouldFlush(String, WriterConfiguration, List)}
+   * @param pipelined true if flushing is pipelined, so the timeout is reset by
+   *                  {@link org.apache.metron.writer.BatchTimeoutPolicy#onSubmit(String)} rather than on flush
+   */
+  @Override
+  public void setPipelined(boolean pipelined) {
+    this.pipelined = pipelined;
+  }
+
+  /**
+   * Removes the timeout value for a sensor type, unless flushing is pipelined.  The next call to {@link org.apache.metron.writer.BatchTimeoutPolicy#shouldFlush(String, WriterConfiguration, List)}
    * will set a new timeout.
    * @param sensorType
    */
   @Override
   public void onFlush(String sensorType, BulkWriterResponse response) {
+    if (!pipelined) {
+      timeouts.remove(sensorType);
+    }
+  }
+
+  /**
+   * Removes the timeout value for a sensor type when flushing is pipelined.  The batch was reset when it was submitted,
+   * so {@link org.apache.metron.writer.BatchTimeoutPolicy#onFlush(String, BulkWriterResponse)} must not reset the
+   * timeout of the batch that has been built since.
+   * @param sensorType
+   */
+  @Override
+  public void onSubmit(String sensorType) {
     timeouts.remove(sensorType);
   }
 
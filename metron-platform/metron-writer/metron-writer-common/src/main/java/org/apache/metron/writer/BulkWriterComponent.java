@@ -18,7 +18,7 @@
 
 package org.apache.metron.writer;
 
-import org.apache.commons.collections.CollectionUtils;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.metron.common.configuration.writer.WriterConfiguration;
 import org.apache.metron.common.system.Clock;
 import org.apache.metron.common.writer.BulkMessageWriter;
@@ -35,6 +35,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
 
 /**
@@ -45,22 +50,46 @@ import java.util.stream.Collectors;
  * so that any post-processing (message acknowledgement for example) can be done.  This component also ensures all messages
  * in a batch are included in the response as either a success or failure.
  *
+ * <p>Batches are written on the caller's thread unless pipelining is enabled with {@link #withMaxInFlight(int)}.
+ * Then batches are handed to a flush thread, and messages continue to be accepted while they are written.  The
+ * responses are queued and applied to the flush policies on the caller's thread, the next time a message is
+ * written or {@link #flushAll(BulkMessageWriter, WriterConfiguration)} is called.  This component is not thread safe,
+ * so it must only be called from a single thread.
+ *
  * @param <MESSAGE_T>
  */
 public class BulkWriterComponent<MESSAGE_T> {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private Map<String, List<BulkMessage<MESSAGE_T>>> sensorMessageCache = new HashMap<>();
   private List<FlushPolicy<MESSAGE_T>> flushPolicies;
+  private LongConsumer flushLatencyListener = latency -> {};
+  private int maxInFlight = 0;
+  private ExecutorService flushExecutor;
+  private Map<String, Integer> inFlight = new HashMap<>();
+  private BlockingQueue<FlushedBatch> flushed = new LinkedBlockingQueue<>();
+
+  /**
+   * A batch written by the flush thread, waiting for its response to be applied.
+   */
+  private static class FlushedBatch {
+    private final String sensorType;
+    private final BulkWriterResponse response;
+
+    FlushedBatch(String sensorType, BulkWriterResponse response) {
+      this.sensorType = sensorType;
+      this.response = response;
+    }
+  }
 
   public BulkWriterComponent(int maxBatchTimeout) {
     flushPolicies = new ArrayList<>();
-    flushPolicies.add(new BatchSizePolicy<>());
+    flushPolicies.add(new AdaptiveBatchSizePolicy<>());
     flushPolicies.add(new BatchTimeoutPolicy<>(maxBatchTimeout));
   }
 
   public BulkWriterComponent(int maxBatchTimeout, Clock clock) {
     flushPolicies = new ArrayList<>();
-    flushPolicies.add(new BatchSizePolicy<>());
+    flushPolicies.add(new AdaptiveBatchSizePolicy<>());
     flushPolicies.add(new BatchTimeoutPolicy<>(maxBatchTimeout, clock));
   }
 
@@ -68,6 +97,46 @@ public class BulkWriterComponent<MESSAGE_T> {
     this.flushPolicies = flushPolicies;
   }
 
+  /**
+   * Pipelines the flushing of batches, so that up to maxInFlight batches per sensor are written on a separate thread
+   * while more messages are accepted.  Once a sensor has maxInFlight batches being written, flushing another blocks
+   * until one completes.  The writer is only ever called from one thread at a time, and batches are written in order.
+   * @param maxInFlight The maximum number of batches per sensor being written; 0 writes batches on the caller's thread
+   * @return This component
+   */
+  public BulkWriterComponent<MESSAGE_T> withMaxInFlight(int maxInFlight) {
+    if (maxInFlight < 0) {
+      throw new IllegalArgumentException(String.format("The maxInFlight setting is %d but must not be negative.", maxInFlight));
+    }
+    this.maxInFlight = maxInFlight;
+    for (FlushPolicy<MESSAGE_T> flushPolicy : flushPolicies) {
+      flushPolicy.setPipelined(maxInFlight > 0);
+    }
+    if (maxInFlight > 0 && flushExecutor == null) {
+      flushExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+              .setNameFormat("bulk-writer-flush-%d")
+              .setDaemon(true)
+              .build());
+    }
+    return this;
+  }
+
+  /**
+   * @param flushLatencyListener Called on the caller's thread with the time taken, in milliseconds, to write each batch
+   * @return This component
+   */
+  public BulkWriterComponent<MESSAGE_T> withFlushLatencyListener(LongConsumer flushLatencyListener) {
+    this.flushLatencyListener = flushLatencyListener;
+    return this;
+  }
+
+  /**
+   * @return The number of batches, across all sensors, being written or waiting for their response to be applied
+   */
+  public int getInFlight() {
+    return inFlight.values().stream().mapToInt(Integer::intValue).sum();
+  }
+
   /**
    * Accepts a message to be written and stores it in an internal cache of messages.  Iterates through {@link org.apache.metron.writer.FlushPolicy}
    * implementations to determine if a batch should be flushed.
@@ -82,6 +151,7 @@ public class BulkWriterComponent<MESSAGE_T> {
           , WriterConfiguration configurations
   )
   {
+    applyFlushed();
     List<BulkMessage<MESSAGE_T>> messages = sensorMessageCache.getOrDefault(sensorType, new ArrayList<>());
     sensorMessageCache.put(sensorType, messages);
 
@@ -103,7 +173,8 @@ public class BulkWriterComponent<MESSAGE_T> {
   /**
    * Flushes a batch for a sensor type by writing messages with the supplied {@link org.apache.metron.common.writer.BulkMessageWriter}.
    * Ensures all message ids in a batch are included in the response. After messages are written the cache is cleared and
-   * flush policies are reset for that sensor type.
+   * flush policies are reset for that sensor type.  If pipelined, the cache is cleared once the batch is handed to the
+   * flush thread, and the flush policies are called once its response is applied.
    * @param sensorType sensor type
    * @param bulkMessageWriter writer that will do the actual writing
    * @param configurations writer configurations
@@ -114,10 +185,28 @@ public class BulkWriterComponent<MESSAGE_T> {
                     , WriterConfiguration configurations
                     , List<BulkMessage<MESSAGE_T>> messages
                     )
+  {
+    if (maxInFlight > 0) {
+      submit(sensorType, bulkMessageWriter, configurations, messages);
+      return;
+    }
+    BulkWriterResponse response = writeBatch(sensorType, bulkMessageWriter, configurations, messages);
+    onFlush(sensorType, response);
+    flushLatencyListener.accept(response.getWriteTimeMillis());
+    LOG.debug("Flushed batch successfully; sensorType={}, batchSize={}, took={} ms", sensorType, messages.size(), response.getWriteTimeMillis());
+  }
+
+  /**
+   * Writes a batch, ensuring all message ids in the batch are included in the response.
+   */
+  private BulkWriterResponse writeBatch(String sensorType
+                    , BulkMessageWriter<MESSAGE_T> bulkMessageWriter
+                    , WriterConfiguration configurations
+                    , List<BulkMessage<MESSAGE_T>> messages
+                    )
   {
     long startTime = System.currentTimeMillis(); //no need to mock, so use real time
     BulkWriterResponse response = new BulkWriterResponse();
-
     Collection<MessageId> ids = messages.stream().map(BulkMessage::getId).collect(Collectors.toList());
     try {
       response = bulkMessageWriter.write(sensorType, configurations, messages);
@@ -128,12 +217,71 @@ public class BulkWriterComponent<MESSAGE_T> {
       response.addAllSuccesses(ids);
     } catch (Throwable e) {
       response.addAllErrors(e, ids);
-    } finally {
-      onFlush(sensorType, response);
     }
-    long endTime = System.currentTimeMillis();
-    long elapsed = endTime - startTime;
-    LOG.debug("Flushed batch successfully; sensorType={}, batchSize={}, took={} ms", sensorType, CollectionUtils.size(ids), elapsed);
+    response.setWriteTimeMillis(Math.max(1, System.currentTimeMillis() - startTime));
+    return response;
+  }
+
+  /**
+   * Hands a batch to the flush thread, first waiting for one of the sensor's batches to complete if it already has
+   * the maximum number in flight.
+   */
+  private void submit(String sensorType
+                    , BulkMessageWriter<MESSAGE_T> bulkMessageWriter
+                    , WriterConfiguration configurations
+                    , List<BulkMessage<MESSAGE_T>> messages
+                    )
+  {
+    applyFlushed();
+    while (inFlight.getOrDefault(sensorType, 0) >= maxInFlight) {
+      LOG.debug("Waiting for one of {} batches in flight to be written; sensorType={}", maxInFlight, sensorType);
+      try {
+        apply(flushed.take());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for a batch to be written", e);
+      }
+    }
+
+    // the next message starts a new batch
+    sensorMessageCache.remove(sensorType);
+    for (FlushPolicy<MESSAGE_T> flushPolicy : flushPolicies) {
+      flushPolicy.onSubmit(sensorType);
+    }
+    inFlight.merge(sensorType, 1, Integer::sum);
+    flushExecutor.execute(() -> {
+      flushed.add(new FlushedBatch(sensorType, writeBatch(sensorType, bulkMessageWriter, configurations, messages)));
+    });
+  }
+
+  /**
+   * Applies the responses of the pipelined batches that have been written to the flush policies.  This is called
+   * whenever a message is written or the batches are flushed, so only needs to be called directly by a caller
+   * that may otherwise stop writing for some time.
+   */
+  public void applyFlushed() {
+    FlushedBatch batch;
+    while ((batch = flushed.poll()) != null) {
+      apply(batch);
+    }
+  }
+
+  private void apply(FlushedBatch batch) {
+    inFlight.computeIfPresent(batch.sensorType, (sensorType, count) -> count > 1 ? count - 1 : null);
+    flushLatencyListener.accept(batch.response.getWriteTimeMillis());
+    for (FlushPolicy<MESSAGE_T> flushPolicy : flushPolicies) {
+      flushPolicy.onFlush(batch.sensorType, batch.response);
+    }
+    LOG.debug("Flushed batch successfully; sensorType={}, took={} ms", batch.sensorType, batch.response.getWriteTimeMillis());
+  }
+
+  /**
+   * Stops the flush thread.  Batches still being written are abandoned, and their messages are never acknowledged.
+   */
+  public void close() {
+    if (flushExecutor != null) {
+      flushExecutor.shutdownNow();
+    }
   }
 
   /**
@@ -146,6 +294,7 @@ public class BulkWriterComponent<MESSAGE_T> {
           , WriterConfiguration configurations
           )
   {
+    applyFlushed();
     // Sensors are removed from the sensorTupleMap when flushed so we need to iterate over a copy of sensorTupleMap keys
     // to avoid a ConcurrentModificationException.
     for (String sensorType : new HashSet<>(sensorMessageCache.keySet())) {
@@ -153,6 +302,10 @@ public class BulkWriterComponent<MESSAGE_T> {
     }
   }
 
+  public List<FlushPolicy<MESSAGE_T>> getFlushPolicies() {
+    return flushPolicies;
+  }
+
   /**
    * Add a custom flush policy in addition to the default policies.
    * @param flushPolicy flush policy
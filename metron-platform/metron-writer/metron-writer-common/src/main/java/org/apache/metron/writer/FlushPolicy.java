@@ -48,4 +48,24 @@ public interface FlushPolicy<MESSAGE_T> {
    * @param sensorType sensor type
    */
   void onFlush(String sensorType, BulkWriterResponse response);
+
+  /**
+   * This method is called when flushing is pipelined, as a batch is handed to the writer and before its response is
+   * known.  {@link org.apache.metron.writer.FlushPolicy#onFlush(String, BulkWriterResponse)} is called once the batch
+   * has been written, by which time the next batch may have started.  Policies that track the batch being built should
+   * reset here.
+   * @param sensorType sensor type
+   */
+  default void onSubmit(String sensorType) {
+  }
+
+  /**
+   * This method is called when the {@link org.apache.metron.writer.BulkWriterComponent} is configured with
+   * {@link org.apache.metron.writer.BulkWriterComponent#withMaxInFlight(int)}, to tell the policy whether flushing is
+   * pipelined.  If so, {@link org.apache.metron.writer.FlushPolicy#onSubmit(String)} is called for each batch before
+   * {@link org.apache.metron.writer.FlushPolicy#onFlush(String, BulkWriterResponse)}.
+   * @param pipelined true if batches are written on a separate thread
+   */
+  default void setPipelined(boolean pipelined) {
+  }
 }
@@ -25,6 +25,8 @@ import org.apache.metron.common.writer.MessageId;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.client.Put;
@@ -36,6 +38,8 @@ import org.apache.metron.common.utils.ReflectionUtils;
 import org.apache.metron.enrichment.converter.EnrichmentConverter;
 import org.apache.metron.enrichment.converter.EnrichmentKey;
 import org.apache.metron.enrichment.converter.EnrichmentValue;
+import org.apache.metron.enrichment.lookup.filter.MembershipFilter;
+import org.apache.metron.enrichment.lookup.filter.MembershipFilterWriter;
 import org.apache.metron.hbase.TableProvider;
 import org.apache.metron.writer.AbstractWriter;
 import org.apache.metron.common.writer.BulkWriterResponse;
@@ -122,6 +126,17 @@ public class SimpleHbaseEnrichmentWriter extends AbstractWriter implements BulkM
   private TableProvider provider;
   private Map.Entry<Object, KeyTransformer> keyTransformer;
 
+  /**
+   * The directory of the membership filters, if the lookups of the tables written to are filtered.
+   */
+  private String filterDir;
+
+  /**
+   * The markers of the tables written to, keyed by table name.  The tables' filters are published
+   * when the writer is closed.
+   */
+  private transient Map<String, Path> filterMarkers;
+
   public SimpleHbaseEnrichmentWriter() {
   }
 
@@ -322,6 +337,7 @@ public class SimpleHbaseEnrichmentWriter extends AbstractWriter implements BulkM
   {
     Map<String, Object> sensorConfig = configurations.getSensorConfig(sensorType);
     Table table = getTable(sensorConfig);
+    markTable(Configurations.HBASE_TABLE.getAndConvert(sensorConfig, String.class), configurations.getGlobalConfig());
     KeyTransformer transformer = getTransformer(sensorConfig);
     Object enrichmentTypeObj = Configurations.ENRICHMENT_TYPE.get(sensorConfig);
     String enrichmentType = enrichmentTypeObj == null?null:enrichmentTypeObj.toString();
@@ -353,6 +369,42 @@ public class SimpleHbaseEnrichmentWriter extends AbstractWriter implements BulkM
     return response;
   }
 
+  /**
+   * Marks a table as being written, if the lookups of the tables are filtered, so that the keys
+   * written are not filtered out before the table's filter is next published.
+   */
+  private synchronized void markTable(String tableName, Map<String, Object> globalConfig) throws IOException {
+    Object dir = globalConfig == null ? null : globalConfig.get(MembershipFilter.FILTER_DIR_CONF);
+    if(dir == null || tableName == null) {
+      return;
+    }
+    if(filterMarkers == null) {
+      filterMarkers = new HashMap<>();
+    }
+    if(!filterMarkers.containsKey(tableName)) {
+      filterDir = dir.toString();
+      filterMarkers.put(tableName, new MembershipFilterWriter(filterDir).startWriting(FileSystem.get(new Configuration()), tableName));
+    }
+  }
+
+  /**
+   * Publishes the filters of the tables written to.  A table whose filter cannot be published
+   * stays marked, so its lookups are not filtered.
+   */
+  private synchronized void publishFilters() {
+    if(filterMarkers == null) {
+      return;
+    }
+    for(Map.Entry<String, Path> marker : filterMarkers.entrySet()) {
+      try(Table markedTable = getProvider().getTable(HBaseConfiguration.create(), marker.getKey())) {
+        new MembershipFilterWriter(filterDir).publish(FileSystem.get(new Configuration()), markedTable, marker.getValue());
+      } catch(IOException e) {
+        LOG.warn("Unable to publish the membership filter of {}: {}", marker.getKey(), e.getMessage(), e);
+      }
+    }
+    filterMarkers.clear();
+  }
+
   @Override
   public String getName() {
     return "hbaseEnrichment";
@@ -364,6 +416,7 @@ public class SimpleHbaseEnrichmentWriter extends AbstractWriter implements BulkM
       if(table != null) {
         table.close();
       }
+      publishFilters();
     }
   }
 }
@@ -34,8 +34,10 @@ import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.configuration.writer.WriterConfiguration;
+import org.apache.metron.common.message.codec.MessageCodecs;
 import org.apache.metron.common.utils.KafkaUtils;
 import org.apache.metron.common.utils.StringUtils;
 import org.apache.metron.common.writer.BulkMessageWriter;
@@ -58,7 +60,8 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
     ,REQUIRED_ACKS("kafka.requiredAcks")
     ,TOPIC("kafka.topic")
     ,TOPIC_FIELD("kafka.topicField")
-    ,PRODUCER_CONFIGS("kafka.producerConfigs");
+    ,PRODUCER_CONFIGS("kafka.producerConfigs")
+    ,CODEC("kafka.codec");
     ;
     String key;
     Configurations(String key) {
@@ -94,6 +97,7 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
   private String configPrefix = null;
   private String zkQuorum = null;
   private Map<String, Object> producerConfigs = new HashMap<>();
+  private MessageCodecs codec = MessageCodecs.JSON;
 
   public KafkaWriter() {}
 
@@ -150,6 +154,16 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
     return this;
   }
 
+  /**
+   * The codec used to encode each message.  Consumers detect the codec from the message itself.
+   *
+   * @param codec The name of a {@link MessageCodecs}; JSON by default.
+   */
+  public KafkaWriter withCodec(String codec) {
+    this.codec = MessageCodecs.create(codec);
+    return this;
+  }
+
   public Optional<String> getConfigPrefix() {
     return Optional.ofNullable(configPrefix);
   }
@@ -196,6 +210,10 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
     if(producerConfigs != null) {
       withProducerConfigs(producerConfigs);
     }
+    String codec = Configurations.CODEC.getAndConvert(getConfigPrefix(), configMap, String.class);
+    if(codec != null) {
+      withCodec(codec);
+    }
   }
 
   @Override
@@ -219,6 +237,10 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
     producerConfig.put("request.required.acks", requiredAcks);
     producerConfig.put(ProducerConfig.BATCH_SIZE_CONFIG, DEFAULT_BATCH_SIZE);
     producerConfig.putAll(producerConfigs == null?new HashMap<>():producerConfigs);
+    if(!codec.isText()) {
+      // binary messages cannot be sent as strings
+      producerConfig.put("value.serializer", ByteArraySerializer.class.getName());
+    }
     producerConfig = KafkaUtils.INSTANCE.normalizeProtocol(producerConfig);
     return producerConfig;
   }
@@ -244,9 +266,9 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
     for (BulkMessage<JSONObject> bulkWriterMessage: messages) {
       MessageId messageId = bulkWriterMessage.getId();
       JSONObject message = bulkWriterMessage.getMessage();
-      String jsonMessage;
+      Object encodedMessage;
       try {
-         jsonMessage = message.toJSONString();
+        encodedMessage = codec.isText() ? message.toJSONString() : codec.encode(message);
       } catch (Throwable t) {
         writerResponse.addError(t, messageId);
         continue;
@@ -254,12 +276,12 @@ public class KafkaWriter extends AbstractWriter implements BulkMessageWriter<JSO
       Optional<String> topic = getKafkaTopic(message);
       if(topic.isPresent()) {
         Future future = kafkaProducer
-            .send(new ProducerRecord<String, String>(topic.get(), jsonMessage));
+            .send(new ProducerRecord<String, Object>(topic.get(), encodedMessage));
         // we want to manage the batching
         results.add(new AbstractMap.SimpleEntry<>(messageId, future));
       }
       else {
-        LOG.debug("Dropping {} because no topic is specified.", jsonMessage);
+        LOG.debug("Dropping {} because no topic is specified.", message);
       }
     }
 
@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.writer;
+
+import org.apache.metron.common.configuration.writer.WriterConfiguration;
+import org.apache.metron.common.writer.BulkMessage;
+import org.apache.metron.common.writer.BulkWriterResponse;
+import org.apache.metron.common.writer.MessageId;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AdaptiveBatchSizePolicyTest {
+
+  private String sensorType = "sensorType";
+  private WriterConfiguration configurations = mock(WriterConfiguration.class);
+  private AdaptiveBatchSizePolicy<JSONObject> batchSizePolicy = new AdaptiveBatchSizePolicy<>();
+
+  @BeforeEach
+  public void setup() {
+    when(configurations.getBatchSize(sensorType)).thenReturn(10);
+    when(configurations.getBatchTargetLatency(sensorType)).thenReturn(100);
+    when(configurations.getBatchSizeMin(sensorType)).thenReturn(1);
+  }
+
+  @Test
+  public void shouldUseConfiguredBatchSizeWithoutTargetLatency() {
+    when(configurations.getBatchTargetLatency(sensorType)).thenReturn(0);
+
+    assertEquals(10, batchSizePolicy.getBatchSize(sensorType, configurations));
+    batchSizePolicy.onFlush(sensorType, response(10, 0, 10));
+    assertEquals(10, batchSizePolicy.getBatchSize(sensorType, configurations));
+    assertTrue(batchSizePolicy.getBatchSizes().isEmpty());
+  }
+
+  @Test
+  public void shouldGrowWhenFullBatchesAreFast() {
+    assertEquals(10, batchSizePolicy.getBatchSize(sensorType, configurations));
+    batchSizePolicy.onFlush(sensorType, response(10, 0, 20));
+    assertEquals(15, batchSizePolicy.getBatchSize(sensorType, configurations));
+    assertEquals(15, (int) batchSizePolicy.getBatchSizes().get(sensorType));
+
+    assertFalse(batchSizePolicy.shouldFlush(sensorType, configurations, messages(10)));
+    assertTrue(batchSizePolicy.shouldFlush(sensorType, configurations, messages(15)));
+  }
+
+  @Test
+  public void shouldNotGrowWhenPartialBatchesAreFast() {
+    batchSizePolicy.getBatchSize(sensorType, configurations);
+    batchSizePolicy.onFlush(sensorType, response(5, 0, 20));
+    assertEquals(10, batchSizePolicy.getBatchSize(sensorType, configurations));
+  }
+
+  @Test
+  public void shouldShrinkWhenBatchesAreSlow() {
+    batchSizePolicy.getBatchSize(sensorType, configurations);
+    batchSizePolicy.onFlush(sensorType, response(10, 0, 125));
+    assertEquals(8, batchSizePolicy.getBatchSize(sensorType, configurations));
+
+    // shrinking is limited to half the batch size
+    batchSizePolicy.onFlush(sensorType, response(8, 0, 2000));
+    assertEquals(4, batchSizePolicy.getBatchSize(sensorType, configurations));
+  }
+
+  @Test
+  public void shouldNotChangeWhenNearTarget() {
+    batchSizePolicy.getBatchSize(sensorType, configurations);
+    batchSizePolicy.onFlush(sensorType, response(10, 0, 110));
+    assertEquals(10, batchSizePolicy.getBatchSize(sensorType, configurations));
+  }
+
+  @Test
+  public void shouldHalveWhenWholeBatchFails() {
+    batchSizePolicy.getBatchSize(sensorType, configurations);
+    batchSizePolicy.onFlush(sensorType, response(0, 10, 10));
+    assertEquals(5, batchSizePolicy.getBatchSize(sensorType, configurations));
+  }
+
+  @Test
+  public void shouldStayWithinBounds() {
+    when(configurations.getBatchSizeMin(sensorType)).thenReturn(8);
+    when(configurations.getBatchSizeMax(sensorType)).thenReturn(12);
+
+    batchSizePolicy.getBatchSize(sensorType, configurations);
+    batchSizePolicy.onFlush(sensorType, response(10, 0, 10));
+    assertEquals(12, batchSizePolicy.getBatchSize(sensorType, configurations));
+    batchSizePolicy.onFlush(sensorType, response(0, 12, 5000));
+    assertEquals(8, batchSizePolicy.getBatchSize(sensorType, configurations));
+  }
+
+  @Test
+  public void shouldDefaultMaximumToMultipleOfBatchSize() {
+    batchSizePolicy.getBatchSize(sensorType, configurations);
+    for (int i = 0; i < 20; i++) {
+      int batchSize = batchSizePolicy.getBatchSize(sensorType, configurations);
+      batchSizePolicy.onFlush(sensorType, response(batchSize, 0, 1));
+    }
+    assertEquals(10 * AdaptiveBatchSizePolicy.DEFAULT_MAX_MULTIPLE, batchSizePolicy.getBatchSize(sensorType, configurations));
+  }
+
+  private BulkWriterResponse response(int successes, int failures, long writeTimeMillis) {
+    BulkWriterResponse response = new BulkWriterResponse();
+    for (int i = 0; i < successes; i++) {
+      response.addSuccess(new MessageId("success" + i));
+    }
+    Exception e = new Exception("write failed");
+    for (int i = 0; i < failures; i++) {
+      response.addError(e, new MessageId("failure" + i));
+    }
+    response.setWriteTimeMillis(writeTimeMillis);
+    return response;
+  }
+
+  private List<BulkMessage<JSONObject>> messages(int count) {
+    List<BulkMessage<JSONObject>> messages = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      messages.add(new BulkMessage<>("message" + i, new JSONObject()));
+    }
+    return messages;
+  }
+}
@@ -85,6 +85,29 @@ public class BatchTimeoutPolicyTest {
     assertTrue(batchTimeoutPolicy.shouldFlush(sensor1, configurations, messages));
   }
 
+  @Test
+  public void shouldResetTimeoutsOnSubmitWhenPipelined() {
+    Clock clock = mock(Clock.class);
+
+    BatchTimeoutPolicy batchTimeoutPolicy = new BatchTimeoutPolicy(maxBatchTimeout, clock);
+    batchTimeoutPolicy.setPipelined(true);
+    when(configurations.getBatchTimeout(sensor1)).thenReturn(1);
+
+    when(clock.currentTimeMillis()).thenReturn(0L); // initial check
+    assertFalse(batchTimeoutPolicy.shouldFlush(sensor1, configurations, messages));
+
+    batchTimeoutPolicy.onSubmit(sensor1);
+
+    when(clock.currentTimeMillis()).thenReturn(500L); // the next batch starts
+    assertFalse(batchTimeoutPolicy.shouldFlush(sensor1, configurations, messages));
+
+    // the response of the submitted batch must not reset the next batch
+    batchTimeoutPolicy.onFlush(sensor1, new BulkWriterResponse());
+
+    when(clock.currentTimeMillis()).thenReturn(1500L);
+    assertTrue(batchTimeoutPolicy.shouldFlush(sensor1, configurations, messages));
+  }
+
   @Test
   public void getBatchTimeoutShouldReturnConfiguredTimeout() {
     BatchTimeoutPolicy batchTimeoutPolicy = new BatchTimeoutPolicy(maxBatchTimeout);
@@ -32,7 +32,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.Mockito.*;
 
 public class BulkWriterComponentTest {
@@ -239,4 +244,80 @@ public class BulkWriterComponentTest {
 
     verifyNoMoreInteractions(flushPolicy);
   }
+
+  @Test
+  public void pipelinedFlushShouldApplyResponsesOnCallerThread() throws Exception {
+    BulkWriterComponent<JSONObject> bulkWriterComponent = new BulkWriterComponent<>(Collections.singletonList(flushPolicy))
+            .withMaxInFlight(1);
+    CountDownLatch writing = new CountDownLatch(1);
+    BulkWriterResponse response = new BulkWriterResponse();
+    response.addSuccess(messageId1);
+    when(bulkMessageWriter.write(sensorType, configurations, messages.subList(0, 1))).thenAnswer(invocation -> {
+      writing.await();
+      return response;
+    });
+    when(flushPolicy.shouldFlush(eq(sensorType), eq(configurations), any())).thenReturn(true);
+
+    try {
+      bulkWriterComponent.write(sensorType, messages.get(0), bulkMessageWriter, configurations);
+
+      verify(flushPolicy, times(1)).setPipelined(true);
+      verify(flushPolicy, times(1)).onSubmit(sensorType);
+      verify(flushPolicy, times(0)).onFlush(any(), any());
+      assertEquals(1, bulkWriterComponent.getInFlight());
+
+      writing.countDown();
+      awaitFlushed(bulkWriterComponent);
+
+      verify(flushPolicy, times(1)).onFlush(sensorType, response);
+    } finally {
+      bulkWriterComponent.close();
+    }
+  }
+
+  @Test
+  public void pipelinedFlushShouldBlockWhenMaxInFlightReached() throws Exception {
+    BulkWriterComponent<JSONObject> bulkWriterComponent = new BulkWriterComponent<>(Collections.singletonList(flushPolicy))
+            .withMaxInFlight(1);
+    CountDownLatch writing = new CountDownLatch(1);
+    BulkWriterResponse firstResponse = new BulkWriterResponse();
+    firstResponse.addSuccess(messageId1);
+    BulkWriterResponse secondResponse = new BulkWriterResponse();
+    secondResponse.addSuccess(messageId2);
+    when(bulkMessageWriter.write(sensorType, configurations, messages.subList(0, 1))).thenAnswer(invocation -> {
+      writing.await();
+      return firstResponse;
+    });
+    when(bulkMessageWriter.write(sensorType, configurations, messages.subList(1, 2))).thenReturn(secondResponse);
+    when(flushPolicy.shouldFlush(eq(sensorType), eq(configurations), any())).thenReturn(true);
+
+    try {
+      bulkWriterComponent.write(sensorType, messages.get(0), bulkMessageWriter, configurations);
+      CompletableFuture<Void> second = CompletableFuture.runAsync(
+              () -> bulkWriterComponent.write(sensorType, messages.get(1), bulkMessageWriter, configurations));
+
+      // the first batch is still in flight, so the second cannot be flushed
+      Thread.sleep(100);
+      assertFalse(second.isDone());
+
+      writing.countDown();
+      second.get(5, TimeUnit.SECONDS);
+      verify(flushPolicy, times(1)).onFlush(sensorType, firstResponse);
+
+      awaitFlushed(bulkWriterComponent);
+      verify(flushPolicy, times(1)).onFlush(sensorType, secondResponse);
+    } finally {
+      bulkWriterComponent.close();
+    }
+  }
+
+  private void awaitFlushed(BulkWriterComponent<JSONObject> bulkWriterComponent) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    bulkWriterComponent.applyFlushed();
+    while (bulkWriterComponent.getInFlight() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      bulkWriterComponent.applyFlushed();
+    }
+    assertEquals(0, bulkWriterComponent.getInFlight());
+  }
 }
@@ -22,17 +22,20 @@ import com.google.common.collect.ImmutableMap;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.configuration.ParserConfigurations;
 import org.apache.metron.common.configuration.SensorParserConfig;
 import org.apache.metron.common.configuration.writer.ParserWriterConfiguration;
 import org.apache.metron.common.configuration.writer.WriterConfiguration;
+import org.apache.metron.common.message.codec.MessageCodecs;
 import org.apache.metron.common.writer.BulkMessage;
 import org.apache.metron.common.writer.BulkWriterResponse;
 import org.apache.metron.common.writer.MessageId;
 import org.json.simple.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -239,4 +242,33 @@ public class KafkaWriterTest {
     verify(kafkaProducer, times(1)).send(new ProducerRecord<String, String>("topic2", "{\"value\":\"message2\"}"));
     verifyNoMoreInteractions(kafkaProducer);
   }
+
+  @Test
+  public void testWriteWithBinaryCodec() throws Exception {
+    KafkaWriter writer = spy(new KafkaWriter());
+    writer.configure(SENSOR_TYPE, createConfiguration(
+            new HashMap<String, Object>() {{
+              put("kafka.brokerUrl" , "localhost:6667");
+              put("kafka.codec" , "SMILE");
+            }}
+    ));
+    assertEquals(ByteArraySerializer.class.getName(), writer.createProducerConfigs().get("value.serializer"));
+    writer.setKafkaProducer(kafkaProducer);
+
+    JSONObject message = new JSONObject();
+    message.put("value", "success");
+    doReturn(Optional.of("topic")).when(writer).getKafkaTopic(message);
+    when(kafkaProducer.send(any())).thenReturn(mock(Future.class));
+
+    BulkWriterResponse response = new BulkWriterResponse();
+    response.addSuccess(new MessageId("messageId"));
+    assertEquals(response, writer.write(SENSOR_TYPE, createConfiguration(new HashMap<>()),
+            Collections.singletonList(new BulkMessage<>("messageId", message))));
+
+    // the message is sent encoded by the codec
+    ArgumentCaptor<ProducerRecord> record = ArgumentCaptor.forClass(ProducerRecord.class);
+    verify(kafkaProducer, times(1)).send(record.capture());
+    assertEquals("topic", record.getValue().topic());
+    assertEquals(message, MessageCodecs.decodeAny((byte[]) record.getValue().value()));
+  }
 }
@@ -42,10 +42,15 @@ import org.apache.metron.common.writer.BulkMessage;
 import org.apache.metron.common.writer.MessageWriter;
 import org.apache.metron.storm.common.utils.StormErrorUtils;
 import org.apache.metron.writer.AckTuplesPolicy;
+import org.apache.metron.writer.AdaptiveBatchSizePolicy;
 import org.apache.metron.writer.BulkWriterComponent;
+import org.apache.metron.writer.FlushPolicy;
 import org.apache.metron.writer.WriterToBulkWriter;
 import org.apache.metron.writer.hdfs.HdfsWriter;
 import org.apache.storm.Config;
+import org.apache.storm.metric.api.IMetric;
+import org.apache.storm.metric.api.MeanReducer;
+import org.apache.storm.metric.api.ReducedMetric;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -86,6 +91,7 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
 
   private static final Logger LOG = LoggerFactory
           .getLogger(BulkMessageWriterBolt.class);
+  private static final int METRICS_INTERVAL_SECS = 60;
   private BulkMessageWriter<JSONObject> bulkMessageWriter;
   private BulkWriterComponent<JSONObject> writerComponent = null;
   private String messageGetStrategyType = MessageGetters.DEFAULT_JSON_FROM_FIELD.name();
@@ -96,7 +102,9 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
   private int requestedTickFreqSecs;
   private int maxBatchTimeout;
   private int batchTimeoutDivisor = 1;
+  private int maxInFlightBatches = 0;
   private transient AckTuplesPolicy ackTuplesPolicy = null;
+  private transient ReducedMetric flushLatencyMetric;
 
   public BulkMessageWriterBolt(String zookeeperUrl, String configurationStrategy) {
     super(zookeeperUrl, configurationStrategy);
@@ -148,6 +156,26 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
     return this;
   }
 
+  /**
+   * Pipelines the writing of batches, so the bolt continues to consume tuples while up to this many batches
+   * per sensor are being written.  Once a sensor has this many batches in flight, the bolt blocks until one
+   * completes.  Batches are still written one at a time, and in order, so this is safe with any writer.
+   * Tuples are acked on the bolt's thread, when the next tuple for any sensor or tick tuple is received after
+   * their batch has been written.  It would be used in the topology set-up files such as
+   * metron-platform/metron-indexing/src/main/flux/indexing/remote.yaml
+   * Default value, if not otherwise set, is 0, which writes each batch on the bolt's thread.
+   *
+   * @param maxInFlightBatches
+   * @return BulkMessageWriterBolt
+   */
+  public BulkMessageWriterBolt<CONFIG_T> withMaxInFlightBatches(int maxInFlightBatches) {
+    if (maxInFlightBatches < 0) {
+      throw new IllegalArgumentException(String.format("maxInFlightBatches must not be negative. Value provided was %s", maxInFlightBatches));
+    }
+    this.maxInFlightBatches = maxInFlightBatches;
+    return this;
+  }
+
   /**
    * Used only for unit testing
    * @param maxBatchTimeout
@@ -224,6 +252,12 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
       configurationTransformation = x -> x;
     }
     ackTuplesPolicy = new AckTuplesPolicy(collector, messageGetStrategy);
+    flushLatencyMetric = new ReducedMetric(new MeanReducer());
+    IMetric inFlightMetric = () -> getWriterComponent() == null ? 0 : getWriterComponent().getInFlight();
+    context.registerMetric("writerFlushLatencyMs", flushLatencyMetric, METRICS_INTERVAL_SECS);
+    IMetric batchSizeMetric = this::getAdaptiveBatchSizes;
+    context.registerMetric("writerBatchesInFlight", inFlightMetric, METRICS_INTERVAL_SECS);
+    context.registerMetric("writerBatchSize", batchSizeMetric, METRICS_INTERVAL_SECS);
     try {
       WriterConfiguration writerconf = configurationTransformation
           .apply(getConfigurationStrategy().createWriterConfig(bulkMessageWriter, getConfigurations()));
@@ -233,9 +267,7 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
         BatchTimeoutHelper timeoutHelper = new BatchTimeoutHelper(writerconf::getAllConfiguredTimeouts, batchTimeoutDivisor);
         maxBatchTimeout = timeoutHelper.getMaxBatchTimeout();
       }
-      BulkWriterComponent<JSONObject> bulkWriterComponent = new BulkWriterComponent<>(maxBatchTimeout);
-      bulkWriterComponent.addFlushPolicy(ackTuplesPolicy);
-      setWriterComponent(bulkWriterComponent);
+      initWriterComponent(new BulkWriterComponent<>(maxBatchTimeout));
       bulkMessageWriter.init(stormConf, writerconf);
       if (bulkMessageWriter instanceof HdfsWriter) {
         ((HdfsWriter) bulkMessageWriter).initFileNameFormat(context);
@@ -250,11 +282,40 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
    */
   public void prepare(Map stormConf, TopologyContext context, OutputCollector collector, Clock clock) {
     prepare(stormConf, context, collector);
-    BulkWriterComponent<JSONObject> bulkWriterComponent = new BulkWriterComponent<>(maxBatchTimeout, clock);
+    getWriterComponent().close();
+    initWriterComponent(new BulkWriterComponent<>(maxBatchTimeout, clock));
+  }
+
+  private void initWriterComponent(BulkWriterComponent<JSONObject> bulkWriterComponent) {
     bulkWriterComponent.addFlushPolicy(ackTuplesPolicy);
+    bulkWriterComponent.withMaxInFlight(maxInFlightBatches)
+            .withFlushLatencyListener(flushLatencyMetric::update);
     setWriterComponent(bulkWriterComponent);
   }
 
+  /**
+   * @return The current batch size of each sensor whose batch size adapts to the write time
+   */
+  private Map<String, Integer> getAdaptiveBatchSizes() {
+    Map<String, Integer> ret = new HashMap<>();
+    if (getWriterComponent() != null) {
+      for (FlushPolicy<JSONObject> flushPolicy : getWriterComponent().getFlushPolicies()) {
+        if (flushPolicy instanceof AdaptiveBatchSizePolicy) {
+          ret.putAll(((AdaptiveBatchSizePolicy<JSONObject>) flushPolicy).getBatchSizes());
+        }
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public void cleanup() {
+    if (getWriterComponent() != null) {
+      getWriterComponent().close();
+    }
+    super.cleanup();
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public void execute(Tuple tuple) {
@@ -266,6 +327,10 @@ public class BulkMessageWriterBolt<CONFIG_T extends Configurations> extends Conf
           getWriterComponent().flushAll(bulkMessageWriter, configurationTransformation.apply(
               getConfigurationStrategy().createWriterConfig(bulkMessageWriter, getConfigurations())));
         }
+        else {
+          // ack the tuples of any pipelined batches that have been written
+          getWriterComponent().applyFlushed();
+        }
       }
       catch(Exception e) {
         throw new RuntimeException("This should have been caught in the writerComponent.  If you see this, file a JIRA", e);
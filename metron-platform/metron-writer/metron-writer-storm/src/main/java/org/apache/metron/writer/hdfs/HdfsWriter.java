@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.apache.metron.common.configuration.IndexingConfigurations;
@@ -62,6 +63,7 @@ public class HdfsWriter implements BulkMessageWriter<JSONObject>, Serializable {
   transient StellarProcessor stellarProcessor;
   transient Map stormConfig;
   transient SyncPolicyCreator syncPolicyCreator;
+  transient Map<SourceHandlerKey, Map<String, ParquetMessageWriter.ColumnType>> parquetColumns;
 
 
   public HdfsWriter withFileNameFormat(FileNameFormat fileNameFormat){
@@ -92,6 +94,7 @@ public class HdfsWriter implements BulkMessageWriter<JSONObject>, Serializable {
   public void init(Map stormConfig, WriterConfiguration configurations) {
     this.stormConfig = stormConfig;
     this.stellarProcessor = new StellarProcessor();
+    this.parquetColumns = new ConcurrentHashMap<>();
     if(syncPolicy != null) {
       //if the user has specified the sync policy, we don't want to override their wishes.
       LOG.debug("Using user specified sync policy {}", () -> syncPolicy.getClass().getSimpleName());
@@ -127,7 +130,11 @@ public class HdfsWriter implements BulkMessageWriter<JSONObject>, Serializable {
       try {
         LOG.trace("Writing message {} to path: {}", () -> message.toJSONString(), () -> path);
         SourceHandler handler = getSourceHandler(sensorType, path, configurations);
-        handler.handle(message, sensorType, configurations, syncPolicyCreator);
+        if (!handler.handle(message, sensorType, configurations, syncPolicyCreator)) {
+          // The file was closed by the rotation timer, so start a new file
+          handler = getSourceHandler(sensorType, path, configurations);
+          handler.handle(message, sensorType, configurations, syncPolicyCreator);
+        }
       } catch (Exception e) {
         LOG.error(
                 "HdfsWriter encountered error writing. Source type: {}. # messages: {}. Output path: {}.",
@@ -187,11 +194,22 @@ public class HdfsWriter implements BulkMessageWriter<JSONObject>, Serializable {
         LOG.error(errorMsg);
         throw new IllegalStateException(errorMsg);
       }
+      Map<String, Object> sensorConfig = config == null ? null : config.getSensorConfig(sourceType);
+      ParquetMessageWriter parquetWriter = null;
+      if(ParquetMessageWriter.isEnabled(sensorConfig)) {
+        if(parquetColumns.size() > maxOpenFiles) {
+          // forget the columns of paths that are no longer being written
+          parquetColumns.keySet().retainAll(sourceHandlerMap.keySet());
+        }
+        // the columns inferred are kept across files, so the schema of a path only widens
+        parquetWriter = ParquetMessageWriter.create(sensorConfig, parquetColumns.computeIfAbsent(key, k -> new ConcurrentHashMap<>()));
+      }
       ret = new SourceHandler(rotationActions,
                               rotationPolicy,
                               syncPolicyCreator.create(sourceType, config),
                               new PathExtensionFileNameFormat(key.getStellarResult(), fileNameFormat),
-                              new SourceHandlerCallback(sourceHandlerMap, key));
+                              new SourceHandlerCallback(sourceHandlerMap, key),
+                              parquetWriter);
       LOG.debug("Placing key in sourceHandlerMap: {}", key);
       sourceHandlerMap.put(key, ret);
     }
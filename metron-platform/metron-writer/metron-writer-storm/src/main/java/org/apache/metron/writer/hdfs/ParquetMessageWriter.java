@@ -0,0 +1,391 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.writer.hdfs;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.metron.common.configuration.IndexingConfigurations;
+import org.apache.metron.common.utils.LazyLogger;
+import org.apache.metron.common.utils.LazyLoggerFactory;
+import org.apache.metron.stellar.common.utils.ConversionUtils;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+/**
+ * Writes the messages of a single output file of the {@link SourceHandler} as Parquet.
+ *
+ * <p>Parquet files can neither be synced nor read until they are closed, so the messages are
+ * buffered and written to a part file in the {@link #STAGING_DIR} next to the output file each time
+ * the {@link SourceHandler}'s sync policy fires.  When the output file is closed, its parts are
+ * compacted into it and removed.  Parts left behind by a crashed worker are complete Parquet files.
+ * The schema of a file is either the schema configured for the sensor, or the columns inferred from
+ * every message seen so far for the same output path.
+ */
+public class ParquetMessageWriter {
+  private static final LazyLogger LOG = LazyLoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final String FORMAT = "PARQUET";
+  public static final String EXTENSION = ".parquet";
+  public static final String STAGING_DIR = "_staging";
+  public static final CompressionCodecName COMPRESSION_DEFAULT = CompressionCodecName.SNAPPY;
+
+  /**
+   * The types of column written.  Every column is optional, as any field may be missing.
+   */
+  public enum ColumnType {
+    BOOLEAN(PrimitiveTypeName.BOOLEAN, null),
+    LONG(PrimitiveTypeName.INT64, null),
+    DOUBLE(PrimitiveTypeName.DOUBLE, null),
+    STRING(PrimitiveTypeName.BINARY, OriginalType.UTF8);
+
+    private final PrimitiveTypeName primitiveType;
+    private final OriginalType originalType;
+
+    ColumnType(PrimitiveTypeName primitiveType, OriginalType originalType) {
+      this.primitiveType = primitiveType;
+      this.originalType = originalType;
+    }
+
+    /**
+     * @param name The name of the type in the sensor's output schema
+     * @return The column type
+     */
+    public static ColumnType fromName(String name) {
+      switch (name.trim().toUpperCase()) {
+        case "INT":
+        case "INTEGER":
+          return LONG;
+        case "FLOAT":
+          return DOUBLE;
+        default:
+          return valueOf(name.trim().toUpperCase());
+      }
+    }
+
+    /**
+     * @param value A non-null field value
+     * @return The narrowest column type able to hold the value
+     */
+    public static ColumnType of(Object value) {
+      if (value instanceof Boolean) {
+        return BOOLEAN;
+      }
+      if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+        return LONG;
+      }
+      if (value instanceof Number) {
+        return DOUBLE;
+      }
+      return STRING;
+    }
+
+    /**
+     * @return The narrowest column type able to hold values of both types
+     */
+    public ColumnType widen(ColumnType other) {
+      if (this == other) {
+        return this;
+      }
+      if ((this == LONG && other == DOUBLE) || (this == DOUBLE && other == LONG)) {
+        return DOUBLE;
+      }
+      return STRING;
+    }
+
+    /**
+     * Adds the value to the column of the row, converting it if necessary.
+     * @return false if the value could not be converted to the column type
+     */
+    boolean add(Group row, String field, Object value) {
+      switch (this) {
+        case BOOLEAN:
+          Boolean b = value instanceof Boolean ? (Boolean) value : ConversionUtils.convert(value, Boolean.class);
+          if (b != null) {
+            row.add(field, b);
+          }
+          return b != null;
+        case LONG:
+          Long l = value instanceof Number ? Long.valueOf(((Number) value).longValue()) : ConversionUtils.convert(value, Long.class);
+          if (l != null) {
+            row.add(field, l);
+          }
+          return l != null;
+        case DOUBLE:
+          Double d = value instanceof Number ? Double.valueOf(((Number) value).doubleValue()) : ConversionUtils.convert(value, Double.class);
+          if (d != null) {
+            row.add(field, d);
+          }
+          return d != null;
+        default:
+          row.add(field, value instanceof Map || value instanceof Collection ? JSONValue.toJSONString(value) : value.toString());
+          return true;
+      }
+    }
+  }
+
+  private final Map<String, ColumnType> columns;
+  private final boolean inferred;
+  private final CompressionCodecName compression;
+  private final List<JSONObject> buffer = new ArrayList<>();
+  private final List<Path> parts = new ArrayList<>();
+  private Path path;
+  private boolean closed = false;
+
+  /**
+   * @param columns The columns to write.  If inferred, this is updated with every column seen and
+   *                should be shared by the writers of an output path.
+   * @param inferred Whether the columns are inferred from the messages, rather than configured
+   * @param compression The compression codec
+   */
+  public ParquetMessageWriter(Map<String, ColumnType> columns, boolean inferred, CompressionCodecName compression) {
+    this.columns = columns;
+    this.inferred = inferred;
+    this.compression = compression;
+  }
+
+  /**
+   * Creates a writer for the sensor's indexing configuration.
+   * @param sensorConfig The sensor's indexing configuration for this writer
+   * @param inferredColumns The columns inferred for the output path, used if no schema is configured
+   */
+  public static ParquetMessageWriter create(Map<String, Object> sensorConfig, Map<String, ColumnType> inferredColumns) {
+    String compression = IndexingConfigurations.getOutputCompression(sensorConfig);
+    CompressionCodecName codec = compression.isEmpty() ? COMPRESSION_DEFAULT : CompressionCodecName.valueOf(compression.trim().toUpperCase());
+    Map<String, Object> schema = IndexingConfigurations.getOutputSchema(sensorConfig);
+    if (schema.isEmpty()) {
+      return new ParquetMessageWriter(inferredColumns, true, codec);
+    }
+    Map<String, ColumnType> columns = new HashMap<>();
+    for (Map.Entry<String, Object> column : schema.entrySet()) {
+      columns.put(column.getKey(), ColumnType.fromName(column.getValue().toString()));
+    }
+    return new ParquetMessageWriter(columns, false, codec);
+  }
+
+  /**
+   * @return Whether the sensor's indexing configuration asks for Parquet output
+   */
+  public static boolean isEnabled(Map<String, Object> sensorConfig) {
+    return FORMAT.equalsIgnoreCase(IndexingConfigurations.getOutputFormat(sensorConfig).trim());
+  }
+
+  /**
+   * @param name The name of the file as JSON
+   * @return The name of the file as Parquet
+   */
+  public static String getFileName(String name) {
+    return (name.endsWith(".json") ? name.substring(0, name.length() - ".json".length()) : name) + EXTENSION;
+  }
+
+  /**
+   * @param path The file to write to.  It is created when closed, and its parts are staged until then.
+   */
+  public void open(Path path) {
+    this.path = path;
+  }
+
+  /**
+   * Buffers the message until the file is closed.
+   * @return The approximate uncompressed size of the message
+   */
+  public long write(JSONObject message) {
+    if (inferred) {
+      inferColumns(message);
+    }
+    buffer.add(message);
+    long size = 0;
+    for (Object entry : message.entrySet()) {
+      Map.Entry<?, ?> field = (Map.Entry<?, ?>) entry;
+      size += field.getKey().toString().length();
+      size += field.getValue() instanceof String ? ((String) field.getValue()).length() : 8;
+    }
+    return size;
+  }
+
+  /**
+   * Makes the buffered messages durable by writing them to a new part of the file.
+   */
+  public void sync() throws IOException {
+    if (closed || buffer.isEmpty()) {
+      return;
+    }
+    String name = path.getName().substring(0, path.getName().length() - EXTENSION.length());
+    Path part = new Path(getStagingDir(), name + "-" + parts.size() + EXTENSION);
+    try {
+      write(part, buffer);
+    } finally {
+      buffer.clear();
+    }
+    parts.add(part);
+  }
+
+  /**
+   * Writes the buffered and staged messages to the file, then removes the staged parts.  Nothing is
+   * written if there are no messages.
+   */
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    if (parts.isEmpty()) {
+      closed = true;
+      if (!buffer.isEmpty()) {
+        try {
+          write(path, buffer);
+        } finally {
+          buffer.clear();
+        }
+      }
+      return;
+    }
+    sync();
+    closed = true;
+    List<Map<?, ?>> messages = new ArrayList<>();
+    for (Path part : parts) {
+      messages.addAll(read(part));
+    }
+    // compact into the staging directory first, so a partially written file is never visible
+    FileSystem fs = path.getFileSystem(new Configuration());
+    Path compacted = new Path(getStagingDir(), path.getName());
+    write(compacted, messages);
+    if (!fs.rename(compacted, path)) {
+      throw new IOException("Unable to move " + compacted + " to " + path);
+    }
+    for (Path part : parts) {
+      fs.delete(part, false);
+    }
+    parts.clear();
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  private Path getStagingDir() {
+    return new Path(path.getParent(), STAGING_DIR);
+  }
+
+  private void write(Path file, List<? extends Map<?, ?>> messages) throws IOException {
+    Map<String, ColumnType> fileColumns = new TreeMap<>(columns);
+    MessageType schema = toSchema(fileColumns);
+    LOG.debug("Writing {} messages to {} with schema {}", messages::size, () -> file, () -> schema);
+    SimpleGroupFactory rowFactory = new SimpleGroupFactory(schema);
+    try (ParquetWriter<Group> writer = ExampleParquetWriter.builder(file)
+            .withConf(new Configuration())
+            .withType(schema)
+            .withCompressionCodec(compression)
+            .build()) {
+      for (Map<?, ?> message : messages) {
+        writer.write(toRow(rowFactory, fileColumns, message));
+      }
+    }
+  }
+
+  private static List<Map<?, ?>> read(Path part) throws IOException {
+    List<Map<?, ?>> messages = new ArrayList<>();
+    try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), part).build()) {
+      for (Group row = reader.read(); row != null; row = reader.read()) {
+        messages.add(fromRow(row));
+      }
+    }
+    return messages;
+  }
+
+  private static MessageType toSchema(Map<String, ColumnType> fileColumns) {
+    Types.MessageTypeBuilder builder = Types.buildMessage();
+    for (Map.Entry<String, ColumnType> column : fileColumns.entrySet()) {
+      ColumnType type = column.getValue();
+      if (type.originalType == null) {
+        builder.optional(type.primitiveType).named(column.getKey());
+      } else {
+        builder.optional(type.primitiveType).as(type.originalType).named(column.getKey());
+      }
+    }
+    return builder.named("message");
+  }
+
+  private void inferColumns(JSONObject message) {
+    for (Object entry : message.entrySet()) {
+      Map.Entry<?, ?> field = (Map.Entry<?, ?>) entry;
+      if (field.getValue() != null) {
+        columns.merge(field.getKey().toString(), ColumnType.of(field.getValue()), ColumnType::widen);
+      }
+    }
+  }
+
+  private static Group toRow(SimpleGroupFactory rowFactory, Map<String, ColumnType> fileColumns, Map<?, ?> message) {
+    Group row = rowFactory.newGroup();
+    for (Map.Entry<String, ColumnType> column : fileColumns.entrySet()) {
+      Object value = message.get(column.getKey());
+      if (value != null && !column.getValue().add(row, column.getKey(), value)) {
+        LOG.debug("Dropping value of {} that is not a {}: {}", column::getKey, column::getValue, () -> value);
+      }
+    }
+    return row;
+  }
+
+  /**
+   * Reads a staged row back into the values it was written from.  The values of columns since widened
+   * are converted when the row is written again.
+   */
+  private static Map<String, Object> fromRow(Group row) {
+    Map<String, Object> message = new HashMap<>();
+    GroupType type = row.getType();
+    for (int i = 0; i < type.getFieldCount(); i++) {
+      if (row.getFieldRepetitionCount(i) == 0) {
+        continue;
+      }
+      switch (type.getType(i).asPrimitiveType().getPrimitiveTypeName()) {
+        case BOOLEAN:
+          message.put(type.getFieldName(i), row.getBoolean(i, 0));
+          break;
+        case INT64:
+          message.put(type.getFieldName(i), row.getLong(i, 0));
+          break;
+        case DOUBLE:
+          message.put(type.getFieldName(i), row.getDouble(i, 0));
+          break;
+        default:
+          message.put(type.getFieldName(i), row.getString(i, 0));
+      }
+    }
+    return message;
+  }
+}
@@ -51,6 +51,7 @@ public class SourceHandler {
   SourceHandlerCallback cleanupCallback;
   private long offset = 0;
   private transient FSDataOutputStream out;
+  private transient ParquetMessageWriter parquetWriter; // only used for Parquet output
   private transient final Object writeLock = new Object();
   protected transient Timer rotationTimer; // only used for TimedRotationPolicy
   protected transient FileSystem fs;
@@ -60,16 +61,35 @@ public class SourceHandler {
                       , SyncPolicy syncPolicy
                       , FileNameFormat fileNameFormat
                       , SourceHandlerCallback cleanupCallback) throws IOException {
+    this(rotationActions, rotationPolicy, syncPolicy, fileNameFormat, cleanupCallback, null);
+  }
+
+  public SourceHandler(List<RotationAction> rotationActions
+                      , FileRotationPolicy rotationPolicy
+                      , SyncPolicy syncPolicy
+                      , FileNameFormat fileNameFormat
+                      , SourceHandlerCallback cleanupCallback
+                      , ParquetMessageWriter parquetWriter) throws IOException {
     this.rotationActions = rotationActions;
     this.rotationPolicy = rotationPolicy;
     this.syncPolicy = syncPolicy;
     this.fileNameFormat = fileNameFormat;
     this.cleanupCallback = cleanupCallback;
+    this.parquetWriter = parquetWriter;
     initialize();
   }
 
 
-  protected void handle(JSONObject message, String sensor, WriterConfiguration config, SyncPolicyCreator syncPolicyCreator) throws IOException {
+  /**
+   * Writes the message to the current file.
+   *
+   * @return false if the message was not written because the current Parquet file has already been
+   * closed by the rotation timer.  The message should be written to a new handler.
+   */
+  protected boolean handle(JSONObject message, String sensor, WriterConfiguration config, SyncPolicyCreator syncPolicyCreator) throws IOException {
+    if (this.parquetWriter != null) {
+      return handleParquet(message, sensor, config, syncPolicyCreator);
+    }
     byte[] bytes = (message.toJSONString() + "\n").getBytes(StandardCharsets.UTF_8);
     synchronized (this.writeLock) {
       try {
@@ -109,6 +129,31 @@ public class SourceHandler {
       this.offset = 0;
       this.rotationPolicy.reset();
     }
+    return true;
+  }
+
+  private boolean handleParquet(JSONObject message, String sensor, WriterConfiguration config, SyncPolicyCreator syncPolicyCreator) throws IOException {
+    synchronized (this.writeLock) {
+      if (this.parquetWriter.isClosed()) {
+        return false;
+      }
+      this.offset += this.parquetWriter.write(message);
+      if (this.syncPolicy.mark(null, this.offset)) {
+        // A Parquet file cannot be synced while open, so the messages are staged in a part file
+        // until the file is rotated.
+        LOG.debug("Staging messages per Sync Policy");
+        this.parquetWriter.sync();
+        this.syncPolicy = syncPolicyCreator.create(sensor, config);
+      }
+    }
+
+    if (this.rotationPolicy.mark(null, this.offset)) {
+      LOG.debug("Rotating due to rotationPolicy");
+      rotateOutputFile(); // synchronized
+      this.offset = 0;
+      this.rotationPolicy.reset();
+    }
+    return true;
   }
 
   private void initialize() throws IOException {
@@ -139,6 +184,10 @@ public class SourceHandler {
     LOG.debug("Rotating output file...");
     long start = System.currentTimeMillis();
     synchronized (this.writeLock) {
+      if (this.parquetWriter != null && this.parquetWriter.isClosed()) {
+        LOG.debug("Output file {} has already been rotated", currentFile);
+        return;
+      }
       closeOutputFile();
       // Want to use the callback to make sure we have an accurate count of open files.
       cleanupCallback();
@@ -158,7 +207,12 @@ public class SourceHandler {
     // be created.
     Path path = new Path(this.fileNameFormat.getPath(), this.fileNameFormat.getName(0, System.currentTimeMillis()));
     LOG.debug("Creating new output file: {}", () -> path.getName());
-    if(fs.getScheme().equals("file")) {
+    if(this.parquetWriter != null) {
+      Path parquetPath = new Path(path.getParent(), ParquetMessageWriter.getFileName(path.getName()));
+      this.parquetWriter.open(parquetPath);
+      return parquetPath;
+    }
+    else if(fs.getScheme().equals("file")) {
       //in the situation where we're running this in a local filesystem, flushing doesn't work.
       fs.mkdirs(path.getParent());
       this.out = new FSDataOutputStream(new FileOutputStream(path.toString()), null);
@@ -170,6 +224,10 @@ public class SourceHandler {
   }
 
   protected void closeOutputFile() throws IOException {
+    if (this.parquetWriter != null) {
+      this.parquetWriter.close();
+      return;
+    }
     this.out.close();
   }
 
@@ -18,10 +18,14 @@
 
 package org.apache.metron.writer.hdfs;
 
+import org.apache.hadoop.fs.Path;
 import org.apache.metron.common.configuration.IndexingConfigurations;
 import org.apache.metron.common.configuration.writer.IndexingWriterConfiguration;
 import org.apache.metron.common.configuration.writer.WriterConfiguration;
 import org.apache.metron.common.writer.BulkMessage;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
 import org.apache.storm.hdfs.bolt.format.DefaultFileNameFormat;
 import org.apache.storm.hdfs.bolt.format.FileNameFormat;
 import org.apache.storm.hdfs.bolt.sync.CountSyncPolicy;
@@ -483,10 +487,119 @@ public class HdfsWriterTest {
     }
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testWriteParquetWithInferredSchema() throws Exception {
+    Map<String, Object> parquetConfig = new HashMap<>();
+    parquetConfig.put(IndexingConfigurations.OUTPUT_FORMAT_CONF, "parquet");
+    parquetConfig.put(IndexingConfigurations.BATCH_SIZE_CONF, 1);
+    WriterConfiguration config = buildWriterConfiguration("", parquetConfig);
+    HdfsWriter writer = new HdfsWriter().withFileNameFormat(testFormat);
+    writer.init(new HashMap<String, String>(), config);
+    writer.initFileNameFormat(createTopologyContext());
+
+    JSONObject message1 = new JSONObject();
+    message1.put("ip_src_addr", "10.0.0.1");
+    message1.put("bytes", 10);
+    JSONObject message2 = new JSONObject();
+    message2.put("ip_src_addr", "10.0.0.2");
+    message2.put("bytes", 20);
+    // the schema of the path widens to hold this message
+    JSONObject message3 = new JSONObject();
+    message3.put("ip_src_addr", "10.0.0.3");
+    message3.put("bytes", 2.5);
+    message3.put("is_alert", true);
+
+    // every sync stages the messages in a part file, so they are durable before the file is rotated
+    File outputFolder = new File(folder, SENSOR_NAME);
+    File stagingFolder = new File(outputFolder, ParquetMessageWriter.STAGING_DIR);
+    writer.write(SENSOR_NAME, config, Collections.singletonList(new BulkMessage<>("message1", message1)));
+    assertEquals(0, getParquetFiles(outputFolder).size());
+    assertEquals(1, getParquetFiles(stagingFolder).size());
+    assertEquals(1, readParquet(getParquetFiles(stagingFolder).get(0)).size());
+    writer.write(SENSOR_NAME, config, Collections.singletonList(new BulkMessage<>("message2", message2)));
+    writer.write(SENSOR_NAME, config, Collections.singletonList(new BulkMessage<>("message3", message3)));
+    assertEquals(3, getParquetFiles(stagingFolder).size());
+
+    // the parts are compacted into a single file when it is closed
+    writer.close();
+    assertEquals(0, getParquetFiles(stagingFolder).size());
+    List<File> files = getParquetFiles(outputFolder);
+    assertEquals(1, files.size());
+    Map<String, Group> rows = new HashMap<>();
+    for (Group row : readParquet(files.get(0))) {
+      rows.put(row.getString("ip_src_addr", 0), row);
+    }
+    assertEquals(3, rows.size());
+
+    // the file is written with the widened schema
+    assertEquals(0, rows.get("10.0.0.1").getFieldRepetitionCount("is_alert"));
+    assertEquals(10.0, rows.get("10.0.0.1").getDouble("bytes", 0), 0.0);
+    assertEquals(20.0, rows.get("10.0.0.2").getDouble("bytes", 0), 0.0);
+    assertEquals(2.5, rows.get("10.0.0.3").getDouble("bytes", 0), 0.0);
+    assertTrue(rows.get("10.0.0.3").getBoolean("is_alert", 0));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testWriteParquetWithConfiguredSchema() throws Exception {
+    Map<String, Object> schema = new HashMap<>();
+    schema.put("bytes", "long");
+    schema.put("is_alert", "boolean");
+    Map<String, Object> parquetConfig = new HashMap<>();
+    parquetConfig.put(IndexingConfigurations.OUTPUT_FORMAT_CONF, "PARQUET");
+    parquetConfig.put(IndexingConfigurations.OUTPUT_SCHEMA_CONF, schema);
+    parquetConfig.put(IndexingConfigurations.OUTPUT_COMPRESSION_CONF, "gzip");
+    WriterConfiguration config = buildWriterConfiguration("", parquetConfig);
+    HdfsWriter writer = new HdfsWriter().withFileNameFormat(testFormat);
+    writer.init(new HashMap<String, String>(), config);
+    writer.initFileNameFormat(createTopologyContext());
+
+    JSONObject message = new JSONObject();
+    message.put("ip_src_addr", "10.0.0.1");
+    message.put("bytes", "10");
+    message.put("is_alert", "not a boolean");
+    writer.write(SENSOR_NAME, config, Collections.singletonList(new BulkMessage<>("message1", message)));
+    writer.close();
+
+    List<File> files = getParquetFiles(new File(folder, SENSOR_NAME));
+    assertEquals(1, files.size());
+    assertTrue(files.get(0).getName().startsWith("prefix-"));
+    List<Group> rows = readParquet(files.get(0));
+    assertEquals(1, rows.size());
+    // fields outside the schema are dropped, and values are converted to the column type if possible
+    assertFalse(rows.get(0).getType().containsField("ip_src_addr"));
+    assertEquals(10L, rows.get(0).getLong("bytes", 0));
+    assertEquals(0, rows.get(0).getFieldRepetitionCount("is_alert"));
+  }
+
+  private List<File> getParquetFiles(File outputFolder) {
+    List<File> files = new ArrayList<>();
+    for (File file : outputFolder.listFiles()) {
+      if (file.getName().endsWith(ParquetMessageWriter.EXTENSION)) {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
+  private List<Group> readParquet(File file) throws IOException {
+    List<Group> rows = new ArrayList<>();
+    try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), new Path(file.getAbsolutePath())).build()) {
+      for (Group row = reader.read(); row != null; row = reader.read()) {
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+
   protected WriterConfiguration buildWriterConfiguration(String function) {
+    return buildWriterConfiguration(function, new HashMap<>());
+  }
+
+  protected WriterConfiguration buildWriterConfiguration(String function, Map<String, Object> writerIndexingConfig) {
     IndexingConfigurations indexingConfig = new IndexingConfigurations();
     Map<String, Object> sensorIndexingConfig = new HashMap<>();
-    Map<String, Object> writerIndexingConfig = new HashMap<>();
     writerIndexingConfig.put(IndexingConfigurations.OUTPUT_PATH_FUNCTION_CONF, function);
     sensorIndexingConfig.put(WRITER_NAME, writerIndexingConfig);
     indexingConfig.updateSensorIndexingConfig(SENSOR_NAME, sensorIndexingConfig);
@@ -62,6 +62,11 @@ public class BaseStellarProcessor<T> {
   public static final int DEFAULT_EXPIRY_TIME = 10;
   public static final TimeUnit DEFAULT_EXPIRY_TIME_UNITS = TimeUnit.MINUTES;
 
+  /**
+   * The system property that enables linking compiled expressions into a {@link CompiledExpression}.
+   */
+  public static final String COMPILE_PROPERTY = "stellar.compile.linked";
+
   /**
    * The default expression cache.  This is used when the expression cache is not otherwise specified.
    */
@@ -134,6 +139,25 @@ public class BaseStellarProcessor<T> {
    * @return The value of the evaluated Stellar expression, {@code rule}.
    */
   public T parse(final String rule, final VariableResolver variableResolver, final FunctionResolver functionResolver, final Context context) {
+    return parse(rule, variableResolver, functionResolver, context, null);
+  }
+
+  /**
+   * Parses and evaluates the given Stellar expression, {@code rule}, sharing the results of deterministic
+   * function calls with other expressions evaluated against the same variables.
+   * @param rule The Stellar expression to parse and evaluate.
+   * @param variableResolver The {@link VariableResolver} to determine values of variables used in the Stellar expression, {@code rule}.
+   * @param functionResolver The {@link FunctionResolver} to determine values of functions used in the Stellar expression, {@code rule}.
+   * @param context The context used during validation.
+   * @param subexpressions The shared results of deterministic function calls.  If null, nothing is shared.
+   * @return The value of the evaluated Stellar expression, {@code rule}.
+   */
+  public T parse(final String rule
+               , final VariableResolver variableResolver
+               , final FunctionResolver functionResolver
+               , final Context context
+               , final Map<String, Object> subexpressions
+               ) {
     StellarCompiler.Expression expression = null;
     if (rule == null || isEmpty(rule.trim())) {
       return null;
@@ -148,7 +172,7 @@ public class BaseStellarProcessor<T> {
     }
     try {
       return clazz.cast(expression
-          .apply(new StellarCompiler.ExpressionState(context, functionResolver, variableResolver)));
+          .apply(new StellarCompiler.ExpressionState(context, functionResolver, variableResolver, subexpressions)));
     }
     catch(Throwable e) {
       throw createException(rule, variableResolver, e);
@@ -175,10 +199,24 @@ public class BaseStellarProcessor<T> {
 
   /**
    * Parses and evaluates the given Stellar expression, {@code rule}.
+   *
+   * <p>If the {@link #COMPILE_PROPERTY} system property is true, the expression is linked into a
+   * {@link CompiledExpression}.
+   *
    * @param rule The Stellar expression to parse and evaluate.
    * @return The Expression, which can be reevaluated without reparsing in different Contexts and Resolvers.
    */
   public static StellarCompiler.Expression compile(final String rule) {
+    return compile(rule, Boolean.getBoolean(COMPILE_PROPERTY));
+  }
+
+  /**
+   * Parses and evaluates the given Stellar expression, {@code rule}.
+   * @param rule The Stellar expression to parse and evaluate.
+   * @param linked If true, link the expression into a {@link CompiledExpression}, otherwise it is interpreted.
+   * @return The Expression, which can be reevaluated without reparsing in different Contexts and Resolvers.
+   */
+  public static StellarCompiler.Expression compile(final String rule, boolean linked) {
     if (rule == null || isEmpty(rule.trim())) {
       return null;
     }
@@ -199,7 +237,8 @@ public class BaseStellarProcessor<T> {
     parser.removeErrorListeners();
     parser.addErrorListener(new ErrorListener());
     parser.transformation();
-    return treeBuilder.getExpression();
+    StellarCompiler.Expression expression = treeBuilder.getExpression();
+    return linked ? CompiledExpression.compile(expression) : expression;
   }
 
   /**
@@ -19,8 +19,11 @@ package org.apache.metron.stellar.common;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.stellar.dsl.Context;
@@ -29,10 +32,12 @@ import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -42,7 +47,12 @@ import java.util.concurrent.TimeUnit;
 public class CachingStellarProcessor extends StellarProcessor {
 
   private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
-  private static ThreadLocal<Map<String, Set<String>> > variableCache = ThreadLocal.withInitial(() -> new HashMap<>());
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  /**
+   * The canonical instance of each expression along with the variables that it uses.
+   */
+  private static final Map<String, ExpressionVariables> expressions = new ConcurrentHashMap<>();
 
   /**
    * A property that defines the maximum cache size.
@@ -60,34 +70,49 @@ public class CachingStellarProcessor extends StellarProcessor {
   public static String RECORD_STATS = "stellar.cache.record.stats";
 
   /**
-   * The cache key is based on the expression and input values.
+   * The cache key is based on the expression and a 128-bit hash of the input values.
+   *
+   * <p>The input values are retained so that, when two keys share the same hash, the values can be compared
+   * to guard against a collision.
    */
   public static class Key {
 
     /**
-     * The expression to execute.
+     * The expression to execute.  Keys share a single, canonical instance of each expression.
+     */
+    private final String expression;
+
+    /**
+     * The 128-bit hash of the input values.
      */
-    private String expression;
+    private final long hashHigh;
+    private final long hashLow;
 
     /**
-     * The variables that serve as input to the expression.
+     * The variables that serve as input to the expression, ordered as the expression's variables.
      */
-    private Map<String, Object> input;
+    private final Object[] input;
 
-    public Key(String expression, Map<String, Object> input) {
+    private final int hashCode;
+
+    public Key(String expression, long hashHigh, long hashLow, Object[] input) {
       this.expression = expression;
+      this.hashHigh = hashHigh;
+      this.hashLow = hashLow;
       this.input = input;
+      this.hashCode = 31 * expression.hashCode() + Long.hashCode(hashLow);
     }
 
     public String getExpression() {
       return expression;
     }
 
-    public Map<String, Object> getInput() {
+    public Object[] getInput() {
       return input;
     }
 
     @Override
+    @SuppressWarnings("ReferenceEquality")
     public boolean equals(Object o) {
       if (this == o) {
         return true;
@@ -98,18 +123,15 @@ public class CachingStellarProcessor extends StellarProcessor {
       }
 
       Key key = (Key) o;
-      return new EqualsBuilder()
-              .append(expression, key.expression)
-              .append(input, key.input)
-              .isEquals();
+      return hashLow == key.hashLow
+              && hashHigh == key.hashHigh
+              && (expression == key.expression || expression.equals(key.expression))
+              && Arrays.equals(input, key.input);
     }
 
     @Override
     public int hashCode() {
-      return new HashCodeBuilder(17, 37)
-              .append(expression)
-              .append(input)
-              .toHashCode();
+      return hashCode;
     }
 
     @Override
@@ -121,6 +143,19 @@ public class CachingStellarProcessor extends StellarProcessor {
     }
   }
 
+  /**
+   * The canonical instance of an expression and the variables that it uses.
+   */
+  private static class ExpressionVariables {
+    private final String expression;
+    private final String[] variables;
+
+    ExpressionVariables(String expression, Set<String> variables) {
+      this.expression = expression;
+      this.variables = variables == null ? new String[0] : variables.toArray(new String[0]);
+    }
+  }
+
   /**
    * Parses and evaluates the given Stellar expression, {@code expression}. Results will be taken
    * from a cache if possible.
@@ -171,19 +206,68 @@ public class CachingStellarProcessor extends StellarProcessor {
   protected Key toKey(String expression, VariableResolver resolver) {
 
     // fetch only the variables used in the expression
-    Set<String> variablesUsed = variableCache.get().computeIfAbsent(expression, this::variablesUsed);
+    ExpressionVariables used = expressions.get(expression);
+    if(used == null) {
+      used = expressions.computeIfAbsent(expression, e -> new ExpressionVariables(e, variablesUsed(e)));
+    }
 
-    // resolve each of the variables used by the expression
-    Map<String, Object> input = new HashMap<>();
-    for(String v : variablesUsed) {
-      input.computeIfAbsent(v, resolver::resolve);
+    // resolve and hash each of the variables used by the expression
+    Object[] input = new Object[used.variables.length];
+    Hasher hasher = HASH_FUNCTION.newHasher();
+    for(int i = 0; i < input.length; ++i) {
+      input[i] = resolver.resolve(used.variables[i]);
+      hash(hasher, input[i]);
     }
+    HashCode hash = hasher.hash();
+    ByteBuffer bytes = ByteBuffer.wrap(hash.asBytes());
 
-    Key cacheKey = new Key(expression, input);
+    Key cacheKey = new Key(used.expression, bytes.getLong(), bytes.getLong(), input);
     LOG.debug("Created cache key; {}", cacheKey);
     return cacheKey;
   }
 
+  /**
+   * Adds a value to the hash.  Each value is tagged with its type, so that, for example, the
+   * integer 1 and the long 1 do not produce the same hash.
+   */
+  private static void hash(Hasher hasher, Object value) {
+    if(value == null) {
+      hasher.putByte((byte) 0);
+    } else if(value instanceof String) {
+      String s = (String) value;
+      hasher.putByte((byte) 1).putInt(s.length()).putUnencodedChars(s);
+    } else if(value instanceof Integer) {
+      hasher.putByte((byte) 2).putInt((Integer) value);
+    } else if(value instanceof Long) {
+      hasher.putByte((byte) 3).putLong((Long) value);
+    } else if(value instanceof Double) {
+      hasher.putByte((byte) 4).putDouble((Double) value);
+    } else if(value instanceof Float) {
+      hasher.putByte((byte) 5).putFloat((Float) value);
+    } else if(value instanceof Boolean) {
+      hasher.putByte((byte) 6).putBoolean((Boolean) value);
+    } else {
+      // collisions between other values are resolved by comparing the input
+      hasher.putByte((byte) 7).putInt(value.hashCode());
+    }
+  }
+
+  /**
+   * Describes the usage of a cache.  Statistics are only available if {@link #RECORD_STATS} is enabled.
+   *
+   * @param cache The cache.
+   * @return A description of the hit ratio and load time of the cache.
+   */
+  public static String describeStats(Cache<Key, Object> cache) {
+    CacheStats stats = cache.stats();
+    return String.format("requests=%d, hitRate=%.4f, loads=%d, averageLoadPenaltyMs=%.3f, evictions=%d",
+            stats.requestCount(),
+            stats.hitRate(),
+            stats.loadCount(),
+            stats.averageLoadPenalty() / 1_000_000.0,
+            stats.evictionCount());
+  }
+
   /**
    * Create a cache given a config.  Note that if the cache size is {@literal <}= 0, then no cache will be returned.
    * @param config
@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+import com.google.common.collect.Iterables;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.apache.metron.stellar.dsl.ParseException;
+import org.apache.metron.stellar.dsl.Token;
+
+/**
+ * A Stellar expression that has been linked into a flat instruction array.
+ *
+ * <p>The interpreter in {@link StellarCompiler.Expression} walks the token deque with an iterator
+ * and, whenever it short circuits an IF, MATCH, AND or OR, scans forward for the matching marker
+ * token.  All of those scans depend only upon the shape of the expression, so this class performs
+ * them once, up front, and records the branch target of every marker.  Evaluation then becomes a
+ * single pass over an array with direct jumps.  The operand stack is reused by the evaluations on a
+ * thread, so evaluation does not allocate beyond the values that the functions produce.
+ *
+ * <p>The semantics are identical to the interpreter.  Lambdas are created at evaluation time and
+ * continue to be interpreted.
+ */
+public class CompiledExpression extends StellarCompiler.Expression {
+
+  private static final int OP_PUSH = 0;
+  private static final int OP_DEFERRED = 1;
+  private static final int OP_FRAME = 2;
+  private static final int OP_BOOLEAN_ARG = 3;
+  private static final int OP_IF = 4;
+  private static final int OP_ELSE = 5;
+  private static final int OP_MATCH_CHECK = 6;
+  private static final int OP_MATCH_CLAUSE_END = 7;
+  private static final int OP_SHORT_CIRCUIT = 8;
+
+  private static final Token<Boolean> FALSE = new Token<>(false, Boolean.class);
+
+  private static final ThreadLocal<OperandStacks> OPERAND_STACKS = ThreadLocal.withInitial(OperandStacks::new);
+
+  private final Token<?>[] program;
+  private final StellarCompiler.DeferredFunction[] functions;
+  private final int[] opcodes;
+
+  /**
+   * The target taken when an instruction short circuits; the matching ELSE of an IF, the end of a
+   * MATCH clause whose check was false or the frame that closes an AND/OR.
+   */
+  private final int[] branchTargets;
+
+  /**
+   * The target taken when an instruction is skipped over; the end of an ELSE whose THEN was taken
+   * or the end of all MATCH clauses once one has matched.
+   */
+  private final int[] skipTargets;
+
+  /**
+   * Whether a null value preceding the instruction must be treated as false.
+   */
+  private final boolean[] nullIsFalse;
+
+  /**
+   * Whether an empty collection preceding the instruction must be treated as false.
+   */
+  private final boolean[] emptyIsFalse;
+
+  private CompiledExpression(StellarCompiler.Expression expression) {
+    super(expression.tokenDeque, expression.variablesUsed);
+    int n = expression.tokenDeque.size();
+    program = new Token<?>[n];
+    functions = new StellarCompiler.DeferredFunction[n];
+    opcodes = new int[n];
+    branchTargets = new int[n];
+    skipTargets = new int[n];
+    nullIsFalse = new boolean[n];
+    emptyIsFalse = new boolean[n];
+
+    int i = 0;
+    for (Iterator<Token<?>> it = expression.tokenDeque.descendingIterator(); it.hasNext(); i++) {
+      Token<?> token = it.next();
+      program[i] = token;
+      opcodes[i] = opcode(token.getUnderlyingType());
+      if (opcodes[i] == OP_DEFERRED) {
+        functions[i] = (StellarCompiler.DeferredFunction) token.getValue();
+      }
+      nullIsFalse[i] = token.getValue() != null && isConditional(token.getValue().getClass());
+      emptyIsFalse[i] = isConditional(token.getUnderlyingType());
+    }
+    for (i = 0; i < n; i++) {
+      branchTargets[i] = -1;
+      skipTargets[i] = -1;
+      switch (opcodes[i]) {
+        case OP_BOOLEAN_ARG:
+          branchTargets[i] = findFrame(i, program[i].getMultiArgContext());
+          break;
+        case OP_IF:
+          branchTargets[i] = findElse(i);
+          break;
+        case OP_ELSE:
+          skipTargets[i] = findNext(i, StellarCompiler.EndConditional.class);
+          break;
+        case OP_MATCH_CHECK:
+          branchTargets[i] = findNext(i, StellarCompiler.MatchClauseEnd.class);
+          skipTargets[i] = findNext(i, StellarCompiler.MatchClausesEnd.class);
+          break;
+        case OP_MATCH_CLAUSE_END:
+          skipTargets[i] = findNext(i, StellarCompiler.MatchClausesEnd.class);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * Links an expression produced by the {@link StellarCompiler}.
+   *
+   * @param expression The interpreted expression.
+   * @return The linked expression or the original expression if it cannot be linked.
+   */
+  public static StellarCompiler.Expression compile(StellarCompiler.Expression expression) {
+    if (expression == null
+            || expression instanceof CompiledExpression
+            || expression instanceof LambdaExpression
+            || expression.tokenDeque.isEmpty()) {
+      return expression;
+    }
+    return new CompiledExpression(expression);
+  }
+
+  @Override
+  public Object apply(StellarCompiler.ExpressionState state) {
+    OperandStacks stacks = OPERAND_STACKS.get();
+    Deque<Token<?>> instanceDeque = stacks.acquire(program.length);
+    try {
+      return apply(state, instanceDeque);
+    } finally {
+      stacks.release(instanceDeque);
+    }
+  }
+
+  private Object apply(StellarCompiler.ExpressionState state, Deque<Token<?>> instanceDeque) {
+    final int n = program.length;
+    int skipElseCount = 0;
+    boolean skipMatchClauses = false;
+    for (int i = 0; i < n; i++) {
+      int op = opcodes[i];
+      if (skipElseCount > 0 && op == OP_ELSE) {
+        i = skipTargets[i];
+        op = opcodes[i];
+        skipElseCount--;
+      }
+      if (skipMatchClauses && (op == OP_MATCH_CLAUSE_END || op == OP_MATCH_CHECK)) {
+        i = skipTargets[i];
+        op = opcodes[i];
+        skipMatchClauses = false;
+      }
+      Token<?> curr = instanceDeque.peek();
+      if (curr != null && isFalsey(i, curr.getValue())) {
+        curr = curr.getMultiArgContext() == null ? FALSE : new Token<>(false, Boolean.class, curr.getMultiArgContext());
+        instanceDeque.removeFirst();
+        instanceDeque.addFirst(curr);
+      }
+      if (op >= OP_BOOLEAN_ARG && curr != null && curr.getValue() instanceof Boolean) {
+        boolean value = (Boolean) curr.getValue();
+        switch (op) {
+          case OP_BOOLEAN_ARG: {
+            FrameContext.Context context = program[i].getMultiArgContext();
+            if (context != null
+                    && ((context.getVariety() == FrameContext.BOOLEAN_OR && value)
+                    || (context.getVariety() == FrameContext.BOOLEAN_AND && !value))) {
+              i = curr.getMultiArgContext() == context
+                      ? branchTargets[i]
+                      : findFrame(i, curr.getMultiArgContext());
+            }
+            break;
+          }
+          case OP_IF:
+            instanceDeque.pop();
+            if (value) {
+              skipElseCount++;
+            } else {
+              i = branchTargets[i];
+            }
+            break;
+          case OP_MATCH_CHECK:
+            instanceDeque.pop();
+            if (value) {
+              skipMatchClauses = true;
+            } else {
+              i = branchTargets[i];
+            }
+            break;
+          default:
+            break;
+        }
+        // the instruction at the branch target was consumed by the jump
+        continue;
+      }
+      if (op == OP_DEFERRED) {
+        functions[i].apply(instanceDeque, state);
+      } else if (op == OP_PUSH) {
+        instanceDeque.push(program[i]);
+      }
+    }
+
+    if (instanceDeque.isEmpty()) {
+      throw new ParseException("Invalid predicate: Empty stack.");
+    }
+    Token<?> token = instanceDeque.pop();
+    if (instanceDeque.isEmpty()) {
+      return token.getValue();
+    }
+    throw new ParseException("Invalid parse, found " + token);
+  }
+
+  private boolean isFalsey(int i, Object value) {
+    if (value == null) {
+      return nullIsFalse[i];
+    }
+    if (emptyIsFalse[i]) {
+      if (value instanceof Iterable) {
+        return Iterables.isEmpty((Iterable<?>) value);
+      } else if (value instanceof Map) {
+        return ((Map<?, ?>) value).isEmpty();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Finds the next instruction after {@code i} of the given marker type.  As with the interpreter,
+   * running off the end of the program lands on the last instruction.
+   */
+  private int findNext(int i, Class<?> marker) {
+    for (int j = i + 1; j < program.length; j++) {
+      if (program[j].getUnderlyingType() == marker) {
+        return j;
+      }
+    }
+    return program.length - 1;
+  }
+
+  /**
+   * Finds the ELSE that belongs to the IF at {@code i}, skipping over any nested conditionals.
+   */
+  private int findElse(int i) {
+    int innerIfCount = 0;
+    for (int j = i + 1; j < program.length; j++) {
+      if (opcodes[j] == OP_IF) {
+        innerIfCount++;
+      } else if (opcodes[j] == OP_ELSE) {
+        if (innerIfCount == 0) {
+          return j;
+        }
+        innerIfCount--;
+      }
+    }
+    return program.length - 1;
+  }
+
+  /**
+   * Finds the frame closing the AND/OR with the given context.
+   */
+  @SuppressWarnings("ReferenceEquality")
+  private int findFrame(int i, FrameContext.Context context) {
+    for (int j = i + 1; j < program.length; j++) {
+      if (opcodes[j] == OP_FRAME && program[j].getMultiArgContext() == context) {
+        return j;
+      }
+    }
+    return program.length - 1;
+  }
+
+  private static int opcode(Class<?> type) {
+    if (type == StellarCompiler.DeferredFunction.class) {
+      return OP_DEFERRED;
+    } else if (type == StellarCompiler.ShortCircuitFrame.class) {
+      return OP_FRAME;
+    } else if (type == StellarCompiler.BooleanArg.class) {
+      return OP_BOOLEAN_ARG;
+    } else if (type == StellarCompiler.IfExpr.class) {
+      return OP_IF;
+    } else if (type == StellarCompiler.ElseExpr.class) {
+      return OP_ELSE;
+    } else if (type == StellarCompiler.MatchClauseCheckExpr.class) {
+      return OP_MATCH_CHECK;
+    } else if (type == StellarCompiler.MatchClauseEnd.class) {
+      return OP_MATCH_CLAUSE_END;
+    } else if (type != null && StellarCompiler.ShortCircuitOp.class.isAssignableFrom(type)) {
+      return OP_SHORT_CIRCUIT;
+    }
+    return OP_PUSH;
+  }
+
+  private static boolean isConditional(Class<?> type) {
+    return type == StellarCompiler.BooleanArg.class
+            || type == StellarCompiler.IfExpr.class
+            || type == StellarCompiler.MatchClauseCheckExpr.class;
+  }
+
+  /**
+   * The operand stacks of a thread.  A function may itself evaluate an expression, so there is one
+   * stack per level of nesting.
+   */
+  private static final class OperandStacks {
+    private final List<Deque<Token<?>>> stacks = new ArrayList<>();
+    private int depth = 0;
+
+    Deque<Token<?>> acquire(int capacity) {
+      if (depth == stacks.size()) {
+        stacks.add(new ArrayDeque<>(capacity));
+      }
+      return stacks.get(depth++);
+    }
+
+    void release(Deque<Token<?>> stack) {
+      stack.clear();
+      depth--;
+    }
+  }
+}
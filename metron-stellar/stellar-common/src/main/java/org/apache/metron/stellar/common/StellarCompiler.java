@@ -33,6 +33,7 @@ import java.util.Optional;
 import java.util.Set;
 
 import com.google.common.collect.Iterables;
+import org.antlr.v4.runtime.ParserRuleContext;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.metron.stellar.common.evaluators.ArithmeticEvaluator;
@@ -44,7 +45,9 @@ import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.stellar.dsl.FunctionMarker;
 import org.apache.metron.stellar.dsl.ParseException;
+import org.apache.metron.stellar.dsl.PreparableStellarFunction;
 import org.apache.metron.stellar.dsl.StellarFunction;
+import org.apache.metron.stellar.dsl.StellarFunctionInfo;
 import org.apache.metron.stellar.dsl.Token;
 import org.apache.metron.stellar.dsl.VariableResolver;
 import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
@@ -77,13 +80,74 @@ public class StellarCompiler extends StellarBaseListener {
     Context context;
     FunctionResolver functionResolver;
     VariableResolver variableResolver;
+
+    /**
+     * The results of deterministic function calls, keyed by the text of the call.  This may be shared
+     * between expressions that are evaluated against the same variables.  If null, nothing is shared.
+     */
+    Map<String, Object> subexpressions;
+
     public ExpressionState(Context context
               , FunctionResolver functionResolver
               , VariableResolver variableResolver
                           ) {
+      this(context, functionResolver, variableResolver, null);
+    }
+
+    public ExpressionState(Context context
+              , FunctionResolver functionResolver
+              , VariableResolver variableResolver
+              , Map<String, Object> subexpressions
+                          ) {
       this.context = context;
       this.variableResolver = variableResolver;
       this.functionResolver = functionResolver;
+      this.subexpressions = subexpressions;
+    }
+  }
+
+  /**
+   * The result of a deterministic function called with literal arguments.  The function is called once,
+   * the first time the expression is evaluated, and the result is reused thereafter.
+   */
+  static class FoldedResult {
+    private volatile Pair<StellarFunction, Object> result;
+
+    Object apply(StellarFunction function, List<Object> args, Context context) {
+      Pair<StellarFunction, Object> folded = result;
+      if (folded == null || folded.getLeft() != function) {
+        folded = Pair.of(function, function.apply(new ArrayList<>(args), context));
+        result = folded;
+      }
+      return folded.getRight();
+    }
+  }
+
+  /**
+   * A call with literal string arguments.  If the function is a {@link PreparableStellarFunction}, the call
+   * is prepared the first time the expression is evaluated and the prepared call is used thereafter.
+   */
+  static class PreparedCall {
+    private final Map<Integer, Object> literals;
+    private final int numArgs;
+    private volatile Pair<StellarFunction, PreparableStellarFunction.Prepared> prepared;
+
+    PreparedCall(Map<Integer, Object> literals, int numArgs) {
+      this.literals = literals;
+      this.numArgs = numArgs;
+    }
+
+    Object apply(StellarFunction function, List<Object> args, Context context) {
+      Pair<StellarFunction, PreparableStellarFunction.Prepared> call = prepared;
+      if (call == null || call.getLeft() != function) {
+        PreparableStellarFunction.Prepared p = null;
+        if (function instanceof PreparableStellarFunction) {
+          p = ((PreparableStellarFunction) function).prepare(literals, numArgs);
+        }
+        call = Pair.of(function, p);
+        prepared = call;
+      }
+      return call.getRight() == null ? function.apply(args, context) : call.getRight().apply(args, context);
     }
   }
 
@@ -97,6 +161,12 @@ public class StellarCompiler extends StellarBaseListener {
       this.multiArgumentState = new ArrayDeque<>();
     }
 
+    protected Expression(Deque<Token<?>> tokenDeque, Set<String> variablesUsed) {
+      this.tokenDeque = tokenDeque;
+      this.variablesUsed = variablesUsed;
+      this.multiArgumentState = new ArrayDeque<>();
+    }
+
     public void clear() {
       tokenDeque.clear();
       variablesUsed.clear();
@@ -474,9 +544,12 @@ public class StellarCompiler extends StellarBaseListener {
 
   @Override
   public void exitStringLiteral(StellarParser.StringLiteralContext ctx) {
-    String rawToken = ctx.getText();
+    expression.tokenDeque.push(new Token<>(toStringLiteral(ctx.getText()), String.class, getArgContext()));
+  }
+
+  private static String toStringLiteral(String rawToken) {
     String literal = StringEscapeUtils.UNESCAPE_JSON.translate(rawToken);
-    expression.tokenDeque.push(new Token<>(literal.substring(1, literal.length()-1), String.class, getArgContext()));
+    return literal.substring(1, literal.length()-1);
   }
 
   @Override
@@ -653,19 +726,108 @@ public class StellarCompiler extends StellarBaseListener {
   @Override
   public void exitTransformationFunc(StellarParser.TransformationFuncContext ctx) {
     final FrameContext.Context context = getArgContext();
+    final String functionName = ctx.getChild(0).getText();
+    final PreparedCall prepared = prepareCall(ctx);
+    final List<Object> literalArgs = popLiteralArguments();
+    if (literalArgs != null) {
+      // the arguments are all literals, so a deterministic function need only be called once
+      final FoldedResult folded = new FoldedResult();
+      expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
+        StellarFunction function = resolveFunction(state.functionResolver, functionName);
+        initializeFunction(state.context, function, functionName);
+        Object result = StellarFunctionInfo.isDeterministic(function)
+                ? folded.apply(function, literalArgs, state.context)
+                : call(function, prepared, new ArrayList<>(literalArgs), state.context);
+        tokenDeque.push(new Token<>(result, Object.class, context));
+      }, DeferredFunction.class, context));
+      return;
+    }
+    final String callText = ctx.getText();
     expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
       // resolve and initialize the function
-      String functionName = ctx.getChild(0).getText();
       StellarFunction function = resolveFunction(state.functionResolver, functionName);
       initializeFunction(state.context, function, functionName);
 
       // fetch the args, execute, and push result onto the stack
       List<Object> args = getFunctionArguments(popDeque(tokenDeque));
-      Object result = function.apply(args, state.context);
+      Object result;
+      if (state.subexpressions != null && StellarFunctionInfo.isDeterministic(function)) {
+        // share the result with any other evaluation of the same call
+        if (state.subexpressions.containsKey(callText)) {
+          result = state.subexpressions.get(callText);
+        } else {
+          result = call(function, prepared, args, state.context);
+          state.subexpressions.put(callText, result);
+        }
+      } else {
+        result = call(function, prepared, args, state.context);
+      }
       tokenDeque.push(new Token<>(result, Object.class, context));
     }, DeferredFunction.class, context));
   }
 
+  private static Object call(StellarFunction function, PreparedCall prepared, List<Object> args, Context context) {
+    return prepared == null ? function.apply(args, context) : prepared.apply(function, args, context);
+  }
+
+  /**
+   * Finds the literal string arguments of a function call.
+   * @param ctx The function call.
+   * @return A call to prepare or null if none of the arguments are literal strings.
+   */
+  private PreparedCall prepareCall(StellarParser.TransformationFuncContext ctx) {
+    LinkedList<ParserRuleContext> args = new LinkedList<>();
+    for (StellarParser.Op_listContext ops = ctx.func_args().op_list(); ops != null; ops = ops.op_list()) {
+      // op_list is left recursive, so the last child is the last argument
+      args.addFirst((ParserRuleContext) ops.getChild(ops.getChildCount() - 1));
+    }
+    Map<Integer, Object> literals = new HashMap<>();
+    int i = 0;
+    for (ParserRuleContext arg : args) {
+      if (arg.getStart() == arg.getStop() && arg.getStart().getType() == StellarParser.STRING_LITERAL) {
+        literals.put(i, toStringLiteral(arg.getStart().getText()));
+      }
+      i++;
+    }
+    return literals.isEmpty() ? null : new PreparedCall(literals, args.size());
+  }
+
+  /**
+   * If every argument of the function call that was just compiled is a literal, removes the arguments
+   * from the token deque and returns their values.
+   * @return The literal argument values or null if any argument is not a literal.
+   */
+  @SuppressWarnings("ReferenceEquality")
+  private List<Object> popLiteralArguments() {
+    Iterator<Token<?>> it = expression.tokenDeque.iterator();
+    if (!it.hasNext() || it.next().getUnderlyingType() != DeferredFunction.class) {
+      return null;
+    }
+    LinkedList<Object> args = new LinkedList<>();
+    int numTokens = 1;
+    while (it.hasNext()) {
+      Token<?> token = it.next();
+      numTokens++;
+      if (token.getUnderlyingType() == FunctionMarker.class) {
+        for (int i = 0; i < numTokens; ++i) {
+          expression.tokenDeque.pop();
+        }
+        return args;
+      }
+      Class<?> type = token.getUnderlyingType();
+      boolean isLiteral = type == String.class
+              || type == Boolean.class
+              || (type != null && Number.class.isAssignableFrom(type))
+              || (type == Object.class && token.getValue() == null
+                  && token != EXPRESSION_REFERENCE && token != LAMBDA_VARIABLES);
+      if (!isLiteral) {
+        return null;
+      }
+      args.addFirst(token.getValue());
+    }
+    return null;
+  }
+
   /**
    * Get function arguments.
    * @param token The token containing the function arguments.
@@ -23,6 +23,7 @@ import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
 import org.apache.metron.stellar.dsl.VariableResolver;
 
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static org.apache.commons.lang3.StringUtils.isEmpty;
@@ -51,13 +52,14 @@ public class StellarPredicateProcessor extends BaseStellarProcessor<Boolean> {
                       , VariableResolver variableResolver
                       , FunctionResolver functionResolver
                       , Context context
+                      , Map<String, Object> subexpressions
                       )
   {
     if(rule == null || isEmpty(rule.trim())) {
       return true;
     }
     try {
-      return super.parse(rule, variableResolver, functionResolver, context);
+      return super.parse(rule, variableResolver, functionResolver, context, subexpressions);
     } catch (ClassCastException e) {
       // predicate must return boolean
       throw new IllegalArgumentException(String.format("The rule '%s' does not return a boolean value.", rule), e);
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.dsl;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Stellar function that can be specialized for a call whose string arguments are literals.
+ *
+ * <p>The function is prepared once per call site, the first time the expression is evaluated.  Work that
+ * depends only upon the literal arguments, like compiling a regular expression or parsing a subnet, can be
+ * done there rather than for every message.
+ */
+public interface PreparableStellarFunction extends StellarFunction {
+
+  /**
+   * Evaluates a call that has been prepared.
+   */
+  @FunctionalInterface
+  interface Prepared {
+
+    /**
+     * @param args All of the arguments of the call, including the literals.
+     * @param context The Stellar context.
+     * @return The result of the call.
+     */
+    Object apply(List<Object> args, Context context);
+  }
+
+  /**
+   * Prepares a call.
+   *
+   * @param literals The literal arguments of the call keyed by their position.
+   * @param numArgs The total number of arguments of the call.
+   * @return The prepared call or null if the call cannot be specialized.
+   */
+  Prepared prepare(Map<Integer, Object> literals, int numArgs);
+}
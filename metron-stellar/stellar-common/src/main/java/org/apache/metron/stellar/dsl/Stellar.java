@@ -30,4 +30,10 @@ public @interface Stellar {
   String description() default "";
   String returns() default "";
   String[] params() default {};
+
+  /**
+   * A deterministic function always returns the same, immutable result for the same arguments
+   * and has no side effects.  Calls to deterministic functions may be evaluated once and shared.
+   */
+  boolean deterministic() default false;
 }
@@ -49,12 +49,22 @@ public class StellarFunctionInfo {
    */
   StellarFunction function;
 
+  /**
+   * True if the function always returns the same result for the same arguments.
+   */
+  boolean deterministic;
+
   public StellarFunctionInfo(String description, String name, String[] params, String returns, StellarFunction function) {
+    this(description, name, params, returns, function, false);
+  }
+
+  public StellarFunctionInfo(String description, String name, String[] params, String returns, StellarFunction function, boolean deterministic) {
     this.description = description;
     this.name = name;
     this.params = params;
     this.function = function;
     this.returns = returns;
+    this.deterministic = deterministic;
   }
 
   public String getReturns() {
@@ -77,6 +87,20 @@ public class StellarFunctionInfo {
     return function;
   }
 
+  public boolean isDeterministic() {
+    return deterministic;
+  }
+
+  /**
+   * Determines if a function has declared itself deterministic with the {@link Stellar} annotation.
+   * @param function The Stellar function.
+   * @return True if the function is deterministic.
+   */
+  public static boolean isDeterministic(StellarFunction function) {
+    Stellar annotation = function == null ? null : function.getClass().getAnnotation(Stellar.class);
+    return annotation != null && annotation.deterministic();
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -89,6 +113,7 @@ public class StellarFunctionInfo {
     if (returns != null ? !returns.equals(that.returns) : that.returns != null) return false;
     // Probably incorrect - comparing Object[] arrays with Arrays.equals
     if (!Arrays.equals(params, that.params)) return false;
+    if (deterministic != that.deterministic) return false;
     return function != null ? function.equals(that.function) : that.function == null;
 
   }
@@ -110,6 +135,7 @@ public class StellarFunctionInfo {
             ", description='" + description + '\'' +
             ", returns='" + returns + '\'' +
             ", params=" + Arrays.toString(params) +
+            ", deterministic=" + deterministic +
             ", function=" + function +
             '}';
   }
@@ -22,6 +22,7 @@ import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import org.apache.metron.stellar.dsl.BaseStellarFunction;
+import org.apache.metron.stellar.dsl.PreparableStellarFunction;
 import org.apache.metron.stellar.dsl.Stellar;
 import org.apache.metron.stellar.common.utils.ConversionUtils;
 
@@ -30,6 +31,7 @@ import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.TimeZone;
 import java.util.concurrent.ExecutionException;
@@ -110,10 +112,17 @@ public class DateFunctions {
     return sdf.parse(date).getTime();
   }
 
+  /**
+   * Returns the thread-local formatter for a format and optional timezone.
+   */
+  private static ThreadLocal<SimpleDateFormat> getFormat(String format, Optional<String> timezone) {
+    TimezonedFormat fmt = timezone.map(s -> new TimezonedFormat(format, s)).orElseGet(() -> new TimezonedFormat(format));
+    return formatCache.get(fmt);
+  }
+
   public static String getDateFormat(String format, Optional<Long> epochTime, Optional<String> timezone) {
     Long time = epochTime.orElseGet(System::currentTimeMillis);
-    TimezonedFormat fmt = timezone.map(s -> new TimezonedFormat(format, s)).orElseGet(() -> new TimezonedFormat(format));
-    SimpleDateFormat sdf = formatCache.get(fmt).get();
+    SimpleDateFormat sdf = getFormat(format, timezone).get();
     return sdf.format(new Date(time));
   }
 
@@ -130,7 +139,28 @@ public class DateFunctions {
                      , "timezone - Optional timezone in String format"
                      }
           , returns = "Epoch timestamp")
-  public static class ToTimestamp extends BaseStellarFunction {
+  public static class ToTimestamp extends BaseStellarFunction implements PreparableStellarFunction {
+
+    @Override
+    public Prepared prepare(Map<Integer, Object> literals, int numArgs) {
+      if (!literals.containsKey(1) || (numArgs >= 3 && !literals.containsKey(2))) {
+        return null;
+      }
+      Optional<String> tz = numArgs >= 3 ? Optional.of((String) literals.get(2)) : Optional.empty();
+      final ThreadLocal<SimpleDateFormat> format = getFormat((String) literals.get(1), tz);
+      return (args, context) -> {
+        Object dateObj = args.get(0);
+        if (dateObj == null) {
+          return null;
+        }
+        try {
+          return format.get().parse(dateObj.toString()).getTime();
+        } catch (ParseException e) {
+          return null;
+        }
+      };
+    }
+
     @Override
     public Object apply(List<Object> objects) {
       Object dateObj = objects.get(0);
@@ -159,7 +189,32 @@ public class DateFunctions {
                     "timezone - Optional timezone in String format."},
           returns = "Formatted date."
   )
-  public static class DateFormat extends BaseStellarFunction {
+  public static class DateFormat extends BaseStellarFunction implements PreparableStellarFunction {
+
+    @Override
+    public Prepared prepare(Map<Integer, Object> literals, int numArgs) {
+      if (!literals.containsKey(0)) {
+        return null;
+      }
+      final Optional<String> tz;
+      if (numArgs == 1) {
+        tz = Optional.empty();
+      } else if (numArgs == 2 && literals.containsKey(1)) {
+        tz = Optional.of((String) literals.get(1));
+      } else if (numArgs == 3 && literals.containsKey(2)) {
+        tz = Optional.of((String) literals.get(2));
+      } else {
+        return null;
+      }
+      final ThreadLocal<SimpleDateFormat> format = getFormat((String) literals.get(0), tz);
+      return (args, context) -> {
+        Long time = numArgs == 3 ? (Long) args.get(1) : null;
+        if (time == null) {
+          time = System.currentTimeMillis();
+        }
+        return format.get().format(new Date(time));
+      };
+    }
 
     @Override
     public Object apply(List<Object> objects) {
@@ -25,11 +25,14 @@ import com.google.common.net.InternetDomainName;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.net.util.SubnetUtils;
 import org.apache.metron.stellar.dsl.BaseStellarFunction;
+import org.apache.metron.stellar.dsl.PreparableStellarFunction;
 import org.apache.metron.stellar.dsl.Stellar;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class NetworkFunctions {
   @Stellar(name="IN_SUBNET"
@@ -39,8 +42,38 @@ public class NetworkFunctions {
                     ,"cidr+ - One or more IP ranges specified in CIDR notation (for example 192.168.0.0/24)"
                     }
           ,returns = "True if the IP address is within at least one of the network ranges and false if otherwise"
+          , deterministic = true
           )
-  public static class InSubnet extends BaseStellarFunction {
+  public static class InSubnet extends BaseStellarFunction implements PreparableStellarFunction {
+
+    /**
+     * When every subnet is a literal, each is parsed once rather than for every message.
+     */
+    @Override
+    public Prepared prepare(Map<Integer, Object> literals, int numArgs) {
+      if (numArgs < 2) {
+        return null;
+      }
+      final List<SubnetUtils.SubnetInfo> subnets = new ArrayList<>(numArgs - 1);
+      for (int i = 1; i < numArgs; ++i) {
+        if (!literals.containsKey(i)) {
+          return null;
+        }
+        subnets.add(new SubnetUtils((String) literals.get(i)).getInfo());
+      }
+      return (args, context) -> {
+        String ip = (String) args.get(0);
+        if (ip == null) {
+          return false;
+        }
+        for (SubnetUtils.SubnetInfo subnet : subnets) {
+          if (subnet.isInRange(ip)) {
+            return true;
+          }
+        }
+        return false;
+      };
+    }
 
     @Override
     public Object apply(List<Object> list) {
@@ -74,6 +107,7 @@ public class NetworkFunctions {
                      }
           , returns = "The domain without the subdomains.  " +
                       "(for example, DOMAIN_REMOVE_SUBDOMAINS('mail.yahoo.com') yields 'yahoo.com')"
+          , deterministic = true
           )
   public static class RemoveSubdomains extends BaseStellarFunction {
 
@@ -112,6 +146,7 @@ public class NetworkFunctions {
                      }
           , returns = "The domain without the TLD.  " +
                       "(for example, DOMAIN_REMOVE_TLD('mail.yahoo.co.uk') yields 'mail.yahoo')"
+          , deterministic = true
           )
   public static class RemoveTLD extends BaseStellarFunction {
     @Override
@@ -141,6 +176,7 @@ public class NetworkFunctions {
                      }
           , returns = "The TLD of the domain.  " +
                       "(for example, DOMAIN_TO_TLD('mail.yahoo.co.uk') yields 'co.uk')"
+          , deterministic = true
           )
   public static class ExtractTLD extends BaseStellarFunction {
     @Override
@@ -19,12 +19,14 @@
 package org.apache.metron.stellar.dsl.functions;
 
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.stellar.common.utils.PatternCache;
 import org.apache.metron.stellar.dsl.BaseStellarFunction;
+import org.apache.metron.stellar.dsl.PreparableStellarFunction;
 import org.apache.metron.stellar.dsl.Stellar;
 
 public class RegExFunctions {
@@ -35,8 +37,21 @@ public class RegExFunctions {
           "string - The string to test",
           "pattern - The proposed regex pattern or a list of proposed regex patterns"
       },
-      returns = "True if the regex pattern matches the string and false if otherwise.")
-  public static class RegexpMatch extends BaseStellarFunction {
+      returns = "True if the regex pattern matches the string and false if otherwise.",
+      deterministic = true)
+  public static class RegexpMatch extends BaseStellarFunction implements PreparableStellarFunction {
+
+    @Override
+    public Prepared prepare(Map<Integer, Object> literals, int numArgs) {
+      if (numArgs < 2 || !literals.containsKey(1)) {
+        return null;
+      }
+      final Pattern pattern = PatternCache.INSTANCE.getPattern((String) literals.get(1));
+      return (args, context) -> {
+        String str = (String) args.get(0);
+        return str != null && pattern.matcher(str).matches();
+      };
+    }
 
     @Override
     public Object apply(List<Object> list) {
@@ -76,7 +91,16 @@ public class RegExFunctions {
           "group - integer that selects what group to select, starting at 1"
       },
       returns = "The value of the group, or null if not matched or no group at index")
-  public static class RegexpGroupValue extends BaseStellarFunction {
+  public static class RegexpGroupValue extends BaseStellarFunction implements PreparableStellarFunction {
+
+    @Override
+    public Prepared prepare(Map<Integer, Object> literals, int numArgs) {
+      if (numArgs != 3 || !(literals.get(1) instanceof String)) {
+        return null;
+      }
+      final Pattern pattern = PatternCache.INSTANCE.getPattern((String) literals.get(1));
+      return (args, context) -> groupValue((String) args.get(0), pattern, ConversionUtils.convert(args.get(2), Integer.class));
+    }
 
     @Override
     public Object apply(List<Object> list) {
@@ -86,24 +110,21 @@ public class RegExFunctions {
                 + "where pattern is a regexp pattern");
       }
       String stringPattern = (String) list.get(1);
-      String str = (String) list.get(0);
-      Integer groupNumber = ConversionUtils.convert(list.get(2), Integer.class);
+      Pattern pattern = stringPattern == null ? null : PatternCache.INSTANCE.getPattern(stringPattern);
+      return groupValue((String) list.get(0), pattern, ConversionUtils.convert(list.get(2), Integer.class));
+    }
 
+    private static String groupValue(String str, Pattern pattern, Integer groupNumber) {
       if (groupNumber == null) {
-        // group number was not a valid integer
         return null;
       }
-
       if (groupNumber == 0) {
         // 0, by default is the entire input
-        // default to returning a non-null
         return str;
       }
-
-      if (str == null || stringPattern == null) {
+      if (str == null || pattern == null) {
         return null;
       }
-      Pattern pattern = PatternCache.INSTANCE.getPattern(stringPattern);
       Matcher matcher = pattern.matcher(str);
       if (!matcher.matches()) {
         return null;
@@ -125,7 +146,26 @@ public class RegExFunctions {
           "value - The value to replace the regex pattern"
       },
       returns = "The modified input string with replaced values")
-  public static class RegexpReplace extends BaseStellarFunction {
+  public static class RegexpReplace extends BaseStellarFunction implements PreparableStellarFunction {
+
+    @Override
+    public Prepared prepare(Map<Integer, Object> literals, int numArgs) {
+      if (numArgs != 3 || StringUtils.isEmpty((String) literals.get(1))) {
+        return null;
+      }
+      final Pattern pattern = PatternCache.INSTANCE.getPattern((String) literals.get(1));
+      return (args, context) -> {
+        String str = (String) args.get(0);
+        String value = (String) args.get(2);
+        if (StringUtils.isEmpty(str)) {
+          return null;
+        }
+        if (StringUtils.isEmpty(value)) {
+          return str;
+        }
+        return pattern.matcher(str).replaceAll(value);
+      };
+    }
 
     @Override
     public Object apply(List<Object> list) {
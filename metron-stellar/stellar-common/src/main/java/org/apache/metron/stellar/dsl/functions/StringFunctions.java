@@ -42,7 +42,8 @@ public class StringFunctions {
              "string - The string to test"
             ,"suffix - The proposed suffix"
             }
-          , returns = "True if the string ends with the specified suffix and false if otherwise")
+          , returns = "True if the string ends with the specified suffix and false if otherwise"
+          , deterministic = true)
   public static class EndsWith extends BaseStellarFunction {
     @Override
     public Object apply(List<Object> list) {
@@ -65,6 +66,7 @@ public class StringFunctions {
             ,"prefix - The proposed prefix"
             }
           , returns = "True if the string starts with the specified prefix and false if otherwise"
+          , deterministic = true
           )
   public static class StartsWith extends BaseStellarFunction {
 
@@ -86,6 +88,7 @@ public class StringFunctions {
           , description = "Transforms the first argument to a lowercase string"
           , params = { "input - String" }
           , returns = "Lowercase string"
+          , deterministic = true
           )
   public static class ToLower extends BaseStellarFunction {
     @Override
@@ -98,6 +101,7 @@ public class StringFunctions {
           , description = "Transforms the first argument to an uppercase string"
           , params = { "input - String" }
           , returns = "Uppercase string"
+          , deterministic = true
           )
   public static class ToUpper extends BaseStellarFunction {
     @Override
@@ -110,6 +114,7 @@ public class StringFunctions {
           , description = "Transforms the first argument to a string"
           , params = { "input - Object" }
           , returns = "String"
+          , deterministic = true
           )
   public static class ToString extends BaseStellarFunction {
     @Override
@@ -122,6 +127,7 @@ public class StringFunctions {
           , description = "Trims whitespace from both sides of a string."
           , params = { "input - String" }
           , returns = "String"
+          , deterministic = true
           )
   public static class Trim extends BaseStellarFunction {
     @Override
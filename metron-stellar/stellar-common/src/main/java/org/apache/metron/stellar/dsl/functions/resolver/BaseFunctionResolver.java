@@ -197,7 +197,8 @@ public abstract class BaseFunctionResolver implements FunctionResolver, Serializ
                 fullyQualifiedName,
                 annotation.params(),
                 annotation.returns(),
-                function);
+                function,
+                annotation.deterministic());
       }
     }
 
@@ -18,11 +18,23 @@
 
 package org.apache.metron.stellar.common;
 
+import com.google.common.collect.ImmutableMap;
+import org.apache.metron.stellar.dsl.BaseStellarFunction;
 import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.MapVariableResolver;
 import org.apache.metron.stellar.dsl.ParseException;
+import org.apache.metron.stellar.dsl.PreparableStellarFunction;
+import org.apache.metron.stellar.dsl.Stellar;
+import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
+import org.apache.metron.stellar.dsl.functions.resolver.SimpleFunctionResolver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SuppressWarnings("ALL")
@@ -100,4 +112,86 @@ public class BaseStellarProcessorTest {
     assertFalse(processor.validate("true †", false, Context.EMPTY_CONTEXT()));
     assertFalse(processor.validate("¢ (1 + 2)", false, Context.EMPTY_CONTEXT()));
   }
+
+  @Stellar(name = "COUNTED_UPPER", deterministic = true)
+  public static class CountedUpper extends BaseStellarFunction {
+    static AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public Object apply(List<Object> args) {
+      calls.incrementAndGet();
+      return args.get(0) == null ? null : args.get(0).toString().toUpperCase();
+    }
+  }
+
+  @Stellar(name = "COUNTED_LOWER")
+  public static class CountedLower extends BaseStellarFunction {
+    static AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public Object apply(List<Object> args) {
+      calls.incrementAndGet();
+      return args.get(0) == null ? null : args.get(0).toString().toLowerCase();
+    }
+  }
+
+  @Test
+  public void deterministicFunctionsWithLiteralArgumentsAreFolded() throws Exception {
+    FunctionResolver resolver = new SimpleFunctionResolver().withClass(CountedUpper.class).withClass(CountedLower.class);
+    CountedUpper.calls.set(0);
+    CountedLower.calls.set(0);
+    for (int i = 0; i < 3; ++i) {
+      assertEquals("FOLDED", processor.parse("COUNTED_UPPER('folded')", new MapVariableResolver(new HashMap<>()), resolver, Context.EMPTY_CONTEXT()));
+      assertEquals("folded", processor.parse("COUNTED_LOWER('FOLDED')", new MapVariableResolver(new HashMap<>()), resolver, Context.EMPTY_CONTEXT()));
+    }
+    assertEquals(1, CountedUpper.calls.get());
+    assertEquals(3, CountedLower.calls.get());
+  }
+
+  @Test
+  public void deterministicFunctionCallsAreSharedBetweenExpressions() throws Exception {
+    FunctionResolver resolver = new SimpleFunctionResolver().withClass(CountedUpper.class);
+    MapVariableResolver variables = new MapVariableResolver(ImmutableMap.of("foo", "shared"));
+    Map<String, Object> subexpressions = new HashMap<>();
+    CountedUpper.calls.set(0);
+    assertEquals(true, processor.parse("COUNTED_UPPER(foo) == 'SHARED'", variables, resolver, Context.EMPTY_CONTEXT(), subexpressions));
+    assertEquals("yes", processor.parse("if COUNTED_UPPER(foo) == 'SHARED' then 'yes' else 'no'", variables, resolver, Context.EMPTY_CONTEXT(), subexpressions));
+    assertEquals(1, CountedUpper.calls.get());
+
+    // without a shared map, each call is evaluated
+    assertEquals(true, processor.parse("COUNTED_UPPER(foo) == 'SHARED'", variables, resolver, Context.EMPTY_CONTEXT()));
+    assertEquals(2, CountedUpper.calls.get());
+  }
+
+  @Stellar(name = "COUNTED_PREFIX")
+  public static class CountedPrefix extends BaseStellarFunction implements PreparableStellarFunction {
+    static AtomicInteger prepared = new AtomicInteger();
+
+    @Override
+    public Prepared prepare(Map<Integer, Object> literals, int numArgs) {
+      prepared.incrementAndGet();
+      final String prefix = (String) literals.get(0);
+      return prefix == null ? null : (args, context) -> prefix + args.get(1);
+    }
+
+    @Override
+    public Object apply(List<Object> args) {
+      return "unprepared";
+    }
+  }
+
+  @Test
+  public void literalStringArgumentsArePreparedOnce() throws Exception {
+    FunctionResolver resolver = new SimpleFunctionResolver().withClass(CountedPrefix.class);
+    MapVariableResolver variables = new MapVariableResolver(ImmutableMap.of("foo", "bar"));
+    CountedPrefix.prepared.set(0);
+    for (int i = 0; i < 3; ++i) {
+      assertEquals("prepared-bar", processor.parse("COUNTED_PREFIX('prepared-', foo)", variables, resolver, Context.EMPTY_CONTEXT()));
+    }
+    assertEquals(1, CountedPrefix.prepared.get());
+
+    // without a literal, the call is not prepared
+    assertEquals("unprepared", processor.parse("COUNTED_PREFIX(foo, foo)", variables, resolver, Context.EMPTY_CONTEXT()));
+    assertEquals(1, CountedPrefix.prepared.get());
+  }
 }
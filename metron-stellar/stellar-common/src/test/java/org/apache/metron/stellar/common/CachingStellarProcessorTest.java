@@ -31,7 +31,9 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CachingStellarProcessorTest {
 
@@ -165,6 +167,36 @@ public class CachingStellarProcessorTest {
 
   }
 
+  /**
+   * Keys are equal only if the expression and the values of the variables it uses are equal.
+   */
+  @Test
+  public void testKeyEquality() {
+    CachingStellarProcessor.Key key = processor.toKey("TO_UPPER(name)", new MapVariableResolver(ImmutableMap.of("name", "blah")));
+    CachingStellarProcessor.Key same = processor.toKey("TO_UPPER(name)", new MapVariableResolver(ImmutableMap.of("name", "blah", "other", 1)));
+    CachingStellarProcessor.Key differentValue = processor.toKey("TO_UPPER(name)", new MapVariableResolver(ImmutableMap.of("name", "BLAH")));
+    CachingStellarProcessor.Key differentType = processor.toKey("TO_UPPER(name)", new MapVariableResolver(ImmutableMap.of("name", 1L)));
+    CachingStellarProcessor.Key differentExpression = processor.toKey("TO_LOWER(name)", new MapVariableResolver(ImmutableMap.of("name", "blah")));
+
+    assertEquals(key, same);
+    assertEquals(key.hashCode(), same.hashCode());
+    assertNotEquals(key, differentValue);
+    assertNotEquals(key, differentType);
+    assertNotEquals(key, differentExpression);
+    assertNotEquals(
+            processor.toKey("TO_STRING(name)", new MapVariableResolver(ImmutableMap.of("name", 1))),
+            processor.toKey("TO_STRING(name)", new MapVariableResolver(ImmutableMap.of("name", 1L))));
+  }
+
+  @Test
+  public void testDescribeStats() {
+    execute("TO_UPPER(name)", contextWithCache);
+    execute("TO_UPPER(name)", contextWithCache);
+    String stats = CachingStellarProcessor.describeStats(cache);
+    assertTrue(stats.contains("requests=2"), stats);
+    assertTrue(stats.contains("hitRate=0.5000"), stats);
+  }
+
   /**
    * Execute each expression.
    * @param expression The expression to execute.
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.MapVariableResolver;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.metron.stellar.dsl.VariableResolver;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompiledExpressionTest {
+
+  private static final Map<String, Object> VARIABLES = ImmutableMap.<String, Object>builder()
+          .put("foo", 100)
+          .put("bar", "metron")
+          .put("empty", new ArrayList<>())
+          .put("list", ImmutableList.of(1, 2, 3))
+          .put("is_alert", true)
+          .build();
+
+  private static final List<String> EXPRESSIONS = Arrays.asList(
+          "1 + 2 * foo",
+          "TO_UPPER(bar)",
+          "foo > 5 and bar == 'metron'",
+          "foo < 5 or missing or is_alert",
+          "foo < 5 and THROW('not short circuited')",
+          "foo > 5 or THROW('not short circuited')",
+          "(foo > 5 and missing) || (empty || is_alert)",
+          "if foo > 5 then 'big' else 'small'",
+          "if missing then 'yes' else 'no'",
+          "if empty then 'yes' else 'no'",
+          "if foo > 5 then if bar == 'metron' then 'a' else 'b' else if foo < 0 then 'c' else 'd'",
+          "if foo < 5 then 'a' else if bar == 'metron' then 'b' else 'c'",
+          "match{ foo > 500 => 'a', foo > 50 => 'b', default => 'c'}",
+          "match{ missing => 'a', empty => 'b', default => 'c'}",
+          "match{ NOT(is_alert) => 'a', foo > 50 => TO_UPPER(bar), default => THROW('no match')}",
+          "MAP(list, (x) -> if x > 1 then x * foo else 0)",
+          "FILTER(list, (x) -> x > 1 and foo > 5)",
+          "foo in [ 100, 200 ] && not(bar in [ 'a' ])",
+          "{ 'a' : foo, 'b' : if is_alert then bar else null }"
+  );
+
+  @Test
+  public void testLinkedMatchesInterpreted() {
+    for (String rule : EXPRESSIONS) {
+      Object expected = evaluate(BaseStellarProcessor.compile(rule, false));
+      Object actual = evaluate(BaseStellarProcessor.compile(rule, true));
+      assertEquals(expected, actual, rule);
+    }
+  }
+
+  @Test
+  public void testCompileIsLinked() {
+    StellarCompiler.Expression expression = BaseStellarProcessor.compile("foo > 5", true);
+    assertTrue(expression instanceof CompiledExpression);
+    assertSame(expression, CompiledExpression.compile(expression));
+    assertEquals(1, expression.variablesUsed.size());
+  }
+
+  @Test
+  public void testOperandStackIsReusedSafely() {
+    StellarCompiler.Expression inner = BaseStellarProcessor.compile("foo * 2", true);
+    StellarCompiler.Expression outer = BaseStellarProcessor.compile("1 + nested", true);
+    // resolving the variable evaluates another expression on the same thread, part way through the first
+    VariableResolver resolver = new MapVariableResolver(VARIABLES) {
+      @Override
+      public Object resolve(String variable) {
+        return "nested".equals(variable) ? evaluate(inner) : super.resolve(variable);
+      }
+    };
+    assertEquals(201, evaluate(outer, resolver));
+
+    // a failed evaluation leaves nothing behind on the stack
+    StellarCompiler.Expression failing = BaseStellarProcessor.compile("foo + THROW('failed')", true);
+    assertThrows(Exception.class, () -> evaluate(failing));
+    assertEquals(201, evaluate(outer, resolver));
+  }
+
+  private Object evaluate(StellarCompiler.Expression expression) {
+    return evaluate(expression, new MapVariableResolver(VARIABLES));
+  }
+
+  private Object evaluate(StellarCompiler.Expression expression, VariableResolver resolver) {
+    Context context = Context.EMPTY_CONTEXT();
+    context.setActivityType(Context.ActivityType.VALIDATION_ACTIVITY);
+    try {
+      return expression.apply(new StellarCompiler.ExpressionState(context
+              , StellarFunctions.FUNCTION_RESOLVER()
+              , resolver));
+    } finally {
+      context.setActivityType(null);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common.benchmark;
+
+import org.apache.metron.stellar.common.BaseStellarProcessor;
+import org.apache.metron.stellar.common.StellarCompiler;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.MapVariableResolver;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the interpreted and linked evaluation of the Stellar expressions used as examples for the
+ * {@link StellarMicrobenchmark}, along with the short circuiting constructs that linking affects.
+ *
+ * <p>This is not run as part of the build.  To run it, execute the main method from the test
+ * classpath, for example:
+ *
+ * <pre>
+ *   mvn -pl metron-stellar/stellar-common test-compile exec:java \
+ *     -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.apache.metron.stellar.common.benchmark.StellarExpressionBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StellarExpressionBenchmark {
+
+  @Param({
+          "TO_UPPER('casey')",
+          "TO_LOWER(name)",
+          "1 + 2*(3 + int_num) / 10.0",
+          "1.5 + 2*(3 + double_num) / 10.0",
+          "if ('foo' in ['foo']) OR one == very_nearly_one then 'one' else 'two'",
+          "DOMAIN_TO_TLD(domain)",
+          "DOMAIN_REMOVE_SUBDOMAINS(domain)",
+          "int_num > 5 and name == 'casey' or double_num < 1",
+          "match{ int_num > 50 => 'a', double_num > 10 => 'b', default => 'c'}"
+  })
+  private String expression;
+
+  @Param({"false", "true"})
+  private boolean linked;
+
+  private StellarCompiler.Expression compiled;
+  private StellarCompiler.ExpressionState state;
+
+  @Setup
+  public void setup() {
+    Map<String, Object> variables = new HashMap<>();
+    variables.put("name", "casey");
+    variables.put("int_num", 1);
+    variables.put("double_num", 17.5);
+    variables.put("one", 1);
+    variables.put("very_nearly_one", 1.000001);
+    variables.put("domain", "www.google.com");
+    compiled = BaseStellarProcessor.compile(expression, linked);
+    state = new StellarCompiler.ExpressionState(Context.EMPTY_CONTEXT()
+                                               , StellarFunctions.FUNCTION_RESOLVER()
+                                               , new MapVariableResolver(variables)
+                                               );
+  }
+
+  @Benchmark
+  public Object evaluate() {
+    return compiled.apply(state);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+            .include(StellarExpressionBenchmark.class.getSimpleName())
+            .build())
+            .run();
+  }
+}